@@ -2,6 +2,7 @@ plugins {
 	java
 	id("org.springframework.boot") version "3.3.4"
 	id("io.spring.dependency-management") version "1.1.6"
+	id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.control_ops"
@@ -18,15 +19,30 @@ repositories {
 }
 
 dependencies {
+	implementation("org.springframework.boot:spring-boot-starter-actuator")
 	implementation("org.springframework.boot:spring-boot-starter-amqp")
 	implementation("org.springframework.boot:spring-boot-starter-data-jpa")
 	implementation("org.springframework.boot:spring-boot-starter-web")
+	implementation("org.hdrhistogram:HdrHistogram:2.2.2")
 	testImplementation("org.springframework.boot:spring-boot-starter-test")
 	testImplementation("org.springframework.amqp:spring-rabbit-test")
 	testRuntimeOnly("org.junit.platform:junit-platform-launcher")
-	testRuntimeOnly("com.h2database:h2") // A database is required by the applicationcontext for tests to pass; switch out later for PostgresSQL
+	runtimeOnly("com.h2database:h2") // A database is required by the applicationcontext for tests to pass; switch out later for PostgresSQL
 }
 
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
+
+jmh {
+	// Fixed iteration counts, forks and heap size so that results are comparable between runs and machines
+	warmupIterations = 5
+	warmup = "1s"
+	iterations = 10
+	timeOnIteration = "1s"
+	fork = 2
+	jvmArgs = listOf("-Xms2g", "-Xmx2g")
+	// Report the normalized allocation rate (gc.alloc.rate.norm) alongside every benchmark result
+	profilers = listOf("gc")
+	resultFormat = "JSON"
+}
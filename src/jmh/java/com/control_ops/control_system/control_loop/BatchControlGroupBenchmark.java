@@ -0,0 +1,58 @@
+package com.control_ops.control_system.control_loop;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares evaluating the control law of many proportional loops one behaviour object at a time with evaluating them
+ * in a single pass over structure-of-arrays state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BatchControlGroupBenchmark {
+    @Param({"1000", "10000"})
+    private int numLoops;
+
+    private ControlBehaviour[] controlBehaviours;
+    private double[] setPoints;
+    private double[] processValues;
+    private double[] gains;
+    private double[] outputs;
+
+    @Setup
+    public void setUp() {
+        final SplittableRandom random = new SplittableRandom(42L);
+        setPoints = random.doubles(numLoops, 0.0, 100.0).toArray();
+        processValues = random.doubles(numLoops, 0.0, 100.0).toArray();
+        gains = random.doubles(numLoops, 0.1, 10.0).toArray();
+        outputs = new double[numLoops];
+        controlBehaviours = new ControlBehaviour[numLoops];
+        for (int i = 0; i < numLoops; i++) {
+            controlBehaviours[i] = new ProportionalControl(gains[i]);
+        }
+    }
+
+    @Benchmark
+    public double[] perLoop() {
+        for (int i = 0; i < numLoops; i++) {
+            outputs[i] = controlBehaviours[i].calculateActuatorOutput(setPoints[i], processValues[i]);
+        }
+        return outputs;
+    }
+
+    @Benchmark
+    public double[] batched() {
+        BatchControlGroup.evaluate(setPoints, processValues, gains, outputs, numLoops);
+        return outputs;
+    }
+}
@@ -0,0 +1,77 @@
+package com.control_ops.control_system.control_loop;
+
+import com.control_ops.control_system.instrument.EpochNanoClock;
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.RandomMeasurement;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import com.control_ops.control_system.instrument.sensor.SensorSampling;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of one tick of a 10,000-block control graph made of independent cascades, each with a PID
+ * outer loop, a limited inner set point, a proportional inner loop and a feed-forward term, evaluated in creation
+ * order on one thread and as parallel fork-join tasks. The graph's executor is never started; the benchmark thread
+ * drives each tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ControlGraphBenchmark {
+    // Every cascade holds this many blocks
+    private static final int BLOCKS_PER_CASCADE = 10;
+    private static final long TICK_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(10L);
+
+    @Param({"10000"})
+    private int numBlocks;
+
+    @Param({"true", "false"})
+    private boolean parallel;
+
+    private ControlGraph controlGraph;
+    private ControlGraph.Block lastActuator;
+    private long tickEpochNanos;
+
+    @Setup
+    public void setUp() {
+        controlGraph = new ControlGraph(1, 10L, TimeUnit.MILLISECONDS);
+        int id = 0;
+        for (int i = 0; i < numBlocks / BLOCKS_PER_CASCADE; i++) {
+            final ControlGraph.Block outer = controlGraph.controller(
+                    controlGraph.setPoint(0.5),
+                    controlGraph.sensor(measuredSensor(++id)),
+                    new PidControl(1.0, 0.5, 0.1, 0.05, -10.0, 10.0));
+            final ControlGraph.Block inner = controlGraph.controller(
+                    controlGraph.limit(outer, -5.0, 5.0),
+                    controlGraph.sensor(measuredSensor(++id)),
+                    new ProportionalControl(2.0));
+            final ControlGraph.Block feedForward = controlGraph.gain(controlGraph.sensor(measuredSensor(++id)), 0.25);
+            lastActuator = controlGraph.actuator(controlGraph.sum(inner, feedForward), new Actuator(++id, 0.0));
+        }
+        // Lays the graph out into its independent components
+        controlGraph.getComponentCount();
+        tickEpochNanos = EpochNanoClock.now();
+    }
+
+    private static Sensor measuredSensor(final int id) {
+        final Sensor sensor = new Sensor(id, 10L, TimeUnit.MILLISECONDS, SignalUnit.CELSIUS, new RandomMeasurement(id));
+        SensorSampling.takeMeasurement(sensor);
+        return sensor;
+    }
+
+    @Benchmark
+    public double tick() {
+        tickEpochNanos += TICK_PERIOD_NANOS;
+        controlGraph.evaluate(tickEpochNanos, parallel);
+        return controlGraph.getValue(lastActuator);
+    }
+}
@@ -0,0 +1,81 @@
+package com.control_ops.control_system.control_loop;
+
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.ConstantMeasurement;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how many control loops per second can be registered in, looked up in and deregistered from a registry
+ * that is shared by several threads, as happens when a plant is loaded at startup.
+ * <br><br>
+ * The loops are built once per thread during setup, so only the registry operations are measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class ControlLoopRegistryBenchmark {
+    private static final int LOOPS_PER_THREAD = 1024;
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    @State(Scope.Benchmark)
+    public static class SharedRegistry {
+        private ControlLoopRegistry registry;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            registry = new ControlLoopRegistry();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadLoops {
+        private final ControlLoop[] controlLoops = new ControlLoop[LOOPS_PER_THREAD];
+
+        @Setup
+        public void setUp() {
+            for (int i = 0; i < LOOPS_PER_THREAD; i++) {
+                final int id = nextId.getAndIncrement();
+                controlLoops[i] = new ControlLoop(
+                        id,
+                        new Sensor(id, 1L, TimeUnit.SECONDS, SignalUnit.CELSIUS, new ConstantMeasurement(0.0)),
+                        new Actuator(id, 0.0),
+                        1.0,
+                        1L,
+                        TimeUnit.SECONDS,
+                        new ProportionalControl(1.0));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOPS_PER_THREAD)
+    public void registerLookUpAndDeregister(final SharedRegistry sharedRegistry, final ThreadLoops threadLoops) {
+        final ControlLoopRegistry registry = sharedRegistry.registry;
+        for (final ControlLoop controlLoop : threadLoops.controlLoops) {
+            registry.registerControlLoop(
+                    controlLoop,
+                    controlLoop.getControlledVariable(),
+                    controlLoop.getManipulatedVariable());
+        }
+        for (final ControlLoop controlLoop : threadLoops.controlLoops) {
+            registry.getControlLoopBySensor(controlLoop.getControlledVariable().getId());
+        }
+        for (final ControlLoop controlLoop : threadLoops.controlLoops) {
+            registry.deregisterControlLoop(controlLoop.getId());
+        }
+    }
+}
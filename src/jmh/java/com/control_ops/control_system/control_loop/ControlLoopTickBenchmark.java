@@ -0,0 +1,59 @@
+package com.control_ops.control_system.control_loop;
+
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.actuator.ActuatorInstrumentation;
+import com.control_ops.control_system.instrument.sensor.RandomMeasurement;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import com.control_ops.control_system.instrument.sensor.SensorSampling;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one end-to-end tick of the control path: a sensor sample, the control loop update that reads it, and the
+ * resulting actuator adjustment. The periodic executors are never started; the benchmark thread drives each step.
+ * <br><br>
+ * Runs with actuator instrumentation on and off, so the throughput difference is the cost of counting writes and
+ * sampling them as events.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ControlLoopTickBenchmark {
+    @Param({"true", "false"})
+    private boolean actuatorInstrumentation;
+
+    private Sensor sensor;
+    private Actuator actuator;
+    private ControlLoop controlLoop;
+
+    @Setup
+    public void setUp() {
+        ActuatorInstrumentation.setEnabled(actuatorInstrumentation);
+        sensor = new Sensor(1, 1L, TimeUnit.SECONDS, SignalUnit.CELSIUS, new RandomMeasurement());
+        actuator = new Actuator(1, 0.0);
+        controlLoop = new ControlLoop(
+                1,
+                sensor,
+                actuator,
+                0.5,
+                1L,
+                TimeUnit.SECONDS,
+                new ProportionalControl(1.0));
+    }
+
+    @Benchmark
+    public double sensorToActuatorTick() {
+        SensorSampling.takeMeasurement(sensor);
+        controlLoop.updateManipulatedVariable();
+        return actuator.getSignalValue();
+    }
+}
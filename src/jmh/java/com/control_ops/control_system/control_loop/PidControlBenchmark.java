@@ -0,0 +1,51 @@
+package com.control_ops.control_system.control_loop;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PID output calculation for a single loop and for a sweep across many loops ticking at 1 kHz, where each
+ * loop's state is no longer hot in the CPU cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PidControlBenchmark {
+    private static final long TICK_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Param({"1", "1000", "10000"})
+    private int numLoops;
+
+    private PidControl[] pidControls;
+    private double[] measurements;
+    private long tickEpochNanos = 0L;
+
+    @Setup
+    public void setUp() {
+        final SplittableRandom random = new SplittableRandom(42L);
+        pidControls = new PidControl[numLoops];
+        measurements = random.doubles(numLoops, 0.0, 100.0).toArray();
+        for (int i = 0; i < numLoops; i++) {
+            pidControls[i] = new PidControl(1.2, 0.5, 0.05, 0.01, 0.0, 100.0);
+        }
+    }
+
+    @Benchmark
+    public double tickAllLoops() {
+        tickEpochNanos += TICK_PERIOD_NANOS;
+        double sum = 0.0;
+        for (int i = 0; i < numLoops; i++) {
+            sum += pidControls[i].calculateActuatorOutput(50.0, measurements[i], tickEpochNanos);
+        }
+        return sum;
+    }
+}
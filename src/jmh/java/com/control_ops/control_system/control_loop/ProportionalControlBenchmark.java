@@ -0,0 +1,26 @@
+package com.control_ops.control_system.control_loop;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProportionalControlBenchmark {
+    private final ProportionalControl proportionalControl = new ProportionalControl(1.5);
+
+    // Non-final so the JIT cannot constant-fold the calculation away
+    private double setPoint = 50.0;
+    private double controlledVariable = 42.0;
+
+    @Benchmark
+    public double calculateActuatorOutput() {
+        return proportionalControl.calculateActuatorOutput(setPoint, controlledVariable);
+    }
+}
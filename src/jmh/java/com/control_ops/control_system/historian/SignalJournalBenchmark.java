@@ -0,0 +1,70 @@
+package com.control_ops.control_system.historian;
+
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures append throughput to a signal journal, both directly and from the actuator it journals.
+ * <br><br>
+ * Segments hold a million records and only two are retained, so every iteration rolls over several segments and
+ * deletes old ones, as a journal running for a long time does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SignalJournalBenchmark {
+    @Param({"1048576"})
+    private int recordsPerSegment;
+
+    private Path directory;
+    private SignalJournal journal;
+    private Actuator actuator;
+    private long epochNanos = 0L;
+    private double signalValue = 0.0;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("signal-journal-benchmark");
+        journal = new SignalJournal(directory, recordsPerSegment, 2);
+        actuator = new Actuator(1, 0.0);
+        journal.record(actuator);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        try (final Stream<Path> files = Files.walk(directory)) {
+            for (final Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void append() {
+        epochNanos++;
+        journal.append(SignalSource.SENSOR, 1, 21.5, SignalUnit.CELSIUS, epochNanos);
+    }
+
+    @Benchmark
+    public void adjustJournaledActuator() {
+        signalValue += 0.001;
+        actuator.adjustSignal(signalValue);
+    }
+}
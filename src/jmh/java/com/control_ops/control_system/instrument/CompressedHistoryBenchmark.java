@@ -0,0 +1,94 @@
+package com.control_ops.control_system.instrument;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures appends to a compressed history, and the latency of querying the last minute and the last hour of a day of
+ * 100 ms samples of a slowly drifting, noisy process value read through a 12-bit converter. The bytes each sample
+ * occupies once compressed are logged at the end of each trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompressedHistoryBenchmark {
+    private static final long SAMPLING_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+    private static final int SAMPLES_PER_DAY = 864_000;
+    private static final long MAX_BYTES = 64L << 20;
+
+    private final SplittableRandom random = new SplittableRandom(42L);
+    private final QuantitySum quantitySum = new QuantitySum();
+    private CompressedHistory history;
+    private double trueValue = 50.0;
+    private long epochNanos = 1_700_000_000_000_000_000L;
+    private static final Logger logger = LoggerFactory.getLogger(CompressedHistoryBenchmark.class);
+
+    /**
+     * Sums the quantities it receives, so that queries are measured without allocating.
+     */
+    private static final class QuantitySum implements SampleListener {
+        private double sum = 0.0;
+
+        @Override
+        public void onSample(final double quantity, final long sampleEpochNanos) {
+            sum += quantity;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        history = new CompressedHistory(1L, TimeUnit.DAYS, MAX_BYTES);
+        for (int i = 0; i < SAMPLES_PER_DAY; i++) {
+            appendNextSample();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        logger.info("{} samples compressed to {} bytes per sample, in {} bytes of chunks",
+                history.getSampleCount(),
+                history.getBytesPerSample(),
+                history.getMemoryBytes());
+    }
+
+    private void appendNextSample() {
+        trueValue += random.nextDouble(-0.005, 0.005);
+        final double measuredValue = trueValue + random.nextDouble(-0.05, 0.05);
+        epochNanos += SAMPLING_PERIOD_NANOS;
+        history.append(Math.round(measuredValue / 100.0 * 4095.0) * 100.0 / 4095.0, epochNanos);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void append() {
+        appendNextSample();
+    }
+
+    @Benchmark
+    public double queryLastMinute() {
+        return query(TimeUnit.MINUTES.toNanos(1L));
+    }
+
+    @Benchmark
+    public double queryLastHour() {
+        return query(TimeUnit.HOURS.toNanos(1L));
+    }
+
+    private double query(final long rangeNanos) {
+        quantitySum.sum = 0.0;
+        history.query(epochNanos - rangeNanos, epochNanos, quantitySum);
+        return quantitySum.sum;
+    }
+}
@@ -0,0 +1,55 @@
+package com.control_ops.control_system.instrument.actuator;
+
+import com.control_ops.control_system.instrument.Signal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Actuator.adjustSignal with a varying number of listeners attached.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ActuatorBenchmark {
+    @Param({"0", "1", "8"})
+    private int numListeners;
+
+    private Actuator actuator;
+    private double signalValue = 0.0;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        actuator = new Actuator(1, 0.0);
+        for (int i = 0; i < numListeners; i++) {
+            actuator.addListener(new ConsumingListener(blackhole));
+        }
+    }
+
+    @Benchmark
+    public void adjustSignal() {
+        signalValue += 0.001;
+        actuator.adjustSignal(signalValue);
+    }
+
+    private static final class ConsumingListener implements ActuatorListener {
+        private final Blackhole blackhole;
+
+        private ConsumingListener(final Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onAdjustment(final Signal signal) {
+            blackhole.consume(signal);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.control_ops.control_system.instrument.actuator;
+
+import com.control_ops.control_system.instrument.Signal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Actuator.adjustSignal with a listener attached, with and without an output stage that clamps, slew limits
+ * and coalesces writes to a 10 ms device cycle. Requests are a noisy output that a fast loop might write, so with the
+ * stage most requests only replace the pending value and the listener is notified at most once per cycle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ActuatorOutputStageBenchmark {
+    private static final int NUM_REQUESTS = 1 << 16;
+
+    @Param({"false", "true"})
+    private boolean shaped;
+
+    private final double[] requests = new double[NUM_REQUESTS];
+    private Actuator actuator;
+    private ActuatorOutputStage outputStage;
+    private int requestIndex = 0;
+    private static final Logger logger = LoggerFactory.getLogger(ActuatorOutputStageBenchmark.class);
+
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        final SplittableRandom random = new SplittableRandom(25L);
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            requests[i] = 50.0 + 20.0 * Math.sin(2.0 * Math.PI * i / NUM_REQUESTS) + random.nextDouble(-0.02, 0.02);
+        }
+        actuator = new Actuator(1, 50.0);
+        actuator.addListener(new ConsumingListener(blackhole));
+        if (shaped) {
+            outputStage = new ActuatorOutputStage(0.0, 100.0, 50.0, 0.01, 10L, TimeUnit.MILLISECONDS);
+            actuator.setOutputStage(outputStage);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (outputStage != null) {
+            logger.info("{} requests were written {} times (coalescing ratio {})",
+                    outputStage.getRequestCount(),
+                    outputStage.getWriteCount(),
+                    outputStage.getCoalescingRatio());
+            actuator.setOutputStage(null);
+        }
+    }
+
+    @Benchmark
+    public void adjustSignal() {
+        actuator.adjustSignal(requests[requestIndex]);
+        requestIndex = (requestIndex + 1) & (NUM_REQUESTS - 1);
+    }
+
+    private static final class ConsumingListener implements ActuatorListener {
+        private final Blackhole blackhole;
+
+        private ConsumingListener(final Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onAdjustment(final Signal signal) {
+            blackhole.consume(signal);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.control_ops.control_system.instrument.sensor;
+
+import com.control_ops.control_system.instrument.Signal;
+import com.control_ops.control_system.instrument.SignalUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a single sensor sample with each measurement behaviour. Compare gc.alloc.rate.norm: the
+ * primitive sample path should allocate 0 B/op, whereas building a Signal per sample, as the sensor used to,
+ * allocates a record, a ZonedDateTime and its components on every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SensorSampleBenchmark {
+    @Param({"constant", "random"})
+    private String measurementBehaviour;
+
+    private Sensor sensor;
+
+    @Setup
+    public void setUp() {
+        final MeasurementBehaviour behaviour = switch (measurementBehaviour) {
+            case "constant" -> new ConstantMeasurement(1.0);
+            case "random" -> new RandomMeasurement();
+            default -> throw new IllegalArgumentException("Unknown measurement behaviour: " + measurementBehaviour);
+        };
+        sensor = new Sensor(1, 1L, TimeUnit.SECONDS, SignalUnit.CELSIUS, behaviour);
+    }
+
+    @Benchmark
+    public double primitiveSample() {
+        sensor.takeMeasurement();
+        return sensor.getCurrentQuantity();
+    }
+
+    @Benchmark
+    public Signal signalPerSample() {
+        return new Signal(1.0, SignalUnit.CELSIUS, ZonedDateTime.now(ZoneId.of("UTC")));
+    }
+}
@@ -0,0 +1,13 @@
+package com.control_ops.control_system.instrument.sensor;
+
+/**
+ * Lets benchmarks in other packages drive a sensor's sampling step directly, without starting its periodic executor.
+ */
+public final class SensorSampling {
+    private SensorSampling() {
+    }
+
+    public static void takeMeasurement(final Sensor sensor) {
+        sensor.takeMeasurement();
+    }
+}
@@ -0,0 +1,118 @@
+package com.control_ops.control_system;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Creates the meters through which the control system reports its timing.
+ * <br><br>
+ * Meters are registered with Micrometer's global registry, to which Spring Boot Actuator adds its own registries, so
+ * they are exposed through the actuator's metrics endpoints when the application runs. Every meter is backed by a
+ * structure that the control path updates without allocating ({@link LatencyHistogram} or a LongAdder), and which
+ * Micrometer only reads when metrics are published.
+ * <br><br>
+ * Meters are only registered when a meter registry has been added to the global registry by the time they are
+ * created, which Spring Boot does on startup; otherwise, e.g. in unit tests that create many thousands of sensors, the
+ * returned histograms are disabled and take no memory, and counters still count but are not published.
+ * <br><br>
+ * Registering a meter replaces any meter already registered with the same name and tags, e.g. by an earlier loop with
+ * the same id, which would otherwise keep reading the earlier object. Objects that are released remove their meters
+ * (see {@link LatencyHistogram#deregister()} and {@link #remove(Meter)}), so meters do not pile up as loops come and
+ * go.
+ */
+public final class ControlMetrics {
+
+    private ControlMetrics() {
+    }
+
+    /**
+     * @param name The meter's name, e.g. "control.executor.lateness"
+     * @param description What the histogram measures
+     * @param tagKey The kind of object being timed, e.g. "executor"
+     * @param tagValue Identifies the object being timed
+     * @return A histogram of durations, which is disabled if no meter registry is configured
+     */
+    public static LatencyHistogram latencyHistogram(
+            final String name,
+            final String description,
+            final String tagKey,
+            final String tagValue) {
+        if (Metrics.globalRegistry.getRegistries().isEmpty()) {
+            return LatencyHistogram.disabled();
+        }
+        final LatencyHistogram latencyHistogram = LatencyHistogram.enabled();
+        latencyHistogram.register(Metrics.globalRegistry, name, description, tagKey, tagValue);
+        return latencyHistogram;
+    }
+
+    /**
+     * @param name The meter's name, e.g. "control.executor.missed.ticks"
+     * @param description What the counter counts
+     * @param tagKey The kind of object whose events are counted, e.g. "executor"
+     * @param tagValue Identifies the object whose events are counted
+     * @return A counter, which is only published if a meter registry is configured
+     */
+    public static LongAdder counter(
+            final String name,
+            final String description,
+            final String tagKey,
+            final String tagValue) {
+        final LongAdder counter = new LongAdder();
+        counter(name, description, tagKey, tagValue, counter);
+        return counter;
+    }
+
+    /**
+     * Publishes the provided counter; see {@link #counter(String, String, String, String)}.
+     * @return The meter, through which it can be removed, or null if no meter registry is configured
+     */
+    public static FunctionCounter counter(
+            final String name,
+            final String description,
+            final String tagKey,
+            final String tagValue,
+            final LongAdder counter) {
+        if (Metrics.globalRegistry.getRegistries().isEmpty()) {
+            return null;
+        }
+        removeExisting(Metrics.globalRegistry, name, Tags.of(tagKey, tagValue));
+        return FunctionCounter.builder(name, counter, LongAdder::sum)
+                .description(description)
+                .tag(tagKey, tagValue)
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Removes a meter registered through this class; does nothing if it has already been removed or replaced, or if
+     * it is null because no meter registry was configured.
+     */
+    public static void remove(final Meter meter) {
+        if (meter == null) {
+            return;
+        }
+        remove(Metrics.globalRegistry, meter);
+    }
+
+    static void remove(final MeterRegistry meterRegistry, final Meter meter) {
+        // A replacement has an equal id, so it must not be removed along with the meter it replaced
+        for (final Meter registeredMeter : meterRegistry.find(meter.getId().getName()).meters()) {
+            if (registeredMeter == meter) {
+                meterRegistry.remove(meter);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the meter with the provided name and tags, if there is one, so that a new one can take its place.
+     */
+    static void removeExisting(final MeterRegistry meterRegistry, final String name, final Tags tags) {
+        // Meter ids are equal when their names and tags are, whatever their type
+        meterRegistry.remove(new Meter.Id(name, tags, null, null, Meter.Type.OTHER));
+    }
+}
@@ -0,0 +1,18 @@
+package com.control_ops.control_system;
+
+/**
+ * Determines which kind of thread runs each execution of a {@link PeriodicExecutor}.
+ */
+public enum ExecutionMode {
+    /**
+     * Executions run on the scheduler's small, fixed pool of platform worker threads. Best suited to short,
+     * non-blocking tasks.
+     */
+    SCHEDULER_THREAD,
+
+    /**
+     * Each execution runs on its own virtual thread, so tasks that block (e.g. on field device I/O) release their
+     * carrier thread instead of occupying a scheduler worker.
+     */
+    VIRTUAL_THREAD
+}
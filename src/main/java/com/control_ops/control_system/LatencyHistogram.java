@@ -0,0 +1,154 @@
+package com.control_ops.control_system;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records a distribution of durations without allocating, and exposes it to Micrometer.
+ * <br><br>
+ * Durations are recorded into an HdrHistogram Recorder with a fixed range, which is wait-free and allocation-free for
+ * the recording thread. The recorded values are only moved into a cumulative histogram when a meter is read (e.g. when
+ * the actuator metrics endpoint is scraped), so the work of computing percentiles is done on the reading thread.
+ * Micrometer's own timers are not used here: when registered with the global composite registry, each recording
+ * iterates over the child registries and allocates an iterator.
+ * <br><br>
+ * Each histogram tracks up to ten seconds at two significant digits, which takes roughly 100 KB. A disabled histogram,
+ * used when no meter registry is configured, takes no memory and ignores everything recorded into it.
+ */
+public final class LatencyHistogram {
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final double[] PUBLISHED_PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final LatencyHistogram DISABLED = new LatencyHistogram(false);
+    private static final Histogram EMPTY_HISTOGRAM = new Histogram(1L, 2L, 0);
+
+    private final Recorder recorder;
+    private final Histogram cumulativeHistogram;
+    private Histogram intervalHistogram;
+    // The meters reporting this histogram, removed when it is deregistered
+    private final List<Meter> meters = new ArrayList<>();
+    private MeterRegistry meterRegistry;
+
+    private LatencyHistogram(final boolean isEnabled) {
+        this.recorder = isEnabled ? new Recorder(1L, HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS) : null;
+        this.cumulativeHistogram = isEnabled ? new Histogram(1L, HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS) : null;
+    }
+
+    static LatencyHistogram enabled() {
+        return new LatencyHistogram(true);
+    }
+
+    static LatencyHistogram disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Registers meters that report this histogram's count, total, maximum and percentiles, replacing any meters
+     * already registered with the same names and tags.
+     */
+    synchronized void register(
+            final MeterRegistry meterRegistry,
+            final String name,
+            final String description,
+            final String tagKey,
+            final String tagValue) {
+        this.meterRegistry = meterRegistry;
+        final Tags tags = Tags.of(tagKey, tagValue);
+        ControlMetrics.removeExisting(meterRegistry, name, tags);
+        meters.add(FunctionTimer.builder(
+                        name,
+                        this,
+                        LatencyHistogram::getCount,
+                        LatencyHistogram::getTotalNanos,
+                        TimeUnit.NANOSECONDS)
+                .description(description)
+                .tags(tags)
+                .register(meterRegistry));
+        ControlMetrics.removeExisting(meterRegistry, name + ".max", tags);
+        meters.add(Gauge.builder(name + ".max", this, LatencyHistogram::getMaxNanos)
+                .description(description)
+                .tags(tags)
+                .baseUnit("nanoseconds")
+                .register(meterRegistry));
+        for (final double percentile : PUBLISHED_PERCENTILES) {
+            final Tags percentileTags = tags.and("phi", String.valueOf(percentile));
+            ControlMetrics.removeExisting(meterRegistry, name + ".percentile", percentileTags);
+            meters.add(Gauge.builder(
+                            name + ".percentile", this, histogram -> histogram.getValueAtPercentile(percentile))
+                    .description(description)
+                    .tags(percentileTags)
+                    .baseUnit("nanoseconds")
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Removes the meters reporting this histogram, e.g. when the loop or executor it times is released; recording
+     * into it afterwards is harmless. Does nothing for a disabled histogram.
+     */
+    public synchronized void deregister() {
+        for (final Meter meter : meters) {
+            ControlMetrics.remove(meterRegistry, meter);
+        }
+        meters.clear();
+    }
+
+    /**
+     * Records a duration; values outside the histogram's range (zero to ten seconds) are clamped to it.
+     * @param durationNanos The duration in nanoseconds
+     */
+    public void record(final long durationNanos) {
+        if (recorder == null) {
+            return;
+        }
+        recorder.recordValue(Math.min(Math.max(durationNanos, 0L), HIGHEST_TRACKABLE_NANOS));
+    }
+
+    /**
+     * @return The number of durations recorded
+     */
+    public synchronized long getCount() {
+        return snapshot().getTotalCount();
+    }
+
+    /**
+     * @return The sum of the durations recorded, in nanoseconds; approximate to the histogram's precision
+     */
+    public synchronized double getTotalNanos() {
+        final Histogram histogram = snapshot();
+        return histogram.getMean() * histogram.getTotalCount();
+    }
+
+    /**
+     * @return The longest duration recorded, in nanoseconds
+     */
+    public synchronized double getMaxNanos() {
+        return snapshot().getMaxValue();
+    }
+
+    /**
+     * @param percentile The percentile as a fraction, e.g. 0.99
+     * @return The duration below which the provided fraction of recorded durations fall, in nanoseconds
+     */
+    public synchronized double getValueAtPercentile(final double percentile) {
+        return snapshot().getValueAtPercentile(100.0 * percentile);
+    }
+
+    private Histogram snapshot() {
+        if (recorder == null) {
+            return EMPTY_HISTOGRAM;
+        }
+        intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+        cumulativeHistogram.add(intervalHistogram);
+        return cumulativeHistogram;
+    }
+}
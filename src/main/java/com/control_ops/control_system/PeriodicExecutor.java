@@ -1,21 +1,32 @@
 package com.control_ops.control_system;
 
+import io.micrometer.core.instrument.Meter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 public class PeriodicExecutor {
-    private ScheduledExecutorService scheduler;
+    private TickScheduler.ScheduledTick scheduledTick;
     private boolean isExecuting = false;
 
     private final String name;
     private final long executionPeriod;
     private final TimeUnit executionPeriodUnit;
     private final Runnable runnable;
+    private final ExecutionMode executionMode;
+    private final Scheduler scheduler;
+    private final LatencyHistogram latenessHistogram;
+    private final LatencyHistogram executionHistogram;
+    private final LongAdder missedTicks = new LongAdder();
+    private final Meter missedTicksMeter;
+    private final TickScheduler.TickListener tickListener = this::recordTick;
+    // Negative while executions are not aligned to a phase
+    private long phaseNanos = -1L;
+    private volatile PhaseLoadProfile phaseLoadProfile;
 
+    private static final TickScheduler sharedTickScheduler = new TickScheduler("periodic-executor");
     private static final Logger logger = LoggerFactory.getLogger(PeriodicExecutor.class);
 
     public PeriodicExecutor(
@@ -23,20 +34,61 @@ public class PeriodicExecutor {
             final long executionPeriod,
             final TimeUnit executionPeriodUnit,
             final Runnable runnable) {
+        this(name, executionPeriod, executionPeriodUnit, runnable, ExecutionMode.SCHEDULER_THREAD);
+    }
+
+    public PeriodicExecutor(
+            final String name,
+            final long executionPeriod,
+            final TimeUnit executionPeriodUnit,
+            final Runnable runnable,
+            final ExecutionMode executionMode) {
+        this(name, executionPeriod, executionPeriodUnit, runnable, executionMode, sharedTickScheduler);
+    }
+
+    /**
+     * Initializes a new periodic executor whose executions are multiplexed onto the provided scheduler.
+     * @param name Identifies the executor in log messages
+     * @param executionPeriod How often the runnable should be executed
+     * @param executionPeriodUnit The time units in which the execution period is denominated
+     * @param runnable The task to be executed
+     * @param executionMode Determines whether executions run on the scheduler's workers or on virtual threads
+     * @param scheduler The scheduler that triggers and runs each execution
+     */
+    public PeriodicExecutor(
+            final String name,
+            final long executionPeriod,
+            final TimeUnit executionPeriodUnit,
+            final Runnable runnable,
+            final ExecutionMode executionMode,
+            final Scheduler scheduler) {
         this.name = name;
         this.executionPeriod = executionPeriod;
         this.executionPeriodUnit = executionPeriodUnit;
         this.runnable = runnable;
+        this.executionMode = executionMode;
+        this.scheduler = scheduler;
+        this.latenessHistogram = ControlMetrics.latencyHistogram(
+                "control.executor.lateness",
+                "How long after its deadline each execution started",
+                "executor",
+                name);
+        this.executionHistogram = ControlMetrics.latencyHistogram(
+                "control.executor.execution",
+                "How long each execution took",
+                "executor",
+                name);
+        this.missedTicksMeter = ControlMetrics.counter(
+                "control.executor.missed.ticks",
+                "Deadlines coalesced into a later execution because an earlier one overran",
+                "executor",
+                name,
+                missedTicks);
     }
 
-    public void start() {
+    public synchronized void start() {
         if (!isExecuting) {
-            this.scheduler = Executors.newScheduledThreadPool(1);
-            this.scheduler.scheduleAtFixedRate(
-                    runnable,
-                    0L,
-                    executionPeriod,
-                    executionPeriodUnit);
+            schedule();
             isExecuting = true;
             logger.info("{} was started", name);
         } else {
@@ -44,13 +96,108 @@ public class PeriodicExecutor {
         }
     }
 
-    public void stop() {
+    /**
+     * Aligns executions to a fixed phase of the period: every execution falls due at an instant whose offset into the
+     * period, counted from the Unix epoch on the scheduler's clock, is the provided phase. Executors that share a
+     * period and are given different phases therefore never fall due together, however they are started. An executor
+     * that is running is rescheduled onto its new phase.
+     * @param phaseNanos The offset into the period at which executions fall due; reduced modulo the period
+     * @param phaseLoadProfile Records when in the period each execution started and how long it took; may be null
+     */
+    public synchronized void alignToPhase(final long phaseNanos, final PhaseLoadProfile phaseLoadProfile) {
+        this.phaseNanos = Math.floorMod(phaseNanos, executionPeriodUnit.toNanos(executionPeriod));
+        this.phaseLoadProfile = phaseLoadProfile;
+        reschedule();
+    }
+
+    /**
+     * Returns the executor to falling due one period after another from whenever it is started.
+     */
+    public synchronized void clearPhase() {
+        this.phaseNanos = -1L;
+        this.phaseLoadProfile = null;
+        reschedule();
+    }
+
+    /**
+     * @return The offset into the period at which executions fall due, or -1 if they are not aligned to a phase
+     */
+    public synchronized long getPhaseNanos() {
+        return phaseNanos;
+    }
+
+    private void schedule() {
+        if (phaseNanos < 0L) {
+            this.scheduledTick = scheduler.scheduleAtFixedRate(
+                    runnable,
+                    0L,
+                    executionPeriod,
+                    executionPeriodUnit,
+                    executionMode,
+                    tickListener);
+            return;
+        }
+        final long periodNanos = executionPeriodUnit.toNanos(executionPeriod);
+        final long initialDelayNanos = Math.floorMod(phaseNanos - scheduler.now(), periodNanos);
+        this.scheduledTick = scheduler.scheduleAtFixedRate(
+                runnable,
+                initialDelayNanos,
+                periodNanos,
+                TimeUnit.NANOSECONDS,
+                executionMode,
+                tickListener);
+    }
+
+    private void reschedule() {
         if (isExecuting) {
-            this.scheduler.shutdown();
+            scheduledTick.cancel();
+            schedule();
+        }
+    }
+
+    /**
+     * @return The scheduler shared by every executor that is not given one of its own
+     */
+    public static Scheduler getSharedScheduler() {
+        return sharedTickScheduler;
+    }
+
+    public synchronized boolean isExecuting() {
+        return isExecuting;
+    }
+
+    private void recordTick(final long latenessNanos, final long executionNanos, final long missedTicks) {
+        latenessHistogram.record(latenessNanos);
+        executionHistogram.record(executionNanos);
+        if (missedTicks > 0L) {
+            this.missedTicks.add(missedTicks);
+        }
+        // Read once, as it may be replaced while the executor is rescheduled
+        final PhaseLoadProfile currentPhaseLoadProfile = phaseLoadProfile;
+        if (currentPhaseLoadProfile != null) {
+            currentPhaseLoadProfile.record(scheduler.now() - executionNanos, executionNanos);
+        }
+    }
+
+    public synchronized void stop() {
+        if (isExecuting) {
+            this.scheduledTick.cancel();
             isExecuting = false;
             logger.info("{} scheduler was stopped", name);
         } else {
             logger.warn("Cannot stop {}; it is already stopped", name);
         }
     }
+
+    /**
+     * Stops the executor if it is executing and removes its meters; it should not be started again afterwards.
+     */
+    public synchronized void release() {
+        if (isExecuting) {
+            stop();
+        }
+        latenessHistogram.deregister();
+        executionHistogram.deregister();
+        ControlMetrics.remove(missedTicksMeter);
+    }
 }
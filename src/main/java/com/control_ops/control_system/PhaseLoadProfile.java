@@ -0,0 +1,114 @@
+package com.control_ops.control_system;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records how the executions of many periodic tasks that share a period are distributed across that period, to show
+ * whether their load arrives in one burst or is spread evenly.
+ * <br><br>
+ * The period is divided into equal bins; each execution adds one to the execution count, and its duration to the CPU
+ * time, of the bin in which it started. The peak-to-mean ratio of either is 1.0 when the load is perfectly flat and
+ * equals the number of bins when every execution starts in the same bin. Recording is allocation-free.
+ */
+public final class PhaseLoadProfile {
+    static final int DEFAULT_BIN_COUNT = 32;
+
+    private final long periodNanos;
+    private final int binCount;
+    private final AtomicLongArray executionCounts;
+    private final AtomicLongArray executionNanos;
+
+    /**
+     * @param periodNanos The period shared by the tasks whose executions are recorded
+     * @param binCount Into how many equal bins the period is divided
+     */
+    public PhaseLoadProfile(final long periodNanos, final int binCount) {
+        if (periodNanos <= 0L || binCount < 1) {
+            throw new IllegalArgumentException("A load profile needs a positive period and at least one bin");
+        }
+        this.periodNanos = periodNanos;
+        this.binCount = binCount;
+        this.executionCounts = new AtomicLongArray(binCount);
+        this.executionNanos = new AtomicLongArray(binCount);
+    }
+
+    /**
+     * Creates a profile with the default bin count and publishes the peak-to-mean ratios of its execution counts and
+     * CPU time as gauges.
+     * @param tagValue Identifies the group of tasks being profiled
+     */
+    public static PhaseLoadProfile registered(final long periodNanos, final String tagValue) {
+        final PhaseLoadProfile phaseLoadProfile = new PhaseLoadProfile(periodNanos, DEFAULT_BIN_COUNT);
+        final Tags tags = Tags.of("group", tagValue);
+        ControlMetrics.removeExisting(Metrics.globalRegistry, "control.group.executions.peak.ratio", tags);
+        ControlMetrics.removeExisting(Metrics.globalRegistry, "control.group.cpu.peak.ratio", tags);
+        Gauge.builder("control.group.executions.peak.ratio", phaseLoadProfile, PhaseLoadProfile::getExecutionPeakRatio)
+                .description("Peak-to-mean ratio of executions started in each part of the period; 1 is flat")
+                .tag("group", tagValue)
+                .register(Metrics.globalRegistry);
+        Gauge.builder("control.group.cpu.peak.ratio", phaseLoadProfile, PhaseLoadProfile::getCpuPeakRatio)
+                .description("Peak-to-mean ratio of execution time spent in each part of the period; 1 is flat")
+                .tag("group", tagValue)
+                .register(Metrics.globalRegistry);
+        return phaseLoadProfile;
+    }
+
+    /**
+     * @param startEpochNanos When the execution started, in nanoseconds since the Unix epoch
+     * @param durationNanos How long the execution took
+     */
+    public void record(final long startEpochNanos, final long durationNanos) {
+        final int bin = (int) (Math.floorMod(startEpochNanos, periodNanos) * binCount / periodNanos);
+        executionCounts.incrementAndGet(bin);
+        executionNanos.addAndGet(bin, durationNanos);
+    }
+
+    /**
+     * @return The peak-to-mean ratio of the number of executions started in each bin, or 0 if none were recorded
+     */
+    public double getExecutionPeakRatio() {
+        return peakRatio(executionCounts);
+    }
+
+    /**
+     * @return The peak-to-mean ratio of the execution time spent in each bin, or 0 if none was recorded
+     */
+    public double getCpuPeakRatio() {
+        return peakRatio(executionNanos);
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    /**
+     * Forgets every execution recorded so far.
+     */
+    public void reset() {
+        for (int i = 0; i < binCount; i++) {
+            executionCounts.set(i, 0L);
+            executionNanos.set(i, 0L);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PhaseLoadProfile over " + TimeUnit.NANOSECONDS.toMicros(periodNanos) + " us";
+    }
+
+    private double peakRatio(final AtomicLongArray bins) {
+        long total = 0L;
+        long peak = 0L;
+        for (int i = 0; i < binCount; i++) {
+            final long value = bins.get(i);
+            total += value;
+            peak = Math.max(peak, value);
+        }
+        return total == 0L ? 0.0 : (double) peak * binCount / total;
+    }
+}
@@ -0,0 +1,36 @@
+package com.control_ops.control_system;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs periodic tasks and supplies the time against which they, and everything they timestamp, are measured.
+ * <br><br>
+ * {@link TickScheduler} runs tasks on real threads against the wall clock; {@link VirtualScheduler} runs them on the
+ * calling thread against a simulated clock, so that recorded or simulated hours pass in milliseconds.
+ */
+public interface Scheduler extends TimeSource {
+    /**
+     * Schedules a task to run periodically at a fixed rate until it is cancelled, reporting the timing of every
+     * execution to the provided listener.
+     * @param task The task to be executed
+     * @param initialDelay How long to wait before the first execution
+     * @param period The time between successive executions
+     * @param unit The time unit in which the initial delay and period are denominated
+     * @param executionMode Determines which kind of thread runs each execution
+     * @param tickListener Notified after every execution, on the thread that ran it
+     * @return A handle through which the task can be cancelled
+     */
+    TickScheduler.ScheduledTick scheduleAtFixedRate(
+            final Runnable task,
+            final long initialDelay,
+            final long period,
+            final TimeUnit unit,
+            final ExecutionMode executionMode,
+            final TickScheduler.TickListener tickListener);
+
+    /**
+     * @return The current time on this scheduler's clock, in nanoseconds since the Unix epoch
+     */
+    @Override
+    long now();
+}
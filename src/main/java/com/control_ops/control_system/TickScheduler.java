@@ -0,0 +1,333 @@
+package com.control_ops.control_system;
+
+import com.control_ops.control_system.instrument.EpochNanoClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Multiplexes many periodic tasks onto a single timer thread and a small, fixed pool of worker threads.
+ * <br><br>
+ * Deadlines are kept in a hashed timing wheel: each slot covers one tick of the timer, and tasks due
+ * more than one revolution in the future carry a count of the revolutions remaining before they expire. The timer
+ * thread only moves expired tasks onto the worker pool, so scheduling cost does not depend on how long a task runs.
+ * Tasks scheduled with {@link ExecutionMode#VIRTUAL_THREAD} bypass the worker pool and run each execution on a new
+ * virtual thread instead.
+ * <br><br>
+ * Like {@link java.util.concurrent.ScheduledExecutorService#scheduleAtFixedRate}, each task is scheduled at a fixed
+ * rate relative to its first deadline and never runs concurrently with itself; if an execution overruns, the next one
+ * starts as soon as the previous one has finished. Unlike a ScheduledExecutorService, deadlines that were missed
+ * entirely while a task overran are coalesced into that single catch-up execution instead of being run back to back,
+ * and are reported to the task's {@link TickListener}.
+ */
+public class TickScheduler implements Scheduler {
+    private static final long DEFAULT_TICK_DURATION_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final String name;
+    private final long tickDurationNanos;
+    private final TimedTask[] wheel;
+    private final int wheelMask;
+    private final Queue<TimedTask> pendingTasks = new ConcurrentLinkedQueue<>();
+    private final ExecutorService workers;
+    private final ExecutorService virtualThreads;
+    private final Thread timerThread;
+    private final long startTimeNanos;
+    private long currentTick = 0L;
+
+    private static final Logger logger = LoggerFactory.getLogger(TickScheduler.class);
+
+    /**
+     * Creates a scheduler with a 1 ms tick and one worker thread per available processor.
+     * @param name Prefix used to name the scheduler's threads
+     */
+    public TickScheduler(final String name) {
+        this(name, Runtime.getRuntime().availableProcessors(), DEFAULT_TICK_DURATION_NANOS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Creates a new scheduler and starts its timer thread.
+     * @param name Prefix used to name the scheduler's threads
+     * @param numWorkers The number of threads on which tasks are executed
+     * @param tickDurationNanos The resolution of the timing wheel in nanoseconds
+     * @param wheelSize The number of slots in the timing wheel; rounded up to a power of two
+     */
+    public TickScheduler(
+            final String name,
+            final int numWorkers,
+            final long tickDurationNanos,
+            final int wheelSize) {
+        if (numWorkers < 1 || tickDurationNanos < 1 || wheelSize < 1) {
+            final String failureMessage = "Cannot instantiate a TickScheduler with a non-positive parameter.";
+            logger.error(failureMessage);
+            throw new IllegalArgumentException(failureMessage);
+        }
+        this.name = name;
+        this.tickDurationNanos = tickDurationNanos;
+        int roundedWheelSize = 1;
+        while (roundedWheelSize < wheelSize) {
+            roundedWheelSize <<= 1;
+        }
+        this.wheel = new TimedTask[roundedWheelSize];
+        this.wheelMask = roundedWheelSize - 1;
+        this.workers = Executors.newFixedThreadPool(numWorkers, new NamedDaemonThreadFactory(name + "-worker"));
+        this.virtualThreads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-virtual-", 0).factory());
+        this.startTimeNanos = System.nanoTime();
+        this.timerThread = new NamedDaemonThreadFactory(name + "-timer").newThread(this::runTimer);
+        this.timerThread.start();
+        logger.info("{} was started with {} worker threads", name, numWorkers);
+    }
+
+    /**
+     * Stops the timer and worker threads; tasks that are still scheduled will never run again.
+     */
+    public void shutdown() {
+        timerThread.interrupt();
+        workers.shutdown();
+        virtualThreads.shutdown();
+        logger.info("{} was shut down", name);
+    }
+
+    /**
+     * Schedules a task to run periodically at a fixed rate on the scheduler's worker threads until it is cancelled.
+     * @param task The task to be executed
+     * @param initialDelay How long to wait before the first execution
+     * @param period The time between successive executions
+     * @param unit The time unit in which the initial delay and period are denominated
+     * @return A handle through which the task can be cancelled
+     */
+    public ScheduledTick scheduleAtFixedRate(
+            final Runnable task,
+            final long initialDelay,
+            final long period,
+            final TimeUnit unit) {
+        return scheduleAtFixedRate(task, initialDelay, period, unit, ExecutionMode.SCHEDULER_THREAD);
+    }
+
+    /**
+     * Schedules a task to run periodically at a fixed rate until it is cancelled.
+     * @param task The task to be executed
+     * @param initialDelay How long to wait before the first execution
+     * @param period The time between successive executions
+     * @param unit The time unit in which the initial delay and period are denominated
+     * @param executionMode Determines which kind of thread runs each execution
+     * @return A handle through which the task can be cancelled
+     */
+    public ScheduledTick scheduleAtFixedRate(
+            final Runnable task,
+            final long initialDelay,
+            final long period,
+            final TimeUnit unit,
+            final ExecutionMode executionMode) {
+        return scheduleAtFixedRate(task, initialDelay, period, unit, executionMode, NO_OP_TICK_LISTENER);
+    }
+
+    /**
+     * Schedules a task to run periodically at a fixed rate until it is cancelled, reporting the timing of every
+     * execution to the provided listener.
+     * @param task The task to be executed
+     * @param initialDelay How long to wait before the first execution
+     * @param period The time between successive executions
+     * @param unit The time unit in which the initial delay and period are denominated
+     * @param executionMode Determines which kind of thread runs each execution
+     * @param tickListener Notified after every execution, on the thread that ran it
+     * @return A handle through which the task can be cancelled
+     */
+    @Override
+    public ScheduledTick scheduleAtFixedRate(
+            final Runnable task,
+            final long initialDelay,
+            final long period,
+            final TimeUnit unit,
+            final ExecutionMode executionMode,
+            final TickListener tickListener) {
+        if (period <= 0L) {
+            final String failureMessage = "Cannot schedule a task with a non-positive period.";
+            logger.error(failureMessage);
+            throw new IllegalArgumentException(failureMessage);
+        }
+        final TimedTask timedTask = new TimedTask(
+                task,
+                executionMode == ExecutionMode.VIRTUAL_THREAD ? virtualThreads : workers,
+                System.nanoTime() + unit.toNanos(initialDelay),
+                unit.toNanos(period),
+                tickListener);
+        pendingTasks.add(timedTask);
+        return timedTask;
+    }
+
+    /**
+     * @return The wall-clock time, from {@link EpochNanoClock#now()}
+     */
+    @Override
+    public long now() {
+        return EpochNanoClock.now();
+    }
+
+    /**
+     * A handle to a task scheduled on a {@link Scheduler}.
+     */
+    public interface ScheduledTick {
+        /**
+         * Prevents any further executions of the task; an execution that is already running is allowed to finish.
+         */
+        void cancel();
+    }
+
+    /**
+     * Receives the timing of each execution of a scheduled task; implementations must not allocate or block, since
+     * they run on the task's thread between executions.
+     */
+    @FunctionalInterface
+    public interface TickListener {
+        /**
+         * @param latenessNanos How long after its deadline the execution started
+         * @param executionNanos How long the execution took
+         * @param missedTicks The number of deadlines that passed during the execution and were coalesced into the next
+         *                    execution
+         */
+        void onTick(final long latenessNanos, final long executionNanos, final long missedTicks);
+    }
+
+    private static final TickListener NO_OP_TICK_LISTENER = (latenessNanos, executionNanos, missedTicks) -> {};
+
+    private void runTimer() {
+        while (!Thread.currentThread().isInterrupted()) {
+            final long tickDeadline = startTimeNanos + currentTick * tickDurationNanos;
+            long sleepNanos = tickDeadline - System.nanoTime();
+            while (sleepNanos > 0L) {
+                LockSupport.parkNanos(this, sleepNanos);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                sleepNanos = tickDeadline - System.nanoTime();
+            }
+            transferPendingTasks();
+            expireSlot((int) (currentTick & wheelMask));
+            currentTick++;
+        }
+    }
+
+    private void transferPendingTasks() {
+        TimedTask timedTask;
+        while ((timedTask = pendingTasks.poll()) != null) {
+            if (!timedTask.cancelled) {
+                insert(timedTask);
+            }
+        }
+    }
+
+    private void insert(final TimedTask timedTask) {
+        // Tasks that are already overdue land in the slot being expired so they run on this tick
+        final long dueTick = Math.max(
+                currentTick,
+                Math.ceilDiv(timedTask.deadlineNanos - startTimeNanos, tickDurationNanos));
+        timedTask.remainingRounds = (dueTick - currentTick) / wheel.length;
+        final int slot = (int) (dueTick & wheelMask);
+        timedTask.next = wheel[slot];
+        wheel[slot] = timedTask;
+    }
+
+    private void expireSlot(final int slot) {
+        TimedTask timedTask = wheel[slot];
+        TimedTask previous = null;
+        while (timedTask != null) {
+            final TimedTask next = timedTask.next;
+            if (timedTask.cancelled || timedTask.remainingRounds == 0L) {
+                if (previous == null) {
+                    wheel[slot] = next;
+                } else {
+                    previous.next = next;
+                }
+                timedTask.next = null;
+                if (!timedTask.cancelled) {
+                    timedTask.executor.execute(timedTask);
+                }
+            } else {
+                timedTask.remainingRounds--;
+                previous = timedTask;
+            }
+            timedTask = next;
+        }
+    }
+
+    private final class TimedTask implements ScheduledTick, Runnable {
+        private final Runnable task;
+        private final Executor executor;
+        private final long periodNanos;
+        private final TickListener tickListener;
+        private long deadlineNanos;
+        private long remainingRounds;
+        private TimedTask next;
+        private volatile boolean cancelled = false;
+
+        private TimedTask(
+                final Runnable task,
+                final Executor executor,
+                final long deadlineNanos,
+                final long periodNanos,
+                final TickListener tickListener) {
+            this.task = task;
+            this.executor = executor;
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = periodNanos;
+            this.tickListener = tickListener;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            final long startNanos = System.nanoTime();
+            try {
+                task.run();
+            } catch (final RuntimeException e) {
+                // A ScheduledExecutorService suppresses all further executions of a task that throws; do the same
+                logger.error("A periodic task threw an exception and will not be rescheduled", e);
+                cancelled = true;
+                return;
+            }
+            final long endNanos = System.nanoTime();
+            final long latenessNanos = Math.max(0L, startNanos - deadlineNanos);
+            // The next execution is only queued once this one has finished so the task never overlaps with itself.
+            // Deadlines that have already passed in full are skipped so that an overrun causes one catch-up execution
+            // rather than a burst of them.
+            deadlineNanos += periodNanos;
+            final long missedTicks = endNanos > deadlineNanos ? (endNanos - deadlineNanos) / periodNanos : 0L;
+            deadlineNanos += missedTicks * periodNanos;
+            tickListener.onTick(latenessNanos, endNanos - startNanos, missedTicks);
+            pendingTasks.add(this);
+        }
+    }
+
+    private static final class NamedDaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        private NamedDaemonThreadFactory(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, prefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.control_ops.control_system;
+
+import com.control_ops.control_system.instrument.EpochNanoClock;
+
+/**
+ * Supplies the current time, in nanoseconds since the Unix epoch, to anything that timestamps signals.
+ * <br><br>
+ * Components take a time source rather than reading the wall clock themselves so that tests and replays can run them
+ * against a {@link VirtualScheduler}, whose time only moves when it is advanced.
+ */
+@FunctionalInterface
+public interface TimeSource {
+    /**
+     * The wall clock, read through {@link EpochNanoClock#now()}.
+     */
+    TimeSource WALL_CLOCK = EpochNanoClock::now;
+
+    /**
+     * @return The current time in nanoseconds since the Unix epoch
+     */
+    long now();
+}
@@ -0,0 +1,136 @@
+package com.control_ops.control_system;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A scheduler whose clock only moves when it is advanced, and which runs every task due on the way on the thread
+ * that advances it.
+ * <br><br>
+ * Executions happen in deadline order, and tasks that fall due at the same instant always run in the order in which
+ * they were first scheduled; a sensor started before its control loop therefore always measures before the loop
+ * ticks. A run never depends on thread timing, so repeating it gives identical results. Nothing waits for the wall
+ * clock: advancing by a week runs a week of executions as fast as the tasks themselves allow. The execution mode of
+ * each task is ignored, and tick listeners are told that every execution was on time and took no simulated time.
+ */
+public class VirtualScheduler implements Scheduler {
+    private final PriorityQueue<VirtualTask> tasks = new PriorityQueue<>();
+    private volatile long nowEpochNanos;
+    private long nextSequence = 0L;
+    private long executionCount = 0L;
+    private static final Logger logger = LoggerFactory.getLogger(VirtualScheduler.class);
+
+    /**
+     * @param startEpochNanos The time at which the clock starts, in nanoseconds since the Unix epoch
+     */
+    public VirtualScheduler(final long startEpochNanos) {
+        this.nowEpochNanos = startEpochNanos;
+    }
+
+    @Override
+    public synchronized TickScheduler.ScheduledTick scheduleAtFixedRate(
+            final Runnable task,
+            final long initialDelay,
+            final long period,
+            final TimeUnit unit,
+            final ExecutionMode executionMode,
+            final TickScheduler.TickListener tickListener) {
+        if (period <= 0L) {
+            final String failureMessage = "Cannot schedule a task with a non-positive period.";
+            logger.error(failureMessage);
+            throw new IllegalArgumentException(failureMessage);
+        }
+        final VirtualTask virtualTask = new VirtualTask(
+                task,
+                nowEpochNanos + unit.toNanos(initialDelay),
+                unit.toNanos(period),
+                tickListener,
+                nextSequence++);
+        tasks.add(virtualTask);
+        return virtualTask;
+    }
+
+    @Override
+    public long now() {
+        return nowEpochNanos;
+    }
+
+    /**
+     * Moves the clock forward by the provided duration, running every execution that falls due on the way.
+     */
+    public void advanceBy(final long duration, final TimeUnit unit) {
+        advanceTo(nowEpochNanos + unit.toNanos(duration));
+    }
+
+    /**
+     * Moves the clock forward to the provided time, running every execution that falls due on the way; a time in the
+     * past leaves the clock where it is.
+     * @param epochNanos The time to advance to, in nanoseconds since the Unix epoch
+     */
+    public synchronized void advanceTo(final long epochNanos) {
+        VirtualTask virtualTask;
+        while ((virtualTask = tasks.peek()) != null && virtualTask.deadlineNanos <= epochNanos) {
+            tasks.poll();
+            if (virtualTask.cancelled) {
+                continue;
+            }
+            nowEpochNanos = virtualTask.deadlineNanos;
+            try {
+                virtualTask.task.run();
+            } catch (final RuntimeException e) {
+                // Match TickScheduler, which suppresses all further executions of a task that throws
+                logger.error("A periodic task threw an exception and will not be rescheduled", e);
+                virtualTask.cancelled = true;
+                continue;
+            }
+            executionCount++;
+            virtualTask.tickListener.onTick(0L, 0L, 0L);
+            virtualTask.deadlineNanos += virtualTask.periodNanos;
+            tasks.add(virtualTask);
+        }
+        nowEpochNanos = Math.max(nowEpochNanos, epochNanos);
+    }
+
+    /**
+     * @return How many executions have run since the scheduler was created
+     */
+    public synchronized long getExecutionCount() {
+        return executionCount;
+    }
+
+    private static final class VirtualTask implements TickScheduler.ScheduledTick, Comparable<VirtualTask> {
+        private final Runnable task;
+        private final long periodNanos;
+        private final TickScheduler.TickListener tickListener;
+        private final long sequence;
+        private long deadlineNanos;
+        private volatile boolean cancelled = false;
+
+        private VirtualTask(
+                final Runnable task,
+                final long deadlineNanos,
+                final long periodNanos,
+                final TickScheduler.TickListener tickListener,
+                final long sequence) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = periodNanos;
+            this.tickListener = tickListener;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public int compareTo(final VirtualTask other) {
+            final int byDeadline = Long.compare(deadlineNanos, other.deadlineNanos);
+            return byDeadline != 0 ? byDeadline : Long.compare(sequence, other.sequence);
+        }
+    }
+}
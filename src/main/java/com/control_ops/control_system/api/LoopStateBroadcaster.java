@@ -0,0 +1,219 @@
+package com.control_ops.control_system.api;
+
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.PeriodicExecutor;
+import com.control_ops.control_system.Scheduler;
+import com.control_ops.control_system.control_loop.ControlLoop;
+import com.control_ops.control_system.control_loop.LoopState;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams snapshots of control loops to subscribers, each at no more than its own maximum rate.
+ * <br><br>
+ * Nothing is done on the control path: one periodic executor ticks at the highest rate any subscriber may ask for,
+ * and on each tick takes a {@link LoopState} snapshot for every subscriber that is due, from the lock-free cells the
+ * loop publishes to. Updates are conflated per subscriber. A subscriber only receives a snapshot that differs from
+ * the last one it was sent, and a subscriber whose previous update is still being sent skips this one and receives a
+ * newer one on a later tick. Sends run on virtual threads, so one slow client neither delays the others nor the ticks.
+ */
+@Service
+public class LoopStateBroadcaster implements AutoCloseable {
+    static final double DEFAULT_MAX_RATE_HZ = 10.0;
+
+    private final double maxRateHz;
+    private final Executor sendExecutor;
+    private final PeriodicExecutor tickExecutor;
+    private final Scheduler scheduler;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private static final Logger logger = LoggerFactory.getLogger(LoopStateBroadcaster.class);
+
+    /**
+     * Sends one snapshot to a subscriber; throwing ends the subscription.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void send(final LoopState loopState) throws IOException;
+    }
+
+    @Autowired
+    public LoopStateBroadcaster(
+            @Value("${control.api.max-stream-rate-hz:" + DEFAULT_MAX_RATE_HZ + "}") final double maxRateHz) {
+        this(maxRateHz, Executors.newVirtualThreadPerTaskExecutor(), PeriodicExecutor.getSharedScheduler());
+    }
+
+    LoopStateBroadcaster(final double maxRateHz, final Executor sendExecutor, final Scheduler scheduler) {
+        if (!(maxRateHz > 0.0) || Double.isInfinite(maxRateHz)) {
+            logger.error("Cannot create a loop state broadcaster with a maximum rate of {} Hz", maxRateHz);
+            throw new IllegalArgumentException("The maximum stream rate must be positive and finite");
+        }
+        this.maxRateHz = maxRateHz;
+        this.sendExecutor = sendExecutor;
+        this.scheduler = scheduler;
+        this.tickExecutor = new PeriodicExecutor(
+                "loop state broadcaster",
+                rateToPeriodNanos(maxRateHz),
+                TimeUnit.NANOSECONDS,
+                this::tick,
+                ExecutionMode.SCHEDULER_THREAD,
+                scheduler);
+        this.tickExecutor.start();
+    }
+
+    /**
+     * Begins streaming snapshots of the provided loop to the provided sink.
+     * @param rateHz The most snapshots per second the subscriber wants; capped at the broadcaster's maximum rate
+     */
+    public Subscription subscribe(final ControlLoop controlLoop, final double rateHz, final Sink sink) {
+        if (!(rateHz > 0.0)) {
+            logger.error("Cannot subscribe to {} at {} Hz", controlLoop, rateHz);
+            throw new IllegalArgumentException("The stream rate must be positive");
+        }
+        final Subscription subscription = new Subscription(
+                controlLoop,
+                rateToPeriodNanos(Math.min(rateHz, maxRateHz)),
+                sink,
+                scheduler.now());
+        subscriptions.add(subscription);
+        logger.debug("A subscriber to {} was added at {} Hz", controlLoop, Math.min(rateHz, maxRateHz));
+        return subscription;
+    }
+
+    public double getMaxRateHz() {
+        return maxRateHz;
+    }
+
+    /**
+     * @return How many subscriptions are active
+     */
+    public int size() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Stops streaming to every subscriber and removes the broadcaster's meters.
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        tickExecutor.release();
+        subscriptions.forEach(Subscription::cancel);
+        if (sendExecutor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    private void tick() {
+        final long nowNanos = scheduler.now();
+        for (final Subscription subscription : subscriptions) {
+            subscription.tick(nowNanos);
+        }
+    }
+
+    private static long rateToPeriodNanos(final double rateHz) {
+        return Math.max(1L, Math.round(TimeUnit.SECONDS.toNanos(1) / rateHz));
+    }
+
+    /**
+     * One subscriber's stream of snapshots of one control loop.
+     */
+    public final class Subscription {
+        private final ControlLoop controlLoop;
+        private final long periodNanos;
+        private final Sink sink;
+        private final AtomicBoolean isSending = new AtomicBoolean(false);
+        private final LongAdder sentCount = new LongAdder();
+        private final LongAdder conflatedCount = new LongAdder();
+        // Only accessed by the tick, which never runs concurrently with itself
+        private long nextDueNanos;
+        private LoopState lastSent;
+
+        private Subscription(
+                final ControlLoop controlLoop,
+                final long periodNanos,
+                final Sink sink,
+                final long firstDueNanos) {
+            this.controlLoop = controlLoop;
+            this.periodNanos = periodNanos;
+            this.sink = sink;
+            this.nextDueNanos = firstDueNanos;
+        }
+
+        private void tick(final long nowNanos) {
+            if (nowNanos < nextDueNanos) {
+                return;
+            }
+            // Deadlines missed while the scheduler was stalled are dropped rather than caught up in a burst
+            nextDueNanos += periodNanos;
+            if (nextDueNanos <= nowNanos) {
+                nextDueNanos = nowNanos + periodNanos;
+            }
+            final LoopState loopState = controlLoop.snapshot();
+            if (loopState.equals(lastSent)) {
+                return;
+            }
+            if (!isSending.compareAndSet(false, true)) {
+                conflatedCount.increment();
+                return;
+            }
+            lastSent = loopState;
+            try {
+                sendExecutor.execute(() -> send(loopState));
+            } catch (final RuntimeException e) {
+                // The broadcaster is closing
+                isSending.set(false);
+            }
+        }
+
+        private void send(final LoopState loopState) {
+            try {
+                sink.send(loopState);
+                sentCount.increment();
+            } catch (final IOException | RuntimeException e) {
+                logger.debug("Ending a subscription to {}; its subscriber could not be sent an update",
+                        controlLoop, e);
+                cancel();
+            } finally {
+                isSending.set(false);
+            }
+        }
+
+        public void cancel() {
+            if (subscriptions.remove(this)) {
+                logger.debug("A subscriber to {} was removed", controlLoop);
+            }
+        }
+
+        /**
+         * @return How many snapshots have been sent to the subscriber
+         */
+        public long getSentCount() {
+            return sentCount.sum();
+        }
+
+        /**
+         * @return How many snapshots were skipped because the previous one was still being sent
+         */
+        public long getConflatedCount() {
+            return conflatedCount.sum();
+        }
+
+        public long getPeriodNanos() {
+            return periodNanos;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.control_ops.control_system.api;
+
+import com.control_ops.control_system.control_loop.ControlLoop;
+import com.control_ops.control_system.control_loop.LoopState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Serves the live state of control loops: snapshots of one or all loops, and a server-sent event stream of one loop's
+ * snapshots at a rate chosen by the client.
+ * <br><br>
+ * Every response is built from {@link ControlLoop#snapshot()}, which reads lock-free cells, so no request ever delays
+ * a control loop tick.
+ */
+@RestController
+@RequestMapping("/api/loops")
+public class LoopStateController {
+    static final String STATE_EVENT = "state";
+
+    private final LoopStateBroadcaster loopStateBroadcaster;
+
+    @Autowired
+    public LoopStateController(final LoopStateBroadcaster loopStateBroadcaster) {
+        this.loopStateBroadcaster = loopStateBroadcaster;
+    }
+
+    @GetMapping
+    public List<LoopState> getLoopStates() {
+        return ControlLoop.getControlLoopRegistry().getControlLoops().stream()
+                .map(ControlLoop::snapshot)
+                .sorted(Comparator.comparingInt(LoopState::id))
+                .toList();
+    }
+
+    @GetMapping("/{id}")
+    public LoopState getLoopState(@PathVariable final int id) {
+        return findControlLoop(id).snapshot();
+    }
+
+    /**
+     * Streams a "state" event whenever the loop's snapshot changes, at no more than the requested rate; the rate is
+     * capped at {@code control.api.max-stream-rate-hz}, and the broadcaster's maximum rate is used if none is given.
+     */
+    @GetMapping(path = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLoopState(
+            @PathVariable final int id,
+            @RequestParam(name = "rateHz", required = false) final Double rateHz) {
+        final ControlLoop controlLoop = findControlLoop(id);
+        if (rateHz != null && !(rateHz > 0.0)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The stream rate must be positive");
+        }
+        // Streams stay open until the client disconnects
+        final SseEmitter sseEmitter = new SseEmitter(0L);
+        final LoopStateBroadcaster.Subscription subscription = loopStateBroadcaster.subscribe(
+                controlLoop,
+                rateHz == null ? loopStateBroadcaster.getMaxRateHz() : rateHz,
+                loopState -> sseEmitter.send(SseEmitter.event().name(STATE_EVENT).data(loopState)));
+        sseEmitter.onCompletion(subscription::cancel);
+        sseEmitter.onTimeout(subscription::cancel);
+        sseEmitter.onError(throwable -> subscription.cancel());
+        return sseEmitter;
+    }
+
+    private static ControlLoop findControlLoop(final int id) {
+        final ControlLoop controlLoop = ControlLoop.getControlLoopRegistry().getControlLoop(id);
+        if (controlLoop == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "ControlLoop" + id + " is not registered");
+        }
+        return controlLoop;
+    }
+}
@@ -0,0 +1,228 @@
+package com.control_ops.control_system.control_loop;
+
+import com.control_ops.control_system.PeriodicExecutor;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Evaluates the control law of many proportional control loops that share an update period in a single pass.
+ * <br><br>
+ * Member state is kept as a structure of arrays (set points, process values, gains and outputs), so each tick gathers
+ * every active loop's inputs, evaluates all outputs in one tight loop over primitive arrays, and then applies them.
+ * The evaluation loop has no branches or calls, which allows the JIT to compile it to SIMD instructions. One periodic
+ * executor drives the whole group instead of one per loop.
+ * <br><br>
+ * The outputs are applied after the group's monitor is released, so that actuators and their listeners never run
+ * while members are being added or removed; a loop that leaves the group during an update may still receive the
+ * output calculated for it in that update.
+ */
+public class BatchControlGroup {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final Map<Long, BatchControlGroup> groupsByPeriodNanos = new ConcurrentHashMap<>();
+
+    private final long updatePeriodNanos;
+    private final PeriodicExecutor periodicExecutor;
+    private final Map<ControlLoop, Integer> memberIndices = new IdentityHashMap<>();
+
+    private ControlLoop[] members = new ControlLoop[INITIAL_CAPACITY];
+    private Sensor[] sensors = new Sensor[INITIAL_CAPACITY];
+    private Actuator[] actuators = new Actuator[INITIAL_CAPACITY];
+    private double[] setPoints = new double[INITIAL_CAPACITY];
+    private double[] processValues = new double[INITIAL_CAPACITY];
+    private double[] gains = new double[INITIAL_CAPACITY];
+    private double[] outputs = new double[INITIAL_CAPACITY];
+    private boolean[] active = new boolean[INITIAL_CAPACITY];
+    private boolean[] ready = new boolean[INITIAL_CAPACITY];
+    private int size = 0;
+    private int activeCount = 0;
+    // The outputs of an update, copied out of the lanes so that they can be applied without holding the monitor;
+    // guarded by the dispatch lock, which is held for the whole update
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+    private Actuator[] dispatchActuators = new Actuator[INITIAL_CAPACITY];
+    private double[] dispatchOutputs = new double[INITIAL_CAPACITY];
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchControlGroup.class);
+
+    private BatchControlGroup(final long updatePeriodNanos) {
+        this.updatePeriodNanos = updatePeriodNanos;
+        this.periodicExecutor = new PeriodicExecutor(
+                this.toString(),
+                updatePeriodNanos,
+                TimeUnit.NANOSECONDS,
+                this::update);
+    }
+
+    /**
+     * @return The group shared by all control loops with the provided update period
+     */
+    public static BatchControlGroup forPeriod(final long updatePeriod, final TimeUnit updatePeriodUnit) {
+        return groupsByPeriodNanos.computeIfAbsent(updatePeriodUnit.toNanos(updatePeriod), BatchControlGroup::new);
+    }
+
+    /**
+     * Calculates a proportional control output for every lane: {@code outputs[i] = gains[i] * (setPoints[i] -
+     * processValues[i])}.
+     */
+    static void evaluate(
+            final double[] setPoints,
+            final double[] processValues,
+            final double[] gains,
+            final double[] outputs,
+            final int length) {
+        for (int i = 0; i < length; i++) {
+            outputs[i] = gains[i] * (setPoints[i] - processValues[i]);
+        }
+    }
+
+    synchronized void add(final ControlLoop controlLoop, final ProportionalControl proportionalControl) {
+        if (memberIndices.containsKey(controlLoop)) {
+            logger.warn("Cannot add {} to {}; it is already a member", controlLoop, this);
+            return;
+        }
+        if (size == members.length) {
+            grow();
+        }
+        members[size] = controlLoop;
+        sensors[size] = controlLoop.getControlledVariable();
+        actuators[size] = controlLoop.getManipulatedVariable();
+        gains[size] = proportionalControl.gain;
+        active[size] = false;
+        memberIndices.put(controlLoop, size);
+        size++;
+        logger.info("{} joined {}", controlLoop, this);
+    }
+
+    synchronized void remove(final ControlLoop controlLoop) {
+        final Integer index = memberIndices.remove(controlLoop);
+        if (index == null) {
+            logger.warn("Cannot remove {} from {}; it is not a member", controlLoop, this);
+            return;
+        }
+        deactivate(index);
+        // Move the last member into the vacated lane so that members stay contiguous
+        final int last = size - 1;
+        if (index != last) {
+            members[index] = members[last];
+            sensors[index] = sensors[last];
+            actuators[index] = actuators[last];
+            gains[index] = gains[last];
+            active[index] = active[last];
+            memberIndices.put(members[index], index);
+        }
+        members[last] = null;
+        sensors[last] = null;
+        actuators[last] = null;
+        active[last] = false;
+        size--;
+        logger.info("{} left {}", controlLoop, this);
+    }
+
+    synchronized void updateGain(final ControlLoop controlLoop, final ProportionalControl proportionalControl) {
+        gains[memberIndices.get(controlLoop)] = proportionalControl.gain;
+    }
+
+    synchronized void activate(final ControlLoop controlLoop) {
+        final int index = memberIndices.get(controlLoop);
+        if (active[index]) {
+            logger.warn("Cannot start {}; it is already active in {}", controlLoop, this);
+            return;
+        }
+        active[index] = true;
+        if (activeCount++ == 0) {
+            periodicExecutor.start();
+        }
+    }
+
+    synchronized boolean isActive(final ControlLoop controlLoop) {
+        return active[memberIndices.get(controlLoop)];
+    }
+
+    synchronized void deactivate(final ControlLoop controlLoop) {
+        deactivate(memberIndices.get(controlLoop));
+    }
+
+    private void deactivate(final int index) {
+        if (!active[index]) {
+            return;
+        }
+        active[index] = false;
+        if (--activeCount == 0) {
+            periodicExecutor.stop();
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Gathers the inputs of every active member and evaluates all outputs in one pass while holding the monitor, then
+     * applies the outputs after releasing it.
+     */
+    void update() {
+        dispatchLock.lock();
+        try {
+            final int dispatchCount = evaluateMembers();
+            for (int i = 0; i < dispatchCount; i++) {
+                dispatchActuators[i].adjustSignal(dispatchOutputs[i]);
+                dispatchActuators[i] = null;
+            }
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    /**
+     * @return How many outputs were copied to the dispatch arrays
+     */
+    private synchronized int evaluateMembers() {
+        for (int i = 0; i < size; i++) {
+            ready[i] = active[i] && sensors[i].hasMeasurement();
+            if (ready[i]) {
+                setPoints[i] = members[i].getSetPoint();
+                processValues[i] = sensors[i].getCurrentQuantity();
+            }
+        }
+        evaluate(setPoints, processValues, gains, outputs, size);
+        if (dispatchActuators.length < size) {
+            dispatchActuators = new Actuator[members.length];
+            dispatchOutputs = new double[members.length];
+        }
+        int dispatchCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (ready[i]) {
+                dispatchActuators[dispatchCount] = actuators[i];
+                dispatchOutputs[dispatchCount] = outputs[i];
+                dispatchCount++;
+            }
+        }
+        return dispatchCount;
+    }
+
+    private void grow() {
+        final int capacity = members.length * 2;
+        members = Arrays.copyOf(members, capacity);
+        sensors = Arrays.copyOf(sensors, capacity);
+        actuators = Arrays.copyOf(actuators, capacity);
+        setPoints = Arrays.copyOf(setPoints, capacity);
+        processValues = Arrays.copyOf(processValues, capacity);
+        gains = Arrays.copyOf(gains, capacity);
+        outputs = Arrays.copyOf(outputs, capacity);
+        active = Arrays.copyOf(active, capacity);
+        ready = Arrays.copyOf(ready, capacity);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchControlGroup" + updatePeriodNanos + "ns";
+    }
+}
@@ -4,4 +4,35 @@ public interface ControlBehaviour {
     double calculateActuatorOutput(
             final double currentSetPoint,
             final double currentControlledVariable);
+
+    /**
+     * Calculates the actuator output for a control loop tick. Stateful behaviours use the tick timestamp to measure
+     * the real time elapsed since the previous tick; stateless behaviours can ignore it.
+     * @param currentSetPoint The loop's set point
+     * @param currentControlledVariable The latest measurement of the controlled variable
+     * @param tickEpochNanos When the tick started, in nanoseconds since the Unix epoch
+     */
+    default double calculateActuatorOutput(
+            final double currentSetPoint,
+            final double currentControlledVariable,
+            final long tickEpochNanos) {
+        return calculateActuatorOutput(currentSetPoint, currentControlledVariable);
+    }
+
+    /**
+     * Called on the control loop's tick thread when the behaviour takes over a loop, immediately before its first
+     * output is calculated. Stateful behaviours should align their internal state so that their first output equals
+     * the actuator's current output, giving a bumpless transfer.
+     * @param currentActuatorOutput The output the actuator currently holds
+     * @param currentSetPoint The loop's set point
+     * @param currentControlledVariable The latest measurement of the controlled variable
+     * @param tickEpochNanos When the tick started, in nanoseconds since the Unix epoch
+     */
+    default void initialize(
+            final double currentActuatorOutput,
+            final double currentSetPoint,
+            final double currentControlledVariable,
+            final long tickEpochNanos) {
+        // Stateless behaviours have nothing to initialize
+    }
 }
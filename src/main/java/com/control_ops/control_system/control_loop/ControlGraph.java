@@ -0,0 +1,527 @@
+package com.control_ops.control_system.control_loop;
+
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.PeriodicExecutor;
+import com.control_ops.control_system.Scheduler;
+import com.control_ops.control_system.instrument.SampleCell;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates a dataflow graph of control blocks, such as cascade, ratio and feed-forward structures, in a single tick.
+ * <br><br>
+ * Blocks read sensors and set points, calculate controller outputs, scale, sum and limit signals, and write actuators.
+ * In a cascade the outer controller's block is the inner controller's set point, so the inner controller acts on the
+ * outer one's new output in the same tick rather than up to a period later, as it would if each were a control loop
+ * on its own executor.
+ * <br><br>
+ * A block can only take its inputs from blocks that already exist, so the graph can never contain a cycle and the
+ * order in which blocks were added is a topological order. Block state is kept as a structure of arrays in that order.
+ * Blocks that are not connected to each other form independent components; once the graph is large enough, each tick
+ * evaluates the components in parallel as fork-join tasks, every task walking its blocks in order.
+ * <br><br>
+ * Blocks are only evaluated once every input is ready, i.e. once every sensor feeding them has taken a measurement.
+ * The graph can only be changed while it is not controlling.
+ */
+public class ControlGraph {
+    private static final int INITIAL_CAPACITY = 64;
+    // A tick is split into parallel tasks once the graph holds at least this many blocks, each task evaluating whole
+    // components totalling at least this many blocks
+    static final int PARALLELISM_THRESHOLD = 1024;
+    private static final int NO_INPUT = -1;
+
+    private final int id;
+    private final Scheduler clock;
+    private final PeriodicExecutor periodicExecutor;
+    // Claimed in the control loop registry, so that no loop or other graph can write them too
+    private final List<Actuator> claimedActuators = new ArrayList<>();
+
+    private Kind[] kinds = new Kind[INITIAL_CAPACITY];
+    private int[] inputsA = new int[INITIAL_CAPACITY];
+    private int[] inputsB = new int[INITIAL_CAPACITY];
+    private double[] parametersA = new double[INITIAL_CAPACITY];
+    private double[] parametersB = new double[INITIAL_CAPACITY];
+    // The sensor, set point cell, control behaviour or actuator of each block that has one
+    private Object[] targets = new Object[INITIAL_CAPACITY];
+    private double[] values = new double[INITIAL_CAPACITY];
+    private boolean[] ready = new boolean[INITIAL_CAPACITY];
+    private boolean[] initialized = new boolean[INITIAL_CAPACITY];
+    // Union-find forest from which the independent components are found
+    private int[] componentParents = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    // Every component's blocks are contiguous and in topological order within componentOrder; component c occupies
+    // componentOrder[componentStarts[c]] up to componentOrder[componentStarts[c + 1]]
+    private int[] componentOrder = new int[0];
+    private int[] componentStarts = new int[]{0};
+    private boolean areComponentsStale = false;
+    private boolean isControlling = false;
+
+    private static final Logger logger = LoggerFactory.getLogger(ControlGraph.class);
+
+    private enum Kind {
+        SENSOR,
+        SET_POINT,
+        CONTROLLER,
+        GAIN,
+        SUM,
+        LIMIT,
+        ACTUATOR
+    }
+
+    /**
+     * A block in a control graph, whose output can be used as the input of blocks added later.
+     */
+    public static final class Block {
+        private final ControlGraph graph;
+        private final int index;
+
+        private Block(final ControlGraph graph, final int index) {
+            this.graph = graph;
+            this.index = index;
+        }
+
+        @Override
+        public String toString() {
+            return graph + "-block" + index + "-" + graph.kinds[index];
+        }
+    }
+
+    /**
+     * Initializes a control graph that ticks on the shared scheduler's worker threads.
+     * @param id A unique value identifying the graph
+     * @param updatePeriod How often every block is evaluated
+     * @param updatePeriodUnit The time units in which the update period is denominated
+     */
+    public ControlGraph(final int id, final long updatePeriod, final TimeUnit updatePeriodUnit) {
+        this(id, updatePeriod, updatePeriodUnit, ExecutionMode.SCHEDULER_THREAD, PeriodicExecutor.getSharedScheduler());
+    }
+
+    /**
+     * Initializes a control graph whose ticks are triggered and timestamped by the provided scheduler; give the graph
+     * the same scheduler as its sensors so that all of them run on one clock.
+     */
+    public ControlGraph(
+            final int id,
+            final long updatePeriod,
+            final TimeUnit updatePeriodUnit,
+            final ExecutionMode executionMode,
+            final Scheduler scheduler) {
+        this.id = id;
+        this.clock = scheduler;
+        this.periodicExecutor = new PeriodicExecutor(
+                this.toString(),
+                updatePeriod,
+                updatePeriodUnit,
+                this::update,
+                executionMode,
+                scheduler);
+        logger.info("{} was successfully created", this);
+    }
+
+    /**
+     * @return A block whose output is the sensor's latest measurement
+     */
+    public synchronized Block sensor(final Sensor sensor) {
+        return addBlock(Kind.SENSOR, NO_INPUT, NO_INPUT, 0.0, 0.0, sensor);
+    }
+
+    /**
+     * @return A block whose output is a set point, which can be changed while the graph is controlling
+     * @see #updateSetPoint(Block, double)
+     */
+    public synchronized Block setPoint(final double initialSetPoint) {
+        final SampleCell setPointCell = new SampleCell();
+        setPointCell.publish(initialSetPoint, clock.now());
+        final Block block = addBlock(Kind.SET_POINT, NO_INPUT, NO_INPUT, 0.0, 0.0, setPointCell);
+        values[block.index] = initialSetPoint;
+        return block;
+    }
+
+    /**
+     * Adds a controller. Each controller must have its own control behaviour, which is initialized on the controller's
+     * first evaluation so that its first output continues from its previous output.
+     * @param setPoint The block whose output the controller drives the process value towards; in a cascade, the outer
+     *                 controller
+     * @param processValue The block measuring the controlled variable
+     * @param controlBehaviour Calculates the controller's output
+     * @return A block whose output is the controller's output
+     */
+    public synchronized Block controller(
+            final Block setPoint,
+            final Block processValue,
+            final ControlBehaviour controlBehaviour) {
+        return addBlock(
+                Kind.CONTROLLER,
+                indexOf(setPoint),
+                indexOf(processValue),
+                0.0,
+                0.0,
+                controlBehaviour);
+    }
+
+    /**
+     * @return A block whose output is the input multiplied by a fixed gain, e.g. for ratio control
+     */
+    public synchronized Block gain(final Block input, final double gain) {
+        return addBlock(Kind.GAIN, indexOf(input), NO_INPUT, gain, 0.0, null);
+    }
+
+    /**
+     * @return A block whose output is the sum of its inputs, e.g. a feedback output plus a feed-forward term
+     */
+    public synchronized Block sum(final Block first, final Block second) {
+        return addBlock(Kind.SUM, indexOf(first), indexOf(second), 0.0, 0.0, null);
+    }
+
+    /**
+     * @return A block whose output is the input clamped to the provided range, e.g. to bound an inner loop's set point
+     */
+    public synchronized Block limit(final Block input, final double min, final double max) {
+        if (min > max) {
+            final String failureMessage = "Cannot add a limit to " + this + "; its minimum " + min
+                    + " exceeds its maximum " + max + ".";
+            logger.error(failureMessage);
+            throw new IllegalArgumentException(failureMessage);
+        }
+        return addBlock(Kind.LIMIT, indexOf(input), NO_INPUT, min, max, null);
+    }
+
+    /**
+     * Adds a block that writes its input to an actuator on every tick. An actuator can only be written by one block,
+     * and not by a graph and a control loop at once; the claim is kept in the control loop registry, which both graphs
+     * and loops check, until the graph is released (see {@link #release()}).
+     * @return A block whose output is the value last written to the actuator
+     */
+    public synchronized Block actuator(final Block input, final Actuator actuator) {
+        final int inputIndex = indexOf(input);
+        if (!ControlLoop.getControlLoopRegistry().claimActuator(actuator, this)) {
+            final String failureMessage = "Cannot add " + actuator + " to " + this + "; it is already written by "
+                    + "another block, control graph or control loop.";
+            logger.error(failureMessage);
+            throw new IllegalArgumentException(failureMessage);
+        }
+        if (kinds[inputIndex] == Kind.CONTROLLER) {
+            // A controller driving the actuator directly continues from the actuator's current output
+            values[inputIndex] = actuator.getSignalValue();
+        }
+        final Block block;
+        try {
+            block = addBlock(Kind.ACTUATOR, inputIndex, NO_INPUT, 0.0, 0.0, actuator);
+        } catch (final RuntimeException e) {
+            ControlLoop.getControlLoopRegistry().releaseActuator(actuator, this);
+            throw e;
+        }
+        values[block.index] = actuator.getSignalValue();
+        claimedActuators.add(actuator);
+        return block;
+    }
+
+    /**
+     * Changes a set point block's output from the next tick onwards; may be called while the graph is controlling.
+     */
+    public void updateSetPoint(final Block setPoint, final double newSetPoint) {
+        final int index = indexOf(setPoint);
+        if (kinds[index] != Kind.SET_POINT) {
+            final String failureMessage = "Cannot update the set point of " + setPoint + "; it is not a set point.";
+            logger.error(failureMessage);
+            throw new IllegalArgumentException(failureMessage);
+        }
+        ((SampleCell) targets[index]).publish(newSetPoint, clock.now());
+        logger.info("Set point of {} updated to {}", setPoint, newSetPoint);
+    }
+
+    /**
+     * @return The block's output as of the latest tick; only exact when read on the thread that ticks the graph
+     */
+    public double getValue(final Block block) {
+        return values[indexOf(block)];
+    }
+
+    public synchronized void startControlling() {
+        if (isControlling) {
+            logger.warn("Cannot start {}; it is already controlling", this);
+            return;
+        }
+        updateComponents();
+        isControlling = true;
+        periodicExecutor.start();
+    }
+
+    public synchronized void stopControlling() {
+        if (!isControlling) {
+            logger.warn("Cannot stop {}; it is not controlling", this);
+            return;
+        }
+        periodicExecutor.stop();
+        isControlling = false;
+    }
+
+    public synchronized boolean isControlling() {
+        return isControlling;
+    }
+
+    /**
+     * Stops controlling, releases the graph's actuators so that loops or other graphs can write them, and removes the
+     * graph's meters; the graph should not be used afterwards.
+     */
+    public synchronized void release() {
+        if (isControlling) {
+            stopControlling();
+        }
+        for (final Actuator actuator : claimedActuators) {
+            ControlLoop.getControlLoopRegistry().releaseActuator(actuator, this);
+        }
+        claimedActuators.clear();
+        periodicExecutor.release();
+        logger.info("{} was released", this);
+    }
+
+    /**
+     * @return The number of blocks in the graph
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of groups of blocks that are not connected to each other, and so can be evaluated in
+     * parallel
+     */
+    public synchronized int getComponentCount() {
+        updateComponents();
+        return componentStarts.length - 1;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "ControlGraph" + id;
+    }
+
+    /**
+     * Evaluates every block once, in parallel for large graphs. The periodic executor never runs this concurrently
+     * with itself, and the graph cannot change while it is controlling, so no monitor is taken.
+     */
+    void update() {
+        evaluate(clock.now(), size >= PARALLELISM_THRESHOLD);
+    }
+
+    /**
+     * Evaluates every block once.
+     * @param tickEpochNanos When the tick started, in nanoseconds since the Unix epoch
+     * @param isParallel Whether independent components should be evaluated as parallel fork-join tasks
+     */
+    void evaluate(final long tickEpochNanos, final boolean isParallel) {
+        // Components are laid out when the graph starts controlling; a graph ticked directly falls back to creation
+        // order until they are
+        if (isParallel && !areComponentsStale && componentStarts.length > 2) {
+            new ComponentRange(0, componentStarts.length - 1, tickEpochNanos).invoke();
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            evaluate(i, tickEpochNanos);
+        }
+    }
+
+    /**
+     * Evaluates the components in a range, splitting it in two while each half would still hold enough blocks to be
+     * worth a task of its own.
+     */
+    private final class ComponentRange extends RecursiveAction {
+        private final int firstComponent;
+        private final int endComponent;
+        private final long tickEpochNanos;
+
+        private ComponentRange(final int firstComponent, final int endComponent, final long tickEpochNanos) {
+            this.firstComponent = firstComponent;
+            this.endComponent = endComponent;
+            this.tickEpochNanos = tickEpochNanos;
+        }
+
+        @Override
+        protected void compute() {
+            final int numBlocks = componentStarts[endComponent] - componentStarts[firstComponent];
+            if (endComponent - firstComponent > 1 && numBlocks >= 2 * PARALLELISM_THRESHOLD) {
+                final int midComponent = (firstComponent + endComponent) >>> 1;
+                invokeAll(
+                        new ComponentRange(firstComponent, midComponent, tickEpochNanos),
+                        new ComponentRange(midComponent, endComponent, tickEpochNanos));
+                return;
+            }
+            for (int i = componentStarts[firstComponent]; i < componentStarts[endComponent]; i++) {
+                evaluate(componentOrder[i], tickEpochNanos);
+            }
+        }
+    }
+
+    private void evaluate(final int block, final long tickEpochNanos) {
+        final int inputA = inputsA[block];
+        final int inputB = inputsB[block];
+        switch (kinds[block]) {
+            case SENSOR -> {
+                final Sensor sensor = (Sensor) targets[block];
+                ready[block] = sensor.hasMeasurement();
+                if (ready[block]) {
+                    values[block] = sensor.getCurrentQuantity();
+                }
+            }
+            case SET_POINT -> {
+                values[block] = ((SampleCell) targets[block]).quantity();
+                ready[block] = true;
+            }
+            case CONTROLLER -> {
+                ready[block] = ready[inputA] && ready[inputB];
+                if (ready[block]) {
+                    final ControlBehaviour controlBehaviour = (ControlBehaviour) targets[block];
+                    if (!initialized[block]) {
+                        controlBehaviour.initialize(values[block], values[inputA], values[inputB], tickEpochNanos);
+                        initialized[block] = true;
+                    }
+                    values[block] = controlBehaviour.calculateActuatorOutput(
+                            values[inputA],
+                            values[inputB],
+                            tickEpochNanos);
+                }
+            }
+            case GAIN -> {
+                ready[block] = ready[inputA];
+                values[block] = parametersA[block] * values[inputA];
+            }
+            case SUM -> {
+                ready[block] = ready[inputA] && ready[inputB];
+                values[block] = values[inputA] + values[inputB];
+            }
+            case LIMIT -> {
+                ready[block] = ready[inputA];
+                values[block] = Math.clamp(values[inputA], parametersA[block], parametersB[block]);
+            }
+            case ACTUATOR -> {
+                ready[block] = ready[inputA];
+                if (ready[block]) {
+                    values[block] = values[inputA];
+                    ((Actuator) targets[block]).adjustSignal(values[block]);
+                }
+            }
+        }
+    }
+
+    private Block addBlock(
+            final Kind kind,
+            final int inputA,
+            final int inputB,
+            final double parameterA,
+            final double parameterB,
+            final Object target) {
+        if (isControlling) {
+            final String failureMessage = "Cannot add a block to " + this + " while it is controlling.";
+            logger.error(failureMessage);
+            throw new IllegalStateException(failureMessage);
+        }
+        if (size == kinds.length) {
+            grow();
+        }
+        final int index = size;
+        kinds[index] = kind;
+        inputsA[index] = inputA;
+        inputsB[index] = inputB;
+        parametersA[index] = parameterA;
+        parametersB[index] = parameterB;
+        targets[index] = target;
+        componentParents[index] = index;
+        if (inputA != NO_INPUT) {
+            union(index, inputA);
+        }
+        if (inputB != NO_INPUT) {
+            union(index, inputB);
+        }
+        size++;
+        areComponentsStale = true;
+        final Block block = new Block(this, index);
+        logger.debug("{} was added", block);
+        return block;
+    }
+
+    private int indexOf(final Block block) {
+        if (block == null || block.graph != this) {
+            final String failureMessage = "Cannot use " + block + " in " + this + "; it belongs to another graph.";
+            logger.error(failureMessage);
+            throw new IllegalArgumentException(failureMessage);
+        }
+        return block.index;
+    }
+
+    private int findComponent(final int block) {
+        int root = block;
+        while (componentParents[root] != root) {
+            // Path halving keeps the trees shallow
+            componentParents[root] = componentParents[componentParents[root]];
+            root = componentParents[root];
+        }
+        return root;
+    }
+
+    private void union(final int first, final int second) {
+        final int firstRoot = findComponent(first);
+        final int secondRoot = findComponent(second);
+        if (firstRoot != secondRoot) {
+            // The older root is kept, so every root is the first block of its component
+            componentParents[Math.max(firstRoot, secondRoot)] = Math.min(firstRoot, secondRoot);
+        }
+    }
+
+    /**
+     * Lays the blocks out component by component, keeping each component's blocks in topological order.
+     */
+    private void updateComponents() {
+        if (!areComponentsStale) {
+            return;
+        }
+        // Each root is its component's first block, so numbering roots as they are met orders the components by
+        // their first block
+        final int[] componentIds = new int[size];
+        final int[] componentSizes = new int[size];
+        int numComponents = 0;
+        for (int i = 0; i < size; i++) {
+            final int root = findComponent(i);
+            componentIds[i] = root == i ? numComponents++ : componentIds[root];
+            componentSizes[componentIds[i]]++;
+        }
+        componentStarts = new int[numComponents + 1];
+        for (int c = 0; c < numComponents; c++) {
+            componentStarts[c + 1] = componentStarts[c] + componentSizes[c];
+        }
+        final int[] nextPositions = Arrays.copyOf(componentStarts, numComponents);
+        componentOrder = new int[size];
+        for (int i = 0; i < size; i++) {
+            componentOrder[nextPositions[componentIds[i]]++] = i;
+        }
+        areComponentsStale = false;
+        logger.info("{} holds {} blocks in {} independent components", this, size, numComponents);
+    }
+
+    private void grow() {
+        final int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        inputsA = Arrays.copyOf(inputsA, capacity);
+        inputsB = Arrays.copyOf(inputsB, capacity);
+        parametersA = Arrays.copyOf(parametersA, capacity);
+        parametersB = Arrays.copyOf(parametersB, capacity);
+        targets = Arrays.copyOf(targets, capacity);
+        values = Arrays.copyOf(values, capacity);
+        ready = Arrays.copyOf(ready, capacity);
+        initialized = Arrays.copyOf(initialized, capacity);
+        componentParents = Arrays.copyOf(componentParents, capacity);
+    }
+}
@@ -1,6 +1,12 @@
 package com.control_ops.control_system.control_loop;
 
+import com.control_ops.control_system.ControlMetrics;
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.LatencyHistogram;
 import com.control_ops.control_system.PeriodicExecutor;
+import com.control_ops.control_system.Scheduler;
+import com.control_ops.control_system.instrument.SampleCell;
+import com.control_ops.control_system.instrument.SampleListener;
 import com.control_ops.control_system.instrument.actuator.Actuator;
 import com.control_ops.control_system.instrument.sensor.Sensor;
 import org.slf4j.Logger;
@@ -10,12 +16,26 @@ import java.util.concurrent.TimeUnit;
 
 public class ControlLoop {
 
-    private double setPoint;
-    private ControlBehaviour controlBehaviour;
+    private final SampleCell setPoint = new SampleCell();
+    private volatile ControlBehaviour controlBehaviour;
+    // Only accessed by the tick, which never runs concurrently with itself
+    private ControlBehaviour initializedControlBehaviour;
     private final int id;
     private final Sensor controlledVariable;
     private final Actuator manipulatedVariable;
+    private final PeriodicSchedule periodicSchedule;
+    private final Scheduler clock;
     private final PeriodicExecutor periodicExecutor;
+    private final SampleListener controlListener = (quantity, epochNanos) ->
+            updateManipulatedVariable(quantity, epochNanos, epochNanos);
+    // Held in a field so that reading the measurement on each tick does not allocate
+    private final SampleListener tickListener = (quantity, epochNanos) ->
+            updateManipulatedVariable(quantity, epochNanos, clock.now());
+    private final LatencyHistogram latencyHistogram;
+    private BatchControlGroup batchControlGroup;
+    private LoopGroup loopGroup;
+    // Volatile so that snapshots can read it without taking the monitor
+    private volatile boolean isControlling = false;
     private static final ControlLoopRegistry controlLoopRegistry = new ControlLoopRegistry();
     private static final Logger logger = LoggerFactory.getLogger(ControlLoop.class);
 
@@ -27,36 +47,314 @@ public class ControlLoop {
             final long updatePeriod,
             final TimeUnit updatePeriodUnit,
             final ControlBehaviour controlBehaviour) {
-        controlLoopRegistry.registerControlLoop(this, controlledVariable, manipulatedVariable);
+        this(
+                id,
+                controlledVariable,
+                manipulatedVariable,
+                setPoint,
+                updatePeriod,
+                updatePeriodUnit,
+                controlBehaviour,
+                ExecutionMode.SCHEDULER_THREAD);
+    }
+
+    public ControlLoop(
+            final int id,
+            final Sensor controlledVariable,
+            final Actuator manipulatedVariable,
+            final double setPoint,
+            final long updatePeriod,
+            final TimeUnit updatePeriodUnit,
+            final ControlBehaviour controlBehaviour,
+            final ExecutionMode executionMode) {
+        this(
+                id,
+                controlledVariable,
+                manipulatedVariable,
+                setPoint,
+                updatePeriod,
+                updatePeriodUnit,
+                controlBehaviour,
+                executionMode,
+                PeriodicExecutor.getSharedScheduler());
+    }
+
+    /**
+     * Initializes a control loop whose ticks are triggered and timestamped by the provided scheduler; give the loop
+     * the same scheduler as its sensor so that both run on one clock.
+     */
+    public ControlLoop(
+            final int id,
+            final Sensor controlledVariable,
+            final Actuator manipulatedVariable,
+            final double setPoint,
+            final long updatePeriod,
+            final TimeUnit updatePeriodUnit,
+            final ControlBehaviour controlBehaviour,
+            final ExecutionMode executionMode,
+            final Scheduler scheduler) {
+        this(
+                id,
+                controlledVariable,
+                manipulatedVariable,
+                setPoint,
+                controlBehaviour,
+                new PeriodicSchedule(updatePeriod, updatePeriodUnit, executionMode, scheduler));
+    }
+
+    /**
+     * Initializes an event-driven control loop. Instead of polling the sensor on its own timer, the loop subscribes to
+     * the sensor and calculates a new output as soon as each measurement is taken, on the sensor's sampling thread.
+     * This removes up to one update period of latency and guarantees exactly one output per measurement. The loop runs
+     * on the sensor's clock.
+     * @param id A unique value identifying the control loop
+     * @param controlledVariable The sensor measuring the variable being controlled
+     * @param manipulatedVariable The actuator whose output is adjusted
+     * @param setPoint The initial set point
+     * @param controlBehaviour Calculates each new actuator output
+     */
+    public ControlLoop(
+            final int id,
+            final Sensor controlledVariable,
+            final Actuator manipulatedVariable,
+            final double setPoint,
+            final ControlBehaviour controlBehaviour) {
+        this(id, controlledVariable, manipulatedVariable, setPoint, controlBehaviour, null);
+    }
+
+    private ControlLoop(
+            final int id,
+            final Sensor controlledVariable,
+            final Actuator manipulatedVariable,
+            final double setPoint,
+            final ControlBehaviour controlBehaviour,
+            final PeriodicSchedule periodicSchedule) {
         this.id = id;
         this.controlledVariable = controlledVariable;
         this.manipulatedVariable = manipulatedVariable;
-        this.setPoint = setPoint;
-        this.periodicExecutor = new PeriodicExecutor("test", updatePeriod, updatePeriodUnit, this::updateManipulatedVariable);
+        this.periodicSchedule = periodicSchedule;
+        this.clock = periodicSchedule == null ? controlledVariable.getScheduler() : periodicSchedule.scheduler();
+        this.setPoint.publish(setPoint, clock.now());
         this.controlBehaviour = controlBehaviour;
+        synchronized (this) {
+            // Registered before the executor and meters are created, so that a duplicate loop throws before it can
+            // leak them or replace the meters of the loop it duplicates. Holding the monitor keeps other threads that
+            // look the loop up from starting or releasing it until it is fully constructed.
+            controlLoopRegistry.registerControlLoop(this, controlledVariable, manipulatedVariable);
+            this.periodicExecutor = periodicSchedule == null ? null : new PeriodicExecutor(
+                    this.toString(),
+                    periodicSchedule.updatePeriod(),
+                    periodicSchedule.updatePeriodUnit(),
+                    this::updateManipulatedVariable,
+                    periodicSchedule.executionMode(),
+                    periodicSchedule.scheduler());
+            this.latencyHistogram = ControlMetrics.latencyHistogram(
+                    "control.loop.latency",
+                    "Time from a measurement being taken to the resulting actuator adjustment",
+                    "loop",
+                    this.toString());
+        }
         logger.info("{} was successfully created", this);
     }
 
-    public void startControlling() {
-        periodicExecutor.start();
+    /**
+     * @return The registry in which every control loop is registered on creation
+     */
+    public static ControlLoopRegistry getControlLoopRegistry() {
+        return controlLoopRegistry;
+    }
+
+    public synchronized void startControlling() {
+        isControlling = true;
+        if (isEventDriven()) {
+            controlledVariable.addControlListener(controlListener);
+        } else if (batchControlGroup != null) {
+            batchControlGroup.activate(this);
+        } else {
+            periodicExecutor.start();
+        }
+    }
+
+    public synchronized void stopControlling() {
+        isControlling = false;
+        if (isEventDriven()) {
+            controlledVariable.removeControlListener(controlListener);
+        } else if (batchControlGroup != null) {
+            batchControlGroup.deactivate(this);
+        } else {
+            periodicExecutor.stop();
+        }
+    }
+
+    public synchronized boolean isControlling() {
+        return isControlling;
+    }
+
+    /**
+     * Stops controlling, leaves any batch group and removes the loop's meters, so that the loop no longer holds a
+     * scheduled task, sensor subscription, batch lane or metric; its sensor and actuator are released along with it.
+     */
+    synchronized void release() {
+        if (isControlling) {
+            stopControlling();
+        }
+        if (batchControlGroup != null) {
+            batchControlGroup.remove(this);
+            batchControlGroup = null;
+        }
+        if (loopGroup != null) {
+            leaveLoopGroup();
+        }
+        if (periodicExecutor != null) {
+            periodicExecutor.release();
+        }
+        latencyHistogram.deregister();
+        controlledVariable.release();
+        manipulatedVariable.release();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return Whether the loop updates on every measurement of its sensor rather than on its own timer
+     */
+    public boolean isEventDriven() {
+        return periodicSchedule == null;
+    }
+
+    /**
+     * Hands this loop's updates over to the batch group shared by all loops with the same update period; the loop's
+     * own periodic executor is no longer used until it leaves the group. Only proportional control can be batched.
+     */
+    public synchronized void joinBatchGroup() {
+        if (batchControlGroup != null) {
+            logger.warn("Cannot add {} to a batch group; it is already a member of {}", this, batchControlGroup);
+            return;
+        }
+        if (isEventDriven()) {
+            final String failureMessage = this + " cannot join a batch group; it is event-driven.";
+            logger.error(failureMessage);
+            throw new IllegalStateException(failureMessage);
+        }
+        if (periodicSchedule.scheduler() != PeriodicExecutor.getSharedScheduler()) {
+            final String failureMessage = this + " cannot join a batch group; batch groups only run on the shared "
+                    + "scheduler.";
+            logger.error(failureMessage);
+            throw new IllegalStateException(failureMessage);
+        }
+        if (loopGroup != null) {
+            final String failureMessage = this + " cannot join a batch group; it is a member of " + loopGroup + ".";
+            logger.error(failureMessage);
+            throw new IllegalStateException(failureMessage);
+        }
+        if (!(controlBehaviour instanceof ProportionalControl proportionalControl)) {
+            final String failureMessage = this + " cannot join a batch group; only ProportionalControl can be batched.";
+            logger.error(failureMessage);
+            throw new IllegalStateException(failureMessage);
+        }
+        final boolean wasControlling = periodicExecutor.isExecuting();
+        if (wasControlling) {
+            periodicExecutor.stop();
+        }
+        batchControlGroup = BatchControlGroup.forPeriod(
+                periodicSchedule.updatePeriod(),
+                periodicSchedule.updatePeriodUnit());
+        batchControlGroup.add(this, proportionalControl);
+        if (wasControlling) {
+            batchControlGroup.activate(this);
+        }
+    }
+
+    /**
+     * Returns this loop to its own periodic executor, continuing to control if it was doing so in the batch group.
+     */
+    public synchronized void leaveBatchGroup() {
+        if (batchControlGroup == null) {
+            logger.warn("Cannot remove {} from a batch group; it is not a member of one", this);
+            return;
+        }
+        final boolean wasControlling = batchControlGroup.isActive(this);
+        batchControlGroup.remove(this);
+        batchControlGroup = null;
+        if (wasControlling) {
+            periodicExecutor.start();
+        }
     }
 
-    public void stopControlling() {
-        periodicExecutor.stop();
+    /**
+     * Staggers this loop's updates against those of every other loop with the same update period, and aligns its
+     * sensor's sampling to run just before each update; see {@link LoopGroup}. The loop keeps its own periodic
+     * executor and may join or leave while controlling.
+     */
+    public synchronized void joinLoopGroup() {
+        if (loopGroup != null) {
+            logger.warn("Cannot add {} to a loop group; it is already a member of {}", this, loopGroup);
+            return;
+        }
+        if (isEventDriven()) {
+            final String failureMessage = this + " cannot join a loop group; it is event-driven.";
+            logger.error(failureMessage);
+            throw new IllegalStateException(failureMessage);
+        }
+        if (batchControlGroup != null) {
+            final String failureMessage = this + " cannot join a loop group; it is a member of " + batchControlGroup
+                    + ".";
+            logger.error(failureMessage);
+            throw new IllegalStateException(failureMessage);
+        }
+        loopGroup = LoopGroup.forPeriod(periodicSchedule.updatePeriod(), periodicSchedule.updatePeriodUnit());
+        final long phaseNanos = loopGroup.add(this);
+        periodicExecutor.alignToPhase(phaseNanos, loopGroup.getPhaseLoadProfile());
+        // A tap measures whenever its source does, so the source keeps its own phase
+        if (!controlledVariable.isTap()) {
+            controlledVariable.alignSamplingPhase(loopGroup.sensorPhase(phaseNanos), loopGroup.getPhaseLoadProfile());
+        }
+    }
+
+    /**
+     * Returns this loop and its sensor to executing from whenever they are started, without a fixed phase.
+     */
+    public synchronized void leaveLoopGroup() {
+        if (loopGroup == null) {
+            logger.warn("Cannot remove {} from a loop group; it is not a member of one", this);
+            return;
+        }
+        loopGroup.remove(this);
+        loopGroup = null;
+        periodicExecutor.clearPhase();
+        if (!controlledVariable.isTap()) {
+            controlledVariable.clearSamplingPhase();
+        }
+    }
+
+    /**
+     * @return The offset into the update period at which this loop falls due, or -1 if it is not in a loop group
+     */
+    public long getPhaseNanos() {
+        return periodicExecutor == null ? -1L : periodicExecutor.getPhaseNanos();
     }
 
     public void updateSetPoint(final double newSetPoint) {
-        final double oldSetPoint = setPoint;
-        setPoint = newSetPoint;
+        final double oldSetPoint = setPoint.quantity();
+        setPoint.publish(newSetPoint, clock.now());
         logger.info("Set point updated from {} to {} for {}",
                 oldSetPoint,
                 newSetPoint,
                 this);
     }
 
-    public void switchControlBehaviour(final ControlBehaviour newControlBehaviour) {
+    public synchronized void switchControlBehaviour(final ControlBehaviour newControlBehaviour) {
         final ControlBehaviour oldControlBehaviour = this.controlBehaviour;
         this.controlBehaviour = newControlBehaviour;
+        if (batchControlGroup != null) {
+            if (newControlBehaviour instanceof ProportionalControl proportionalControl) {
+                batchControlGroup.updateGain(this, proportionalControl);
+            } else {
+                leaveBatchGroup();
+            }
+        }
         logger.info("Control behaviour switched from {} to {} on {}",
                 oldControlBehaviour,
                 newControlBehaviour,
@@ -64,19 +362,93 @@ public class ControlLoop {
     }
 
     public double getSetPoint() {
-        return setPoint;
+        return setPoint.quantity();
     }
 
-    private synchronized void updateManipulatedVariable() {
-        final double newActuatorOutput = controlBehaviour.calculateActuatorOutput(
-                setPoint,
-                controlledVariable.getCurrentSignal().quantity()
+    /**
+     * Reads the loop's latest values from the lock-free cells that the control path publishes to, so that taking a
+     * snapshot never delays a tick however often it is done.
+     */
+    public LoopState snapshot() {
+        final Measurement measurement = controlledVariable.hasMeasurement()
+                ? controlledVariable.readCurrentMeasurement(Measurement::new)
+                : null;
+        return new LoopState(
+                id,
+                setPoint.quantity(),
+                measurement == null ? null : measurement.quantity(),
+                measurement == null ? null : measurement.epochNanos(),
+                controlledVariable.getSignalUnit(),
+                manipulatedVariable.getSignalValue(),
+                isControlling,
+                isEventDriven());
+    }
+
+    Sensor getControlledVariable() {
+        return controlledVariable;
+    }
+
+    Actuator getManipulatedVariable() {
+        return manipulatedVariable;
+    }
+
+    /**
+     * Calculates and applies a new actuator output. The set point and measurement are read from lock-free cells, and
+     * the periodic executor never runs this concurrently with itself, so no monitor is taken on the control path.
+     * <br><br>
+     * A control behaviour that was switched in since the previous tick is initialized first, so the switch is
+     * bumpless.
+     */
+    void updateManipulatedVariable() {
+        if (!controlledVariable.hasMeasurement()) {
+            // The sensor has not taken its first measurement yet, so there is nothing to act on
+            return;
+        }
+        // The quantity and timestamp are read together, so the latency is measured from the measurement acted on
+        controlledVariable.readCurrentMeasurementInto(tickListener);
+    }
+
+    /**
+     * Calculates and applies a new actuator output from the provided measurement, and records the time elapsed since
+     * the measurement was taken; event-driven loops call this directly from the sensor, using the measurement's
+     * timestamp as the tick timestamp.
+     */
+    private void updateManipulatedVariable(
+            final double currentControlledVariable,
+            final long measurementEpochNanos,
+            final long tickEpochNanos) {
+        final double currentSetPoint = setPoint.quantity();
+        final ControlBehaviour currentControlBehaviour = controlBehaviour;
+        if (currentControlBehaviour != initializedControlBehaviour) {
+            // A behaviour that has just taken over the loop starts from the actuator's current output
+            currentControlBehaviour.initialize(
+                    manipulatedVariable.getSignalValue(),
+                    currentSetPoint,
+                    currentControlledVariable,
+                    tickEpochNanos);
+            initializedControlBehaviour = currentControlBehaviour;
+        }
+        final double newActuatorOutput = currentControlBehaviour.calculateActuatorOutput(
+                currentSetPoint,
+                currentControlledVariable,
+                tickEpochNanos
         );
         manipulatedVariable.adjustSignal(newActuatorOutput);
+        latencyHistogram.record(clock.now() - measurementEpochNanos);
     }
 
     @Override
     public String toString() {
         return "ControlLoop" + id;
     }
+
+    private record Measurement(double quantity, long epochNanos) {
+    }
+
+    private record PeriodicSchedule(
+            long updatePeriod,
+            TimeUnit updatePeriodUnit,
+            ExecutionMode executionMode,
+            Scheduler scheduler) {
+    }
 }
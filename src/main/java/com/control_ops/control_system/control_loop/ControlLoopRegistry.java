@@ -5,15 +5,30 @@ import com.control_ops.control_system.instrument.sensor.Sensor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Keeps track of every control loop, and of the sensor and actuator each one uses, by id.
+ * <br><br>
+ * The actuator index also holds the actuators claimed by control graphs (see {@link ControlGraph#actuator}), so that
+ * an actuator is only ever written by one loop or graph, whichever side claims it first.
+ * <br><br>
+ * Each index is a ConcurrentHashMap, so lookups never take a lock and registrations on different threads only contend
+ * when their keys land in the same bin. A registration claims the loop, sensor and actuator ids one at a time with
+ * putIfAbsent and releases the ids it has already claimed if a later one is taken, so concurrent registrations can
+ * never both claim the same sensor or actuator. Loops that act on the same measurement each register their own tap of
+ * the sensor that takes it (see {@link Sensor#tap(int)}), so the device is still only polled once.
+ */
 public class ControlLoopRegistry {
-    private final Map<Sensor, ControlLoop> registeredSensors = new HashMap<>();
-    private final Map<Actuator, ControlLoop> registeredActuators = new HashMap<>();
-    private final Set<ControlLoop> registeredControlLoops = new HashSet<>();
+    // Bulk operations are split into parallel tasks once the registry holds at least this many loops
+    private static final long PARALLELISM_THRESHOLD = 1024L;
+
+    private final ConcurrentHashMap<Integer, ControlLoop> controlLoopsById = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, ControlLoop> controlLoopsBySensorId = new ConcurrentHashMap<>();
+    // Each actuator's writer, either a ControlLoop or a ControlGraph
+    private final ConcurrentHashMap<Integer, Object> actuatorOwnersById = new ConcurrentHashMap<>();
 
     private static final Logger logger = LoggerFactory.getLogger(ControlLoopRegistry.class);
 
@@ -21,20 +36,127 @@ public class ControlLoopRegistry {
             final ControlLoop controlLoop,
             final Sensor sensor,
             final Actuator actuator) {
-        if (registeredSensors.containsKey(sensor)) {
+        if (controlLoopsBySensorId.putIfAbsent(sensor.getId(), controlLoop) != null) {
             logRegistrationError(sensor);
             throw new RegistrationDuplicationException(sensor);
-        } else if (registeredActuators.containsKey(actuator)) {
+        }
+        if (actuatorOwnersById.putIfAbsent(actuator.getId(), controlLoop) != null) {
+            controlLoopsBySensorId.remove(sensor.getId(), controlLoop);
             logRegistrationError(actuator);
             throw new RegistrationDuplicationException(actuator);
-        } else if (registeredControlLoops.contains(controlLoop)) {
+        }
+        if (controlLoopsById.putIfAbsent(controlLoop.getId(), controlLoop) != null) {
+            controlLoopsBySensorId.remove(sensor.getId(), controlLoop);
+            actuatorOwnersById.remove(actuator.getId(), controlLoop);
             logRegistrationError(controlLoop);
             throw new RegistrationDuplicationException(controlLoop);
         }
-        registeredSensors.put(sensor, controlLoop);
-        registeredActuators.put(actuator, controlLoop);
-        registeredControlLoops.add(controlLoop);
-        logger.info("{} was successfully registered:\tSensor: {}\tActuator: {}", controlLoop, sensor, actuator);
+        logger.debug("{} was successfully registered:\tSensor: {}\tActuator: {}", controlLoop, sensor, actuator);
+    }
+
+    /**
+     * Stops the control loop, releases its scheduler resources, sensor and actuator (see {@link Sensor#release()} and
+     * {@link Actuator#release()}) and removes it from the registry, after which its id and the ids of its sensor and
+     * actuator can be registered again.
+     * @param controlLoopId The id of the control loop to be removed
+     * @return The removed control loop, or null if no loop with the provided id was registered
+     */
+    public ControlLoop deregisterControlLoop(final int controlLoopId) {
+        final ControlLoop controlLoop = controlLoopsById.remove(controlLoopId);
+        if (controlLoop == null) {
+            logger.warn("Cannot deregister ControlLoop{}; it is not registered", controlLoopId);
+            return null;
+        }
+        controlLoop.release();
+        controlLoopsBySensorId.remove(controlLoop.getControlledVariable().getId(), controlLoop);
+        actuatorOwnersById.remove(controlLoop.getManipulatedVariable().getId(), controlLoop);
+        logger.debug("{} was deregistered", controlLoop);
+        return controlLoop;
+    }
+
+    /**
+     * Claims an actuator for a control graph's block.
+     * @return Whether the actuator was claimed; false if a control loop or graph already writes it
+     */
+    boolean claimActuator(final Actuator actuator, final ControlGraph controlGraph) {
+        return actuatorOwnersById.putIfAbsent(actuator.getId(), controlGraph) == null;
+    }
+
+    /**
+     * Releases an actuator claimed by the control graph; does nothing if the graph does not hold the claim.
+     */
+    void releaseActuator(final Actuator actuator, final ControlGraph controlGraph) {
+        actuatorOwnersById.remove(actuator.getId(), controlGraph);
+    }
+
+    /**
+     * Deregisters every control loop; see {@link #deregisterControlLoop(int)}.
+     */
+    public void deregisterAll() {
+        controlLoopsById.forEachKey(PARALLELISM_THRESHOLD, this::deregisterControlLoop);
+        logger.info("All control loops were deregistered");
+    }
+
+    /**
+     * Starts every registered control loop that is not already controlling, in parallel for large registries.
+     */
+    public void startAll() {
+        controlLoopsById.forEachValue(PARALLELISM_THRESHOLD, controlLoop -> {
+            if (!controlLoop.isControlling()) {
+                controlLoop.startControlling();
+            }
+        });
+        logger.info("All {} control loops were started", size());
+    }
+
+    /**
+     * Stops every registered control loop that is controlling, in parallel for large registries.
+     */
+    public void stopAll() {
+        controlLoopsById.forEachValue(PARALLELISM_THRESHOLD, controlLoop -> {
+            if (controlLoop.isControlling()) {
+                controlLoop.stopControlling();
+            }
+        });
+        logger.info("All {} control loops were stopped", size());
+    }
+
+    /**
+     * @return The control loop with the provided id, or null if there is none
+     */
+    public ControlLoop getControlLoop(final int controlLoopId) {
+        return controlLoopsById.get(controlLoopId);
+    }
+
+    /**
+     * @return The control loop whose controlled variable is measured by the sensor with the provided id, or null if
+     * there is none
+     */
+    public ControlLoop getControlLoopBySensor(final int sensorId) {
+        return controlLoopsBySensorId.get(sensorId);
+    }
+
+    /**
+     * @return The control loop that adjusts the actuator with the provided id, or null if there is none, including
+     * when a control graph writes it
+     */
+    public ControlLoop getControlLoopByActuator(final int actuatorId) {
+        return actuatorOwnersById.get(actuatorId) instanceof ControlLoop controlLoop ? controlLoop : null;
+    }
+
+    /**
+     * @return A live, unmodifiable view of every registered control loop, which may be iterated while loops are
+     * registered and deregistered
+     */
+    public Collection<ControlLoop> getControlLoops() {
+        return Collections.unmodifiableCollection(controlLoopsById.values());
+    }
+
+    /**
+     * @return The number of registered control loops
+     */
+    public int size() {
+        return controlLoopsById.size();
     }
 
     static class RegistrationDuplicationException extends RuntimeException {
@@ -0,0 +1,110 @@
+package com.control_ops.control_system.control_loop;
+
+import com.control_ops.control_system.PhaseLoadProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spreads the updates of control loops that share an update period evenly across that period, so that loops started
+ * together do not all fall due in the same instant.
+ * <br><br>
+ * Each member is given a slot, and the slot a phase: slot k falls due at the fraction of the period whose binary
+ * digits are those of k reversed (0, 1/2, 1/4, 3/4, 1/8, ...). While the occupied slots are 0 to n - 1, as they are
+ * when loops have only joined, the phases are never more than twice as close together as they would be if spread
+ * perfectly evenly. No member is ever moved when another joins or leaves, so after members leave, the rest keep the
+ * spacing of their slots, which can be far from even: slots 0 and 7 alone fall due at 0 and 7/8 of the period. Slots
+ * freed by leaving members are reused first, so the spacing recovers as loops join again.
+ * <br><br>
+ * Each member's sensor samples a short lead ahead of the loop's phase, so every update acts on a fresh measurement.
+ * The group's {@link PhaseLoadProfile} records when in the period its sensors and loops execute, and publishes how
+ * flat that load is as gauges.
+ */
+public class LoopGroup {
+    // A sensor samples this far ahead of its loop, or an eighth of the period if that is shorter
+    static final long MAX_SENSOR_LEAD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final Map<Long, LoopGroup> groupsByPeriodNanos = new ConcurrentHashMap<>();
+
+    private final long updatePeriodNanos;
+    private final PhaseLoadProfile phaseLoadProfile;
+    private final Map<ControlLoop, Integer> slots = new IdentityHashMap<>();
+    private final BitSet occupiedSlots = new BitSet();
+
+    private static final Logger logger = LoggerFactory.getLogger(LoopGroup.class);
+
+    private LoopGroup(final long updatePeriodNanos) {
+        this.updatePeriodNanos = updatePeriodNanos;
+        this.phaseLoadProfile = PhaseLoadProfile.registered(updatePeriodNanos, this.toString());
+    }
+
+    /**
+     * @return The group shared by all control loops with the provided update period
+     */
+    public static LoopGroup forPeriod(final long updatePeriod, final TimeUnit updatePeriodUnit) {
+        return groupsByPeriodNanos.computeIfAbsent(updatePeriodUnit.toNanos(updatePeriod), LoopGroup::new);
+    }
+
+    /**
+     * @return The offset into a period of the provided length at which the member in the provided slot falls due
+     */
+    static long phaseOfSlot(final int slot, final long periodNanos) {
+        // The reversed slot number is a binary fraction of 2^64, so the high word of the product is that fraction of
+        // the period
+        return Math.unsignedMultiplyHigh(Long.reverse(slot), periodNanos);
+    }
+
+    /**
+     * Gives the loop a slot in the group.
+     * @return The offset into the period at which the loop should fall due
+     */
+    synchronized long add(final ControlLoop controlLoop) {
+        final Integer existingSlot = slots.get(controlLoop);
+        if (existingSlot != null) {
+            logger.warn("Cannot add {} to {}; it is already a member", controlLoop, this);
+            return phaseOfSlot(existingSlot, updatePeriodNanos);
+        }
+        final int slot = occupiedSlots.nextClearBit(0);
+        occupiedSlots.set(slot);
+        slots.put(controlLoop, slot);
+        logger.info("{} joined {} in slot {}", controlLoop, this, slot);
+        return phaseOfSlot(slot, updatePeriodNanos);
+    }
+
+    synchronized void remove(final ControlLoop controlLoop) {
+        final Integer slot = slots.remove(controlLoop);
+        if (slot == null) {
+            logger.warn("Cannot remove {} from {}; it is not a member", controlLoop, this);
+            return;
+        }
+        occupiedSlots.clear(slot);
+        logger.info("{} left {}", controlLoop, this);
+    }
+
+    /**
+     * @return The phase at which the sensor of a loop with the provided phase should sample
+     */
+    long sensorPhase(final long loopPhaseNanos) {
+        return loopPhaseNanos - Math.min(MAX_SENSOR_LEAD_NANOS, updatePeriodNanos / 8L);
+    }
+
+    /**
+     * @return The profile into which every member loop and sensor execution is recorded
+     */
+    public PhaseLoadProfile getPhaseLoadProfile() {
+        return phaseLoadProfile;
+    }
+
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    @Override
+    public String toString() {
+        return "LoopGroup" + updatePeriodNanos + "ns";
+    }
+}
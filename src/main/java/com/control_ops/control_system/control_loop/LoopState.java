@@ -0,0 +1,28 @@
+package com.control_ops.control_system.control_loop;
+
+import com.control_ops.control_system.instrument.SignalUnit;
+
+/**
+ * A snapshot of a control loop's latest values, read without taking any lock that the control path takes.
+ * <br><br>
+ * Each value is consistent with itself but the values are read one after another, so a snapshot taken during a tick
+ * may pair a new measurement with the output calculated from the previous one.
+ * @param id The id of the control loop
+ * @param setPoint The set point
+ * @param processValue The latest measurement of the controlled variable, or null if the sensor has not taken one
+ * @param processValueEpochNanos When the latest measurement was taken, or null if the sensor has not taken one
+ * @param processValueUnit The unit in which the controlled variable is measured
+ * @param output The actuator's current output, in percent
+ * @param controlling Whether the loop is adjusting its actuator
+ * @param eventDriven Whether the loop updates on every measurement rather than on its own timer
+ */
+public record LoopState(
+        int id,
+        double setPoint,
+        Double processValue,
+        Long processValueEpochNanos,
+        SignalUnit processValueUnit,
+        double output,
+        boolean controlling,
+        boolean eventDriven) {
+}
@@ -0,0 +1,125 @@
+package com.control_ops.control_system.control_loop;
+
+import com.control_ops.control_system.instrument.EpochNanoClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A proportional-integral-derivative controller whose state is held entirely in primitive fields, so calculating an
+ * output never allocates.
+ * <br><br>
+ * <ul>
+ *     <li>The integral and derivative terms use the real time elapsed between tick timestamps rather than the
+ *     nominal update period, so late or bunched ticks do not distort them.</li>
+ *     <li>The integrator is clamped to the output limits (anti-windup), so the output responds as soon as the error
+ *     changes sign after a long period of saturation.</li>
+ *     <li>The derivative acts on the measurement rather than the error, so set point changes do not cause a kick, and
+ *     it is smoothed by a first-order low-pass filter.</li>
+ *     <li>On {@link #initialize} the integrator is preloaded so that the first output equals the actuator's current
+ *     output (bumpless transfer).</li>
+ * </ul>
+ * Each instance holds the state of one loop and must not be shared between loops.
+ */
+public class PidControl implements ControlBehaviour {
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    final double proportionalGain;
+    final double integralGain;
+    final double derivativeGain;
+    final double derivativeFilterTime;
+    final double minOutput;
+    final double maxOutput;
+
+    private double integral = 0.0;
+    private double filteredDerivative = 0.0;
+    private double previousControlledVariable;
+    private long previousTickEpochNanos;
+    private boolean hasPreviousTick = false;
+
+    static final Logger logger = LoggerFactory.getLogger(PidControl.class);
+
+    /**
+     * @param proportionalGain Output per unit of error
+     * @param integralGain Output per unit of error per second
+     * @param derivativeGain Output per unit of rate of change of the measurement, in units per second
+     * @param derivativeFilterTime Time constant of the derivative low-pass filter in seconds; zero disables filtering
+     * @param minOutput The lowest output the actuator accepts
+     * @param maxOutput The highest output the actuator accepts
+     */
+    public PidControl(
+            final double proportionalGain,
+            final double integralGain,
+            final double derivativeGain,
+            final double derivativeFilterTime,
+            final double minOutput,
+            final double maxOutput) {
+        if (proportionalGain == 0.0 && integralGain == 0.0 && derivativeGain == 0.0) {
+            failInstantiation("Cannot instantiate a PidControl object with all gains equal to zero.");
+        }
+        if (derivativeFilterTime < 0.0) {
+            failInstantiation("Cannot instantiate a PidControl object with a negative derivative filter time.");
+        }
+        if (!(minOutput < maxOutput)) {
+            failInstantiation("Cannot instantiate a PidControl object whose minimum output is not below its maximum.");
+        }
+        this.proportionalGain = proportionalGain;
+        this.integralGain = integralGain;
+        this.derivativeGain = derivativeGain;
+        this.derivativeFilterTime = derivativeFilterTime;
+        this.minOutput = minOutput;
+        this.maxOutput = maxOutput;
+    }
+
+    @Override
+    public double calculateActuatorOutput(final double setPoint, final double controlledVariableValue) {
+        return calculateActuatorOutput(setPoint, controlledVariableValue, EpochNanoClock.now());
+    }
+
+    @Override
+    public double calculateActuatorOutput(
+            final double setPoint,
+            final double controlledVariableValue,
+            final long tickEpochNanos) {
+        final double error = setPoint - controlledVariableValue;
+        if (!hasPreviousTick) {
+            rememberTick(controlledVariableValue, tickEpochNanos);
+            return clamp(proportionalGain * error + integral);
+        }
+
+        final double elapsedSeconds = (tickEpochNanos - previousTickEpochNanos) / NANOS_PER_SECOND;
+        if (elapsedSeconds > 0.0) {
+            final double measurementDerivative = (controlledVariableValue - previousControlledVariable) / elapsedSeconds;
+            final double filterWeight = elapsedSeconds / (derivativeFilterTime + elapsedSeconds);
+            filteredDerivative += filterWeight * (measurementDerivative - filteredDerivative);
+            integral = clamp(integral + integralGain * error * elapsedSeconds);
+            rememberTick(controlledVariableValue, tickEpochNanos);
+        }
+        return clamp(proportionalGain * error + integral - derivativeGain * filteredDerivative);
+    }
+
+    @Override
+    public void initialize(
+            final double currentActuatorOutput,
+            final double setPoint,
+            final double controlledVariableValue,
+            final long tickEpochNanos) {
+        integral = clamp(currentActuatorOutput - proportionalGain * (setPoint - controlledVariableValue));
+        filteredDerivative = 0.0;
+        rememberTick(controlledVariableValue, tickEpochNanos);
+    }
+
+    private void rememberTick(final double controlledVariableValue, final long tickEpochNanos) {
+        previousControlledVariable = controlledVariableValue;
+        previousTickEpochNanos = tickEpochNanos;
+        hasPreviousTick = true;
+    }
+
+    private double clamp(final double value) {
+        return Math.max(minOutput, Math.min(maxOutput, value));
+    }
+
+    private static void failInstantiation(final String failureMessage) {
+        logger.error(failureMessage);
+        throw new IllegalArgumentException(failureMessage);
+    }
+}
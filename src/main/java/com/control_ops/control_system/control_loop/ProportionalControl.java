@@ -7,7 +7,7 @@ public class ProportionalControl implements ControlBehaviour {
     final double gain;
     static final Logger logger = LoggerFactory.getLogger(ProportionalControl.class);
 
-    ProportionalControl(double gain) {
+    public ProportionalControl(final double gain) {
         // A proportional controller with a gain of zero is useless and should never be instantiated
         if (gain == 0.0) {
             final String failureMessage = "Cannot instantiate a ProportionalControl object with a zero gain.";
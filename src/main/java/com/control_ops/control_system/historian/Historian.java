@@ -0,0 +1,255 @@
+package com.control_ops.control_system.historian;
+
+import com.control_ops.control_system.ControlMetrics;
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.PeriodicExecutor;
+import com.control_ops.control_system.instrument.EpochNanoClock;
+import com.control_ops.control_system.instrument.Signal;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.actuator.ActuatorListener;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import com.control_ops.control_system.instrument.sensor.SensorListener;
+import io.micrometer.core.instrument.Meter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Persists the signals of sensors and actuators to the database as a time series.
+ * <br><br>
+ * Signals are appended to an in-memory buffer on the instrument's own thread and written in large batches by a
+ * background flush, so a slow or unavailable database never stalls sampling or control. A batch that fails to write
+ * is retried on the next flush. The buffer grows when the database falls behind, up to a maximum number of signals;
+ * signals that arrive while it is full are dropped and counted, so a database that stays unavailable costs signals
+ * rather than memory.
+ */
+@Service
+public class Historian implements AutoCloseable {
+    static final int DEFAULT_BATCH_SIZE = 1000;
+    static final long DEFAULT_FLUSH_PERIOD_MILLIS = 100L;
+    static final int DEFAULT_MAX_BUFFERED_SIGNALS = 1_000_000;
+    private static final int INITIAL_BUFFER_CAPACITY = 4096;
+
+    private final BatchWriter batchWriter;
+    private final int batchSize;
+    private final int maxBufferedSignals;
+    private final PeriodicExecutor flushExecutor;
+    private final ReentrantLock fillingLock = new ReentrantLock();
+    // Guards flushes; a lock rather than a monitor so that a virtual thread blocked on the database does not pin its
+    // carrier thread
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private SignalBuffer fillingBuffer = new SignalBuffer(INITIAL_BUFFER_CAPACITY);
+    private SignalBuffer drainingBuffer = new SignalBuffer(INITIAL_BUFFER_CAPACITY);
+    private final LongAdder receivedCount = new LongAdder();
+    private final LongAdder persistedCount = new LongAdder();
+    private final LongAdder overflowCount = new LongAdder();
+    private final Meter overflowMeter;
+    // Only accessed by flushes, while the flush lock is held
+    private long overflowLogged = 0L;
+    private final Map<Integer, SensorListener> sensorListeners = new ConcurrentHashMap<>();
+    private final Map<Integer, ActuatorListener> actuatorListeners = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(Historian.class);
+
+    /**
+     * Writes a batch of records to the database in a single transaction, or throws if none of them were written.
+     */
+    @FunctionalInterface
+    interface BatchWriter {
+        void write(final List<SignalRecord> records);
+    }
+
+    @Autowired
+    public Historian(final JdbcTemplate jdbcTemplate, final PlatformTransactionManager transactionManager) {
+        this(
+                "historian",
+                new JdbcBatchWriter(jdbcTemplate, transactionManager),
+                DEFAULT_BATCH_SIZE,
+                DEFAULT_FLUSH_PERIOD_MILLIS,
+                DEFAULT_MAX_BUFFERED_SIGNALS);
+    }
+
+    /**
+     * @param name Identifies the historian's flush executor and overflow meter, so it must differ from the names of
+     *             other historians
+     */
+    Historian(
+            final String name,
+            final BatchWriter batchWriter,
+            final int batchSize,
+            final long flushPeriodMillis,
+            final int maxBufferedSignals) {
+        if (batchSize < 1) {
+            logger.error("Cannot create a historian with a batch size of {}", batchSize);
+            throw new IllegalArgumentException("The batch size must be at least 1");
+        }
+        if (maxBufferedSignals < 1) {
+            logger.error("Cannot create a historian that buffers at most {} signals", maxBufferedSignals);
+            throw new IllegalArgumentException("The maximum number of buffered signals must be at least 1");
+        }
+        this.batchWriter = batchWriter;
+        this.batchSize = batchSize;
+        this.maxBufferedSignals = maxBufferedSignals;
+        this.overflowMeter = ControlMetrics.counter(
+                "control.historian.overflow",
+                "Signals dropped because the historian's buffer was full",
+                "historian",
+                name,
+                overflowCount);
+        this.flushExecutor = new PeriodicExecutor(
+                name,
+                flushPeriodMillis,
+                TimeUnit.MILLISECONDS,
+                this::flush,
+                ExecutionMode.VIRTUAL_THREAD);
+        this.flushExecutor.start();
+    }
+
+    /**
+     * Begins historizing every measurement taken by the provided sensor.
+     */
+    public void record(final Sensor sensor) {
+        final int sensorId = sensor.getId();
+        final SensorListener listener = signal -> append(SignalSource.SENSOR, sensorId, signal);
+        if (sensorListeners.putIfAbsent(sensorId, listener) != null) {
+            logger.warn("Cannot record {}; it is already being recorded", sensor);
+            return;
+        }
+        sensor.addListener(listener);
+    }
+
+    /**
+     * Begins historizing every adjustment made to the provided actuator.
+     */
+    public void record(final Actuator actuator) {
+        final int actuatorId = actuator.getId();
+        final ActuatorListener listener = signal -> append(SignalSource.ACTUATOR, actuatorId, signal);
+        if (actuatorListeners.putIfAbsent(actuatorId, listener) != null) {
+            logger.warn("Cannot record {}; it is already being recorded", actuator);
+            return;
+        }
+        actuator.addListener(listener);
+    }
+
+    public void stopRecording(final Sensor sensor) {
+        final SensorListener listener = sensorListeners.remove(sensor.getId());
+        if (listener == null) {
+            logger.warn("Cannot stop recording {}; it is not being recorded", sensor);
+            return;
+        }
+        sensor.removeListener(listener);
+    }
+
+    public void stopRecording(final Actuator actuator) {
+        final ActuatorListener listener = actuatorListeners.remove(actuator.getId());
+        if (listener == null) {
+            logger.warn("Cannot stop recording {}; it is not being recorded", actuator);
+            return;
+        }
+        actuator.removeListener(listener);
+    }
+
+    /**
+     * @return How many signals have been received but neither persisted nor dropped
+     */
+    public long getBufferedCount() {
+        return receivedCount.sum() - persistedCount.sum() - overflowCount.sum();
+    }
+
+    /**
+     * @return How many signals have been persisted since the historian was created
+     */
+    public long getPersistedCount() {
+        return persistedCount.sum();
+    }
+
+    /**
+     * @return How many signals were dropped because the buffer was full
+     */
+    public long getOverflowCount() {
+        return overflowCount.sum();
+    }
+
+    /**
+     * Writes every buffered signal, then stops the background flush and removes the historian's meters.
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        flush();
+        flushExecutor.release();
+        final long unpersisted = getBufferedCount();
+        if (unpersisted > 0L) {
+            logger.error("The historian was closed with {} signals that could not be persisted", unpersisted);
+        }
+        ControlMetrics.remove(overflowMeter);
+    }
+
+    private void append(final SignalSource source, final int sourceId, final Signal signal) {
+        final long epochNanos = EpochNanoClock.toEpochNanos(signal.dateTime());
+        receivedCount.increment();
+        fillingLock.lock();
+        try {
+            // Drops are only counted here, on the instrument's thread; the next flush logs them
+            if (fillingBuffer.size() >= maxBufferedSignals) {
+                overflowCount.increment();
+                return;
+            }
+            fillingBuffer.append(source, sourceId, signal.quantity(), signal.unit(), epochNanos);
+        } finally {
+            fillingLock.unlock();
+        }
+    }
+
+    /**
+     * Writes buffered signals until both buffers are empty or a batch fails; a failed batch stays at the head of the
+     * draining buffer and is retried by the next flush.
+     */
+    private void flush() {
+        flushLock.lock();
+        try {
+            final long overflow = overflowCount.sum();
+            if (overflow > overflowLogged) {
+                logger.warn("Dropped {} signals because the historian's buffer was full", overflow - overflowLogged);
+                overflowLogged = overflow;
+            }
+            while (true) {
+                if (drainingBuffer.unreadCount() == 0) {
+                    drainingBuffer.clear();
+                    fillingLock.lock();
+                    try {
+                        final SignalBuffer filled = fillingBuffer;
+                        fillingBuffer = drainingBuffer;
+                        drainingBuffer = filled;
+                    } finally {
+                        fillingLock.unlock();
+                    }
+                    if (drainingBuffer.unreadCount() == 0) {
+                        return;
+                    }
+                }
+                final List<SignalRecord> records = drainingBuffer.peek(batchSize);
+                try {
+                    batchWriter.write(records);
+                } catch (final RuntimeException e) {
+                    logger.error("Failed to persist a batch of {} signals; it will be retried", records.size(), e);
+                    return;
+                }
+                drainingBuffer.advance(records.size());
+                persistedCount.add(records.size());
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.control_ops.control_system.historian;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Inserts each batch as a single JDBC batch of one prepared statement, in one transaction.
+ * <br><br>
+ * Inserting through JPA instead costs an entity lifecycle and a persistence context entry per row, which for an
+ * append-only table that is never updated through the entity buys nothing and roughly halves throughput.
+ */
+class JdbcBatchWriter implements Historian.BatchWriter {
+    private static final String INSERT_SQL = "INSERT INTO " + SignalRecord.TABLE_NAME + " ("
+            + SignalRecord.SOURCE_COLUMN + ", "
+            + SignalRecord.SOURCE_ID_COLUMN + ", "
+            + SignalRecord.QUANTITY_COLUMN + ", "
+            + SignalRecord.UNIT_COLUMN + ", "
+            + SignalRecord.EPOCH_NANOS_COLUMN + ") VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    JdbcBatchWriter(final JdbcTemplate jdbcTemplate, final PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void write(final List<SignalRecord> records) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                INSERT_SQL,
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(final PreparedStatement statement, final int i) throws SQLException {
+                        final SignalRecord record = records.get(i);
+                        statement.setInt(1, record.getSource().ordinal());
+                        statement.setInt(2, record.getSourceId());
+                        statement.setDouble(3, record.getQuantity());
+                        statement.setInt(4, record.getUnit().ordinal());
+                        statement.setLong(5, record.getEpochNanos());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return records.size();
+                    }
+                }));
+    }
+}
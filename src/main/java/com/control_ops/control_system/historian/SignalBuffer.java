@@ -0,0 +1,89 @@
+package com.control_ops.control_system.historian;
+
+import com.control_ops.control_system.instrument.SignalUnit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds signals awaiting persistence in parallel primitive arrays, so that appending one costs a few array stores
+ * rather than an entity allocation.
+ * <br><br>
+ * Not thread-safe; the {@link Historian} guards the buffer that is being filled and hands full buffers to its writer.
+ */
+class SignalBuffer {
+    private SignalSource[] sources;
+    private int[] sourceIds;
+    private double[] quantities;
+    private SignalUnit[] units;
+    private long[] epochNanos;
+    private int size = 0;
+    private int readIndex = 0;
+
+    SignalBuffer(final int initialCapacity) {
+        this.sources = new SignalSource[initialCapacity];
+        this.sourceIds = new int[initialCapacity];
+        this.quantities = new double[initialCapacity];
+        this.units = new SignalUnit[initialCapacity];
+        this.epochNanos = new long[initialCapacity];
+    }
+
+    void append(
+            final SignalSource source,
+            final int sourceId,
+            final double quantity,
+            final SignalUnit unit,
+            final long epochNanos) {
+        if (size == sourceIds.length) {
+            grow();
+        }
+        this.sources[size] = source;
+        this.sourceIds[size] = sourceId;
+        this.quantities[size] = quantity;
+        this.units[size] = unit;
+        this.epochNanos[size] = epochNanos;
+        size++;
+    }
+
+    /**
+     * @return Up to maxCount of the signals that have not yet been read, without marking them as read
+     */
+    List<SignalRecord> peek(final int maxCount) {
+        final int end = Math.min(size, readIndex + maxCount);
+        final List<SignalRecord> records = new ArrayList<>(end - readIndex);
+        for (int i = readIndex; i < end; i++) {
+            records.add(new SignalRecord(sources[i], sourceIds[i], quantities[i], units[i], epochNanos[i]));
+        }
+        return records;
+    }
+
+    /**
+     * Marks signals returned by {@link #peek(int)} as read once they have been persisted.
+     */
+    void advance(final int count) {
+        readIndex += count;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int unreadCount() {
+        return size - readIndex;
+    }
+
+    void clear() {
+        size = 0;
+        readIndex = 0;
+    }
+
+    private void grow() {
+        final int newCapacity = sourceIds.length * 2;
+        this.sources = Arrays.copyOf(sources, newCapacity);
+        this.sourceIds = Arrays.copyOf(sourceIds, newCapacity);
+        this.quantities = Arrays.copyOf(quantities, newCapacity);
+        this.units = Arrays.copyOf(units, newCapacity);
+        this.epochNanos = Arrays.copyOf(epochNanos, newCapacity);
+    }
+}
@@ -0,0 +1,385 @@
+package com.control_ops.control_system.historian;
+
+import com.control_ops.control_system.instrument.SampleListener;
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * An append-only binary journal of signals, kept in memory-mapped segment files in a local directory.
+ * <br><br>
+ * Each signal is a fixed-width little-endian record: a header holding a commit marker, the source ordinal and the
+ * unit ordinal, then the source id, the epoch-nanosecond timestamp and the quantity. Appending copies these straight
+ * into the mapped segment without allocating or making a system call; the header is written last, with release
+ * semantics, so a reader never sees a partially written record and a record torn by the process crashing reads as
+ * the end of the journal. Once written, a record lives in the operating system's page cache and survives the process
+ * crashing; {@link #force()} additionally makes it survive the machine losing power. Records written since the last
+ * force are not protected from power loss by the commit marker: the operating system writes pages back independently,
+ * so a record that crosses a page boundary may reach the device with its header but without the rest of its body.
+ * <br><br>
+ * When a segment fills, the journal rolls over to a new one and deletes the oldest segments beyond the retention
+ * limit. Segments are named after the sequence number of their first record, so they sort in append order.
+ */
+public class SignalJournal implements AutoCloseable {
+    static final int RECORD_SIZE = 24;
+    private static final int SOURCE_ID_OFFSET = 4;
+    private static final int EPOCH_NANOS_OFFSET = 8;
+    private static final int QUANTITY_OFFSET = 16;
+    private static final int COMMIT_MARKER = 0x5A000000;
+    private static final int COMMIT_MARKER_MASK = 0xFF000000;
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final VarHandle HEADER =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final SignalSource[] SOURCES = SignalSource.values();
+    private static final SignalUnit[] UNITS = SignalUnit.values();
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final int retainedSegmentCount;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Deque<Path> segments = new ArrayDeque<>();
+    private MappedByteBuffer segment;
+    private long segmentFirstSequence;
+    private int segmentPosition;
+    private boolean isClosed = false;
+    private long droppedAfterCloseCount = 0L;
+    private final Map<Sensor, SampleListener> sensorListeners = new ConcurrentHashMap<>();
+    private final Map<Actuator, SampleListener> actuatorListeners = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(SignalJournal.class);
+
+    /**
+     * Receives each record read back from a journal.
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void onRecord(
+                final SignalSource source,
+                final int sourceId,
+                final double quantity,
+                final SignalUnit unit,
+                final long epochNanos);
+    }
+
+    /**
+     * Opens the journal in the provided directory, creating it if necessary. Appending resumes after the last
+     * complete record of the newest existing segment.
+     * @param directory Where the segment files are kept
+     * @param recordsPerSegment How many records each segment file holds
+     * @param retainedSegmentCount How many segment files, including the one being appended to, are kept
+     */
+    public SignalJournal(final Path directory, final int recordsPerSegment, final int retainedSegmentCount) {
+        if (recordsPerSegment < 1 || (long) recordsPerSegment * RECORD_SIZE > Integer.MAX_VALUE) {
+            logger.error("Cannot create a journal with {} records per segment", recordsPerSegment);
+            throw new IllegalArgumentException(
+                    "The records per segment must be between 1 and " + Integer.MAX_VALUE / RECORD_SIZE);
+        }
+        if (retainedSegmentCount < 1) {
+            logger.error("Cannot create a journal that retains {} segments", retainedSegmentCount);
+            throw new IllegalArgumentException("At least one segment must be retained");
+        }
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        this.retainedSegmentCount = retainedSegmentCount;
+        try {
+            Files.createDirectories(directory);
+            this.segments.addAll(listSegments(directory));
+        } catch (final IOException e) {
+            logger.error("Cannot open the journal in {}", directory, e);
+            throw new IllegalStateException("The journal directory could not be opened", e);
+        }
+        if (segments.isEmpty()) {
+            openSegment(0L);
+        } else {
+            resumeSegment(segments.peekLast());
+        }
+        logger.info("Opened the signal journal in {} at sequence {}", directory, getNextSequence());
+    }
+
+    /**
+     * Journals every measurement taken by the provided sensor, whatever its reporting deadband, so that a replay sees
+     * what the control path saw; this does not allocate on the sampling thread.
+     */
+    public void record(final Sensor sensor) {
+        final int sensorId = sensor.getId();
+        final SignalUnit unit = sensor.getSignalUnit();
+        final SampleListener listener = (quantity, epochNanos) ->
+                append(SignalSource.SENSOR, sensorId, quantity, unit, epochNanos);
+        if (sensorListeners.putIfAbsent(sensor, listener) != null) {
+            logger.warn("Cannot journal {}; it is already being journaled", sensor);
+            return;
+        }
+        sensor.addControlListener(listener);
+    }
+
+    /**
+     * Journals every adjustment made to the provided actuator, without allocating on the adjusting thread.
+     */
+    public void record(final Actuator actuator) {
+        final int actuatorId = actuator.getId();
+        final SampleListener listener = (quantity, epochNanos) ->
+                append(SignalSource.ACTUATOR, actuatorId, quantity, SignalUnit.PERCENTAGE, epochNanos);
+        if (actuatorListeners.putIfAbsent(actuator, listener) != null) {
+            logger.warn("Cannot journal {}; it is already being journaled", actuator);
+            return;
+        }
+        actuator.addSampleListener(listener);
+    }
+
+    public void stopRecording(final Sensor sensor) {
+        final SampleListener listener = sensorListeners.remove(sensor);
+        if (listener == null) {
+            logger.warn("Cannot stop journaling {}; it is not being journaled", sensor);
+            return;
+        }
+        sensor.removeControlListener(listener);
+    }
+
+    public void stopRecording(final Actuator actuator) {
+        final SampleListener listener = actuatorListeners.remove(actuator);
+        if (listener == null) {
+            logger.warn("Cannot stop journaling {}; it is not being journaled", actuator);
+            return;
+        }
+        actuator.removeSampleListener(listener);
+    }
+
+    /**
+     * Appends a record to the journal. A record appended after the journal is closed, e.g. by a sampling thread that
+     * was already notifying the journal when it closed, is dropped and counted rather than failing that thread.
+     */
+    public void append(
+            final SignalSource source,
+            final int sourceId,
+            final double quantity,
+            final SignalUnit unit,
+            final long epochNanos) {
+        appendLock.lock();
+        try {
+            if (isClosed) {
+                if (droppedAfterCloseCount++ == 0L) {
+                    logger.warn("Dropping records appended to the closed signal journal in {}", directory);
+                }
+                return;
+            }
+            if (segmentPosition == recordsPerSegment) {
+                rollSegment();
+            }
+            final int offset = segmentPosition * RECORD_SIZE;
+            segment.putInt(offset + SOURCE_ID_OFFSET, sourceId);
+            segment.putLong(offset + EPOCH_NANOS_OFFSET, epochNanos);
+            segment.putDouble(offset + QUANTITY_OFFSET, quantity);
+            HEADER.setRelease(segment, offset, COMMIT_MARKER | source.ordinal() << 8 | unit.ordinal());
+            segmentPosition++;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return The sequence number that the next appended record will be given
+     */
+    public long getNextSequence() {
+        appendLock.lock();
+        try {
+            return segmentFirstSequence + segmentPosition;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return How many records were dropped because they were appended after the journal was closed
+     */
+    public long getDroppedAfterCloseCount() {
+        appendLock.lock();
+        try {
+            return droppedAfterCloseCount;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Writes every record appended so far through to the storage device.
+     */
+    public void force() {
+        appendLock.lock();
+        try {
+            segment.force();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Stops journaling all instruments and forces the current segment to the storage device.
+     */
+    @Override
+    public void close() {
+        sensorListeners.forEach((sensor, listener) -> sensor.removeControlListener(listener));
+        sensorListeners.clear();
+        actuatorListeners.forEach((actuator, listener) -> actuator.removeSampleListener(listener));
+        actuatorListeners.clear();
+        appendLock.lock();
+        try {
+            if (!isClosed) {
+                segment.force();
+                isClosed = true;
+                logger.info("Closed the signal journal in {} at sequence {}", directory, getNextSequence());
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Reads every complete record in the journal in the provided directory, oldest first. The journal may be
+     * appended to while it is read; records appended after the reader has passed them are not returned.
+     * @return How many records were read
+     */
+    public static long replay(final Path directory, final RecordHandler recordHandler) {
+        final List<Path> segmentPaths;
+        try {
+            segmentPaths = listSegments(directory);
+        } catch (final IOException e) {
+            logger.error("Cannot list the journal segments in {}", directory, e);
+            throw new IllegalStateException("The journal directory could not be read", e);
+        }
+        long recordCount = 0L;
+        for (final Path segmentPath : segmentPaths) {
+            final MappedByteBuffer segmentBuffer;
+            try {
+                segmentBuffer = map(segmentPath, FileChannel.MapMode.READ_ONLY, -1);
+            } catch (final NoSuchFileException e) {
+                // Deleted by the retention policy since the segments were listed
+                continue;
+            } catch (final IOException e) {
+                logger.error("Cannot map the journal segment {}", segmentPath, e);
+                throw new IllegalStateException("A journal segment could not be read", e);
+            }
+            for (int offset = 0; offset + RECORD_SIZE <= segmentBuffer.capacity(); offset += RECORD_SIZE) {
+                final int header = (int) HEADER.getAcquire(segmentBuffer, offset);
+                if ((header & COMMIT_MARKER_MASK) != COMMIT_MARKER) {
+                    break;
+                }
+                recordHandler.onRecord(
+                        SOURCES[(header >>> 8) & 0xFF],
+                        segmentBuffer.getInt(offset + SOURCE_ID_OFFSET),
+                        segmentBuffer.getDouble(offset + QUANTITY_OFFSET),
+                        UNITS[header & 0xFF],
+                        segmentBuffer.getLong(offset + EPOCH_NANOS_OFFSET));
+                recordCount++;
+            }
+        }
+        return recordCount;
+    }
+
+    private void rollSegment() {
+        openSegment(segmentFirstSequence + segmentPosition);
+        while (segments.size() > retainedSegmentCount) {
+            final Path expiredSegment = segments.pollFirst();
+            try {
+                Files.deleteIfExists(expiredSegment);
+            } catch (final IOException e) {
+                logger.warn("Cannot delete the expired journal segment {}", expiredSegment, e);
+            }
+        }
+    }
+
+    private void openSegment(final long firstSequence) {
+        final Path segmentPath = directory.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+        try {
+            this.segment = map(segmentPath, FileChannel.MapMode.READ_WRITE, (long) recordsPerSegment * RECORD_SIZE);
+        } catch (final IOException e) {
+            logger.error("Cannot create the journal segment {}", segmentPath, e);
+            throw new IllegalStateException("A journal segment could not be created", e);
+        }
+        this.segments.addLast(segmentPath);
+        this.segmentFirstSequence = firstSequence;
+        this.segmentPosition = 0;
+    }
+
+    private void resumeSegment(final Path segmentPath) {
+        final String fileName = segmentPath.getFileName().toString();
+        final long firstSequence = Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+        final MappedByteBuffer existingSegment;
+        try {
+            existingSegment = map(segmentPath, FileChannel.MapMode.READ_WRITE, -1);
+        } catch (final IOException e) {
+            logger.error("Cannot reopen the journal segment {}", segmentPath, e);
+            throw new IllegalStateException("A journal segment could not be reopened", e);
+        }
+        final int existingRecords = existingSegment.capacity() / RECORD_SIZE;
+        int position = 0;
+        while (position < existingRecords
+                && ((int) HEADER.getAcquire(existingSegment, position * RECORD_SIZE) & COMMIT_MARKER_MASK)
+                == COMMIT_MARKER) {
+            position++;
+        }
+        if (existingRecords == recordsPerSegment) {
+            this.segment = existingSegment;
+            this.segmentFirstSequence = firstSequence;
+            this.segmentPosition = position;
+        } else if (position == 0) {
+            // An empty segment of a different size is simply replaced
+            try {
+                Files.delete(segments.pollLast());
+            } catch (final IOException e) {
+                logger.error("Cannot replace the empty journal segment {}", segmentPath, e);
+                throw new IllegalStateException("A journal segment could not be replaced", e);
+            }
+            openSegment(firstSequence);
+        } else {
+            // A segment written with a different size is finished rather than resized
+            this.segmentFirstSequence = firstSequence;
+            this.segmentPosition = position;
+            rollSegment();
+        }
+    }
+
+    /**
+     * @param size The size to map, or a negative number to map the whole of an existing file
+     */
+    private static MappedByteBuffer map(
+            final Path segmentPath,
+            final FileChannel.MapMode mapMode,
+            final long size) throws IOException {
+        final StandardOpenOption[] openOptions = mapMode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (final FileChannel channel = FileChannel.open(segmentPath, openOptions)) {
+            final MappedByteBuffer buffer = channel.map(mapMode, 0L, size < 0L ? channel.size() : size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    private static List<Path> listSegments(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.control_ops.control_system.historian;
+
+import com.control_ops.control_system.instrument.EpochNanoClock;
+import com.control_ops.control_system.instrument.Signal;
+import com.control_ops.control_system.instrument.SignalUnit;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * A single historized signal value.
+ * <br><br>
+ * The table is only ever appended to, by {@link JdbcBatchWriter}; the mapping exists so that the schema is managed
+ * and the history can be queried through {@link SignalRecordRepository}.
+ */
+@Entity
+@Table(name = SignalRecord.TABLE_NAME)
+public class SignalRecord {
+    static final String TABLE_NAME = "signal_record";
+    static final String SOURCE_COLUMN = "source";
+    static final String SOURCE_ID_COLUMN = "source_id";
+    static final String QUANTITY_COLUMN = "quantity";
+    static final String UNIT_COLUMN = "unit";
+    static final String EPOCH_NANOS_COLUMN = "epoch_nanos";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = SOURCE_COLUMN, nullable = false)
+    private SignalSource source;
+
+    @Column(name = SOURCE_ID_COLUMN, nullable = false)
+    private int sourceId;
+
+    @Column(name = QUANTITY_COLUMN, nullable = false)
+    private double quantity;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = UNIT_COLUMN, nullable = false)
+    private SignalUnit unit;
+
+    @Column(name = EPOCH_NANOS_COLUMN, nullable = false)
+    private long epochNanos;
+
+    protected SignalRecord() {
+    }
+
+    public SignalRecord(
+            final SignalSource source,
+            final int sourceId,
+            final double quantity,
+            final SignalUnit unit,
+            final long epochNanos) {
+        this.source = source;
+        this.sourceId = sourceId;
+        this.quantity = quantity;
+        this.unit = unit;
+        this.epochNanos = epochNanos;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public SignalSource getSource() {
+        return source;
+    }
+
+    public int getSourceId() {
+        return sourceId;
+    }
+
+    public double getQuantity() {
+        return quantity;
+    }
+
+    public SignalUnit getUnit() {
+        return unit;
+    }
+
+    public long getEpochNanos() {
+        return epochNanos;
+    }
+
+    public Signal toSignal() {
+        return new Signal(quantity, unit, EpochNanoClock.toZonedDateTime(epochNanos));
+    }
+}
@@ -0,0 +1,11 @@
+package com.control_ops.control_system.historian;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface SignalRecordRepository extends JpaRepository<SignalRecord, Long> {
+    long countBySourceAndSourceId(final SignalSource source, final int sourceId);
+
+    List<SignalRecord> findBySourceAndSourceIdOrderByEpochNanos(final SignalSource source, final int sourceId);
+}
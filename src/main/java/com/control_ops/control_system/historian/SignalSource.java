@@ -0,0 +1,11 @@
+package com.control_ops.control_system.historian;
+
+/**
+ * Identifies the kind of instrument that produced a historized signal.
+ */
+public enum SignalSource {
+    SENSOR,
+    ACTUATOR,
+    // A set point written to a control loop, e.g. one streamed in from a remote system
+    SET_POINT
+}
@@ -0,0 +1,406 @@
+package com.control_ops.control_system.instrument;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the recent history of one signal in memory, compressed into fixed-size chunks of primitive words, for trend
+ * displays and loop diagnostics; see {@link com.control_ops.control_system.instrument.sensor.Sensor#keepHistory}.
+ * <br><br>
+ * Samples are encoded as in Facebook's Gorilla time series database. Each timestamp is stored as the change in the
+ * interval since the previous sample (delta of delta) in a variable number of bits, so a sensor sampling on time costs
+ * one bit per timestamp. Each quantity is stored as the bits that differ from the previous quantity (XOR), so a value
+ * that has not changed costs one bit, and a value that has changed in only a few bits of its mantissa costs little more
+ * than those bits. Encoding is lossless, and appending a sample does not allocate unless it starts a new chunk.
+ * <br><br>
+ * Memory is bounded: once the history holds its maximum number of chunks, or its oldest chunk ends further back than
+ * the retention period, the oldest chunk is dropped whenever a new one starts. Each chunk records the time range it
+ * covers, so range queries only decode the chunks that overlap the range.
+ * <br><br>
+ * Samples must be appended by one thread at a time, e.g. a sensor's sampling thread, in non-decreasing timestamp
+ * order; samples older than the latest one are dropped. Any number of threads may query concurrently with appends
+ * without taking a lock: bits already written to a chunk are never changed, and its sample count is only published
+ * once the sample's bits are.
+ */
+public final class CompressedHistory implements SampleListener {
+    static final int CHUNK_WORDS = 256;
+    static final int CHUNK_BYTES = CHUNK_WORDS * Long.BYTES;
+    private static final int CHUNK_BITS = CHUNK_WORDS * Long.SIZE;
+    // The most bits one sample can take: a 64-bit delta of delta with its 3-bit prefix, and a 64-bit XOR with its
+    // 2-bit prefix, 5-bit leading zero count and 6-bit length
+    private static final int MAX_SAMPLE_BITS = 67 + 77;
+    private static final int MAX_LEADING_ZEROS = 31;
+
+    private final long retentionNanos;
+    private final int maxChunks;
+    private final LongAdder outOfOrderCount = new LongAdder();
+    // Oldest first; replaced rather than modified, so that queries can iterate it without a lock
+    private volatile Chunk[] chunks = new Chunk[0];
+
+    // Encoder state, only accessed by the appending thread
+    private Chunk headChunk;
+    private int bitPosition;
+    private long previousEpochNanos;
+    private long previousDeltaNanos;
+    private long previousQuantityBits;
+    private int previousLeadingZeros;
+    private int previousTrailingZeros;
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressedHistory.class);
+
+    private static final class Chunk {
+        private final long[] words = new long[CHUNK_WORDS];
+        private final long firstEpochNanos;
+        // Written after the bits of the sample they account for, so that readers never decode unwritten bits
+        private volatile long lastEpochNanos;
+        private volatile int bitLength;
+        private volatile int count;
+
+        private Chunk(final long firstEpochNanos) {
+            this.firstEpochNanos = firstEpochNanos;
+            this.lastEpochNanos = firstEpochNanos;
+        }
+    }
+
+    /**
+     * @param retention How far back from the latest sample the history should reach
+     * @param retentionUnit The time units in which the retention period is denominated
+     * @param maxBytes The most memory the compressed samples may occupy; at least two chunks are always kept
+     */
+    public CompressedHistory(final long retention, final TimeUnit retentionUnit, final long maxBytes) {
+        if (retention <= 0L || maxBytes <= 0L) {
+            final String failureMessage = "Cannot instantiate a CompressedHistory without a positive retention period "
+                    + "and memory limit.";
+            logger.error(failureMessage);
+            throw new IllegalArgumentException(failureMessage);
+        }
+        this.retentionNanos = retentionUnit.toNanos(retention);
+        this.maxChunks = (int) Math.clamp(maxBytes / CHUNK_BYTES, 2L, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void onSample(final double quantity, final long epochNanos) {
+        append(quantity, epochNanos);
+    }
+
+    /**
+     * Appends a sample; see the class documentation for the threading and ordering this requires.
+     */
+    public void append(final double quantity, final long epochNanos) {
+        if (headChunk != null && epochNanos < previousEpochNanos) {
+            outOfOrderCount.increment();
+            return;
+        }
+        final long quantityBits = Double.doubleToRawLongBits(quantity);
+        if (headChunk == null || bitPosition > CHUNK_BITS - MAX_SAMPLE_BITS) {
+            startChunk(quantityBits, epochNanos);
+            return;
+        }
+        final long deltaNanos = epochNanos - previousEpochNanos;
+        writeDeltaOfDelta(deltaNanos - previousDeltaNanos);
+        writeQuantity(quantityBits);
+        previousEpochNanos = epochNanos;
+        previousDeltaNanos = deltaNanos;
+        publishSample(epochNanos);
+    }
+
+    /**
+     * Passes every retained sample whose timestamp falls within the provided range to the listener, oldest first.
+     * @param fromEpochNanos The start of the range, inclusive, in nanoseconds since the Unix epoch
+     * @param toEpochNanos The end of the range, inclusive, in nanoseconds since the Unix epoch
+     * @param sampleListener Receives each sample
+     * @return The number of samples passed to the listener
+     */
+    public int query(final long fromEpochNanos, final long toEpochNanos, final SampleListener sampleListener) {
+        final Chunk[] currentChunks = chunks;
+        int numSamples = 0;
+        for (final Chunk chunk : currentChunks) {
+            if (chunk.firstEpochNanos > toEpochNanos) {
+                break;
+            }
+            // Read the count before anything it accounts for
+            final int count = chunk.count;
+            if (chunk.lastEpochNanos >= fromEpochNanos) {
+                numSamples += decode(chunk, count, fromEpochNanos, toEpochNanos, sampleListener);
+            }
+        }
+        return numSamples;
+    }
+
+    /**
+     * @return Every retained sample within the provided range, as parallel arrays of timestamps and quantities; for
+     * callers off the hot path, such as trend displays
+     */
+    public Samples query(final long fromEpochNanos, final long toEpochNanos) {
+        final SampleCollector sampleCollector = new SampleCollector();
+        query(fromEpochNanos, toEpochNanos, sampleCollector);
+        return new Samples(
+                Arrays.copyOf(sampleCollector.epochNanos, sampleCollector.size),
+                Arrays.copyOf(sampleCollector.quantities, sampleCollector.size));
+    }
+
+    private static final class SampleCollector implements SampleListener {
+        private long[] epochNanos = new long[64];
+        private double[] quantities = new double[64];
+        private int size = 0;
+
+        @Override
+        public void onSample(final double quantity, final long sampleEpochNanos) {
+            if (size == epochNanos.length) {
+                epochNanos = Arrays.copyOf(epochNanos, size * 2);
+                quantities = Arrays.copyOf(quantities, size * 2);
+            }
+            epochNanos[size] = sampleEpochNanos;
+            quantities[size] = quantity;
+            size++;
+        }
+    }
+
+    /**
+     * Samples returned by a range query, oldest first.
+     */
+    public record Samples(long[] epochNanos, double[] quantities) {
+        public int size() {
+            return epochNanos.length;
+        }
+    }
+
+    /**
+     * @return The number of samples currently retained
+     */
+    public long getSampleCount() {
+        long sampleCount = 0L;
+        for (final Chunk chunk : chunks) {
+            sampleCount += chunk.count;
+        }
+        return sampleCount;
+    }
+
+    /**
+     * @return The mean number of bytes each retained sample occupies once compressed, not counting the unused end of
+     * each chunk
+     */
+    public double getBytesPerSample() {
+        long bitLength = 0L;
+        long sampleCount = 0L;
+        for (final Chunk chunk : chunks) {
+            bitLength += chunk.bitLength;
+            sampleCount += chunk.count;
+        }
+        return sampleCount == 0L ? 0.0 : bitLength / (double) Byte.SIZE / sampleCount;
+    }
+
+    /**
+     * @return The memory allocated to the retained chunks, in bytes
+     */
+    public long getMemoryBytes() {
+        return (long) chunks.length * CHUNK_BYTES;
+    }
+
+    /**
+     * @return How many samples were dropped because they were older than the latest sample
+     */
+    public long getOutOfOrderCount() {
+        return outOfOrderCount.sum();
+    }
+
+    /**
+     * Starts a new chunk with the provided sample, whose timestamp is held in the chunk header and whose quantity is
+     * written in full, and drops the chunks that fall outside the memory limit or retention period.
+     */
+    private void startChunk(final long quantityBits, final long epochNanos) {
+        final Chunk[] currentChunks = chunks;
+        int firstRetained = Math.max(0, currentChunks.length + 1 - maxChunks);
+        while (firstRetained < currentChunks.length
+                && currentChunks[firstRetained].lastEpochNanos < epochNanos - retentionNanos) {
+            firstRetained++;
+        }
+        final Chunk[] newChunks = new Chunk[currentChunks.length - firstRetained + 1];
+        System.arraycopy(currentChunks, firstRetained, newChunks, 0, currentChunks.length - firstRetained);
+        headChunk = new Chunk(epochNanos);
+        newChunks[newChunks.length - 1] = headChunk;
+
+        bitPosition = 0;
+        writeBits(headChunk.words, bitPosition, quantityBits, Long.SIZE);
+        bitPosition += Long.SIZE;
+        previousEpochNanos = epochNanos;
+        previousDeltaNanos = 0L;
+        previousQuantityBits = quantityBits;
+        previousLeadingZeros = -1;
+        previousTrailingZeros = 0;
+        publishSample(epochNanos);
+        chunks = newChunks;
+    }
+
+    private void publishSample(final long epochNanos) {
+        headChunk.lastEpochNanos = epochNanos;
+        headChunk.bitLength = bitPosition;
+        headChunk.count = headChunk.count + 1;
+    }
+
+    /**
+     * '0' for no change; '10', '110' or '111' followed by a 20, 32 or 64-bit signed change otherwise.
+     */
+    private void writeDeltaOfDelta(final long deltaOfDelta) {
+        final long[] words = headChunk.words;
+        if (deltaOfDelta == 0L) {
+            bitPosition++;
+        } else if (fitsInBits(deltaOfDelta, 20)) {
+            writeBits(words, bitPosition, 0b10L, 2);
+            writeBits(words, bitPosition + 2, deltaOfDelta, 20);
+            bitPosition += 22;
+        } else if (fitsInBits(deltaOfDelta, 32)) {
+            writeBits(words, bitPosition, 0b110L, 3);
+            writeBits(words, bitPosition + 3, deltaOfDelta, 32);
+            bitPosition += 35;
+        } else {
+            writeBits(words, bitPosition, 0b111L, 3);
+            writeBits(words, bitPosition + 3, deltaOfDelta, 64);
+            bitPosition += 67;
+        }
+    }
+
+    /**
+     * '0' for an unchanged quantity; otherwise '10' followed by the changed bits if they fit within the previous
+     * change's window, or '11', the 5-bit leading zero count, the 6-bit length and the changed bits if they do not.
+     */
+    private void writeQuantity(final long quantityBits) {
+        final long[] words = headChunk.words;
+        final long xor = quantityBits ^ previousQuantityBits;
+        previousQuantityBits = quantityBits;
+        if (xor == 0L) {
+            bitPosition++;
+            return;
+        }
+        final int leadingZeros = Math.min(Long.numberOfLeadingZeros(xor), MAX_LEADING_ZEROS);
+        final int trailingZeros = Long.numberOfTrailingZeros(xor);
+        if (previousLeadingZeros >= 0 && leadingZeros >= previousLeadingZeros
+                && trailingZeros >= previousTrailingZeros) {
+            final int length = Long.SIZE - previousLeadingZeros - previousTrailingZeros;
+            writeBits(words, bitPosition, 0b10L, 2);
+            writeBits(words, bitPosition + 2, xor >>> previousTrailingZeros, length);
+            bitPosition += 2 + length;
+            return;
+        }
+        final int length = Long.SIZE - leadingZeros - trailingZeros;
+        writeBits(words, bitPosition, 0b11L, 2);
+        writeBits(words, bitPosition + 2, leadingZeros, 5);
+        writeBits(words, bitPosition + 7, length - 1L, 6);
+        writeBits(words, bitPosition + 13, xor >>> trailingZeros, length);
+        bitPosition += 13 + length;
+        previousLeadingZeros = leadingZeros;
+        previousTrailingZeros = trailingZeros;
+    }
+
+    private static int decode(
+            final Chunk chunk,
+            final int count,
+            final long fromEpochNanos,
+            final long toEpochNanos,
+            final SampleListener sampleListener) {
+        final long[] words = chunk.words;
+        long epochNanos = chunk.firstEpochNanos;
+        long deltaNanos = 0L;
+        long quantityBits = readBits(words, 0, Long.SIZE);
+        int position = Long.SIZE;
+        int leadingZeros = 0;
+        int trailingZeros = 0;
+        int numSamples = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                // Delta of delta
+                if (readBits(words, position, 1) == 0L) {
+                    position++;
+                } else if (readBits(words, position + 1, 1) == 0L) {
+                    deltaNanos += readSigned(words, position + 2, 20);
+                    position += 22;
+                } else if (readBits(words, position + 2, 1) == 0L) {
+                    deltaNanos += readSigned(words, position + 3, 32);
+                    position += 35;
+                } else {
+                    deltaNanos += readBits(words, position + 3, 64);
+                    position += 67;
+                }
+                epochNanos += deltaNanos;
+                // XOR of the quantity
+                if (readBits(words, position, 1) == 0L) {
+                    position++;
+                } else if (readBits(words, position + 1, 1) == 0L) {
+                    final int length = Long.SIZE - leadingZeros - trailingZeros;
+                    quantityBits ^= readBits(words, position + 2, length) << trailingZeros;
+                    position += 2 + length;
+                } else {
+                    leadingZeros = (int) readBits(words, position + 2, 5);
+                    final int length = (int) readBits(words, position + 7, 6) + 1;
+                    trailingZeros = Long.SIZE - leadingZeros - length;
+                    quantityBits ^= readBits(words, position + 13, length) << trailingZeros;
+                    position += 13 + length;
+                }
+            }
+            if (epochNanos > toEpochNanos) {
+                break;
+            }
+            if (epochNanos >= fromEpochNanos) {
+                sampleListener.onSample(Double.longBitsToDouble(quantityBits), epochNanos);
+                numSamples++;
+            }
+        }
+        return numSamples;
+    }
+
+    private static boolean fitsInBits(final long value, final int numBits) {
+        return value >= -(1L << (numBits - 1)) && value < (1L << (numBits - 1));
+    }
+
+    private static long mask(final int numBits) {
+        return numBits == Long.SIZE ? -1L : (1L << numBits) - 1L;
+    }
+
+    /**
+     * Writes the low bits of a value into a bit stream, most significant bit first. Only ORs bits into words, so the
+     * bits already written are never disturbed.
+     */
+    static void writeBits(final long[] words, final int position, final long value, final int numBits) {
+        if (numBits == 0) {
+            return;
+        }
+        final int wordIndex = position >>> 6;
+        final int freeBits = Long.SIZE - (position & 63);
+        final long maskedValue = value & mask(numBits);
+        if (numBits <= freeBits) {
+            words[wordIndex] |= maskedValue << (freeBits - numBits);
+        } else {
+            final int overflowBits = numBits - freeBits;
+            words[wordIndex] |= maskedValue >>> overflowBits;
+            words[wordIndex + 1] |= maskedValue << (Long.SIZE - overflowBits);
+        }
+    }
+
+    static long readBits(final long[] words, final int position, final int numBits) {
+        if (numBits == 0) {
+            return 0L;
+        }
+        final int wordIndex = position >>> 6;
+        final int freeBits = Long.SIZE - (position & 63);
+        if (numBits <= freeBits) {
+            return (words[wordIndex] >>> (freeBits - numBits)) & mask(numBits);
+        }
+        final int overflowBits = numBits - freeBits;
+        return ((words[wordIndex] & mask(freeBits)) << overflowBits)
+                | (words[wordIndex + 1] >>> (Long.SIZE - overflowBits));
+    }
+
+    private static long readSigned(final long[] words, final int position, final int numBits) {
+        final int shift = Long.SIZE - numBits;
+        return (readBits(words, position, numBits) << shift) >> shift;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressedHistory over " + TimeUnit.NANOSECONDS.toSeconds(retentionNanos) + " s";
+    }
+}
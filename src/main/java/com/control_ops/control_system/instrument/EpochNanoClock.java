@@ -0,0 +1,49 @@
+package com.control_ops.control_system.instrument;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides allocation-free timestamps for the signal hot path as nanoseconds since the Unix epoch (UTC).
+ * <br><br>
+ * The wall clock is read once when the class is loaded; every subsequent timestamp is derived from
+ * {@link System#nanoTime()}, so timestamps are monotonic and never allocate.
+ */
+public final class EpochNanoClock {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long EPOCH_OFFSET_NANOS = epochOffsetNanos();
+
+    private EpochNanoClock() {
+    }
+
+    /**
+     * @return The current time in nanoseconds since the Unix epoch
+     */
+    public static long now() {
+        return EPOCH_OFFSET_NANOS + System.nanoTime();
+    }
+
+    /**
+     * Converts a timestamp produced by {@link #now()} into a UTC date-time.
+     */
+    public static ZonedDateTime toZonedDateTime(final long epochNanos) {
+        return Instant.ofEpochSecond(
+                Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+                Math.floorMod(epochNanos, NANOS_PER_SECOND)).atZone(ZoneOffset.UTC);
+    }
+
+    /**
+     * Converts a date-time into nanoseconds since the Unix epoch, the inverse of {@link #toZonedDateTime(long)}.
+     */
+    public static long toEpochNanos(final ZonedDateTime dateTime) {
+        return dateTime.toEpochSecond() * NANOS_PER_SECOND + dateTime.getNano();
+    }
+
+    private static long epochOffsetNanos() {
+        final Instant wallClock = Instant.now();
+        final long nanoTime = System.nanoTime();
+        return wallClock.getEpochSecond() * NANOS_PER_SECOND + wallClock.getNano() - nanoTime;
+    }
+}
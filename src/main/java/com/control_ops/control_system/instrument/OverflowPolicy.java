@@ -0,0 +1,21 @@
+package com.control_ops.control_system.instrument;
+
+/**
+ * Determines what a {@link SignalMailbox} does with a new signal when its listener has fallen behind.
+ */
+public enum OverflowPolicy {
+    /**
+     * When the mailbox is full, the oldest queued signal is discarded to make room for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * Any signal still queued is discarded so that the listener receives the new signal next; use this for listeners
+     * that only care about the latest value, such as displays.
+     */
+    CONFLATE,
+    /**
+     * When the mailbox is full, the publishing thread waits until the listener has made room; use this only for
+     * listeners that must see every signal, since a slow listener will then slow down the instrument.
+     */
+    BLOCK
+}
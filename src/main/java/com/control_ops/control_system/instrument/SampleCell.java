@@ -0,0 +1,135 @@
+package com.control_ops.control_system.instrument;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Publishes the latest value of a signal, together with its timestamp, without taking a lock.
+ * <br><br>
+ * The cell is a sequence lock: a writer makes the sequence number odd, stores the quantity and timestamp, then makes
+ * the sequence number even again. Readers never block; they retry if the sequence number was odd or changed while they
+ * were reading, so they always see a quantity and timestamp from the same write. Writers are expected to be rare
+ * relative to readers (e.g. one sampling thread per sensor); concurrent writers are serialized by spinning.
+ */
+public final class SampleCell {
+    private static final VarHandle SEQUENCE;
+    private static final VarHandle QUANTITY;
+    private static final VarHandle EPOCH_NANOS;
+
+    static {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            SEQUENCE = lookup.findVarHandle(SampleCell.class, "sequence", long.class);
+            QUANTITY = lookup.findVarHandle(SampleCell.class, "quantity", double.class);
+            EPOCH_NANOS = lookup.findVarHandle(SampleCell.class, "epochNanos", long.class);
+        } catch (final ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Only ever accessed through the VarHandles above
+    @SuppressWarnings("unused")
+    private long sequence = 0L;
+    @SuppressWarnings("unused")
+    private double quantity;
+    @SuppressWarnings("unused")
+    private long epochNanos;
+
+    /**
+     * Reads a quantity and timestamp that were published together.
+     */
+    @FunctionalInterface
+    public interface SampleReader<T> {
+        T read(final double quantity, final long epochNanos);
+    }
+
+    /**
+     * Atomically replaces the cell's quantity and timestamp.
+     * @param quantity The new value
+     * @param epochNanos When the value was recorded, in nanoseconds since the Unix epoch
+     */
+    public void publish(final double quantity, final long epochNanos) {
+        long currentSequence = (long) SEQUENCE.getOpaque(this);
+        // The CAS is a full fence, so the stores below cannot become visible before the sequence number is odd
+        while ((currentSequence & 1L) != 0L || !SEQUENCE.compareAndSet(this, currentSequence, currentSequence + 1L)) {
+            Thread.onSpinWait();
+            currentSequence = (long) SEQUENCE.getOpaque(this);
+        }
+        QUANTITY.setOpaque(this, quantity);
+        EPOCH_NANOS.setOpaque(this, epochNanos);
+        SEQUENCE.setRelease(this, currentSequence + 2L);
+    }
+
+    /**
+     * @return Whether a value has been published to the cell
+     */
+    public boolean hasValue() {
+        return (long) SEQUENCE.getAcquire(this) >= 2L;
+    }
+
+    /**
+     * @return The most recently published quantity; does not allocate
+     */
+    public double quantity() {
+        while (true) {
+            final long sequenceBefore = (long) SEQUENCE.getAcquire(this);
+            final double currentQuantity = (double) QUANTITY.getOpaque(this);
+            VarHandle.loadLoadFence();
+            if ((sequenceBefore & 1L) == 0L && (long) SEQUENCE.getOpaque(this) == sequenceBefore) {
+                return currentQuantity;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @return The timestamp of the most recently published quantity, in nanoseconds since the Unix epoch
+     */
+    public long epochNanos() {
+        while (true) {
+            final long sequenceBefore = (long) SEQUENCE.getAcquire(this);
+            final long currentEpochNanos = (long) EPOCH_NANOS.getOpaque(this);
+            VarHandle.loadLoadFence();
+            if ((sequenceBefore & 1L) == 0L && (long) SEQUENCE.getOpaque(this) == sequenceBefore) {
+                return currentEpochNanos;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Passes a consistent quantity and timestamp to the provided listener; unlike {@link #read(SampleReader)}, this
+     * does not allocate when the listener is held in a field rather than created by a capturing lambda on each call.
+     */
+    public void readInto(final SampleListener listener) {
+        while (true) {
+            final long sequenceBefore = (long) SEQUENCE.getAcquire(this);
+            final double currentQuantity = (double) QUANTITY.getOpaque(this);
+            final long currentEpochNanos = (long) EPOCH_NANOS.getOpaque(this);
+            VarHandle.loadLoadFence();
+            if ((sequenceBefore & 1L) == 0L && (long) SEQUENCE.getOpaque(this) == sequenceBefore) {
+                listener.onSample(currentQuantity, currentEpochNanos);
+                return;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Passes a consistent quantity and timestamp to the provided reader.
+     * @param reader Converts the quantity and timestamp into the caller's representation
+     * @return The reader's result
+     */
+    public <T> T read(final SampleReader<T> reader) {
+        while (true) {
+            final long sequenceBefore = (long) SEQUENCE.getAcquire(this);
+            final double currentQuantity = (double) QUANTITY.getOpaque(this);
+            final long currentEpochNanos = (long) EPOCH_NANOS.getOpaque(this);
+            VarHandle.loadLoadFence();
+            if ((sequenceBefore & 1L) == 0L && (long) SEQUENCE.getOpaque(this) == sequenceBefore) {
+                return reader.read(currentQuantity, currentEpochNanos);
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.control_ops.control_system.instrument;
+
+import com.control_ops.control_system.instrument.actuator.ActuatorListener;
+import com.control_ops.control_system.instrument.sensor.SensorListener;
+
+/**
+ * Receives each measurement or adjustment as a primitive quantity and timestamp. Unlike a {@link SensorListener} or
+ * {@link ActuatorListener}, a sample listener does not require the instrument to allocate a Signal, so it suits
+ * consumers on the control path.
+ */
+@FunctionalInterface
+public interface SampleListener {
+    /**
+     * @param quantity The measured or actuated quantity
+     * @param epochNanos When the sample was taken, in nanoseconds since the Unix epoch
+     */
+    void onSample(final double quantity, final long epochNanos);
+}
@@ -6,4 +6,14 @@ public record Signal(
         double quantity,
         SignalUnit unit,
         ZonedDateTime dateTime) {
+
+    /**
+     * Builds a signal from the primitive representation used on the sampling hot path.
+     * @param quantity The value of the signal
+     * @param unit The unit in which the quantity is denominated
+     * @param epochNanos When the signal was recorded, in nanoseconds since the Unix epoch
+     */
+    public static Signal fromEpochNanos(final double quantity, final SignalUnit unit, final long epochNanos) {
+        return new Signal(quantity, unit, EpochNanoClock.toZonedDateTime(epochNanos));
+    }
 }
@@ -0,0 +1,191 @@
+package com.control_ops.control_system.instrument;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Delivers signals to one listener on a dedicated consumer thread, so that a slow listener cannot stall the instrument
+ * that publishes them.
+ * <br><br>
+ * Offered signals are stored as primitive quantities and timestamps in a bounded ring buffer; the Signal object is only
+ * built on the consumer thread, so offering a signal never allocates. When the buffer is full the mailbox's
+ * {@link OverflowPolicy} decides whether signals are dropped or the publisher waits. The buffer is guarded by a
+ * ReentrantLock rather than a monitor so that publishers and consumers running on virtual threads are never pinned.
+ * @param <L> The type of listener that receives the signals
+ */
+public final class SignalMailbox<L> {
+    private final String name;
+    private final L listener;
+    private final Consumer<Signal> delivery;
+    private final SignalUnit signalUnit;
+    private final OverflowPolicy overflowPolicy;
+    private final double[] quantities;
+    private final long[] epochNanos;
+    private final int mask;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Thread consumer;
+    private long head = 0L;
+    private long tail = 0L;
+    private long droppedCount = 0L;
+    private boolean isClosed = false;
+
+    private static final Logger logger = LoggerFactory.getLogger(SignalMailbox.class);
+
+    /**
+     * Creates a new mailbox and starts its consumer thread.
+     * @param name Identifies the mailbox and its consumer thread in log messages
+     * @param listener The listener that receives the signals; used to identify the mailbox when unsubscribing
+     * @param delivery Passes a signal to the listener
+     * @param signalUnit The unit of every signal delivered by the mailbox
+     * @param capacity The number of signals that can be queued; rounded up to a power of two
+     * @param overflowPolicy What to do with a new signal when the mailbox is full
+     */
+    public SignalMailbox(
+            final String name,
+            final L listener,
+            final Consumer<Signal> delivery,
+            final SignalUnit signalUnit,
+            final int capacity,
+            final OverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            final String failureMessage = "Cannot instantiate a SignalMailbox with a non-positive capacity.";
+            logger.error(failureMessage);
+            throw new IllegalArgumentException(failureMessage);
+        }
+        this.name = name;
+        this.listener = listener;
+        this.delivery = delivery;
+        this.signalUnit = signalUnit;
+        this.overflowPolicy = overflowPolicy;
+        int roundedCapacity = 1;
+        while (roundedCapacity < capacity) {
+            roundedCapacity <<= 1;
+        }
+        this.quantities = new double[roundedCapacity];
+        this.epochNanos = new long[roundedCapacity];
+        this.mask = roundedCapacity - 1;
+        this.consumer = Thread.ofVirtual().name(name).start(this::consume);
+    }
+
+    /**
+     * Queues a signal for delivery to the listener; only waits if the mailbox is full and its policy is
+     * {@link OverflowPolicy#BLOCK}.
+     * @param quantity The signal's value
+     * @param signalEpochNanos When the signal was recorded, in nanoseconds since the Unix epoch
+     */
+    public void offer(final double quantity, final long signalEpochNanos) {
+        lock.lock();
+        try {
+            if (isClosed) {
+                return;
+            }
+            if (overflowPolicy == OverflowPolicy.CONFLATE) {
+                // A conflating listener only ever needs the newest value, so anything still queued is stale
+                droppedCount += tail - head;
+                head = tail;
+            } else if (tail - head == quantities.length) {
+                if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                    head++;
+                    droppedCount++;
+                } else {
+                    while (tail - head == quantities.length && !isClosed) {
+                        notFull.awaitUninterruptibly();
+                    }
+                    if (isClosed) {
+                        return;
+                    }
+                }
+            }
+            final int slot = (int) (tail & mask);
+            quantities[slot] = quantity;
+            epochNanos[slot] = signalEpochNanos;
+            tail++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the consumer thread; signals that have not been delivered yet are discarded.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            isClosed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        consumer.interrupt();
+    }
+
+    public L getListener() {
+        return listener;
+    }
+
+    /**
+     * @return The number of signals that were discarded because the listener fell behind
+     */
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return droppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of signals waiting to be delivered
+     */
+    public int getQueuedCount() {
+        lock.lock();
+        try {
+            return (int) (tail - head);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void consume() {
+        while (true) {
+            final double quantity;
+            final long signalEpochNanos;
+            lock.lock();
+            try {
+                while (head == tail && !isClosed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (isClosed) {
+                    return;
+                }
+                final int slot = (int) (head & mask);
+                quantity = quantities[slot];
+                signalEpochNanos = epochNanos[slot];
+                head++;
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                delivery.accept(Signal.fromEpochNanos(quantity, signalUnit, signalEpochNanos));
+            } catch (final RuntimeException e) {
+                // One failed delivery should not silence the listener for good
+                logger.error("{} failed to deliver a signal to its listener", name, e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,30 +1,56 @@
 package com.control_ops.control_system.instrument.actuator;
 
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.PeriodicExecutor;
+import com.control_ops.control_system.Scheduler;
+import com.control_ops.control_system.TimeSource;
+import com.control_ops.control_system.instrument.OverflowPolicy;
+import com.control_ops.control_system.instrument.SampleCell;
+import com.control_ops.control_system.instrument.SampleListener;
 import com.control_ops.control_system.instrument.Signal;
+import com.control_ops.control_system.instrument.SignalMailbox;
 import com.control_ops.control_system.instrument.SignalUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 public class Actuator {
-    private double signalValue;
+    private final SampleCell signal = new SampleCell();
     private final int id;
-    private final List<ActuatorListener> actuatorListeners;
+    private final TimeSource clock;
+    private final List<ActuatorListener> actuatorListeners = new CopyOnWriteArrayList<>();
+    private final List<SignalMailbox<ActuatorListener>> actuatorMailboxes = new CopyOnWriteArrayList<>();
+    private final List<SampleListener> sampleListeners = new CopyOnWriteArrayList<>();
+    private final ActuatorInstrumentation instrumentation = new ActuatorInstrumentation(this);
+    private volatile ActuatorOutputStage outputStage;
+    // Writes the values an output stage held back once their device cycle is over
+    private PeriodicExecutor outputStageExecutor;
     private static final Logger logger = LoggerFactory.getLogger(Actuator.class);
 
     public Actuator(final int id, final double initialSignalValue) {
+        this(id, initialSignalValue, TimeSource.WALL_CLOCK);
+    }
+
+    /**
+     * Initializes an actuator whose adjustments are timestamped by the provided clock; give it the same clock as the
+     * control loop that drives it.
+     */
+    public Actuator(final int id, final double initialSignalValue, final TimeSource clock) {
         this.id = id;
-        this.signalValue = initialSignalValue;
-        this.actuatorListeners = new ArrayList<>();
+        this.clock = clock;
+        this.signal.publish(initialSignalValue, clock.now());
         logger.info("A new Actuator was created.\tID: {}\tInitial signal value: {}", id, initialSignalValue);
     }
 
+    /**
+     * Subscribes a listener that is notified synchronously, on the thread that adjusts the signal; it must
+     * return quickly. Use {@link #addListener(ActuatorListener, int, OverflowPolicy)} for listeners that may be slow.
+     */
     public void addListener(final ActuatorListener actuatorListener) {
-        if (this.actuatorListeners.contains(actuatorListener)) {
+        if (isSubscribed(actuatorListener)) {
             logger.warn("Cannot add the provided ActuatorListener; it is already subscribed to {}", this);
             return;
         }
@@ -32,29 +58,223 @@ public class Actuator {
         logger.info("The provided ActuatorListener was added to {}", this);
     }
 
+    /**
+     * Subscribes a listener that is notified asynchronously on its own consumer thread, so that it cannot stall the
+     * actuator.
+     * @param actuatorListener The listener to be notified
+     * @param capacity How many signals may be queued while the listener is busy
+     * @param overflowPolicy What to do with new signals once the listener has fallen behind
+     */
+    public void addListener(
+            final ActuatorListener actuatorListener,
+            final int capacity,
+            final OverflowPolicy overflowPolicy) {
+        if (isSubscribed(actuatorListener)) {
+            logger.warn("Cannot add the provided ActuatorListener; it is already subscribed to {}", this);
+            return;
+        }
+        this.actuatorMailboxes.add(new SignalMailbox<>(
+                this + "-listener-" + System.identityHashCode(actuatorListener),
+                actuatorListener,
+                actuatorListener::onAdjustment,
+                SignalUnit.PERCENTAGE,
+                capacity,
+                overflowPolicy));
+        logger.info("The provided ActuatorListener was added to {} with a {} mailbox of capacity {}",
+                this,
+                overflowPolicy,
+                capacity);
+    }
+
     public void removeListener(final ActuatorListener actuatorListener) {
-        if (!this.actuatorListeners.contains(actuatorListener)) {
-            logger.warn("Cannot remove the provided ActuatorListener; it is not subscribed to {}", this);
+        if (this.actuatorListeners.remove(actuatorListener)) {
+            logger.info("The provided ActuatorListener was removed from {}", this);
             return;
         }
-        this.actuatorListeners.remove(actuatorListener);
-        logger.info("The provided ActuatorListener was removed from {}", this);
+        for (final SignalMailbox<ActuatorListener> mailbox : this.actuatorMailboxes) {
+            if (mailbox.getListener().equals(actuatorListener) && this.actuatorMailboxes.remove(mailbox)) {
+                mailbox.close();
+                logger.info("The provided ActuatorListener was removed from {}", this);
+                return;
+            }
+        }
+        logger.warn("Cannot remove the provided ActuatorListener; it is not subscribed to {}", this);
+    }
+
+    private boolean isSubscribed(final ActuatorListener actuatorListener) {
+        if (this.actuatorListeners.contains(actuatorListener)) {
+            return true;
+        }
+        for (final SignalMailbox<ActuatorListener> mailbox : this.actuatorMailboxes) {
+            if (mailbox.getListener().equals(actuatorListener)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void addSampleListener(final SampleListener sampleListener) {
+        if (this.sampleListeners.contains(sampleListener)) {
+            logger.warn("Cannot add the provided SampleListener; it is already subscribed to {}", this);
+            return;
+        }
+        this.sampleListeners.add(sampleListener);
+        logger.info("The provided SampleListener was added to {}", this);
+    }
+
+    public void removeSampleListener(final SampleListener sampleListener) {
+        if (!this.sampleListeners.contains(sampleListener)) {
+            logger.warn("Cannot remove the provided SampleListener; it is not subscribed to {}", this);
+            return;
+        }
+        this.sampleListeners.remove(sampleListener);
+        logger.info("The provided SampleListener was removed from {}", this);
+    }
+
+    /**
+     * Shapes every later adjustment through the provided output stage before it is written; see
+     * {@link ActuatorOutputStage}. If the stage has a device cycle, the values it holds back are written on this
+     * actuator's clock when it is a scheduler, and on the shared scheduler otherwise. A target that the previous stage
+     * was still holding back is handed to the new stage, or written at once if there is none, so that the last value
+     * requested is not lost in the swap.
+     * @param newOutputStage The stage to shape adjustments, or null to write every adjustment as it is
+     */
+    public synchronized void setOutputStage(final ActuatorOutputStage newOutputStage) {
+        if (outputStageExecutor != null) {
+            outputStageExecutor.release();
+            outputStageExecutor = null;
+        }
+        final ActuatorOutputStage previousOutputStage = outputStage;
+        if (previousOutputStage == null) {
+            swapOutputStage(Double.NaN, newOutputStage);
+        } else {
+            // Adjustments wait on the previous stage's monitor until the swap is over, then retry on the new stage
+            synchronized (previousOutputStage) {
+                swapOutputStage(previousOutputStage.detach(), newOutputStage);
+            }
+        }
+        if (newOutputStage != null && newOutputStage.getDeviceCycleNanos() > 0L) {
+            outputStageExecutor = new PeriodicExecutor(
+                    this + "-output-stage",
+                    newOutputStage.getDeviceCycleNanos(),
+                    TimeUnit.NANOSECONDS,
+                    this::flushOutputStage,
+                    ExecutionMode.SCHEDULER_THREAD,
+                    clock instanceof Scheduler scheduler ? scheduler : PeriodicExecutor.getSharedScheduler());
+            outputStageExecutor.start();
+        }
+        logger.info("The output stage of {} was set to {}", this, newOutputStage);
+    }
+
+    private void swapOutputStage(final double pendingTarget, final ActuatorOutputStage newOutputStage) {
+        final long epochNanos = clock.now();
+        if (newOutputStage == null) {
+            if (!Double.isNaN(pendingTarget)) {
+                write(pendingTarget, epochNanos);
+            }
+        } else {
+            synchronized (newOutputStage) {
+                newOutputStage.attach(signal.quantity(), epochNanos);
+                if (!Double.isNaN(pendingTarget) && newOutputStage.request(pendingTarget, epochNanos)) {
+                    write(newOutputStage.getOutputValue(), epochNanos);
+                }
+            }
+        }
+        outputStage = newOutputStage;
+    }
+
+    public ActuatorOutputStage getOutputStage() {
+        return outputStage;
+    }
+
+    /**
+     * Stops the executor that writes the values held back by the output stage and closes the mailboxes of the
+     * actuator's asynchronous listeners, e.g. when the control loop that drives the actuator is deregistered; the
+     * actuator should not be adjusted afterwards.
+     */
+    public synchronized void release() {
+        if (outputStageExecutor != null) {
+            outputStageExecutor.release();
+            outputStageExecutor = null;
+        }
+        for (final SignalMailbox<ActuatorListener> mailbox : actuatorMailboxes) {
+            mailbox.close();
+        }
+        actuatorMailboxes.clear();
+        logger.debug("{} was released", this);
     }
 
     public void adjustSignal(final double newSignalValue) {
-        logger.info("Adjusting signal of {}.\tNew signal value: {}", this, newSignalValue);
-        signalValue = newSignalValue;
-        final Signal newSignal = new Signal(
-                signalValue,
-                SignalUnit.PERCENTAGE,
-                ZonedDateTime.now(ZoneId.of("UTC")));
-        for (final ActuatorListener actuatorListener : this.actuatorListeners) {
+        while (true) {
+            // Read once, as it may be replaced concurrently
+            final ActuatorOutputStage currentOutputStage = outputStage;
+            if (currentOutputStage == null) {
+                write(newSignalValue, clock.now());
+                return;
+            }
+            // Serializes requests with the writes of held-back values, so that the device never sees them out of order
+            synchronized (currentOutputStage) {
+                if (currentOutputStage != outputStage) {
+                    // The stage was replaced while this request waited for it; its pending target has been handed over
+                    continue;
+                }
+                final long epochNanos = clock.now();
+                if (currentOutputStage.request(newSignalValue, epochNanos)) {
+                    write(currentOutputStage.getOutputValue(), epochNanos);
+                }
+                return;
+            }
+        }
+    }
+
+    private void flushOutputStage() {
+        final ActuatorOutputStage currentOutputStage = outputStage;
+        if (currentOutputStage == null) {
+            return;
+        }
+        synchronized (currentOutputStage) {
+            final long epochNanos = clock.now();
+            if (currentOutputStage.flush(epochNanos)) {
+                write(currentOutputStage.getOutputValue(), epochNanos);
+            }
+        }
+    }
+
+    private void write(final double newSignalValue, final long epochNanos) {
+        signal.publish(newSignalValue, epochNanos);
+        instrumentation.recordWrite(newSignalValue, epochNanos);
+        for (final SampleListener sampleListener : sampleListeners) {
+            sampleListener.onSample(newSignalValue, epochNanos);
+        }
+        for (final SignalMailbox<ActuatorListener> mailbox : actuatorMailboxes) {
+            mailbox.offer(newSignalValue, epochNanos);
+        }
+        if (actuatorListeners.isEmpty()) {
+            return;
+        }
+        final Signal newSignal = Signal.fromEpochNanos(newSignalValue, SignalUnit.PERCENTAGE, epochNanos);
+        for (final ActuatorListener actuatorListener : actuatorListeners) {
             actuatorListener.onAdjustment(newSignal);
         }
     }
 
+    /**
+     * @return The counters and sampled events recorded for writes to this actuator
+     */
+    public ActuatorInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * @return The value last written to the actuator, which lags the value last requested while an output stage holds
+     * it back
+     */
     public double getSignalValue() {
-        return signalValue;
+        return signal.quantity();
+    }
+
+    public int getId() {
+        return id;
     }
 
     @Override
@@ -0,0 +1,92 @@
+package com.control_ops.control_system.instrument.actuator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records every write to an actuator in counters and reports a sample of them as structured log events.
+ * <br><br>
+ * Counting a write costs an uncontended increment; at most one event per actuator is emitted per event interval, on
+ * the dedicated {@value #EVENT_LOGGER_NAME} logger, which logback.xml routes through an asynchronous appender. Each
+ * event carries the number of writes that were not reported individually, so no visibility is lost by sampling.
+ * Instrumentation can be switched off globally, e.g. to measure its cost.
+ */
+public final class ActuatorInstrumentation {
+    static final String EVENT_LOGGER_NAME = "com.control_ops.control_system.instrument.actuator.ActuatorEvents";
+    private static final Logger eventLogger = LoggerFactory.getLogger(EVENT_LOGGER_NAME);
+    private static final Logger logger = LoggerFactory.getLogger(ActuatorInstrumentation.class);
+
+    private static volatile boolean isEnabled = true;
+    private static volatile long eventIntervalNanos = Duration.ofSeconds(1).toNanos();
+
+    private final Actuator actuator;
+    private final LongAdder writeCount = new LongAdder();
+    // The Unix epoch, so that the first write is always reported
+    private final AtomicLong lastEventEpochNanos = new AtomicLong(0L);
+    private final AtomicLong writeCountAtLastEvent = new AtomicLong();
+
+    ActuatorInstrumentation(final Actuator actuator) {
+        this.actuator = actuator;
+    }
+
+    /**
+     * Enables or disables the counters and events of every actuator.
+     */
+    public static void setEnabled(final boolean enabled) {
+        isEnabled = enabled;
+        logger.info("Actuator instrumentation was {}", enabled ? "enabled" : "disabled");
+    }
+
+    public static boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Sets the minimum time between two events reported for the same actuator.
+     */
+    public static void setEventInterval(final Duration eventInterval) {
+        if (eventInterval.isNegative()) {
+            final String failureMessage = "Cannot set a negative actuator event interval.";
+            logger.error(failureMessage);
+            throw new IllegalArgumentException(failureMessage);
+        }
+        eventIntervalNanos = eventInterval.toNanos();
+        logger.info("Actuator event interval was set to {}", eventInterval);
+    }
+
+    /**
+     * Counts a write and, if the actuator's event interval has elapsed, reports it.
+     */
+    void recordWrite(final double signalValue, final long epochNanos) {
+        if (!isEnabled) {
+            return;
+        }
+        writeCount.increment();
+        final long previousEventEpochNanos = lastEventEpochNanos.get();
+        if (epochNanos - previousEventEpochNanos < eventIntervalNanos
+                || !eventLogger.isInfoEnabled()
+                || !lastEventEpochNanos.compareAndSet(previousEventEpochNanos, epochNanos)) {
+            return;
+        }
+        final long totalWrites = writeCount.sum();
+        final long unreportedWrites = totalWrites - writeCountAtLastEvent.getAndSet(totalWrites) - 1L;
+        eventLogger.atInfo()
+                .addKeyValue("actuator", actuator)
+                .addKeyValue("signalValue", signalValue)
+                .addKeyValue("epochNanos", epochNanos)
+                .addKeyValue("totalWrites", totalWrites)
+                .addKeyValue("unreportedWrites", Math.max(unreportedWrites, 0L))
+                .log("Actuator signal adjusted");
+    }
+
+    /**
+     * @return The number of writes recorded while instrumentation was enabled
+     */
+    public long getWriteCount() {
+        return writeCount.sum();
+    }
+}
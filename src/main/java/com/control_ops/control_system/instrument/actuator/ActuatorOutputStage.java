@@ -0,0 +1,188 @@
+package com.control_ops.control_system.instrument.actuator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shapes the values requested of an actuator into the values written to its field device and listeners, so that high
+ * loop rates do not translate into write traffic the device cannot use; see {@link Actuator#setOutputStage}.
+ * <br><br>
+ * Each requested value is clamped to the output range, then moved toward at no more than the maximum rate, so the
+ * output ramps rather than steps. A write that would change the output by less than the resolution, including one
+ * that would not change it at all, is suppressed. Writes are also coalesced to the device cycle: the first request
+ * after a cycle has passed is written at once, and later requests within the same cycle only replace the pending
+ * value, which the actuator writes once the cycle is over. A ramp that has not reached its target continues on the
+ * device cycle in the same way; without a device cycle, it continues with the next request. A NaN request is
+ * rejected and counted, and the output holds its last value.
+ * <br><br>
+ * Shaping a request does not allocate. Each instance holds the output state of one actuator and must not be shared
+ * between actuators; its state is only updated while the actuator holds this stage's monitor.
+ */
+public final class ActuatorOutputStage {
+    private final double minOutput;
+    private final double maxOutput;
+    private final double maxRatePerSecond;
+    private final double resolution;
+    private final long deviceCycleNanos;
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder writeCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    // Only accessed while the actuator holds this stage's monitor; never NaN
+    private double outputValue;
+    private long lastWriteEpochNanos;
+    private boolean hasWritten;
+    private double targetValue;
+    private boolean hasPendingTarget;
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1L);
+    private static final Logger logger = LoggerFactory.getLogger(ActuatorOutputStage.class);
+
+    /**
+     * @param minOutput The lowest value that may be written
+     * @param maxOutput The highest value that may be written
+     * @param maxRatePerSecond How far the output may move per second; {@link Double#POSITIVE_INFINITY} for no limit
+     * @param resolution The smallest change in the output that is worth writing; zero suppresses only repeated values
+     * @param deviceCycle How often the field device takes a new value; zero writes every change at once
+     * @param deviceCycleUnit The time units in which the device cycle is denominated
+     */
+    public ActuatorOutputStage(
+            final double minOutput,
+            final double maxOutput,
+            final double maxRatePerSecond,
+            final double resolution,
+            final long deviceCycle,
+            final TimeUnit deviceCycleUnit) {
+        if (!(minOutput <= maxOutput) || !(maxRatePerSecond > 0.0) || !(resolution >= 0.0) || deviceCycle < 0L) {
+            final String failureMessage = "Cannot instantiate an ActuatorOutputStage without an output range, a "
+                    + "positive maximum rate and a non-negative resolution and device cycle.";
+            logger.error(failureMessage);
+            throw new IllegalArgumentException(failureMessage);
+        }
+        this.minOutput = minOutput;
+        this.maxOutput = maxOutput;
+        this.maxRatePerSecond = maxRatePerSecond;
+        this.resolution = resolution;
+        this.deviceCycleNanos = deviceCycleUnit.toNanos(deviceCycle);
+    }
+
+    /**
+     * @return A stage that only clamps the output to the provided range and suppresses repeated values
+     */
+    public static ActuatorOutputStage clamping(final double minOutput, final double maxOutput) {
+        return new ActuatorOutputStage(minOutput, maxOutput, Double.POSITIVE_INFINITY, 0.0, 0L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts shaping from the actuator's current output, as if it had just been written; a NaN output is taken to be
+     * the bottom of the output range.
+     */
+    void attach(final double currentOutputValue, final long epochNanos) {
+        outputValue = Double.isNaN(currentOutputValue) ? minOutput : currentOutputValue;
+        lastWriteEpochNanos = epochNanos;
+        hasWritten = false;
+        hasPendingTarget = false;
+    }
+
+    /**
+     * Stops shaping, e.g. when the actuator is given another stage, and hands over the target that this stage has not
+     * written yet, so that the last request is not lost with it.
+     * @return The pending target, or NaN if the output has already reached the last requested value
+     */
+    double detach() {
+        final double pendingTarget = hasPendingTarget ? targetValue : Double.NaN;
+        hasPendingTarget = false;
+        return pendingTarget;
+    }
+
+    /**
+     * Takes a new requested value as the target of the output, unless it is NaN.
+     * @return Whether the output should be written now, in which case {@link #getOutputValue()} holds the value
+     */
+    boolean request(final double requestedValue, final long epochNanos) {
+        requestCount.increment();
+        if (Double.isNaN(requestedValue)) {
+            rejectedCount.increment();
+            return false;
+        }
+        targetValue = Math.clamp(requestedValue, minOutput, maxOutput);
+        hasPendingTarget = true;
+        return flush(epochNanos);
+    }
+
+    /**
+     * Moves the output toward its target if the device cycle allows it.
+     * @return Whether the output should be written now, in which case {@link #getOutputValue()} holds the value
+     */
+    boolean flush(final long epochNanos) {
+        if (!hasPendingTarget || hasWritten && epochNanos - lastWriteEpochNanos < deviceCycleNanos) {
+            return false;
+        }
+        double nextValue = targetValue;
+        if (maxRatePerSecond != Double.POSITIVE_INFINITY) {
+            final double maxStep = maxRatePerSecond * (epochNanos - lastWriteEpochNanos) / NANOS_PER_SECOND;
+            nextValue = Math.max(outputValue - maxStep, Math.min(outputValue + maxStep, nextValue));
+        }
+        final boolean reachesTarget = Double.compare(nextValue, targetValue) == 0;
+        if (Double.compare(nextValue, outputValue) == 0 || Math.abs(nextValue - outputValue) < resolution) {
+            // A ramp keeps its target until enough time has passed for a step that is worth writing
+            hasPendingTarget = !reachesTarget;
+            return false;
+        }
+        outputValue = nextValue;
+        lastWriteEpochNanos = epochNanos;
+        hasWritten = true;
+        hasPendingTarget = !reachesTarget;
+        writeCount.increment();
+        return true;
+    }
+
+    /**
+     * @return The value last written, or to be written, to the device
+     */
+    double getOutputValue() {
+        return outputValue;
+    }
+
+    long getDeviceCycleNanos() {
+        return deviceCycleNanos;
+    }
+
+    /**
+     * @return How many values have been requested of the actuator
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * @return How many values have been written to the device
+     */
+    public long getWriteCount() {
+        return writeCount.sum();
+    }
+
+    /**
+     * @return How many requests were rejected because they were NaN
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * @return How many values were requested per value written, or 0 if none have been written
+     */
+    public double getCoalescingRatio() {
+        final long written = writeCount.sum();
+        return written == 0L ? 0.0 : (double) requestCount.sum() / written;
+    }
+
+    @Override
+    public String toString() {
+        return "ActuatorOutputStage[range=" + minOutput + ".." + maxOutput + ", maxRate=" + maxRatePerSecond
+                + "/s, resolution=" + resolution + ", deviceCycle=" + deviceCycleNanos + " ns]";
+    }
+}
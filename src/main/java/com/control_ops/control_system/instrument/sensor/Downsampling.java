@@ -0,0 +1,17 @@
+package com.control_ops.control_system.instrument.sensor;
+
+/**
+ * Determines how a sensor tap reduces its source's measurements when it only publishes one of every few of them; see
+ * {@link Sensor#tap(int, int, Downsampling)}.
+ */
+public enum Downsampling {
+    /**
+     * The first of every group of measurements is published unchanged and the rest are skipped.
+     */
+    DECIMATE,
+    /**
+     * Once a group of measurements is complete, their mean is published with the timestamp of the last of them; use
+     * this for consumers that want a slower but less noisy signal.
+     */
+    AVERAGE
+}
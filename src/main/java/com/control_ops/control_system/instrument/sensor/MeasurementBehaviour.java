@@ -1,12 +1,10 @@
 package com.control_ops.control_system.instrument.sensor;
 
-import com.control_ops.control_system.instrument.Signal;
-import com.control_ops.control_system.instrument.SignalUnit;
-
-import java.time.ZoneId;
-
 public interface MeasurementBehaviour {
-    Signal takeMeasurement(
-            final SignalUnit signalUnit,
-            final ZoneId timeZone);
+    /**
+     * Takes a single measurement. The sensor timestamps the result and denominates it in its own signal unit, so
+     * implementations only need to produce the measured quantity.
+     * @return The measured quantity
+     */
+    double takeMeasurement();
 }
@@ -1,18 +1,29 @@
 package com.control_ops.control_system.instrument.sensor;
 
-import com.control_ops.control_system.instrument.Signal;
-import com.control_ops.control_system.instrument.SignalUnit;
-
-import java.security.SecureRandom;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class RandomMeasurement implements MeasurementBehaviour {
-    private final SecureRandom random = new SecureRandom();
+    // Null when unseeded; a sensor never takes measurements concurrently, so a seeded generator needs no locking
+    private final SplittableRandom seededRandom;
+
+    public RandomMeasurement() {
+        this.seededRandom = null;
+    }
+
+    /**
+     * Produces the same sequence of measurements for the same seed, so that tests and replays are repeatable.
+     */
+    public RandomMeasurement(final long seed) {
+        this.seededRandom = new SplittableRandom(seed);
+    }
 
     @Override
-    public Signal takeMeasurement(final SignalUnit signalUnit, final ZoneId timeZone) {
-        final double quantity = random.nextDouble();
-        return new Signal(quantity, signalUnit, ZonedDateTime.now(timeZone));
+    public double takeMeasurement() {
+        if (seededRandom != null) {
+            return seededRandom.nextDouble();
+        }
+        // Simulated process noise is not security-sensitive, and unlike SecureRandom this does not allocate per call
+        return ThreadLocalRandom.current().nextDouble();
     }
 }
@@ -0,0 +1,132 @@
+package com.control_ops.control_system.instrument.sensor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which of a sensor's measurements are reported to its listeners (exception-based reporting), so that
+ * listeners, persistence and messaging only see meaningful changes; see {@link Sensor#setReportingDeadband}.
+ * <br><br>
+ * A measurement is reported when it differs from the last reported measurement by more than the deadband, which is the
+ * larger of an absolute deadband and a percentage of the last reported measurement's magnitude. A deadband of zero
+ * reports every change and suppresses only repeated values. However little the measurement moves, one is reported
+ * whenever the maximum silence has passed since the last report, as a heartbeat.
+ * <br><br>
+ * Holding each reported measurement until the next one therefore never differs from any measurement that was taken by
+ * more than the deadband. Each instance holds the reporting state of one sensor and must not be shared between
+ * sensors; it is only updated on that sensor's sampling thread.
+ */
+public final class ReportingDeadband {
+    private final double absoluteDeadband;
+    private final double percentDeadband;
+    private final long maxSilenceNanos;
+    private final LongAdder reportedCount = new LongAdder();
+    private final LongAdder suppressedCount = new LongAdder();
+
+    // Only accessed on the sensor's sampling thread
+    private boolean hasReported = false;
+    private double lastReportedQuantity;
+    private long lastReportedEpochNanos;
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportingDeadband.class);
+
+    /**
+     * @param absoluteDeadband How far a measurement may move, in the sensor's unit, without being reported
+     * @param percentDeadband How far a measurement may move, as a percentage of the last reported measurement's
+     *                        magnitude, without being reported
+     * @param maxSilence The longest time that may pass without a report; zero disables the heartbeat
+     * @param maxSilenceUnit The time units in which the maximum silence is denominated
+     */
+    public ReportingDeadband(
+            final double absoluteDeadband,
+            final double percentDeadband,
+            final long maxSilence,
+            final TimeUnit maxSilenceUnit) {
+        if (!(absoluteDeadband >= 0.0) || !(percentDeadband >= 0.0) || maxSilence < 0L) {
+            final String failureMessage = "Cannot instantiate a ReportingDeadband with a negative deadband or maximum "
+                    + "silence.";
+            logger.error(failureMessage);
+            throw new IllegalArgumentException(failureMessage);
+        }
+        this.absoluteDeadband = absoluteDeadband;
+        this.percentDeadband = percentDeadband;
+        this.maxSilenceNanos = maxSilence == 0L ? Long.MAX_VALUE : maxSilenceUnit.toNanos(maxSilence);
+    }
+
+    /**
+     * @return A deadband of a fixed amount in the sensor's unit
+     */
+    public static ReportingDeadband absolute(
+            final double deadband,
+            final long maxSilence,
+            final TimeUnit maxSilenceUnit) {
+        return new ReportingDeadband(deadband, 0.0, maxSilence, maxSilenceUnit);
+    }
+
+    /**
+     * @return A deadband that is a percentage of the last reported measurement's magnitude
+     */
+    public static ReportingDeadband percent(
+            final double percent,
+            final long maxSilence,
+            final TimeUnit maxSilenceUnit) {
+        return new ReportingDeadband(0.0, percent, maxSilence, maxSilenceUnit);
+    }
+
+    /**
+     * Decides whether a measurement should be reported, and if so remembers it as the last reported measurement.
+     * Does not allocate.
+     */
+    boolean report(final double quantity, final long epochNanos) {
+        if (hasReported
+                && epochNanos - lastReportedEpochNanos < maxSilenceNanos
+                && isWithinDeadband(quantity)) {
+            suppressedCount.increment();
+            return false;
+        }
+        hasReported = true;
+        lastReportedQuantity = quantity;
+        lastReportedEpochNanos = epochNanos;
+        reportedCount.increment();
+        return true;
+    }
+
+    private boolean isWithinDeadband(final double quantity) {
+        if (Double.doubleToLongBits(quantity) == Double.doubleToLongBits(lastReportedQuantity)) {
+            return true;
+        }
+        final double deadband = Math.max(absoluteDeadband, percentDeadband / 100.0 * Math.abs(lastReportedQuantity));
+        // Written so that a move to or from NaN is never within the deadband
+        return Math.abs(quantity - lastReportedQuantity) <= deadband;
+    }
+
+    /**
+     * @return How many measurements have been reported
+     */
+    public long getReportedCount() {
+        return reportedCount.sum();
+    }
+
+    /**
+     * @return How many measurements have been suppressed
+     */
+    public long getSuppressedCount() {
+        return suppressedCount.sum();
+    }
+
+    /**
+     * @return How many measurements were taken per measurement reported, or 0 if none have been reported
+     */
+    public double getCompressionRatio() {
+        final long reported = reportedCount.sum();
+        return reported == 0L ? 0.0 : (double) (reported + suppressedCount.sum()) / reported;
+    }
+
+    @Override
+    public String toString() {
+        return "ReportingDeadband[absolute=" + absoluteDeadband + ", percent=" + percentDeadband + "]";
+    }
+}
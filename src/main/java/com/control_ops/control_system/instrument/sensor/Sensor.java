@@ -1,27 +1,58 @@
 package com.control_ops.control_system.instrument.sensor;
 
+import com.control_ops.control_system.ControlMetrics;
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.LatencyHistogram;
 import com.control_ops.control_system.PeriodicExecutor;
+import com.control_ops.control_system.PhaseLoadProfile;
+import com.control_ops.control_system.Scheduler;
+import com.control_ops.control_system.instrument.CompressedHistory;
+import com.control_ops.control_system.instrument.OverflowPolicy;
+import com.control_ops.control_system.instrument.SampleCell;
+import com.control_ops.control_system.instrument.SampleListener;
 import com.control_ops.control_system.instrument.Signal;
+import com.control_ops.control_system.instrument.SignalMailbox;
 import com.control_ops.control_system.instrument.SignalUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.ZoneId;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Takes measurements on its own sampling schedule and publishes them to control loops and other consumers.
+ * <br><br>
+ * A sensor may be tapped to share its measurements with several consumers (see {@link #tap(int, int, Downsampling)}):
+ * each tap is a sensor with its own id and listeners that takes no measurements of its own, so however many loops,
+ * historians and APIs consume a signal, the device is only polled once per sampling period.
+ */
 public class Sensor {
-    private Signal currentSignal;
+    // Shared with the source sensor by taps that publish every measurement, so they never copy a sample
+    private final SampleCell currentSample;
     private final MeasurementBehaviour measurementBehaviour;
     private final int id;
     private final SignalUnit signalUnit;
-    private final List<SensorListener> sensorListeners = new ArrayList<>();
+    private final Sensor source;
+    private final int decimation;
+    private final Downsampling downsampling;
+    private final List<Sensor> taps = new CopyOnWriteArrayList<>();
+    private final List<SampleListener> controlListeners = new CopyOnWriteArrayList<>();
+    private volatile ReportingDeadband reportingDeadband;
+    private volatile CompressedHistory history;
+    // Only accessed on the source's sampling thread
+    private int pendingSamples = 0;
+    private double pendingSum = 0.0;
+    private final List<SensorListener> sensorListeners = new CopyOnWriteArrayList<>();
+    private final List<SignalMailbox<SensorListener>> sensorMailboxes = new CopyOnWriteArrayList<>();
+    private final List<SampleListener> sampleListeners = new CopyOnWriteArrayList<>();
+    private final Scheduler scheduler;
     private final PeriodicExecutor periodicExecutor;
+    private final LatencyHistogram measurementHistogram;
     private static final Logger logger = LoggerFactory.getLogger(Sensor.class);
 
     /**
-     * Initializes a new sensor object.
+     * Initializes a new sensor object whose measurements are taken on the shared scheduler's worker threads.
      * @param id A unique value identifying the sensor
      * @param samplingPeriod How often the sensor should record a new measurement
      * @param samplingPeriodUnit The time units in which the sampling period is denominated (e.g. milliseconds)
@@ -34,33 +65,330 @@ public class Sensor {
             final TimeUnit samplingPeriodUnit,
             final SignalUnit signalUnit,
             final MeasurementBehaviour measurementBehaviour) {
+        this(id, samplingPeriod, samplingPeriodUnit, signalUnit, measurementBehaviour, ExecutionMode.SCHEDULER_THREAD);
+    }
+
+    /**
+     * Initializes a new sensor object.
+     * @param id A unique value identifying the sensor
+     * @param samplingPeriod How often the sensor should record a new measurement
+     * @param samplingPeriodUnit The time units in which the sampling period is denominated (e.g. milliseconds)
+     * @param signalUnit The measurement unit of data gathered by the sensor
+     * @param measurementBehaviour Describes how measurements should be taken
+     * @param executionMode Determines which kind of thread takes each measurement; use
+     *                      {@link ExecutionMode#VIRTUAL_THREAD} when the measurement behaviour blocks on I/O
+     */
+    public Sensor(
+            final int id,
+            final long samplingPeriod,
+            final TimeUnit samplingPeriodUnit,
+            final SignalUnit signalUnit,
+            final MeasurementBehaviour measurementBehaviour,
+            final ExecutionMode executionMode) {
+        this(
+                id,
+                samplingPeriod,
+                samplingPeriodUnit,
+                signalUnit,
+                measurementBehaviour,
+                executionMode,
+                PeriodicExecutor.getSharedScheduler());
+    }
+
+    /**
+     * Initializes a new sensor object whose measurements are triggered and timestamped by the provided scheduler.
+     * @param id A unique value identifying the sensor
+     * @param samplingPeriod How often the sensor should record a new measurement
+     * @param samplingPeriodUnit The time units in which the sampling period is denominated (e.g. milliseconds)
+     * @param signalUnit The measurement unit of data gathered by the sensor
+     * @param measurementBehaviour Describes how measurements should be taken
+     * @param executionMode Determines which kind of thread takes each measurement
+     * @param scheduler Runs the sampling schedule and supplies each measurement's timestamp
+     */
+    public Sensor(
+            final int id,
+            final long samplingPeriod,
+            final TimeUnit samplingPeriodUnit,
+            final SignalUnit signalUnit,
+            final MeasurementBehaviour measurementBehaviour,
+            final ExecutionMode executionMode,
+            final Scheduler scheduler) {
+        this.currentSample = new SampleCell();
         this.id = id;
         this.signalUnit = signalUnit;
         this.measurementBehaviour = measurementBehaviour;
-        this.periodicExecutor = new PeriodicExecutor(this.toString(), samplingPeriod, samplingPeriodUnit, this::takeMeasurement);
+        this.source = null;
+        this.decimation = 1;
+        this.downsampling = Downsampling.DECIMATE;
+        this.scheduler = scheduler;
+        this.periodicExecutor = new PeriodicExecutor(
+                this.toString(),
+                samplingPeriod,
+                samplingPeriodUnit,
+                this::takeMeasurement,
+                executionMode,
+                scheduler);
+        this.measurementHistogram = ControlMetrics.latencyHistogram(
+                "control.sensor.measurement",
+                "How long the measurement behaviour took to produce each measurement",
+                "sensor",
+                this.toString());
 
         logger.info(
-                "A new sensor was created.\tID: {}\tSampling period: {} {}\tSignal unit: {}",
+                "A new sensor was created.\tID: {}\tSampling period: {} {}\tSignal unit: {}\tExecution mode: {}",
                 id,
                 samplingPeriod,
                 samplingPeriodUnit,
-                signalUnit);
+                signalUnit,
+                executionMode);
+    }
+
+    /**
+     * Initializes a tap that publishes the source's measurements on the source's sampling thread.
+     */
+    private Sensor(final Sensor source, final int id, final int decimation, final Downsampling downsampling) {
+        this.currentSample = decimation == 1 ? source.currentSample : new SampleCell();
+        this.id = id;
+        this.signalUnit = source.signalUnit;
+        this.measurementBehaviour = null;
+        this.source = source;
+        this.decimation = decimation;
+        this.downsampling = downsampling;
+        this.scheduler = source.scheduler;
+        this.periodicExecutor = null;
+        this.measurementHistogram = null;
     }
 
+    /**
+     * Builds a signal from the most recent measurement; prefer {@link #getCurrentQuantity()} on hot paths, which
+     * does not allocate.
+     * @return The most recent measurement, or null if the sensor has not taken one yet
+     */
     public Signal getCurrentSignal() {
-        return currentSignal;
+        if (!hasMeasurement()) {
+            return null;
+        }
+        return currentSample.read((quantity, epochNanos) -> Signal.fromEpochNanos(quantity, signalUnit, epochNanos));
+    }
+
+    /**
+     * @return Whether the sensor has taken at least one measurement
+     */
+    public boolean hasMeasurement() {
+        return currentSample.hasValue();
+    }
+
+    /**
+     * @return The quantity of the most recent measurement
+     */
+    public double getCurrentQuantity() {
+        return currentSample.quantity();
+    }
+
+    /**
+     * @return When the most recent measurement was taken, in nanoseconds since the Unix epoch
+     */
+    public long getCurrentEpochNanos() {
+        return currentSample.epochNanos();
+    }
+
+    /**
+     * Reads the quantity and timestamp of the most recent measurement together; reading them through
+     * {@link #getCurrentQuantity()} and {@link #getCurrentEpochNanos()} may pair values from different measurements.
+     * @return The reader's result
+     */
+    public <T> T readCurrentMeasurement(final SampleCell.SampleReader<T> reader) {
+        return currentSample.read(reader);
+    }
+
+    /**
+     * Passes the quantity and timestamp of the most recent measurement, read together, to the provided listener
+     * without allocating; see {@link SampleCell#readInto(SampleListener)}.
+     */
+    public void readCurrentMeasurementInto(final SampleListener listener) {
+        currentSample.readInto(listener);
     }
 
     public void startMeasuring() {
+        if (isTap()) {
+            logger.warn("Cannot start {}; it is a tap, so it measures whenever {} does", this, source);
+            return;
+        }
         periodicExecutor.start();
     }
 
     public void stopMeasuring() {
+        if (isTap()) {
+            logger.warn("Cannot stop {}; it is a tap, so it measures whenever {} does", this, source);
+            return;
+        }
         periodicExecutor.stop();
     }
 
+    /**
+     * Stops measuring, removes this sensor's meters and closes the mailboxes of its asynchronous listeners, e.g. when
+     * the control loop it feeds is deregistered; it should not be started again afterwards. Consumers that outlive the
+     * loop should read a tap of the sensor rather than the sensor itself. A tap is removed from its source instead, so
+     * that the source stops publishing to it and the tap can be collected.
+     */
+    public synchronized void release() {
+        if (isTap()) {
+            source.removeTap(this);
+        } else {
+            periodicExecutor.release();
+            measurementHistogram.deregister();
+        }
+        for (final SignalMailbox<SensorListener> mailbox : sensorMailboxes) {
+            mailbox.close();
+        }
+        sensorMailboxes.clear();
+        logger.debug("{} was released", this);
+    }
+
+    /**
+     * Aligns sampling to a fixed phase of the sampling period, e.g. just ahead of the control loop that consumes the
+     * measurements; see {@link PeriodicExecutor#alignToPhase}.
+     */
+    public void alignSamplingPhase(final long phaseNanos, final PhaseLoadProfile phaseLoadProfile) {
+        if (isTap()) {
+            logger.warn("Cannot align the sampling phase of {}; it is a tap of {}", this, source);
+            return;
+        }
+        periodicExecutor.alignToPhase(phaseNanos, phaseLoadProfile);
+    }
+
+    public void clearSamplingPhase() {
+        if (isTap()) {
+            logger.warn("Cannot clear the sampling phase of {}; it is a tap of {}", this, source);
+            return;
+        }
+        periodicExecutor.clearPhase();
+    }
+
+    /**
+     * Reports measurements to this sensor's listeners only when they move by more than the deadband, or when its
+     * maximum silence has passed; see {@link ReportingDeadband}. The current measurement read by polled control loops
+     * is still updated on every sample, control listeners such as event-driven loops are still notified of every
+     * sample, and taps still receive every measurement, so each tap can have a deadband of its own.
+     * @param reportingDeadband The deadband, which must not be used by any other sensor; null reports every
+     *                          measurement
+     */
+    public void setReportingDeadband(final ReportingDeadband reportingDeadband) {
+        this.reportingDeadband = reportingDeadband;
+        logger.info("Reporting deadband of {} set to {}", this, reportingDeadband);
+    }
+
+    /**
+     * @return The deadband deciding which measurements are reported to listeners, or null if every one is
+     */
+    public ReportingDeadband getReportingDeadband() {
+        return reportingDeadband;
+    }
+
+    /**
+     * Starts keeping a compressed history of this sensor's reported measurements in memory, for trend displays and
+     * loop diagnostics; see {@link CompressedHistory}. With a reporting deadband, only the reported measurements are
+     * kept, and holding each until the next stays within the deadband of every measurement that was taken.
+     * @param retention How far back the history should reach
+     * @param retentionUnit The time units in which the retention period is denominated
+     * @param maxBytes The most memory the history may occupy
+     * @return The history, which can be queried from any thread
+     */
+    public synchronized CompressedHistory keepHistory(
+            final long retention,
+            final TimeUnit retentionUnit,
+            final long maxBytes) {
+        if (history != null) {
+            logger.warn("Cannot keep a new history of {}; it already keeps {}", this, history);
+            return history;
+        }
+        final CompressedHistory newHistory = new CompressedHistory(retention, retentionUnit, maxBytes);
+        addSampleListener(newHistory);
+        history = newHistory;
+        return newHistory;
+    }
+
+    /**
+     * @return The compressed history of this sensor's measurements, or null if none is kept
+     */
+    public CompressedHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Shares this sensor's measurements with another consumer; see {@link #tap(int, int, Downsampling)}.
+     * @param id A unique value identifying the tap
+     * @return A tap that publishes every measurement this sensor takes
+     */
+    public Sensor tap(final int id) {
+        return tap(id, 1, Downsampling.DECIMATE);
+    }
+
+    /**
+     * Creates a sensor that takes no measurements of its own, but publishes this sensor's measurements to its own
+     * listeners and readers, on this sensor's sampling thread, from now until it is removed with
+     * {@link #removeTap(Sensor)} or released along with the control loop it feeds. Each consumer of a shared signal,
+     * such as a control loop, can then be given a tap with its own id instead of a duplicate sensor that polls the
+     * same device again.
+     * <br><br>
+     * A tap that publishes every measurement reads this sensor's sample cell directly, so reading it copies nothing.
+     * Taps may themselves be tapped.
+     * @param id A unique value identifying the tap
+     * @param decimation The tap publishes once for every this many measurements
+     * @param downsampling How the measurements in each group are reduced to the one that is published
+     * @return The new tap
+     */
+    public Sensor tap(final int id, final int decimation, final Downsampling downsampling) {
+        if (decimation < 1) {
+            final String failureMessage = "Cannot tap " + this + " with a decimation of " + decimation
+                    + "; it must be at least 1.";
+            logger.error(failureMessage);
+            throw new IllegalArgumentException(failureMessage);
+        }
+        final Sensor tap = new Sensor(this, id, decimation, downsampling);
+        taps.add(tap);
+        logger.info("{} was added to {}\tDecimation: {}\tDownsampling: {}", tap, this, decimation, downsampling);
+        return tap;
+    }
+
+    /**
+     * Stops publishing this sensor's measurements to the provided tap.
+     */
+    public void removeTap(final Sensor tap) {
+        if (!taps.remove(tap)) {
+            logger.warn("Cannot remove {}; it is not a tap of {}", tap, this);
+            return;
+        }
+        logger.info("{} was removed from {}", tap, this);
+    }
+
+    /**
+     * @return Whether this sensor publishes another sensor's measurements rather than taking its own
+     */
+    public boolean isTap() {
+        return source != null;
+    }
+
+    /**
+     * @return The sensor whose measurements this tap publishes, or null if this sensor is not a tap
+     */
+    public Sensor getSource() {
+        return source;
+    }
+
+    /**
+     * @return The number of taps currently publishing this sensor's measurements
+     */
+    public int getTapCount() {
+        return taps.size();
+    }
+
+    /**
+     * Subscribes a listener that is notified synchronously, on the thread that takes each measurement; it must
+     * return quickly. Use {@link #addListener(SensorListener, int, OverflowPolicy)} for listeners that may be slow.
+     */
     public void addListener(final SensorListener sensorListener) {
-        if (this.sensorListeners.contains(sensorListener)) {
+        if (isSubscribed(sensorListener)) {
             logger.warn("Cannot add the provided SensorListener; it is already subscribed to {}", this);
             return;
         }
@@ -68,26 +396,183 @@ public class Sensor {
         logger.info("The provided SensorListener was added to {}", this);
     }
 
+    /**
+     * Subscribes a listener that is notified asynchronously on its own consumer thread, so that it cannot stall the
+     * sensor.
+     * @param sensorListener The listener to be notified
+     * @param capacity How many signals may be queued while the listener is busy
+     * @param overflowPolicy What to do with new signals once the listener has fallen behind
+     */
+    public void addListener(
+            final SensorListener sensorListener,
+            final int capacity,
+            final OverflowPolicy overflowPolicy) {
+        if (isSubscribed(sensorListener)) {
+            logger.warn("Cannot add the provided SensorListener; it is already subscribed to {}", this);
+            return;
+        }
+        this.sensorMailboxes.add(new SignalMailbox<>(
+                this + "-listener-" + System.identityHashCode(sensorListener),
+                sensorListener,
+                sensorListener::onMeasurement,
+                signalUnit,
+                capacity,
+                overflowPolicy));
+        logger.info("The provided SensorListener was added to {} with a {} mailbox of capacity {}",
+                this,
+                overflowPolicy,
+                capacity);
+    }
+
     public void removeListener(final SensorListener sensorListener) {
-        if (!this.sensorListeners.contains(sensorListener)) {
-            logger.warn("Cannot remove the provided SensorListener; it is not subscribed to {}", this);
+        if (this.sensorListeners.remove(sensorListener)) {
+            logger.info("The provided SensorListener was removed from {}", this);
+            return;
+        }
+        for (final SignalMailbox<SensorListener> mailbox : this.sensorMailboxes) {
+            if (mailbox.getListener().equals(sensorListener) && this.sensorMailboxes.remove(mailbox)) {
+                mailbox.close();
+                logger.info("The provided SensorListener was removed from {}", this);
+                return;
+            }
+        }
+        logger.warn("Cannot remove the provided SensorListener; it is not subscribed to {}", this);
+    }
+
+    private boolean isSubscribed(final SensorListener sensorListener) {
+        if (this.sensorListeners.contains(sensorListener)) {
+            return true;
+        }
+        for (final SignalMailbox<SensorListener> mailbox : this.sensorMailboxes) {
+            if (mailbox.getListener().equals(sensorListener)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Subscribes a listener on the control path, e.g. an event-driven control loop, which is notified of every
+     * measurement whatever the reporting deadband; like a sample listener, it is notified synchronously on the
+     * sampling thread without allocating, and must return quickly.
+     */
+    public void addControlListener(final SampleListener controlListener) {
+        if (this.controlListeners.contains(controlListener)) {
+            logger.warn("Cannot add the provided control listener; it is already subscribed to {}", this);
+            return;
+        }
+        this.controlListeners.add(controlListener);
+        logger.info("The provided control listener was added to {}", this);
+    }
+
+    public void removeControlListener(final SampleListener controlListener) {
+        if (!this.controlListeners.remove(controlListener)) {
+            logger.warn("Cannot remove the provided control listener; it is not subscribed to {}", this);
             return;
         }
-        this.sensorListeners.remove(sensorListener);
-        logger.info("The provided SensorListener was removed from {}", this);
+        logger.info("The provided control listener was removed from {}", this);
     }
 
     /**
-     * Takes a new measurement using the sensor's measurement behaviour.
+     * Subscribes a listener that is notified synchronously, without allocating, of every measurement that passes the
+     * reporting deadband; see {@link #addControlListener} for consumers that need every measurement.
      */
-    private synchronized void takeMeasurement() {
-        Signal newSignal = measurementBehaviour.takeMeasurement(
-                signalUnit,
-                ZoneId.of("UTC"));
-        currentSignal = newSignal;
-        for (final SensorListener listener : this.sensorListeners) {
-            listener.onMeasurement(newSignal);
+    public void addSampleListener(final SampleListener sampleListener) {
+        if (this.sampleListeners.contains(sampleListener)) {
+            logger.warn("Cannot add the provided SampleListener; it is already subscribed to {}", this);
+            return;
+        }
+        this.sampleListeners.add(sampleListener);
+        logger.info("The provided SampleListener was added to {}", this);
+    }
+
+    public void removeSampleListener(final SampleListener sampleListener) {
+        if (!this.sampleListeners.contains(sampleListener)) {
+            logger.warn("Cannot remove the provided SampleListener; it is not subscribed to {}", this);
+            return;
+        }
+        this.sampleListeners.remove(sampleListener);
+        logger.info("The provided SampleListener was removed from {}", this);
+    }
+
+    /**
+     * Takes a new measurement using the sensor's measurement behaviour, and publishes it to this sensor's readers,
+     * taps, control listeners and, if it passes the reporting deadband, other listeners.
+     * <br><br>
+     * The measurement is published as a primitive quantity and timestamp through a lock-free cell, so readers on other
+     * threads (e.g. a control loop) never contend with sampling. Sample listeners are notified first, without
+     * allocating; asynchronous listeners' mailboxes are then offered the sample, which also does not allocate, and a
+     * Signal is only allocated when there are synchronous sensor listeners to receive it. Each list is walked through
+     * a snapshot, so listeners may be added or removed concurrently. The periodic executor never runs this
+     * concurrently with itself, so no lock is taken here either.
+     */
+    void takeMeasurement() {
+        final long startNanos = System.nanoTime();
+        final double quantity = measurementBehaviour.takeMeasurement();
+        measurementHistogram.record(System.nanoTime() - startNanos);
+        publish(quantity, scheduler.now());
+    }
+
+    private void publish(final double quantity, final long epochNanos) {
+        if (source == null || currentSample != source.currentSample) {
+            currentSample.publish(quantity, epochNanos);
+        }
+        for (final Sensor tap : taps) {
+            tap.onSourceMeasurement(quantity, epochNanos);
+        }
+        for (final SampleListener controlListener : controlListeners) {
+            controlListener.onSample(quantity, epochNanos);
+        }
+        final ReportingDeadband currentReportingDeadband = reportingDeadband;
+        if (currentReportingDeadband != null && !currentReportingDeadband.report(quantity, epochNanos)) {
+            return;
+        }
+        for (final SampleListener sampleListener : sampleListeners) {
+            sampleListener.onSample(quantity, epochNanos);
+        }
+        for (final SignalMailbox<SensorListener> mailbox : sensorMailboxes) {
+            mailbox.offer(quantity, epochNanos);
+        }
+        if (sensorListeners.isEmpty()) {
+            return;
+        }
+        final Signal newSignal = Signal.fromEpochNanos(quantity, signalUnit, epochNanos);
+        for (final SensorListener sensorListener : sensorListeners) {
+            sensorListener.onMeasurement(newSignal);
+        }
+    }
+
+    /**
+     * Publishes one of every {@code decimation} measurements taken by this tap's source.
+     */
+    private void onSourceMeasurement(final double quantity, final long epochNanos) {
+        pendingSamples++;
+        pendingSum += quantity;
+        final boolean isDecimating = downsampling == Downsampling.DECIMATE;
+        final boolean isDue = isDecimating ? pendingSamples == 1 : pendingSamples == decimation;
+        final double publishedQuantity = isDecimating ? quantity : pendingSum / decimation;
+        if (pendingSamples == decimation) {
+            pendingSamples = 0;
+            pendingSum = 0.0;
         }
+        if (isDue) {
+            publish(publishedQuantity, epochNanos);
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public SignalUnit getSignalUnit() {
+        return signalUnit;
+    }
+
+    /**
+     * @return The scheduler that takes this sensor's measurements and supplies their timestamps
+     */
+    public Scheduler getScheduler() {
+        return scheduler;
     }
 
     @Override
@@ -0,0 +1,135 @@
+package com.control_ops.control_system.replay;
+
+import com.control_ops.control_system.historian.SignalJournal;
+import com.control_ops.control_system.historian.SignalSource;
+import com.control_ops.control_system.instrument.SignalUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Recorded signals of any number of sensors and actuators, loaded from a CSV file or a {@link SignalJournal}.
+ */
+public class RecordedHistory {
+    /**
+     * The header line of a CSV history; each following line holds one sample in these columns.
+     */
+    public static final String CSV_HEADER = "source,source_id,epoch_nanos,quantity,unit";
+
+    private final Map<SeriesKey, RecordedSeries> series;
+    private final long startEpochNanos;
+    private final long endEpochNanos;
+    private static final Logger logger = LoggerFactory.getLogger(RecordedHistory.class);
+
+    private record SeriesKey(SignalSource source, int sourceId) {
+    }
+
+    private RecordedHistory(final Map<SeriesKey, RecordedSeries.Builder> seriesBuilders) {
+        this.series = new HashMap<>();
+        long earliest = Long.MAX_VALUE;
+        long latest = Long.MIN_VALUE;
+        for (final Map.Entry<SeriesKey, RecordedSeries.Builder> entry : seriesBuilders.entrySet()) {
+            final RecordedSeries recordedSeries = entry.getValue().build();
+            earliest = Math.min(earliest, recordedSeries.getEpochNanos(0));
+            latest = Math.max(latest, recordedSeries.getEpochNanos(recordedSeries.size() - 1));
+            this.series.put(entry.getKey(), recordedSeries);
+        }
+        this.startEpochNanos = earliest;
+        this.endEpochNanos = latest;
+    }
+
+    /**
+     * Loads every record in the journal in the provided directory.
+     */
+    public static RecordedHistory fromJournal(final Path journalDirectory) {
+        final Map<SeriesKey, RecordedSeries.Builder> seriesBuilders = new HashMap<>();
+        SignalJournal.replay(journalDirectory, (source, sourceId, quantity, unit, epochNanos) ->
+                seriesBuilders.computeIfAbsent(new SeriesKey(source, sourceId), key -> new RecordedSeries.Builder(unit))
+                        .add(epochNanos, quantity));
+        return fromBuilders(seriesBuilders, journalDirectory);
+    }
+
+    /**
+     * Loads a CSV file whose first line is {@link #CSV_HEADER}, with sources and units given by name.
+     */
+    public static RecordedHistory fromCsv(final Path csvFile) {
+        final Map<SeriesKey, RecordedSeries.Builder> seriesBuilders = new HashMap<>();
+        try (final BufferedReader reader = Files.newBufferedReader(csvFile)) {
+            final String header = reader.readLine();
+            if (!CSV_HEADER.equals(header == null ? null : header.strip())) {
+                logger.error("Cannot load {}; its header is {} rather than {}", csvFile, header, CSV_HEADER);
+                throw new IllegalArgumentException("The CSV history does not start with the expected header");
+            }
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                final String[] columns = line.split(",");
+                try {
+                    final SignalSource source = SignalSource.valueOf(columns[0].strip());
+                    final int sourceId = Integer.parseInt(columns[1].strip());
+                    final long epochNanos = Long.parseLong(columns[2].strip());
+                    final double quantity = Double.parseDouble(columns[3].strip());
+                    final SignalUnit unit = SignalUnit.valueOf(columns[4].strip());
+                    seriesBuilders.computeIfAbsent(
+                            new SeriesKey(source, sourceId),
+                            key -> new RecordedSeries.Builder(unit)).add(epochNanos, quantity);
+                } catch (final IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                    logger.error("Cannot load {}; line {} is malformed: {}", csvFile, lineNumber, line);
+                    throw new IllegalArgumentException("Line " + lineNumber + " of the CSV history is malformed", e);
+                }
+            }
+        } catch (final IOException e) {
+            logger.error("Cannot read the CSV history {}", csvFile, e);
+            throw new IllegalStateException("The CSV history could not be read", e);
+        }
+        return fromBuilders(seriesBuilders, csvFile);
+    }
+
+    private static RecordedHistory fromBuilders(
+            final Map<SeriesKey, RecordedSeries.Builder> seriesBuilders,
+            final Path origin) {
+        if (seriesBuilders.isEmpty()) {
+            logger.error("Cannot load a history from {}; it holds no samples", origin);
+            throw new IllegalArgumentException("The recorded history is empty");
+        }
+        final RecordedHistory recordedHistory = new RecordedHistory(seriesBuilders);
+        logger.info("Loaded {} recorded series from {}", seriesBuilders.size(), origin);
+        return recordedHistory;
+    }
+
+    /**
+     * @return The recorded history of the provided instrument
+     */
+    public RecordedSeries getSeries(final SignalSource source, final int sourceId) {
+        final RecordedSeries recordedSeries = series.get(new SeriesKey(source, sourceId));
+        if (recordedSeries == null) {
+            logger.error("No history was recorded for {} {}", source, sourceId);
+            throw new IllegalArgumentException("No history was recorded for " + source + " " + sourceId);
+        }
+        return recordedSeries;
+    }
+
+    /**
+     * @return The timestamp of the earliest sample in any series
+     */
+    public long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+
+    /**
+     * @return The timestamp of the latest sample in any series
+     */
+    public long getEndEpochNanos() {
+        return endEpochNanos;
+    }
+}
@@ -0,0 +1,81 @@
+package com.control_ops.control_system.replay;
+
+import com.control_ops.control_system.instrument.SignalUnit;
+
+import java.util.Arrays;
+
+/**
+ * The recorded history of one instrument: its quantities and their timestamps, in time order, held in primitive
+ * arrays so that replaying them never allocates.
+ */
+public final class RecordedSeries {
+    private final SignalUnit unit;
+    private final long[] epochNanos;
+    private final double[] quantities;
+
+    RecordedSeries(final SignalUnit unit, final long[] epochNanos, final double[] quantities) {
+        this.unit = unit;
+        this.epochNanos = epochNanos;
+        this.quantities = quantities;
+    }
+
+    public SignalUnit getUnit() {
+        return unit;
+    }
+
+    public int size() {
+        return epochNanos.length;
+    }
+
+    public long getEpochNanos(final int index) {
+        return epochNanos[index];
+    }
+
+    public double getQuantity(final int index) {
+        return quantities[index];
+    }
+
+    /**
+     * Collects samples in the order they are read and sorts them by timestamp when built; samples with equal
+     * timestamps keep the order in which they were read.
+     */
+    static final class Builder {
+        private final SignalUnit unit;
+        private long[] epochNanos = new long[1024];
+        private double[] quantities = new double[1024];
+        private int size = 0;
+        private boolean isSorted = true;
+
+        Builder(final SignalUnit unit) {
+            this.unit = unit;
+        }
+
+        void add(final long sampleEpochNanos, final double quantity) {
+            if (size == epochNanos.length) {
+                epochNanos = Arrays.copyOf(epochNanos, size * 2);
+                quantities = Arrays.copyOf(quantities, size * 2);
+            }
+            if (size > 0 && sampleEpochNanos < epochNanos[size - 1]) {
+                isSorted = false;
+            }
+            epochNanos[size] = sampleEpochNanos;
+            quantities[size] = quantity;
+            size++;
+        }
+
+        RecordedSeries build() {
+            final long[] builtEpochNanos = Arrays.copyOf(epochNanos, size);
+            final double[] builtQuantities = Arrays.copyOf(quantities, size);
+            if (!isSorted) {
+                final Integer[] order = new Integer[size];
+                Arrays.setAll(order, i -> i);
+                Arrays.sort(order, (first, second) -> Long.compare(epochNanos[first], epochNanos[second]));
+                for (int i = 0; i < size; i++) {
+                    builtEpochNanos[i] = epochNanos[order[i]];
+                    builtQuantities[i] = quantities[order[i]];
+                }
+            }
+            return new RecordedSeries(unit, builtEpochNanos, builtQuantities);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.control_ops.control_system.replay;
+
+import com.control_ops.control_system.VirtualScheduler;
+import com.control_ops.control_system.historian.SignalSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * Replays recorded history through sensors and control loops as fast as the CPU allows.
+ * <br><br>
+ * Build the sensors with {@link #measurementOf(int)} and give them, and the control loops that use them,
+ * {@link #getScheduler()}; then start them and call {@link #run()}. Every execution runs on the calling thread in
+ * simulated-time order, so replaying the same history through the same loops always produces the same outputs.
+ */
+public class ReplayEngine {
+    private final RecordedHistory recordedHistory;
+    private final VirtualScheduler scheduler;
+    private static final Logger logger = LoggerFactory.getLogger(ReplayEngine.class);
+
+    public ReplayEngine(final RecordedHistory recordedHistory) {
+        this.recordedHistory = recordedHistory;
+        this.scheduler = new VirtualScheduler(recordedHistory.getStartEpochNanos());
+    }
+
+    /**
+     * @return The simulated clock and scheduler on which the replayed sensors and control loops must run
+     */
+    public VirtualScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return A measurement behaviour that plays back the recorded history of the provided sensor
+     */
+    public ReplayMeasurement measurementOf(final int sensorId) {
+        return new ReplayMeasurement(recordedHistory.getSeries(SignalSource.SENSOR, sensorId), scheduler);
+    }
+
+    /**
+     * Runs every execution scheduled between the current simulated time and the end of the recorded history.
+     */
+    public ReplayReport run() {
+        final long simulatedStartNanos = scheduler.now();
+        final long ticksBefore = scheduler.getExecutionCount();
+        final long wallClockStartNanos = System.nanoTime();
+        scheduler.advanceTo(recordedHistory.getEndEpochNanos());
+        final ReplayReport replayReport = new ReplayReport(
+                scheduler.getExecutionCount() - ticksBefore,
+                scheduler.now() - simulatedStartNanos,
+                System.nanoTime() - wallClockStartNanos);
+        logger.info("Replayed {} of history in {} ms: {} ticks at {} ticks/s, {}x real time",
+                Duration.ofNanos(replayReport.simulatedNanos()),
+                Duration.ofNanos(replayReport.wallClockNanos()).toMillis(),
+                replayReport.ticks(),
+                Math.round(replayReport.ticksPerSecond()),
+                Math.round(replayReport.speedUp()));
+        return replayReport;
+    }
+}
@@ -0,0 +1,33 @@
+package com.control_ops.control_system.replay;
+
+import com.control_ops.control_system.TimeSource;
+import com.control_ops.control_system.instrument.sensor.MeasurementBehaviour;
+
+/**
+ * Plays a recorded series back into a sensor: each measurement returns the latest recorded quantity at or before the
+ * current time on the provided clock, holding it until the next recorded sample, as the real instrument's output did.
+ * Before the first recorded sample, the first quantity is returned.
+ * <br><br>
+ * Measurements must be taken in non-decreasing clock order, as a sensor's periodic executor does; lookups then move
+ * forward through the series without searching or allocating.
+ */
+public class ReplayMeasurement implements MeasurementBehaviour {
+    private final RecordedSeries recordedSeries;
+    private final TimeSource clock;
+    private int cursor = 0;
+
+    public ReplayMeasurement(final RecordedSeries recordedSeries, final TimeSource clock) {
+        this.recordedSeries = recordedSeries;
+        this.clock = clock;
+    }
+
+    @Override
+    public double takeMeasurement() {
+        final long now = clock.now();
+        final int lastIndex = recordedSeries.size() - 1;
+        while (cursor < lastIndex && recordedSeries.getEpochNanos(cursor + 1) <= now) {
+            cursor++;
+        }
+        return recordedSeries.getQuantity(cursor);
+    }
+}
@@ -0,0 +1,25 @@
+package com.control_ops.control_system.replay;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summarizes one replay run.
+ * @param ticks How many scheduled executions (sensor measurements and control loop ticks) ran
+ * @param simulatedNanos How much recorded time was replayed
+ * @param wallClockNanos How long the replay took
+ */
+public record ReplayReport(long ticks, long simulatedNanos, long wallClockNanos) {
+    /**
+     * @return Simulated ticks executed per second of wall-clock time
+     */
+    public double ticksPerSecond() {
+        return ticks * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1L, wallClockNanos);
+    }
+
+    /**
+     * @return How many times faster than real time the replay ran
+     */
+    public double speedUp() {
+        return simulatedNanos / (double) Math.max(1L, wallClockNanos);
+    }
+}
@@ -0,0 +1,211 @@
+package com.control_ops.control_system.simulation;
+
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.PeriodicExecutor;
+import com.control_ops.control_system.Scheduler;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates the processes that sensors measure and actuators drive, so that control loops can be run closed against a
+ * plant rather than against measurements that ignore their output.
+ * <br><br>
+ * Each attached process reads the output of its actuator and publishes its process value to the
+ * {@link ProcessMeasurement} of the sensor that measures it. Every process is advanced by one fixed step per
+ * execution of a single periodic executor. As in {@link com.control_ops.control_system.control_loop.BatchControlGroup},
+ * process state is kept as a structure of arrays: a step gathers every actuator output through the dead-time delay
+ * lines, advances all processes in one branch-free loop over primitive arrays, and then publishes the process values.
+ * Both process types reduce to the same discrete update, {@code x = a*x + b*(u - u0)}, so one loop serves them all.
+ */
+public class PlantSimulator {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String name;
+    private final double stepSeconds;
+    private final PeriodicExecutor periodicExecutor;
+
+    private Actuator[] actuators = new Actuator[INITIAL_CAPACITY];
+    private ProcessMeasurement[] measurements = new ProcessMeasurement[INITIAL_CAPACITY];
+    private double[] stateCoefficients = new double[INITIAL_CAPACITY];
+    private double[] inputCoefficients = new double[INITIAL_CAPACITY];
+    private double[] restingInputs = new double[INITIAL_CAPACITY];
+    private double[] restingOutputs = new double[INITIAL_CAPACITY];
+    private double[] deviations = new double[INITIAL_CAPACITY];
+    private double[] delayedInputs = new double[INITIAL_CAPACITY];
+    // The dead-time delay line of every process, laid end to end in one array
+    private int[] delayOffsets = new int[INITIAL_CAPACITY];
+    private int[] delayLengths = new int[INITIAL_CAPACITY];
+    private int[] delayCursors = new int[INITIAL_CAPACITY];
+    private double[] delayLines = new double[INITIAL_CAPACITY];
+    private int delayLinesSize = 0;
+    private int size = 0;
+    private long stepCount = 0L;
+
+    private static final Logger logger = LoggerFactory.getLogger(PlantSimulator.class);
+
+    /**
+     * Initializes a plant simulator that steps on the shared scheduler.
+     * @param name Identifies the simulator in log messages and metrics
+     * @param stepPeriod The length of each simulation step, which is also how often a step is taken
+     * @param stepPeriodUnit The time units in which the step period is denominated
+     */
+    public PlantSimulator(final String name, final long stepPeriod, final TimeUnit stepPeriodUnit) {
+        this(name, stepPeriod, stepPeriodUnit, PeriodicExecutor.getSharedScheduler());
+    }
+
+    /**
+     * Initializes a plant simulator that steps on the provided scheduler, which should be the one its sensors and
+     * control loops run on.
+     */
+    public PlantSimulator(
+            final String name,
+            final long stepPeriod,
+            final TimeUnit stepPeriodUnit,
+            final Scheduler scheduler) {
+        if (stepPeriod <= 0L) {
+            final String failureMessage = "Cannot instantiate a PlantSimulator with a step period of " + stepPeriod
+                    + " " + stepPeriodUnit + "; it must be positive.";
+            logger.error(failureMessage);
+            throw new IllegalArgumentException(failureMessage);
+        }
+        this.name = name;
+        this.stepSeconds = stepPeriodUnit.toNanos(stepPeriod) / (double) TimeUnit.SECONDS.toNanos(1);
+        this.periodicExecutor = new PeriodicExecutor(
+                name,
+                stepPeriod,
+                stepPeriodUnit,
+                this::step,
+                ExecutionMode.SCHEDULER_THREAD,
+                scheduler);
+    }
+
+    /**
+     * Adds a process driven by the provided actuator.
+     * @return The measurement behaviour with which to build the sensor that measures the process
+     */
+    public synchronized ProcessMeasurement attach(final Actuator actuator, final ProcessModel processModel) {
+        final int deadTimeSteps = processModel.deadTimeSteps(stepSeconds);
+        if (size == actuators.length) {
+            grow();
+        }
+        while (delayLinesSize + deadTimeSteps > delayLines.length) {
+            delayLines = Arrays.copyOf(delayLines, delayLines.length * 2);
+        }
+        final double restingInput = actuator.getSignalValue();
+        final ProcessMeasurement processMeasurement = new ProcessMeasurement(processModel.initialOutput());
+        actuators[size] = actuator;
+        measurements[size] = processMeasurement;
+        stateCoefficients[size] = processModel.stateCoefficient(stepSeconds);
+        inputCoefficients[size] = processModel.inputCoefficient(stepSeconds);
+        restingInputs[size] = restingInput;
+        restingOutputs[size] = processModel.initialOutput();
+        deviations[size] = 0.0;
+        delayOffsets[size] = delayLinesSize;
+        delayLengths[size] = deadTimeSteps;
+        delayCursors[size] = 0;
+        Arrays.fill(delayLines, delayLinesSize, delayLinesSize + deadTimeSteps, restingInput);
+        delayLinesSize += deadTimeSteps;
+        size++;
+        logger.info("A {} process driven by {} was attached to {}", processModel.type(), actuator, this);
+        return processMeasurement;
+    }
+
+    public void start() {
+        periodicExecutor.start();
+    }
+
+    public void stop() {
+        periodicExecutor.stop();
+    }
+
+    /**
+     * Stops stepping if the simulator is running and removes the meters of its executor; it should not be started
+     * again afterwards.
+     */
+    public void release() {
+        periodicExecutor.release();
+    }
+
+    public boolean isRunning() {
+        return periodicExecutor.isExecuting();
+    }
+
+    /**
+     * @return How many processes are attached
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return How many steps have been taken
+     */
+    public synchronized long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Advances every process by one step: {@code deviations[i] = stateCoefficients[i] * deviations[i] +
+     * inputCoefficients[i] * (delayedInputs[i] - restingInputs[i])}.
+     */
+    static void advance(
+            final double[] deviations,
+            final double[] stateCoefficients,
+            final double[] inputCoefficients,
+            final double[] delayedInputs,
+            final double[] restingInputs,
+            final int length) {
+        for (int i = 0; i < length; i++) {
+            deviations[i] = stateCoefficients[i] * deviations[i]
+                    + inputCoefficients[i] * (delayedInputs[i] - restingInputs[i]);
+        }
+    }
+
+    /**
+     * Gathers the actuator outputs through the delay lines, advances every process, and publishes the process values.
+     */
+    synchronized void step() {
+        for (int i = 0; i < size; i++) {
+            final double input = actuators[i].getSignalValue();
+            final int delayLength = delayLengths[i];
+            if (delayLength == 0) {
+                delayedInputs[i] = input;
+                continue;
+            }
+            // The slot under the cursor holds the input from one dead time ago; replace it with the current one
+            final int slot = delayOffsets[i] + delayCursors[i];
+            delayedInputs[i] = delayLines[slot];
+            delayLines[slot] = input;
+            delayCursors[i] = delayCursors[i] + 1 == delayLength ? 0 : delayCursors[i] + 1;
+        }
+        advance(deviations, stateCoefficients, inputCoefficients, delayedInputs, restingInputs, size);
+        for (int i = 0; i < size; i++) {
+            measurements[i].publish(restingOutputs[i] + deviations[i]);
+        }
+        stepCount++;
+    }
+
+    private void grow() {
+        final int capacity = actuators.length * 2;
+        actuators = Arrays.copyOf(actuators, capacity);
+        measurements = Arrays.copyOf(measurements, capacity);
+        stateCoefficients = Arrays.copyOf(stateCoefficients, capacity);
+        inputCoefficients = Arrays.copyOf(inputCoefficients, capacity);
+        restingInputs = Arrays.copyOf(restingInputs, capacity);
+        restingOutputs = Arrays.copyOf(restingOutputs, capacity);
+        deviations = Arrays.copyOf(deviations, capacity);
+        delayedInputs = Arrays.copyOf(delayedInputs, capacity);
+        delayOffsets = Arrays.copyOf(delayOffsets, capacity);
+        delayLengths = Arrays.copyOf(delayLengths, capacity);
+        delayCursors = Arrays.copyOf(delayCursors, capacity);
+    }
+
+    @Override
+    public String toString() {
+        return "PlantSimulator " + name;
+    }
+}
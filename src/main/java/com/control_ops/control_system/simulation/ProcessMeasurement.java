@@ -0,0 +1,25 @@
+package com.control_ops.control_system.simulation;
+
+import com.control_ops.control_system.instrument.sensor.MeasurementBehaviour;
+
+/**
+ * Measures one process simulated by a {@link PlantSimulator}: each measurement returns the process value as of the
+ * simulator's latest step. Obtained from {@link PlantSimulator#attach}.
+ */
+public class ProcessMeasurement implements MeasurementBehaviour {
+    // Written by the simulator's executor and read by the sensor's, each of which may run on any scheduler thread
+    private volatile double processValue;
+
+    ProcessMeasurement(final double initialProcessValue) {
+        this.processValue = initialProcessValue;
+    }
+
+    @Override
+    public double takeMeasurement() {
+        return processValue;
+    }
+
+    void publish(final double newProcessValue) {
+        processValue = newProcessValue;
+    }
+}
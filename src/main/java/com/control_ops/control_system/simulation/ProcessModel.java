@@ -0,0 +1,96 @@
+package com.control_ops.control_system.simulation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Describes how a simulated process responds to its actuator.
+ * <br><br>
+ * A process starts at rest at its initial output with the actuator's output at the time it is attached to a
+ * {@link PlantSimulator}, and responds to changes of the actuator output from that value:
+ * <ul>
+ *     <li>A first-order-plus-dead-time process settles at {@code gain} times the change after a lag with the provided
+ *     time constant.</li>
+ *     <li>An integrating process (e.g. a tank level) ramps at {@code gain} times the change per second.</li>
+ * </ul>
+ * Both respond only after the dead time has elapsed.
+ * @param type The form of the process's response
+ * @param gain The steady-state gain, or the ramp rate per unit of actuator output for an integrating process
+ * @param timeConstantSeconds The lag of a first-order process; ignored for an integrating process
+ * @param deadTimeSeconds How long a change of the actuator output takes to begin affecting the process
+ * @param initialOutput The process value at rest
+ */
+public record ProcessModel(
+        Type type,
+        double gain,
+        double timeConstantSeconds,
+        double deadTimeSeconds,
+        double initialOutput) {
+
+    public enum Type {
+        FIRST_ORDER_PLUS_DEAD_TIME,
+        INTEGRATING
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessModel.class);
+
+    public ProcessModel {
+        if (!Double.isFinite(gain) || gain == 0.0) {
+            failInstantiation("Cannot instantiate a ProcessModel with a gain of " + gain + ".");
+        }
+        if (type == Type.FIRST_ORDER_PLUS_DEAD_TIME && !(timeConstantSeconds > 0.0)) {
+            failInstantiation("Cannot instantiate a first-order ProcessModel with a time constant of "
+                    + timeConstantSeconds + " s; it must be positive.");
+        }
+        if (!(deadTimeSeconds >= 0.0) || Double.isInfinite(deadTimeSeconds)) {
+            failInstantiation("Cannot instantiate a ProcessModel with a dead time of " + deadTimeSeconds + " s.");
+        }
+    }
+
+    public static ProcessModel firstOrderPlusDeadTime(
+            final double gain,
+            final double timeConstantSeconds,
+            final double deadTimeSeconds,
+            final double initialOutput) {
+        return new ProcessModel(
+                Type.FIRST_ORDER_PLUS_DEAD_TIME,
+                gain,
+                timeConstantSeconds,
+                deadTimeSeconds,
+                initialOutput);
+    }
+
+    public static ProcessModel integrating(
+            final double gain,
+            final double deadTimeSeconds,
+            final double initialOutput) {
+        return new ProcessModel(Type.INTEGRATING, gain, 0.0, deadTimeSeconds, initialOutput);
+    }
+
+    /**
+     * @return The factor by which the process's deviation from rest is multiplied on each step of the provided length
+     */
+    double stateCoefficient(final double stepSeconds) {
+        return type == Type.INTEGRATING ? 1.0 : Math.exp(-stepSeconds / timeConstantSeconds);
+    }
+
+    /**
+     * @return The change of the process's deviation from rest per unit of input held over one step of the provided
+     * length; the zero-order-hold discretization is exact for both process types
+     */
+    double inputCoefficient(final double stepSeconds) {
+        return type == Type.INTEGRATING ? gain * stepSeconds : gain * (1.0 - stateCoefficient(stepSeconds));
+    }
+
+    /**
+     * @return The dead time as a whole number of steps of the provided length
+     */
+    int deadTimeSteps(final double stepSeconds) {
+        return (int) Math.round(deadTimeSeconds / stepSeconds);
+    }
+
+    private static void failInstantiation(final String failureMessage) {
+        logger.error(failureMessage);
+        throw new IllegalArgumentException(failureMessage);
+    }
+}
@@ -0,0 +1,74 @@
+package com.control_ops.control_system.simulation;
+
+import com.control_ops.control_system.instrument.SampleListener;
+
+/**
+ * Follows the measurements of a controlled variable after a set point change, recording how long it takes to settle
+ * within a band around the set point and how far it overshoots.
+ * <br><br>
+ * The variable has settled once every measurement from some point onwards has been within the band; the settling time
+ * runs from the first measurement to that point. Subscribe the monitor to the sensor with
+ * {@link com.control_ops.control_system.instrument.sensor.Sensor#addSampleListener}; it does not allocate, and
+ * expects to be called by one thread at a time.
+ */
+public class SettlingMonitor implements SampleListener {
+    private final double setPoint;
+    private final double tolerance;
+
+    private volatile boolean hasSample = false;
+    private volatile long firstEpochNanos;
+    private volatile long settledEpochNanos;
+    private volatile boolean settled = false;
+    private volatile double overshoot = 0.0;
+    private double direction;
+
+    /**
+     * @param setPoint The value the controlled variable should settle at
+     * @param tolerance How far from the set point the controlled variable may be once it has settled
+     */
+    public SettlingMonitor(final double setPoint, final double tolerance) {
+        this.setPoint = setPoint;
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public void onSample(final double quantity, final long epochNanos) {
+        if (!hasSample) {
+            firstEpochNanos = epochNanos;
+            direction = Math.signum(setPoint - quantity);
+            hasSample = true;
+        }
+        final double excess = direction * (quantity - setPoint);
+        if (excess > overshoot) {
+            overshoot = excess;
+        }
+        if (Math.abs(quantity - setPoint) > tolerance) {
+            settled = false;
+        } else if (!settled) {
+            settledEpochNanos = epochNanos;
+            settled = true;
+        }
+    }
+
+    /**
+     * @return Whether the latest measurement, and every one since the variable last left the band, was within it
+     */
+    public boolean isSettled() {
+        return settled;
+    }
+
+    /**
+     * @return How long after the first measurement the variable entered the band for the last time, or -1 if it is not
+     * currently within the band
+     */
+    public long getSettlingNanos() {
+        return settled ? settledEpochNanos - firstEpochNanos : -1L;
+    }
+
+    /**
+     * @return The furthest the variable went past the set point, in the direction of the set point change
+     */
+    public double getOvershoot() {
+        return overshoot;
+    }
+}
@@ -0,0 +1,36 @@
+package com.control_ops.control_system.streaming;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publishes each frame as one AMQP message with correlated publisher confirms.
+ * <br><br>
+ * The connection factory must have correlated publisher confirms enabled
+ * ({@code spring.rabbitmq.publisher-confirm-type=correlated}); otherwise the broker never confirms a frame.
+ */
+class RabbitFramePublisher implements SignalStreamer.FramePublisher {
+    static final String CONTENT_TYPE = "application/vnd.control-ops.signal-frame";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final String exchange;
+
+    RabbitFramePublisher(final RabbitTemplate rabbitTemplate, final String exchange) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.exchange = exchange;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> publish(final String routingKey, final byte[] frame) {
+        final MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setContentType(CONTENT_TYPE);
+        messageProperties.setHeader("version", SignalFrame.VERSION);
+        final CorrelationData correlationData = new CorrelationData();
+        rabbitTemplate.send(exchange, routingKey, new Message(frame, messageProperties), correlationData);
+        return correlationData.getFuture().thenApply(CorrelationData.Confirm::isAck);
+    }
+}
@@ -0,0 +1,74 @@
+package com.control_ops.control_system.streaming;
+
+import com.control_ops.control_system.control_loop.ControlLoop;
+import com.control_ops.control_system.control_loop.ControlLoopRegistry;
+import com.control_ops.control_system.historian.SignalSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Applies set points received from a remote system to the control loops they are addressed to.
+ * <br><br>
+ * Each message is a {@link SignalFrame} of {@link SignalSource#SET_POINT} signals whose source id is the id of a
+ * registered control loop. A frame may carry several set points for one loop; only the last of them is applied, since
+ * the earlier ones would be overwritten before the loop next ticks. Messages that are not set point frames, and set
+ * points for loops that are not registered, are logged and discarded. Set points that are not finite numbers are
+ * discarded before they can reach a loop, and counted.
+ */
+public class SetPointListener implements MessageListener {
+    private final ControlLoopRegistry controlLoopRegistry;
+    private final LongAdder rejectedSetPointCount = new LongAdder();
+    private static final Logger logger = LoggerFactory.getLogger(SetPointListener.class);
+
+    public SetPointListener() {
+        this(ControlLoop.getControlLoopRegistry());
+    }
+
+    SetPointListener(final ControlLoopRegistry controlLoopRegistry) {
+        this.controlLoopRegistry = controlLoopRegistry;
+    }
+
+    @Override
+    public void onMessage(final Message message) {
+        final Map<Integer, Double> latestSetPoints = new LinkedHashMap<>();
+        try {
+            SignalFrame.decode(message.getBody(), (source, sourceId, quantity, unit, epochNanos) -> {
+                if (source != SignalSource.SET_POINT) {
+                    throw new IllegalArgumentException("Expected a frame of set points but received one of " + source);
+                }
+                if (!Double.isFinite(quantity)) {
+                    rejectedSetPointCount.increment();
+                    logger.warn("Discarded a set point of {} for control loop {}; it is not finite",
+                            quantity, sourceId);
+                    return;
+                }
+                latestSetPoints.put(sourceId, quantity);
+            });
+        } catch (final IllegalArgumentException e) {
+            logger.error("Discarded a set point message that could not be decoded", e);
+            return;
+        }
+        latestSetPoints.forEach((controlLoopId, setPoint) -> {
+            final ControlLoop controlLoop = controlLoopRegistry.getControlLoop(controlLoopId);
+            if (controlLoop == null) {
+                logger.warn("Discarded a set point of {} for control loop {}; it is not registered",
+                        setPoint, controlLoopId);
+                return;
+            }
+            controlLoop.updateSetPoint(setPoint);
+        });
+    }
+
+    /**
+     * @return How many received set points have been discarded because they were not finite numbers
+     */
+    public long getRejectedSetPointCount() {
+        return rejectedSetPointCount.sum();
+    }
+}
@@ -0,0 +1,122 @@
+package com.control_ops.control_system.streaming;
+
+import com.control_ops.control_system.historian.SignalJournal;
+import com.control_ops.control_system.historian.SignalSource;
+import com.control_ops.control_system.instrument.SignalUnit;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Packs many signals from instruments of one kind into a compact binary message body.
+ * <br><br>
+ * A frame is little-endian: an eight-byte header holding the format version, the source ordinal and the sample
+ * count, followed by one fixed-width sample per signal holding the source id, the unit ordinal, the epoch-nanosecond
+ * timestamp and the quantity. Appending copies these straight into a reused buffer, so filling a frame does not
+ * allocate; only {@link #toBytes()} does, once per frame.
+ * <br><br>
+ * Not thread-safe; the {@link SignalStreamer} guards the frames that are being filled.
+ */
+public final class SignalFrame {
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int SAMPLE_SIZE = 21;
+    private static final int SAMPLE_COUNT_OFFSET = 4;
+    private static final SignalSource[] SOURCES = SignalSource.values();
+    private static final SignalUnit[] UNITS = SignalUnit.values();
+
+    private final SignalSource source;
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private int size = 0;
+
+    /**
+     * @param source The kind of instrument whose signals the frame holds
+     * @param capacity The most signals the frame can hold
+     */
+    public SignalFrame(final SignalSource source, final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("A frame must hold at least one signal");
+        }
+        this.source = source;
+        this.capacity = capacity;
+        this.buffer = ByteBuffer.allocate(HEADER_SIZE + capacity * SAMPLE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        clear();
+    }
+
+    /**
+     * Appends a signal to the frame.
+     * @return Whether the frame is now full
+     */
+    public boolean append(final int sourceId, final double quantity, final SignalUnit unit, final long epochNanos) {
+        if (size == capacity) {
+            throw new IllegalStateException("The frame is full");
+        }
+        buffer.putInt(sourceId);
+        buffer.put((byte) unit.ordinal());
+        buffer.putLong(epochNanos);
+        buffer.putDouble(quantity);
+        size++;
+        return size == capacity;
+    }
+
+    /**
+     * @return A message body holding every signal appended since the frame was last cleared
+     */
+    public byte[] toBytes() {
+        buffer.putInt(SAMPLE_COUNT_OFFSET, size);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    public void clear() {
+        buffer.clear();
+        buffer.put(VERSION);
+        buffer.put((byte) source.ordinal());
+        buffer.putShort((short) 0);
+        buffer.putInt(0);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public SignalSource getSource() {
+        return source;
+    }
+
+    /**
+     * Reads back every signal in a message body produced by {@link #toBytes()}, in the order they were appended.
+     * @return How many signals were read
+     * @throws IllegalArgumentException If the body is not a frame of a version this class can read
+     */
+    public static int decode(final byte[] body, final SignalJournal.RecordHandler recordHandler) {
+        final ByteBuffer frame = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            final byte version = frame.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Cannot decode a frame of version " + version);
+            }
+            final SignalSource frameSource = SOURCES[frame.get()];
+            frame.getShort();
+            final int sampleCount = frame.getInt();
+            // Widened so that a corrupt count cannot wrap around to a length that matches the body
+            if (body.length != HEADER_SIZE + (long) sampleCount * SAMPLE_SIZE) {
+                throw new IllegalArgumentException("A frame of " + sampleCount + " signals cannot be "
+                        + body.length + " bytes long");
+            }
+            for (int i = 0; i < sampleCount; i++) {
+                final int sourceId = frame.getInt();
+                final SignalUnit unit = UNITS[frame.get()];
+                final long epochNanos = frame.getLong();
+                final double quantity = frame.getDouble();
+                recordHandler.onRecord(frameSource, sourceId, quantity, unit, epochNanos);
+            }
+            return sampleCount;
+        } catch (final BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("The message body is not a valid frame", e);
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package com.control_ops.control_system.streaming;
+
+import com.control_ops.control_system.ControlMetrics;
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.PeriodicExecutor;
+import com.control_ops.control_system.historian.SignalSource;
+import com.control_ops.control_system.instrument.SampleListener;
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import io.micrometer.core.instrument.Meter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Streams the signals of sensors and actuators to a message broker in binary {@link SignalFrame}s.
+ * <br><br>
+ * As in the {@link com.control_ops.control_system.historian.Historian}, signals are appended on the instrument's own
+ * thread and published by a background flush. Each signal is copied into the open frame for its kind of instrument
+ * without allocating; a frame is sealed when it fills or when the flush finds it partly filled. The flush publishes
+ * sealed frames with the source name ("sensor" or "actuator") as the routing key and never waits for the broker to
+ * confirm them: a negative or failed confirmation returns the frame to the head of the queue, so that it is published
+ * again before the frames sealed after it.
+ * <br><br>
+ * After a failure the flushes back off, publishing nothing until a delay that doubles with each consecutive failure
+ * has passed, so that a broker that is down is not retried on every flush. The queue of sealed frames is bounded;
+ * once it is full, the oldest frames are dropped to make room and counted, so an unreachable broker costs signals
+ * rather than memory. A frame returned for publication while the queue is full is itself the oldest, so it is the one
+ * dropped.
+ */
+@Service
+public class SignalStreamer implements AutoCloseable {
+    static final int DEFAULT_SAMPLES_PER_FRAME = 512;
+    static final long DEFAULT_FLUSH_PERIOD_MILLIS = 50L;
+    static final int DEFAULT_MAX_QUEUED_FRAMES = 1024;
+    private static final long MAX_RETRY_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5L);
+
+    private final FramePublisher framePublisher;
+    private final PeriodicExecutor flushExecutor;
+    private final long flushPeriodNanos;
+    // Guards flushes; a lock rather than a monitor so that a virtual thread blocked on the broker does not pin its
+    // carrier thread
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final SignalFrame sensorFrame;
+    private final SignalFrame actuatorFrame;
+    private final ReentrantLock sensorFrameLock = new ReentrantLock();
+    private final ReentrantLock actuatorFrameLock = new ReentrantLock();
+    private final BlockingDeque<SealedFrame> sealedFrames;
+    private final LongAdder receivedCount = new LongAdder();
+    private final LongAdder confirmedCount = new LongAdder();
+    private final LongAdder publishedFrameCount = new LongAdder();
+    private final LongAdder publishedByteCount = new LongAdder();
+    private final LongAdder nackedFrameCount = new LongAdder();
+    private final LongAdder droppedFrameCount = new LongAdder();
+    private final LongAdder droppedSignalCount = new LongAdder();
+    private final Meter droppedFrameMeter;
+    // The number of publications that have failed since the last confirmed one, and when the next may be attempted
+    private final AtomicInteger failureStreak = new AtomicInteger();
+    private volatile long retryNotBeforeNanos;
+    // Only accessed by flushes, while the flush lock is held
+    private long droppedFramesLogged = 0L;
+    private final Map<Sensor, SampleListener> sensorListeners = new ConcurrentHashMap<>();
+    private final Map<Actuator, SampleListener> actuatorListeners = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(SignalStreamer.class);
+
+    /**
+     * Publishes a frame and completes the returned future with whether the broker confirmed receiving it; it may
+     * instead complete exceptionally if the frame could not be sent.
+     */
+    @FunctionalInterface
+    interface FramePublisher {
+        CompletableFuture<Boolean> publish(final String routingKey, final byte[] frame);
+    }
+
+    private record SealedFrame(String routingKey, byte[] body, int sampleCount) {
+    }
+
+    @Autowired
+    public SignalStreamer(
+            final RabbitTemplate rabbitTemplate,
+            @Value("${control.streaming.exchange:" + SignalStreamingConfiguration.DEFAULT_EXCHANGE + "}")
+            final String exchange) {
+        this(
+                "signal streamer",
+                new RabbitFramePublisher(rabbitTemplate, exchange),
+                DEFAULT_SAMPLES_PER_FRAME,
+                DEFAULT_FLUSH_PERIOD_MILLIS,
+                DEFAULT_MAX_QUEUED_FRAMES);
+    }
+
+    /**
+     * @param name Identifies the streamer's flush executor and dropped frame meter, so it must differ from the names
+     *             of other streamers
+     */
+    SignalStreamer(
+            final String name,
+            final FramePublisher framePublisher,
+            final int samplesPerFrame,
+            final long flushPeriodMillis,
+            final int maxQueuedFrames) {
+        if (samplesPerFrame < 1) {
+            logger.error("Cannot create a signal streamer with {} samples per frame", samplesPerFrame);
+            throw new IllegalArgumentException("The samples per frame must be at least 1");
+        }
+        if (maxQueuedFrames < 1) {
+            logger.error("Cannot create a signal streamer that queues at most {} frames", maxQueuedFrames);
+            throw new IllegalArgumentException("The maximum number of queued frames must be at least 1");
+        }
+        this.framePublisher = framePublisher;
+        this.flushPeriodNanos = TimeUnit.MILLISECONDS.toNanos(flushPeriodMillis);
+        this.sealedFrames = new LinkedBlockingDeque<>(maxQueuedFrames);
+        this.droppedFrameMeter = ControlMetrics.counter(
+                "control.streaming.dropped.frames",
+                "Frames dropped, oldest first, because too many were awaiting publication",
+                "streamer",
+                name,
+                droppedFrameCount);
+        this.sensorFrame = new SignalFrame(SignalSource.SENSOR, samplesPerFrame);
+        this.actuatorFrame = new SignalFrame(SignalSource.ACTUATOR, samplesPerFrame);
+        this.flushExecutor = new PeriodicExecutor(
+                name,
+                flushPeriodMillis,
+                TimeUnit.MILLISECONDS,
+                this::flush,
+                ExecutionMode.VIRTUAL_THREAD);
+        this.flushExecutor.start();
+    }
+
+    /**
+     * Begins streaming every measurement taken by the provided sensor, without allocating on its sampling thread.
+     */
+    public void stream(final Sensor sensor) {
+        final int sensorId = sensor.getId();
+        final SignalUnit unit = sensor.getSignalUnit();
+        final SampleListener listener = (quantity, epochNanos) ->
+                append(sensorFrame, sensorFrameLock, sensorId, quantity, unit, epochNanos);
+        if (sensorListeners.putIfAbsent(sensor, listener) != null) {
+            logger.warn("Cannot stream {}; it is already being streamed", sensor);
+            return;
+        }
+        sensor.addSampleListener(listener);
+    }
+
+    /**
+     * Begins streaming every adjustment made to the provided actuator, without allocating on the adjusting thread.
+     */
+    public void stream(final Actuator actuator) {
+        final int actuatorId = actuator.getId();
+        final SampleListener listener = (quantity, epochNanos) ->
+                append(actuatorFrame, actuatorFrameLock, actuatorId, quantity, SignalUnit.PERCENTAGE, epochNanos);
+        if (actuatorListeners.putIfAbsent(actuator, listener) != null) {
+            logger.warn("Cannot stream {}; it is already being streamed", actuator);
+            return;
+        }
+        actuator.addSampleListener(listener);
+    }
+
+    public void stopStreaming(final Sensor sensor) {
+        final SampleListener listener = sensorListeners.remove(sensor);
+        if (listener == null) {
+            logger.warn("Cannot stop streaming {}; it is not being streamed", sensor);
+            return;
+        }
+        sensor.removeSampleListener(listener);
+    }
+
+    public void stopStreaming(final Actuator actuator) {
+        final SampleListener listener = actuatorListeners.remove(actuator);
+        if (listener == null) {
+            logger.warn("Cannot stop streaming {}; it is not being streamed", actuator);
+            return;
+        }
+        actuator.removeSampleListener(listener);
+    }
+
+    /**
+     * @return How many signals have been received but neither confirmed by the broker nor dropped
+     */
+    public long getUnconfirmedCount() {
+        return receivedCount.sum() - confirmedCount.sum() - droppedSignalCount.sum();
+    }
+
+    /**
+     * @return How many signals the broker has confirmed since the streamer was created
+     */
+    public long getConfirmedCount() {
+        return confirmedCount.sum();
+    }
+
+    /**
+     * @return How many frames have been published, including frames published again after a failed confirmation
+     */
+    public long getPublishedFrameCount() {
+        return publishedFrameCount.sum();
+    }
+
+    /**
+     * @return How many bytes of frame bodies have been published
+     */
+    public long getPublishedByteCount() {
+        return publishedByteCount.sum();
+    }
+
+    /**
+     * @return How many published frames the broker failed to confirm
+     */
+    public long getNackedFrameCount() {
+        return nackedFrameCount.sum();
+    }
+
+    /**
+     * @return How many frames were dropped because the queue of frames awaiting publication was full
+     */
+    public long getDroppedFrameCount() {
+        return droppedFrameCount.sum();
+    }
+
+    /**
+     * @return How many signals were dropped in those frames
+     */
+    public long getDroppedSignalCount() {
+        return droppedSignalCount.sum();
+    }
+
+    /**
+     * Stops streaming all instruments and publishes every buffered signal before returning, whether or not the
+     * flushes are backing off; confirmations that arrive after the streamer is closed are counted but failed frames
+     * are not published again.
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        sensorListeners.forEach((sensor, listener) -> sensor.removeSampleListener(listener));
+        sensorListeners.clear();
+        actuatorListeners.forEach((actuator, listener) -> actuator.removeSampleListener(listener));
+        actuatorListeners.clear();
+        flushExecutor.release();
+        flush(true);
+        ControlMetrics.remove(droppedFrameMeter);
+    }
+
+    private void append(
+            final SignalFrame frame,
+            final ReentrantLock frameLock,
+            final int sourceId,
+            final double quantity,
+            final SignalUnit unit,
+            final long epochNanos) {
+        receivedCount.increment();
+        frameLock.lock();
+        try {
+            if (frame.append(sourceId, quantity, unit, epochNanos)) {
+                seal(frame);
+            }
+        } finally {
+            frameLock.unlock();
+        }
+    }
+
+    /**
+     * Moves the contents of a frame to the queue of frames awaiting publication; the frame's lock must be held.
+     */
+    private void seal(final SignalFrame frame) {
+        enqueue(new SealedFrame(
+                frame.getSource().name().toLowerCase(Locale.ROOT),
+                frame.toBytes(),
+                frame.size()));
+        frame.clear();
+    }
+
+    /**
+     * Queues a frame for publication, dropping the oldest queued frames if the queue is full. Drops are only counted
+     * here, as this may run on an instrument's thread; the next flush logs them.
+     */
+    private void enqueue(final SealedFrame sealedFrame) {
+        while (!sealedFrames.offerLast(sealedFrame)) {
+            final SealedFrame droppedFrame = sealedFrames.pollFirst();
+            if (droppedFrame != null) {
+                drop(droppedFrame);
+            }
+        }
+    }
+
+    /**
+     * Returns a frame that could not be published to the head of the queue, or drops it if the queue is full, since
+     * it is older than every queued frame.
+     */
+    private void requeue(final SealedFrame sealedFrame) {
+        if (!sealedFrames.offerFirst(sealedFrame)) {
+            drop(sealedFrame);
+        }
+    }
+
+    private void drop(final SealedFrame sealedFrame) {
+        droppedFrameCount.increment();
+        droppedSignalCount.add(sealedFrame.sampleCount());
+    }
+
+    private void sealPartial(final SignalFrame frame, final ReentrantLock frameLock) {
+        frameLock.lock();
+        try {
+            if (frame.size() > 0) {
+                seal(frame);
+            }
+        } finally {
+            frameLock.unlock();
+        }
+    }
+
+    private void flush() {
+        flush(false);
+    }
+
+    /**
+     * Seals the partly filled frames and publishes every sealed frame, including those returned after a failed
+     * confirmation, unless the flushes are backing off after a failure.
+     * @param ignoreBackoff Whether to publish even while backing off
+     */
+    private void flush(final boolean ignoreBackoff) {
+        flushLock.lock();
+        try {
+            sealPartial(sensorFrame, sensorFrameLock);
+            sealPartial(actuatorFrame, actuatorFrameLock);
+            final long droppedFrames = droppedFrameCount.sum();
+            if (droppedFrames > droppedFramesLogged) {
+                logger.warn("Dropped {} frames because too many were awaiting publication; {} signals were lost",
+                        droppedFrames - droppedFramesLogged,
+                        droppedSignalCount.sum());
+                droppedFramesLogged = droppedFrames;
+            }
+            // Stops as soon as a confirmation fails, so that the frames it returns to the queue wait for the next flush
+            for (int i = sealedFrames.size(); i > 0; i--) {
+                if (!ignoreBackoff && failureStreak.get() > 0 && System.nanoTime() - retryNotBeforeNanos < 0L) {
+                    return;
+                }
+                final SealedFrame sealedFrame = sealedFrames.pollFirst();
+                if (sealedFrame == null || !publish(sealedFrame)) {
+                    return;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Delays the next publication by the flush period, doubled for every consecutive failure up to a limit.
+     */
+    private void backOff() {
+        final int failures = failureStreak.incrementAndGet();
+        final long backoffNanos = Math.min(flushPeriodNanos << Math.min(failures, 20), MAX_RETRY_BACKOFF_NANOS);
+        retryNotBeforeNanos = System.nanoTime() + backoffNanos;
+    }
+
+    /**
+     * @return Whether the frame was sent; if not, it has been returned to the queue and the flushes are backing off
+     */
+    private boolean publish(final SealedFrame sealedFrame) {
+        final CompletableFuture<Boolean> confirmation;
+        try {
+            confirmation = framePublisher.publish(sealedFrame.routingKey(), sealedFrame.body());
+        } catch (final RuntimeException e) {
+            logger.error("Failed to publish a frame of {} signals; it will be retried", sealedFrame.sampleCount(), e);
+            backOff();
+            requeue(sealedFrame);
+            return false;
+        }
+        publishedFrameCount.increment();
+        publishedByteCount.add(sealedFrame.body().length);
+        confirmation.whenComplete((isAck, throwable) -> {
+            if (throwable == null && isAck) {
+                confirmedCount.add(sealedFrame.sampleCount());
+                failureStreak.set(0);
+                return;
+            }
+            nackedFrameCount.increment();
+            if (flushExecutor.isExecuting()) {
+                logger.warn("The broker did not confirm a frame of {} signals; it will be retried",
+                        sealedFrame.sampleCount(), throwable);
+                backOff();
+                requeue(sealedFrame);
+            } else {
+                logger.error("The broker did not confirm a frame of {} signals after the streamer was closed",
+                        sealedFrame.sampleCount(), throwable);
+            }
+        });
+        return true;
+    }
+}
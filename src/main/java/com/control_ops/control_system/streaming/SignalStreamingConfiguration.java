@@ -0,0 +1,59 @@
+package com.control_ops.control_system.streaming;
+
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Declares the exchange that signals are streamed to and, if {@code control.streaming.set-point-queue} is set, a
+ * queue bound to it from which remote set points are applied.
+ * <br><br>
+ * The declarations are made when the first connection to the broker is opened, so an application that streams nothing
+ * never connects.
+ */
+@Configuration
+public class SignalStreamingConfiguration {
+    static final String DEFAULT_EXCHANGE = "control.signals";
+    static final String SET_POINT_ROUTING_KEY = "set_point";
+    private static final String SET_POINT_QUEUE_PROPERTY = "control.streaming.set-point-queue";
+
+    @Bean
+    public TopicExchange signalExchange(
+            @Value("${control.streaming.exchange:" + DEFAULT_EXCHANGE + "}") final String exchange) {
+        return new TopicExchange(exchange);
+    }
+
+    @Bean
+    @ConditionalOnProperty(SET_POINT_QUEUE_PROPERTY)
+    public Queue setPointQueue(@Value("${" + SET_POINT_QUEUE_PROPERTY + "}") final String queue) {
+        return new Queue(queue);
+    }
+
+    @Bean
+    @ConditionalOnProperty(SET_POINT_QUEUE_PROPERTY)
+    public Binding setPointBinding(final Queue setPointQueue, final TopicExchange signalExchange) {
+        return BindingBuilder.bind(setPointQueue).to(signalExchange).with(SET_POINT_ROUTING_KEY);
+    }
+
+    /**
+     * Consumes set points on a single thread, so that each loop's set points are applied in the order they were sent.
+     */
+    @Bean
+    @ConditionalOnProperty(SET_POINT_QUEUE_PROPERTY)
+    public SimpleMessageListenerContainer setPointListenerContainer(
+            final ConnectionFactory connectionFactory,
+            final Queue setPointQueue) {
+        final SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueues(setPointQueue);
+        container.setConcurrentConsumers(1);
+        container.setMessageListener(new SetPointListener());
+        return container;
+    }
+}
@@ -0,0 +1,150 @@
+package com.control_ops.control_system;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ControlMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        Metrics.addRegistry(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Metrics.removeRegistry(meterRegistry);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    @Test
+    void testLatencyHistogramMeters() {
+        final LatencyHistogram latencyHistogram = ControlMetrics.latencyHistogram(
+                "control.metrics.test", "Test histogram", "test", "meters");
+        for (long i = 1; i <= 1000; i++) {
+            latencyHistogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+
+        assertThat(meterRegistry.get("control.metrics.test").tag("test", "meters").functionTimer().count())
+                .isEqualTo(1000.0);
+        assertThat(meterRegistry.get("control.metrics.test.max").tag("test", "meters").gauge().value())
+                .isCloseTo(1_000_000.0, within(10_000.0));
+        assertThat(meterRegistry.get("control.metrics.test.percentile").tag("phi", "0.99").gauge().value())
+                .isCloseTo(990_000.0, within(10_000.0));
+
+        // Values outside the histogram's range are clamped rather than rejected
+        latencyHistogram.record(-1L);
+        latencyHistogram.record(TimeUnit.HOURS.toNanos(1));
+        assertThat(latencyHistogram.getCount()).isEqualTo(1002L);
+    }
+
+    @Test
+    void testDisabledWithoutRegistry() {
+        Metrics.removeRegistry(meterRegistry);
+        final LatencyHistogram latencyHistogram = ControlMetrics.latencyHistogram(
+                "control.metrics.test", "Test histogram", "test", "disabled");
+        latencyHistogram.record(1000L);
+        assertThat(latencyHistogram.getCount()).isZero();
+    }
+
+    @Test
+    void testCounter() {
+        final LongAdder counter = ControlMetrics.counter("control.metrics.test.counter", "Test counter", "test", "counter");
+        counter.add(3L);
+        assertThat(meterRegistry.get("control.metrics.test.counter").functionCounter().count()).isEqualTo(3.0);
+    }
+
+    @Test
+    void testCounterWithoutRegistry() {
+        Metrics.removeRegistry(meterRegistry);
+        final LongAdder counter = new LongAdder();
+        final Meter counterMeter = ControlMetrics.counter(
+                "control.metrics.test.counter", "Test counter", "test", "unregistered", counter);
+        counter.increment();
+        assertThat(counterMeter).isNull();
+        assertThat(counter.sum()).isEqualTo(1L);
+        assertThat(Metrics.globalRegistry.find("control.metrics.test.counter").tag("test", "unregistered").meters())
+                .isEmpty();
+        // Removing a meter that was never registered does nothing
+        ControlMetrics.remove(counterMeter);
+    }
+
+    /**
+     * Tests that registering an id again reports the new object rather than the one it replaces, and that released
+     * meters are removed.
+     */
+    @Test
+    void testReregistration() {
+        final LatencyHistogram replacedHistogram = ControlMetrics.latencyHistogram(
+                "control.metrics.test", "Test histogram", "test", "reregistration");
+        replacedHistogram.record(1000L);
+        final LatencyHistogram latencyHistogram = ControlMetrics.latencyHistogram(
+                "control.metrics.test", "Test histogram", "test", "reregistration");
+        latencyHistogram.record(1000L);
+        latencyHistogram.record(2000L);
+        assertThat(meterRegistry.get("control.metrics.test").tag("test", "reregistration").functionTimer().count())
+                .isEqualTo(2.0);
+
+        final LongAdder replacedCounter = ControlMetrics.counter(
+                "control.metrics.test.counter", "Test counter", "test", "reregistration");
+        replacedCounter.add(5L);
+        final LongAdder counter = new LongAdder();
+        final Meter counterMeter = ControlMetrics.counter(
+                "control.metrics.test.counter", "Test counter", "test", "reregistration", counter);
+        counter.add(3L);
+        assertThat(meterRegistry.get("control.metrics.test.counter").tag("test", "reregistration").functionCounter()
+                .count()).isEqualTo(3.0);
+
+        // Removing a replaced histogram's meters leaves its replacement's in place
+        replacedHistogram.deregister();
+        assertThat(meterRegistry.find("control.metrics.test").tag("test", "reregistration").functionTimer())
+                .isNotNull();
+        latencyHistogram.deregister();
+        ControlMetrics.remove(counterMeter);
+        assertThat(meterRegistry.find("control.metrics.test").tag("test", "reregistration").meters()).isEmpty();
+        assertThat(meterRegistry.find("control.metrics.test.max").tag("test", "reregistration").meters()).isEmpty();
+        assertThat(meterRegistry.find("control.metrics.test.percentile").tag("test", "reregistration").meters())
+                .isEmpty();
+        assertThat(meterRegistry.find("control.metrics.test.counter").tag("test", "reregistration").meters())
+                .isEmpty();
+    }
+
+    /**
+     * Tests that recording a duration does not allocate, so that the instrumentation cannot cause garbage collection
+     * pauses on the control path.
+     */
+    @Test
+    void testRecordingIsAllocationFree() {
+        final LatencyHistogram latencyHistogram = ControlMetrics.latencyHistogram(
+                "control.metrics.test", "Test histogram", "test", "allocation");
+        final int numRecordings = 1_000_000;
+        for (int i = 0; i < numRecordings; i++) {
+            latencyHistogram.record(i % 10_000_000L);
+        }
+
+        final long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < numRecordings; i++) {
+            latencyHistogram.record(i % 10_000_000L);
+        }
+        final long allocatedDuringRecording = allocatedBytes() - allocatedBefore;
+
+        assertThat(latencyHistogram.getCount()).isEqualTo(2L * numRecordings);
+        // Leaves room for the few bytes that reading the allocation counter itself can allocate
+        assertThat(allocatedDuringRecording).isLessThan(1024L);
+    }
+}
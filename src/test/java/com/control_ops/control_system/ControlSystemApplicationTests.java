@@ -5,7 +5,9 @@ import org.springframework.boot.test.context.SpringBootTest;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@SpringBootTest
+// The application context outlives this test; keeping its meter registry out of the global registry stops every
+// instrument created by later tests from recording metrics
+@SpringBootTest(properties = "management.metrics.use-global-registry=false")
 class ControlSystemApplicationTests {
 
 	@Test
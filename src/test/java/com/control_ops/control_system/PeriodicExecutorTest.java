@@ -1,74 +1,176 @@
 package com.control_ops.control_system;
 
-import org.awaitility.core.ConditionTimeoutException;
+import com.control_ops.control_system.instrument.EpochNanoClock;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
 import java.time.Duration;
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.awaitility.Awaitility.await;
 
 public class PeriodicExecutorTest {
 
     private final List<ZonedDateTime> executionTimes = new ArrayList<>();
+    // Tests of scheduling behaviour run on a virtual clock so that they are fast and exact; only the tests of
+    // threading and wall-clock accuracy use the real scheduler
+    private final VirtualScheduler virtualScheduler = new VirtualScheduler(EpochNanoClock.now());
 
     private PeriodicExecutor makeDefaultPeriodicExecutor() {
+        return makeVirtualPeriodicExecutor(50);
+    }
+
+    private PeriodicExecutor makeVirtualPeriodicExecutor(final long executionPeriodMs) {
         return new PeriodicExecutor(
                 "scheduler",
-                50,
+                executionPeriodMs,
                 TimeUnit.MILLISECONDS,
-                this::addExecutionTime);
+                () -> executionTimes.add(EpochNanoClock.toZonedDateTime(virtualScheduler.now())),
+                ExecutionMode.SCHEDULER_THREAD,
+                virtualScheduler);
+    }
+
+    private void advanceMillis(final long durationMs) {
+        virtualScheduler.advanceBy(durationMs, TimeUnit.MILLISECONDS);
     }
 
     @Test
     void testStart() {
         final PeriodicExecutor periodicExecutor = makeDefaultPeriodicExecutor();
+        advanceMillis(200);
+        assertThat(executionTimes).isEmpty();
         periodicExecutor.start();
-        final int numExecutions = 5;
-        waitForExecutions(numExecutions, 2000);
-        assertThat(executionTimes).hasSizeGreaterThanOrEqualTo(numExecutions);
+        // Executions at 0, 50, 100, 150 and 200 ms
+        advanceMillis(200);
+        assertThat(executionTimes).hasSize(5);
     }
 
     @Test
     void testStop() {
         final PeriodicExecutor periodicExecutor = makeDefaultPeriodicExecutor();
         periodicExecutor.start();
-        waitForExecutions(1, 2000);
+        advanceMillis(50);
         periodicExecutor.stop();
-        assertThatExceptionOfType(ConditionTimeoutException.class).isThrownBy(() -> waitForExecutions(1, 300));
+        advanceMillis(300);
+        assertThat(executionTimes).hasSize(2);
     }
 
     @Test
     void testMultipleStartsAndStops() {
         final PeriodicExecutor periodicExecutor = makeDefaultPeriodicExecutor();
 
-        final int waitDurationMs = 200;
         int previousSize = 0;
+        for (int i = 0; i < 3; i++) {
+            periodicExecutor.start();
+            advanceMillis(100);
+            assertThat(executionTimes).hasSize(previousSize + 3);
+            periodicExecutor.stop();
+            advanceMillis(100);
+            previousSize = executionTimes.size();
+        }
+        assertThat(executionTimes).hasSize(9);
+    }
 
-        periodicExecutor.start();
-        waitForExecutions(1, waitDurationMs);
-        assertThat(executionTimes).hasSizeGreaterThan(previousSize);
-        periodicExecutor.stop();
-        previousSize = executionTimes.size();
+    /**
+     * Tests that the timing reported by the scheduler for each execution, including the deadlines coalesced into an
+     * overrunning one, is published through the executor's meters; the timing itself is exercised in
+     * TickSchedulerTest, so it is reported here by a scheduler that the test ticks by hand.
+     */
+    @Test
+    void testMetrics() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Metrics.addRegistry(meterRegistry);
+        try {
+            final ManualScheduler manualScheduler = new ManualScheduler();
+            final PeriodicExecutor periodicExecutor = new PeriodicExecutor(
+                    "metrics-test",
+                    10,
+                    TimeUnit.MILLISECONDS,
+                    () -> executionTimes.add(ZonedDateTime.now()),
+                    ExecutionMode.SCHEDULER_THREAD,
+                    manualScheduler);
+            periodicExecutor.start();
+            for (int i = 0; i < 9; i++) {
+                manualScheduler.tick(TimeUnit.MICROSECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(1), 0L);
+            }
+            // An execution that overran the 10 ms period, so that the next two deadlines passed during it
+            manualScheduler.tick(TimeUnit.MICROSECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(32), 2L);
+            periodicExecutor.stop();
 
-        periodicExecutor.start();
-        waitForExecutions(1, waitDurationMs);
-        assertThat(executionTimes).hasSizeGreaterThan(previousSize);
-        periodicExecutor.stop();
-        previousSize = executionTimes.size();
+            assertThat(executionTimes).hasSize(10);
+            assertThat(meterRegistry.get("control.executor.lateness")
+                    .tag("executor", "metrics-test")
+                    .functionTimer()
+                    .count()).isEqualTo(10.0);
+            assertThat(meterRegistry.get("control.executor.execution.max")
+                    .tag("executor", "metrics-test")
+                    .gauge()
+                    .value()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(32));
+            assertThat(meterRegistry.get("control.executor.missed.ticks")
+                    .tag("executor", "metrics-test")
+                    .functionCounter()
+                    .count()).isEqualTo(2.0);
+
+            periodicExecutor.release();
+            assertThat(meterRegistry.find("control.executor.missed.ticks").tag("executor", "metrics-test").meters())
+                    .isEmpty();
+        } finally {
+            Metrics.removeRegistry(meterRegistry);
+        }
+    }
+
+    /**
+     * Runs its one task, and reports the provided timing for it, only when the test ticks it.
+     */
+    private static final class ManualScheduler implements Scheduler {
+        private Runnable task;
+        private TickScheduler.TickListener tickListener;
 
+        @Override
+        public TickScheduler.ScheduledTick scheduleAtFixedRate(
+                final Runnable task,
+                final long initialDelay,
+                final long period,
+                final TimeUnit unit,
+                final ExecutionMode executionMode,
+                final TickScheduler.TickListener tickListener) {
+            this.task = task;
+            this.tickListener = tickListener;
+            return () -> this.task = null;
+        }
+
+        @Override
+        public long now() {
+            return EpochNanoClock.now();
+        }
+
+        private void tick(final long latenessNanos, final long executionNanos, final long missedTicks) {
+            task.run();
+            tickListener.onTick(latenessNanos, executionNanos, missedTicks);
+        }
+    }
+
+    @Test
+    void testVirtualThreadExecutionMode() {
+        final List<Boolean> executedOnVirtualThread = new CopyOnWriteArrayList<>();
+        final PeriodicExecutor periodicExecutor = new PeriodicExecutor(
+                "virtual thread executor",
+                10,
+                TimeUnit.MILLISECONDS,
+                () -> executedOnVirtualThread.add(Thread.currentThread().isVirtual()),
+                ExecutionMode.VIRTUAL_THREAD);
         periodicExecutor.start();
-        waitForExecutions(1, waitDurationMs);
-        assertThat(executionTimes).hasSizeGreaterThan(previousSize);
+        await().atMost(1, TimeUnit.SECONDS).until(() -> executedOnVirtualThread.size() >= 5);
         periodicExecutor.stop();
+        assertThat(executedOnVirtualThread).containsOnly(true);
     }
 
     @ParameterizedTest
@@ -78,22 +180,16 @@ public class PeriodicExecutorTest {
             "1000, 5"
     })
     void testExecutionSequence(final long executionPeriodMs, final int numExecutions) {
-        final PeriodicExecutor periodicExecutor = new PeriodicExecutor(
-                "test periodic executor",
-                executionPeriodMs,
-                TimeUnit.MILLISECONDS,
-                this::addExecutionTime);
+        final PeriodicExecutor periodicExecutor = makeVirtualPeriodicExecutor(executionPeriodMs);
         periodicExecutor.start();
-        waitForExecutions(numExecutions, (numExecutions + 2)*executionPeriodMs);
+        advanceMillis((numExecutions - 1) * executionPeriodMs);
         periodicExecutor.stop();
+        assertThat(executionTimes).hasSize(numExecutions);
         assertExecutionSequence(executionTimes);
     }
 
     /**
-     * Tests that the actual time interval between executions matches the Scheduler's execution period.
-     * <br><br>
-     * The actual execution period depends on non-deterministic threading behaviour; the error is therefore calculated
-     * over a number of executions and compared to a threshold to smooth out the results.
+     * Tests that the interval between executions on a virtual clock is exactly the execution period.
      */
     @ParameterizedTest
     @CsvSource({
@@ -102,25 +198,38 @@ public class PeriodicExecutorTest {
             "1000, 10"
     })
     void testExecutionPeriod(final long executionPeriodMs, final long numExecutions) {
+        final PeriodicExecutor periodicExecutor = makeVirtualPeriodicExecutor(executionPeriodMs);
+        periodicExecutor.start();
+        advanceMillis((numExecutions - 1) * executionPeriodMs);
+        periodicExecutor.stop();
+
+        assertThat(executionTimes).hasSize((int) numExecutions);
+        assertExecutionPeriod(executionTimes, executionPeriodMs, TimeUnit.MILLISECONDS, 0.0);
+    }
+
+    /**
+     * Tests that the actual time interval between executions on the real scheduler matches the execution period.
+     * <br><br>
+     * The actual execution period depends on non-deterministic threading behaviour; the error is therefore calculated
+     * over a number of executions and compared to a threshold to smooth out the results.
+     */
+    @Test
+    void testWallClockExecutionPeriod() {
+        final long executionPeriodMs = 100;
+        final int numExecutions = 25;
+        final List<ZonedDateTime> wallClockExecutionTimes = new CopyOnWriteArrayList<>();
         final PeriodicExecutor periodicExecutor = new PeriodicExecutor(
                 "scheduler",
                 executionPeriodMs,
                 TimeUnit.MILLISECONDS,
-                this::addExecutionTime);
+                () -> wallClockExecutionTimes.add(EpochNanoClock.toZonedDateTime(EpochNanoClock.now())));
         periodicExecutor.start();
-        waitForExecutions(numExecutions, (numExecutions + 2)*executionPeriodMs);
+        await().atMost((numExecutions + 2) * executionPeriodMs, TimeUnit.MILLISECONDS)
+                .until(() -> wallClockExecutionTimes.size() >= numExecutions);
         periodicExecutor.stop();
 
-        assertExecutionPeriod(executionTimes, executionPeriodMs, TimeUnit.MILLISECONDS, 0.01);
-    }
-
-    private void waitForExecutions(final long numExecutions, final long maxWaitDurationMs) {
-        final long initialExecutions = executionTimes.size();
-        await().atMost(maxWaitDurationMs, TimeUnit.MILLISECONDS).until(() -> executionTimes.size() - initialExecutions >= numExecutions);
-    }
-
-    private void addExecutionTime() {
-        executionTimes.add(ZonedDateTime.now(ZoneId.of("UTC")));
+        assertExecutionPeriod(
+                new ArrayList<>(wallClockExecutionTimes), executionPeriodMs, TimeUnit.MILLISECONDS, 0.01);
     }
 
     /**
@@ -0,0 +1,30 @@
+package com.control_ops.control_system;
+
+import com.control_ops.control_system.control_loop.ControlLoop;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Allocates the ids of the sensors, actuators, control loops and graphs that a test creates, and deregisters every
+ * control loop after each test, so that tests never collide in the shared control loop registry however they are
+ * ordered. Register it in a test class with {@code @RegisterExtension final TestIds ids = new TestIds();}.
+ * <br><br>
+ * Ids are unique across every test class in the run, and start above the ids that older tests number by hand.
+ */
+public final class TestIds implements AfterEachCallback {
+    private static final AtomicInteger nextId = new AtomicInteger(10_000_000);
+
+    /**
+     * @return An id that no other test has been given
+     */
+    public int next() {
+        return nextId.getAndIncrement();
+    }
+
+    @Override
+    public void afterEach(final ExtensionContext context) {
+        ControlLoop.getControlLoopRegistry().deregisterAll();
+    }
+}
@@ -0,0 +1,188 @@
+package com.control_ops.control_system;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.awaitility.Awaitility.await;
+
+class TickSchedulerTest {
+
+    private static final int NUM_WORKERS = 4;
+    private final TickScheduler tickScheduler = new TickScheduler(
+            "tick-scheduler-test",
+            NUM_WORKERS,
+            TimeUnit.MILLISECONDS.toNanos(1),
+            512);
+
+    private static final Logger logger = LoggerFactory.getLogger(TickSchedulerTest.class);
+
+    @AfterEach
+    void tearDown() {
+        tickScheduler.shutdown();
+    }
+
+    @Test
+    void testInstantiation() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(
+                () -> new TickScheduler("invalid", 0, 1L, 1));
+    }
+
+    @Test
+    void testScheduleAtFixedRate() {
+        final AtomicInteger executions = new AtomicInteger();
+        tickScheduler.scheduleAtFixedRate(executions::incrementAndGet, 0L, 10L, TimeUnit.MILLISECONDS);
+        await().atMost(1, TimeUnit.SECONDS).until(() -> executions.get() >= 10);
+    }
+
+    @Test
+    void testPeriodLongerThanWheel() {
+        // A 1 s period spans almost two revolutions of a 512-slot, 1 ms wheel. The wheel's ticks are counted by a task
+        // that runs on every one of them, including the ticks it missed, so the check does not depend on how promptly
+        // the workers ran either task.
+        final AtomicLong tickCount = new AtomicLong();
+        tickScheduler.scheduleAtFixedRate(
+                () -> {},
+                0L,
+                1L,
+                TimeUnit.MILLISECONDS,
+                ExecutionMode.SCHEDULER_THREAD,
+                (latenessNanos, executionNanos, missedTicks) -> tickCount.addAndGet(1L + missedTicks));
+        final ConcurrentLinkedQueue<Long> executionTicks = new ConcurrentLinkedQueue<>();
+        tickScheduler.scheduleAtFixedRate(
+                () -> executionTicks.add(tickCount.get()), 0L, 1000L, TimeUnit.MILLISECONDS);
+        await().atMost(3, TimeUnit.SECONDS).until(() -> executionTicks.size() >= 3);
+        final List<Long> orderedTicks = new ArrayList<>(executionTicks);
+        assertThat(orderedTicks.get(1) - orderedTicks.getFirst()).isBetween(990L, 1010L);
+        assertThat(orderedTicks.get(2) - orderedTicks.get(1)).isBetween(990L, 1010L);
+    }
+
+    @Test
+    void testCancel() {
+        final AtomicInteger executions = new AtomicInteger();
+        final TickScheduler.ScheduledTick scheduledTick = tickScheduler.scheduleAtFixedRate(
+                executions::incrementAndGet, 0L, 10L, TimeUnit.MILLISECONDS);
+        await().atMost(1, TimeUnit.SECONDS).until(() -> executions.get() >= 1);
+        scheduledTick.cancel();
+        // Allow an execution that was already running when the task was cancelled to finish
+        await().pollDelay(20L, TimeUnit.MILLISECONDS).until(() -> true);
+        final int executionsAfterCancel = executions.get();
+        await().during(200L, TimeUnit.MILLISECONDS).until(() -> executions.get() == executionsAfterCancel);
+    }
+
+    /**
+     * Tests that a task whose executions overrun its period is never run on two workers at once.
+     */
+    @Test
+    void testNoConcurrentExecutions() {
+        final AtomicBoolean isRunning = new AtomicBoolean(false);
+        final AtomicBoolean overlapDetected = new AtomicBoolean(false);
+        final AtomicInteger executions = new AtomicInteger();
+        tickScheduler.scheduleAtFixedRate(() -> {
+            if (!isRunning.compareAndSet(false, true)) {
+                overlapDetected.set(true);
+            }
+            await().pollDelay(5L, TimeUnit.MILLISECONDS).until(() -> true);
+            executions.incrementAndGet();
+            isRunning.set(false);
+        }, 0L, 1L, TimeUnit.MILLISECONDS);
+        await().atMost(2, TimeUnit.SECONDS).until(() -> executions.get() >= 50);
+        assertThat(overlapDetected).isFalse();
+    }
+
+    @Test
+    void testTickListener() {
+        final List<Long> missedTicks = new CopyOnWriteArrayList<>();
+        final AtomicInteger executions = new AtomicInteger();
+        tickScheduler.scheduleAtFixedRate(
+                () -> {
+                    if (executions.incrementAndGet() == 2) {
+                        // Overrun the 10 ms period so that the next deadline is missed entirely
+                        await().pollDelay(25L, TimeUnit.MILLISECONDS).until(() -> true);
+                    }
+                },
+                0L,
+                10L,
+                TimeUnit.MILLISECONDS,
+                ExecutionMode.SCHEDULER_THREAD,
+                (latenessNanos, executionNanos, missed) -> missedTicks.add(missed));
+        await().atMost(1, TimeUnit.SECONDS).until(() -> missedTicks.size() >= 5);
+        assertThat(missedTicks.get(0)).isZero();
+        assertThat(missedTicks.get(1)).isPositive();
+        assertThat(missedTicks.subList(2, 5)).containsOnly(0L);
+    }
+
+    /**
+     * Multiplexes 10,000 periodic tasks onto the scheduler and reports the thread count and the jitter of each
+     * execution relative to its ideal fixed-rate deadline.
+     */
+    @Test
+    void testTenThousandTasks() {
+        final int numTasks = 10_000;
+        final long periodMs = 100L;
+        final int executionsPerTask = 10;
+        final long periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMs);
+        final LongAdder completedTasks = new LongAdder();
+        final long[][] jitterNanos = new long[numTasks][executionsPerTask];
+        final int threadsBefore = Thread.activeCount();
+
+        for (int i = 0; i < numTasks; i++) {
+            final long[] taskJitter = jitterNanos[i];
+            tickScheduler.scheduleAtFixedRate(new Runnable() {
+                private long firstExecutionNanos;
+                private int execution = 0;
+
+                @Override
+                public void run() {
+                    final long now = System.nanoTime();
+                    if (execution == 0) {
+                        firstExecutionNanos = now;
+                    }
+                    if (execution < executionsPerTask) {
+                        taskJitter[execution] = Math.abs(now - (firstExecutionNanos + execution * periodNanos));
+                        if (++execution == executionsPerTask) {
+                            completedTasks.increment();
+                        }
+                    }
+                }
+            }, i % periodMs, periodMs, TimeUnit.MILLISECONDS);
+        }
+
+        await().atMost(30, TimeUnit.SECONDS).until(() -> completedTasks.sum() == numTasks);
+
+        final long schedulerThreads = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("tick-scheduler-test"))
+                .count();
+        final long[] allJitter = Arrays.stream(jitterNanos).flatMapToLong(Arrays::stream).sorted().toArray();
+        final long medianJitterUs = TimeUnit.NANOSECONDS.toMicros(allJitter[allJitter.length / 2]);
+        final long p99JitterUs = TimeUnit.NANOSECONDS.toMicros(allJitter[(int) (allJitter.length * 0.99)]);
+        final long maxJitterUs = TimeUnit.NANOSECONDS.toMicros(allJitter[allJitter.length - 1]);
+        logger.info(
+                "{} tasks:\tScheduler threads: {}\tJVM threads before/after: {}/{}\tJitter (us) p50: {}\tp99: {}\tmax: {}",
+                numTasks,
+                schedulerThreads,
+                threadsBefore,
+                Thread.activeCount(),
+                medianJitterUs,
+                p99JitterUs,
+                maxJitterUs);
+
+        // One timer thread plus the fixed worker pool, regardless of how many tasks are scheduled
+        assertThat(schedulerThreads).isLessThanOrEqualTo(NUM_WORKERS + 1L);
+        assertThat(medianJitterUs).isLessThan(TimeUnit.MILLISECONDS.toMicros(10));
+    }
+}
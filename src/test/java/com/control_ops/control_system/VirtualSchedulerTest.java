@@ -0,0 +1,79 @@
+package com.control_ops.control_system;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VirtualSchedulerTest {
+    private static final TickScheduler.TickListener NO_OP = (latenessNanos, executionNanos, missedTicks) -> {};
+
+    @Test
+    void testAdvanceRunsDueExecutionsInOrder() {
+        final VirtualScheduler scheduler = new VirtualScheduler(1_000L);
+        final List<String> executions = new ArrayList<>();
+        scheduler.scheduleAtFixedRate(
+                () -> executions.add("fast@" + scheduler.now()), 0L, 10L, TimeUnit.NANOSECONDS,
+                ExecutionMode.SCHEDULER_THREAD, NO_OP);
+        scheduler.scheduleAtFixedRate(
+                () -> executions.add("slow@" + scheduler.now()), 0L, 20L, TimeUnit.NANOSECONDS,
+                ExecutionMode.VIRTUAL_THREAD, NO_OP);
+
+        scheduler.advanceBy(25L, TimeUnit.NANOSECONDS);
+
+        assertThat(executions).containsExactly(
+                "fast@1000", "slow@1000", "fast@1010", "fast@1020", "slow@1020");
+        assertThat(scheduler.now()).isEqualTo(1_025L);
+        assertThat(scheduler.getExecutionCount()).isEqualTo(5L);
+    }
+
+    @Test
+    void testCancel() {
+        final VirtualScheduler scheduler = new VirtualScheduler(0L);
+        final List<Long> executions = new ArrayList<>();
+        final TickScheduler.ScheduledTick scheduledTick = scheduler.scheduleAtFixedRate(
+                () -> executions.add(scheduler.now()), 5L, 10L, TimeUnit.SECONDS, ExecutionMode.SCHEDULER_THREAD, NO_OP);
+        scheduler.advanceBy(20L, TimeUnit.SECONDS);
+        scheduledTick.cancel();
+        scheduler.advanceBy(1L, TimeUnit.HOURS);
+        assertThat(executions).containsExactly(TimeUnit.SECONDS.toNanos(5L), TimeUnit.SECONDS.toNanos(15L));
+    }
+
+    @Test
+    void testThrowingTaskIsNotRescheduled() {
+        final VirtualScheduler scheduler = new VirtualScheduler(0L);
+        final List<Long> executions = new ArrayList<>();
+        scheduler.scheduleAtFixedRate(() -> {
+            executions.add(scheduler.now());
+            throw new IllegalStateException("Simulated failure");
+        }, 0L, 1L, TimeUnit.SECONDS, ExecutionMode.SCHEDULER_THREAD, NO_OP);
+        scheduler.advanceBy(10L, TimeUnit.SECONDS);
+        assertThat(executions).containsExactly(0L);
+    }
+
+    @Test
+    void testPeriodicExecutor() {
+        final VirtualScheduler scheduler = new VirtualScheduler(0L);
+        final List<Long> executions = new ArrayList<>();
+        final PeriodicExecutor periodicExecutor = new PeriodicExecutor(
+                "virtual", 100L, TimeUnit.MILLISECONDS, () -> executions.add(scheduler.now()),
+                ExecutionMode.SCHEDULER_THREAD, scheduler);
+        periodicExecutor.start();
+        scheduler.advanceBy(1L, TimeUnit.SECONDS);
+        periodicExecutor.stop();
+        scheduler.advanceBy(1L, TimeUnit.SECONDS);
+        assertThat(executions).hasSize(11);
+        assertThat(executions.getLast()).isEqualTo(TimeUnit.SECONDS.toNanos(1L));
+    }
+
+    @Test
+    void testInvalidPeriod() {
+        final VirtualScheduler scheduler = new VirtualScheduler(0L);
+        assertThrows(IllegalArgumentException.class, () -> scheduler.scheduleAtFixedRate(
+                () -> {}, 0L, 0L, TimeUnit.SECONDS, ExecutionMode.SCHEDULER_THREAD, NO_OP));
+    }
+}
@@ -0,0 +1,190 @@
+package com.control_ops.control_system.api;
+
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.TestIds;
+import com.control_ops.control_system.VirtualScheduler;
+import com.control_ops.control_system.control_loop.ControlLoop;
+import com.control_ops.control_system.control_loop.LoopState;
+import com.control_ops.control_system.control_loop.ProportionalControl;
+import com.control_ops.control_system.instrument.EpochNanoClock;
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.RandomMeasurement;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class LoopStateBroadcasterTest {
+    @RegisterExtension
+    final TestIds ids = new TestIds();
+
+    private final List<Sensor> sensors = new ArrayList<>();
+    private final Map<ControlLoop, Actuator> actuators = new HashMap<>();
+    private final List<LoopStateBroadcaster> broadcasters = new ArrayList<>();
+    private static final Logger logger = LoggerFactory.getLogger(LoopStateBroadcasterTest.class);
+
+    @AfterEach
+    void tearDown() {
+        broadcasters.forEach(LoopStateBroadcaster::close);
+        sensors.forEach(Sensor::stopMeasuring);
+    }
+
+    private ControlLoop makeControlLoop(final VirtualScheduler virtualScheduler) {
+        final int id = ids.next();
+        final Sensor sensor = virtualScheduler == null
+                ? new Sensor(id, 10L, TimeUnit.MILLISECONDS, SignalUnit.CELSIUS, new RandomMeasurement(id))
+                : new Sensor(id, 10L, TimeUnit.MILLISECONDS, SignalUnit.CELSIUS, new RandomMeasurement(id),
+                        ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+        sensors.add(sensor);
+        final Actuator actuator = virtualScheduler == null
+                ? new Actuator(id, 0.0)
+                : new Actuator(id, 0.0, virtualScheduler);
+        final ControlLoop controlLoop = virtualScheduler == null
+                ? new ControlLoop(id, sensor, actuator, 1.0, 10L, TimeUnit.MILLISECONDS, new ProportionalControl(1.0))
+                : new ControlLoop(id, sensor, actuator, 1.0, 10L, TimeUnit.MILLISECONDS, new ProportionalControl(1.0),
+                        ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+        actuators.put(controlLoop, actuator);
+        sensor.startMeasuring();
+        controlLoop.startControlling();
+        return controlLoop;
+    }
+
+    /**
+     * Each subscriber receives one snapshot per period of its own rate, capped at the broadcaster's maximum rate.
+     */
+    @Test
+    void testConflateToSubscriberRate() {
+        final VirtualScheduler virtualScheduler = new VirtualScheduler(EpochNanoClock.now());
+        final LoopStateBroadcaster broadcaster = new LoopStateBroadcaster(50.0, Runnable::run, virtualScheduler);
+        broadcasters.add(broadcaster);
+        final ControlLoop controlLoop = makeControlLoop(virtualScheduler);
+        final List<LoopState> slowStates = new ArrayList<>();
+        final List<LoopState> fastStates = new ArrayList<>();
+        final List<LoopState> cappedStates = new ArrayList<>();
+        broadcaster.subscribe(controlLoop, 5.0, slowStates::add);
+        broadcaster.subscribe(controlLoop, 50.0, fastStates::add);
+        final LoopStateBroadcaster.Subscription capped = broadcaster.subscribe(controlLoop, 500.0, cappedStates::add);
+
+        virtualScheduler.advanceBy(10L, TimeUnit.SECONDS);
+
+        assertThat(slowStates).hasSize(51);
+        assertThat(fastStates).hasSize(501);
+        assertThat(capped.getPeriodNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(20L));
+        assertThat(cappedStates).isEqualTo(fastStates);
+        // The broadcaster was scheduled first, so it never snapshots the loop between a measurement and the output
+        // calculated from it
+        assertThat(slowStates.getLast().output()).isEqualTo(1.0 - slowStates.getLast().processValue());
+    }
+
+    @Test
+    void testUnchangedStateIsNotResent() {
+        final VirtualScheduler virtualScheduler = new VirtualScheduler(EpochNanoClock.now());
+        final LoopStateBroadcaster broadcaster = new LoopStateBroadcaster(10.0, Runnable::run, virtualScheduler);
+        broadcasters.add(broadcaster);
+        final ControlLoop controlLoop = makeControlLoop(virtualScheduler);
+        final List<LoopState> states = new ArrayList<>();
+        broadcaster.subscribe(controlLoop, 10.0, states::add);
+        virtualScheduler.advanceBy(1L, TimeUnit.SECONDS);
+        controlLoop.stopControlling();
+        sensors.getLast().stopMeasuring();
+        final int sentWhileControlling = states.size();
+
+        virtualScheduler.advanceBy(1L, TimeUnit.SECONDS);
+        // Only the snapshot showing that the loop stopped controlling is new
+        assertThat(states).hasSize(sentWhileControlling + 1);
+        assertThat(states.getLast().controlling()).isFalse();
+    }
+
+    @Test
+    void testFailedSinkEndsSubscription() {
+        final VirtualScheduler virtualScheduler = new VirtualScheduler(EpochNanoClock.now());
+        final LoopStateBroadcaster broadcaster = new LoopStateBroadcaster(10.0, Runnable::run, virtualScheduler);
+        broadcasters.add(broadcaster);
+        final ControlLoop controlLoop = makeControlLoop(virtualScheduler);
+        broadcaster.subscribe(controlLoop, 10.0, loopState -> {
+            throw new IOException("The client disconnected");
+        });
+        assertThat(broadcaster.size()).isEqualTo(1);
+        virtualScheduler.advanceBy(1L, TimeUnit.SECONDS);
+        assertThat(broadcaster.size()).isZero();
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> broadcaster.subscribe(controlLoop, 0.0, loopState -> {}));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new LoopStateBroadcaster(0.0, Runnable::run, virtualScheduler));
+    }
+
+    /**
+     * Streams fifty loops to a thousand subscribers, a tenth of which are too slow to keep up; the fast subscribers
+     * must still receive updates at their full rate, and the loops must still tick on time. The slow subscribers are
+     * served by their own broadcaster, whose sends only complete every 200 ms.
+     */
+    @Test
+    void testManySubscribers() {
+        final int numLoops = 50;
+        final int numSubscribers = 1000;
+        final double rateHz = 20.0;
+        final long durationMs = 2000L;
+        final long slowSendMs = 200L;
+        final VirtualScheduler virtualScheduler = new VirtualScheduler(EpochNanoClock.now());
+        final LoopStateBroadcaster fastBroadcaster = new LoopStateBroadcaster(rateHz, Runnable::run, virtualScheduler);
+        final List<Runnable> pendingSlowSends = new ArrayList<>();
+        final LoopStateBroadcaster slowBroadcaster = new LoopStateBroadcaster(
+                rateHz, pendingSlowSends::add, virtualScheduler);
+        broadcasters.add(fastBroadcaster);
+        broadcasters.add(slowBroadcaster);
+        final List<ControlLoop> controlLoops = new ArrayList<>();
+        final List<AtomicLong> adjustmentCounts = new ArrayList<>();
+        for (int i = 0; i < numLoops; i++) {
+            final ControlLoop controlLoop = makeControlLoop(virtualScheduler);
+            final AtomicLong adjustmentCount = new AtomicLong();
+            actuators.get(controlLoop).addSampleListener((quantity, epochNanos) -> adjustmentCount.incrementAndGet());
+            controlLoops.add(controlLoop);
+            adjustmentCounts.add(adjustmentCount);
+        }
+        final List<LoopStateBroadcaster.Subscription> fastSubscriptions = new ArrayList<>();
+        final List<LoopStateBroadcaster.Subscription> slowSubscriptions = new ArrayList<>();
+        for (int i = 0; i < numSubscribers; i++) {
+            final boolean isSlow = i % 10 == 0;
+            final LoopStateBroadcaster.Subscription subscription = (isSlow ? slowBroadcaster : fastBroadcaster)
+                    .subscribe(controlLoops.get(i % numLoops), rateHz, loopState -> {});
+            (isSlow ? slowSubscriptions : fastSubscriptions).add(subscription);
+        }
+
+        for (long elapsedMs = 0L; elapsedMs < durationMs; elapsedMs += slowSendMs) {
+            virtualScheduler.advanceBy(slowSendMs, TimeUnit.MILLISECONDS);
+            pendingSlowSends.forEach(Runnable::run);
+            pendingSlowSends.clear();
+        }
+
+        final long expectedUpdates = Math.round(durationMs * rateHz / 1000.0);
+        final double meanFastUpdates = fastSubscriptions.stream()
+                .mapToLong(LoopStateBroadcaster.Subscription::getSentCount).average().orElseThrow();
+        final double meanSlowUpdates = slowSubscriptions.stream()
+                .mapToLong(LoopStateBroadcaster.Subscription::getSentCount).average().orElseThrow();
+        final long expectedAdjustments = durationMs / 10L;
+        final double meanAdjustments = adjustmentCounts.stream().mapToLong(AtomicLong::get).average().orElseThrow();
+        logger.info("{} subscribers received {} fast / {} slow updates each of {}; loops adjusted {} times of {}",
+                numSubscribers, meanFastUpdates, meanSlowUpdates, expectedUpdates, meanAdjustments,
+                expectedAdjustments);
+
+        assertThat(meanFastUpdates).isBetween(0.8 * expectedUpdates, expectedUpdates + 1.0);
+        assertThat(meanSlowUpdates).isLessThan(0.5 * expectedUpdates);
+        assertThat(slowSubscriptions).allSatisfy(subscription ->
+                assertThat(subscription.getConflatedCount()).isPositive());
+        assertThat(meanAdjustments).isGreaterThan(0.8 * expectedAdjustments);
+    }
+}
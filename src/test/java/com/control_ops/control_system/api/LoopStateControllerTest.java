@@ -0,0 +1,90 @@
+package com.control_ops.control_system.api;
+
+import com.control_ops.control_system.TestIds;
+import com.control_ops.control_system.control_loop.ControlLoop;
+import com.control_ops.control_system.control_loop.ProportionalControl;
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.ConstantMeasurement;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "management.metrics.use-global-registry=false")
+@AutoConfigureMockMvc
+class LoopStateControllerTest {
+    @RegisterExtension
+    final TestIds ids = new TestIds();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LoopStateBroadcaster loopStateBroadcaster;
+
+    private Sensor sensor;
+    private int loopId;
+
+    @BeforeEach
+    void setUp() {
+        loopId = ids.next();
+        sensor = new Sensor(loopId, 10L, TimeUnit.MILLISECONDS, SignalUnit.CELSIUS, new ConstantMeasurement(18.0));
+        final ControlLoop controlLoop = new ControlLoop(loopId, sensor, new Actuator(loopId, 0.0), 20.0, 10L,
+                TimeUnit.MILLISECONDS, new ProportionalControl(2.0));
+        sensor.startMeasuring();
+        controlLoop.startControlling();
+        await().atMost(1, TimeUnit.SECONDS).until(() -> controlLoop.snapshot().output() == 4.0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sensor.stopMeasuring();
+    }
+
+    @Test
+    void testGetLoopState() throws Exception {
+        mockMvc.perform(get("/api/loops/{id}", loopId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(loopId))
+                .andExpect(jsonPath("$.setPoint").value(20.0))
+                .andExpect(jsonPath("$.processValue").value(18.0))
+                .andExpect(jsonPath("$.processValueUnit").value("CELSIUS"))
+                .andExpect(jsonPath("$.output").value(4.0))
+                .andExpect(jsonPath("$.controlling").value(true));
+        mockMvc.perform(get("/api/loops"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.id == " + loopId + ")].output").value(4.0));
+        mockMvc.perform(get("/api/loops/{id}", ids.next()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testStreamLoopState() throws Exception {
+        final MvcResult mvcResult = mockMvc.perform(get("/api/loops/{id}/stream", loopId).param("rateHz", "5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(loopStateBroadcaster.size()).isEqualTo(1);
+        await().atMost(2, TimeUnit.SECONDS).until(() ->
+                mvcResult.getResponse().getContentAsString().split("event:state").length > 3);
+        assertThat(mvcResult.getResponse().getContentAsString()).contains("\"setPoint\":20.0");
+
+        mockMvc.perform(get("/api/loops/{id}/stream", loopId).param("rateHz", "0"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,163 @@
+package com.control_ops.control_system.control_loop;
+
+import com.control_ops.control_system.TestIds;
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.ConstantMeasurement;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.awaitility.Awaitility.await;
+
+class BatchControlGroupTest {
+    @RegisterExtension
+    final TestIds ids = new TestIds();
+
+    private final List<Sensor> sensors = new ArrayList<>();
+
+    private ControlLoop makeControlLoop(
+            final double measurement,
+            final double setPoint,
+            final long updatePeriodMs,
+            final ControlBehaviour controlBehaviour) {
+        final int id = ids.next();
+        final Sensor sensor = new Sensor(id, 5L, TimeUnit.MILLISECONDS, SignalUnit.CELSIUS,
+                new ConstantMeasurement(measurement));
+        sensor.startMeasuring();
+        sensors.add(sensor);
+        return new ControlLoop(
+                id,
+                sensor,
+                new Actuator(id, 0.0),
+                setPoint,
+                updatePeriodMs,
+                TimeUnit.MILLISECONDS,
+                controlBehaviour);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sensors.forEach(Sensor::stopMeasuring);
+    }
+
+    @Test
+    void testEvaluate() {
+        final int numLanes = 1027;
+        final SplittableRandom random = new SplittableRandom(42L);
+        final double[] setPoints = random.doubles(numLanes, -100.0, 100.0).toArray();
+        final double[] processValues = random.doubles(numLanes, -100.0, 100.0).toArray();
+        final double[] gains = random.doubles(numLanes, 0.1, 10.0).toArray();
+        final double[] outputs = new double[numLanes];
+
+        BatchControlGroup.evaluate(setPoints, processValues, gains, outputs, numLanes);
+
+        for (int i = 0; i < numLanes; i++) {
+            final double expectedOutput = new ProportionalControl(gains[i])
+                    .calculateActuatorOutput(setPoints[i], processValues[i]);
+            assertThat(outputs[i]).isEqualTo(expectedOutput);
+        }
+    }
+
+    @Test
+    void testForPeriod() {
+        assertThat(BatchControlGroup.forPeriod(1L, TimeUnit.SECONDS))
+                .isSameAs(BatchControlGroup.forPeriod(1000L, TimeUnit.MILLISECONDS))
+                .isNotSameAs(BatchControlGroup.forPeriod(2L, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testBatchedControl() {
+        final ControlLoop controlLoop1 = makeControlLoop(1.0, 3.0, 20L, new ProportionalControl(2.0));
+        final ControlLoop controlLoop2 = makeControlLoop(5.0, 2.0, 20L, new ProportionalControl(0.5));
+        controlLoop1.joinBatchGroup();
+        controlLoop2.joinBatchGroup();
+        controlLoop1.startControlling();
+        controlLoop2.startControlling();
+
+        await().atMost(1, TimeUnit.SECONDS).until(() ->
+                controlLoop1.getManipulatedVariable().getSignalValue() == 4.0
+                        && controlLoop2.getManipulatedVariable().getSignalValue() == -1.5);
+    }
+
+    @Test
+    void testStopBatchedControl() {
+        final ControlLoop controlLoop = makeControlLoop(1.0, 3.0, 20L, new ProportionalControl(1.0));
+        controlLoop.joinBatchGroup();
+        controlLoop.startControlling();
+        await().atMost(1, TimeUnit.SECONDS).until(() -> controlLoop.getManipulatedVariable().getSignalValue() == 2.0);
+
+        controlLoop.stopControlling();
+        controlLoop.updateSetPoint(10.0);
+        await().during(200L, TimeUnit.MILLISECONDS).until(() -> controlLoop.getManipulatedVariable().getSignalValue() == 2.0);
+    }
+
+    @Test
+    void testSwitchControlBehaviourInBatch() {
+        final ControlLoop controlLoop = makeControlLoop(1.0, 3.0, 20L, new ProportionalControl(1.0));
+        controlLoop.joinBatchGroup();
+        controlLoop.startControlling();
+        await().atMost(1, TimeUnit.SECONDS).until(() -> controlLoop.getManipulatedVariable().getSignalValue() == 2.0);
+
+        // A new gain is picked up by the batch group
+        controlLoop.switchControlBehaviour(new ProportionalControl(3.0));
+        await().atMost(1, TimeUnit.SECONDS).until(() -> controlLoop.getManipulatedVariable().getSignalValue() == 6.0);
+
+        // A behaviour that cannot be batched makes the loop leave the group and keep controlling on its own
+        controlLoop.switchControlBehaviour((setPoint, controlledVariable) -> -1.0);
+        await().atMost(1, TimeUnit.SECONDS).until(() -> controlLoop.getManipulatedVariable().getSignalValue() == -1.0);
+    }
+
+    @Test
+    void testLeaveBatchGroup() {
+        final ControlLoop controlLoop = makeControlLoop(1.0, 3.0, 20L, new ProportionalControl(1.0));
+        final BatchControlGroup batchControlGroup = BatchControlGroup.forPeriod(20L, TimeUnit.MILLISECONDS);
+        final int initialSize = batchControlGroup.size();
+        controlLoop.joinBatchGroup();
+        assertThat(batchControlGroup.size()).isEqualTo(initialSize + 1);
+
+        controlLoop.startControlling();
+        controlLoop.leaveBatchGroup();
+        assertThat(batchControlGroup.size()).isEqualTo(initialSize);
+        await().atMost(1, TimeUnit.SECONDS).until(() -> controlLoop.getManipulatedVariable().getSignalValue() == 2.0);
+    }
+
+    /**
+     * An actuator listener that waits on another thread touching the group must not deadlock the update.
+     */
+    @Test
+    void testOutputsAppliedOutsideMonitor() {
+        final ControlLoop controlLoop = makeControlLoop(1.0, 3.0, 20L, new ProportionalControl(1.0));
+        final BatchControlGroup batchControlGroup = BatchControlGroup.forPeriod(20L, TimeUnit.MILLISECONDS);
+        final AtomicInteger membershipReads = new AtomicInteger();
+        controlLoop.getManipulatedVariable().addSampleListener((quantity, epochNanos) -> {
+            try {
+                CompletableFuture.runAsync(batchControlGroup::size).get(1L, TimeUnit.SECONDS);
+                membershipReads.incrementAndGet();
+            } catch (final InterruptedException | ExecutionException | TimeoutException e) {
+                throw new IllegalStateException("The group's monitor was held while applying outputs", e);
+            }
+        });
+        controlLoop.joinBatchGroup();
+        controlLoop.startControlling();
+        await().atMost(1, TimeUnit.SECONDS).until(() -> membershipReads.get() > 0);
+    }
+
+    @Test
+    void testJoinWithUnbatchableBehaviour() {
+        final ControlLoop controlLoop = makeControlLoop(1.0, 3.0, 20L, (setPoint, controlledVariable) -> 0.0);
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(controlLoop::joinBatchGroup);
+    }
+}
@@ -0,0 +1,237 @@
+package com.control_ops.control_system.control_loop;
+
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.TestIds;
+import com.control_ops.control_system.VirtualScheduler;
+import com.control_ops.control_system.instrument.EpochNanoClock;
+import com.control_ops.control_system.instrument.Signal;
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.actuator.OutputList;
+import com.control_ops.control_system.instrument.sensor.ConstantMeasurement;
+import com.control_ops.control_system.instrument.sensor.MeasurementBehaviour;
+import com.control_ops.control_system.instrument.sensor.RandomMeasurement;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class ControlGraphTest {
+    private static final long UPDATE_PERIOD_MS = 100L;
+
+    @RegisterExtension
+    final TestIds ids = new TestIds();
+
+    private final VirtualScheduler virtualScheduler = new VirtualScheduler(EpochNanoClock.now());
+    private final List<Sensor> sensors = new ArrayList<>();
+    private final List<ControlGraph> controlGraphs = new ArrayList<>();
+
+    private Sensor makeSensor(final MeasurementBehaviour measurementBehaviour) {
+        final Sensor sensor = new Sensor(ids.next(), UPDATE_PERIOD_MS, TimeUnit.MILLISECONDS, SignalUnit.CELSIUS,
+                measurementBehaviour, ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+        sensors.add(sensor);
+        return sensor;
+    }
+
+    private Actuator makeActuator() {
+        return new Actuator(ids.next(), 0.0, virtualScheduler);
+    }
+
+    private ControlGraph makeControlGraph() {
+        final ControlGraph controlGraph = new ControlGraph(ids.next(), UPDATE_PERIOD_MS, TimeUnit.MILLISECONDS,
+                ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+        controlGraphs.add(controlGraph);
+        return controlGraph;
+    }
+
+    @AfterEach
+    void tearDown() {
+        controlGraphs.forEach(ControlGraph::release);
+        sensors.forEach(Sensor::stopMeasuring);
+    }
+
+    /**
+     * Tests that a limited cascade with a feed-forward term reaches its actuator in the same tick as its measurements,
+     * however many blocks the signal passes through.
+     */
+    @Test
+    void testCascadeInOneTick() {
+        final ControlGraph controlGraph = makeControlGraph();
+        final Sensor outerSensor = makeSensor(new ConstantMeasurement(10.0));
+        final Sensor innerSensor = makeSensor(new ConstantMeasurement(3.0));
+        final Sensor disturbanceSensor = makeSensor(new ConstantMeasurement(8.0));
+        final Actuator actuator = makeActuator();
+        final OutputList outputList = new OutputList();
+        actuator.addListener(outputList);
+
+        final ControlGraph.Block setPoint = controlGraph.setPoint(12.0);
+        final ControlGraph.Block outer = controlGraph.controller(
+                setPoint,
+                controlGraph.sensor(outerSensor),
+                new ProportionalControl(2.0));
+        final ControlGraph.Block innerSetPoint = controlGraph.limit(outer, 0.0, 5.0);
+        final ControlGraph.Block inner = controlGraph.controller(
+                innerSetPoint,
+                controlGraph.sensor(innerSensor),
+                new ProportionalControl(0.5));
+        final ControlGraph.Block feedForward = controlGraph.gain(controlGraph.sensor(disturbanceSensor), 0.25);
+        controlGraph.actuator(controlGraph.sum(inner, feedForward), actuator);
+        assertThat(controlGraph.size()).isEqualTo(10);
+        assertThat(controlGraph.getComponentCount()).isEqualTo(1);
+
+        sensors.forEach(Sensor::startMeasuring);
+        controlGraph.startControlling();
+        virtualScheduler.advanceBy(0L, TimeUnit.MILLISECONDS);
+        // 2 * (12 - 10) = 4 is within the limit, 0.5 * (4 - 3) = 0.5, plus 0.25 * 8 = 2
+        assertThat(outputList.getSignals()).hasSize(1);
+        assertThat(actuator.getSignalValue()).isEqualTo(2.5);
+        assertThat(controlGraph.getValue(outer)).isEqualTo(4.0);
+
+        controlGraph.updateSetPoint(setPoint, 20.0);
+        virtualScheduler.advanceBy(9L * UPDATE_PERIOD_MS, TimeUnit.MILLISECONDS);
+        // 2 * (20 - 10) = 20 is limited to 5, 0.5 * (5 - 3) = 1, plus 2
+        assertThat(outputList.getSignals()).hasSize(10);
+        assertThat(outputList.getSignals().subList(1, 10)).extracting(Signal::quantity).containsOnly(3.0);
+        assertThat(controlGraph.getValue(innerSetPoint)).isEqualTo(5.0);
+    }
+
+    @Test
+    void testWaitForEveryMeasurement() {
+        final ControlGraph controlGraph = makeControlGraph();
+        final Sensor measuredSensor = makeSensor(new ConstantMeasurement(1.0));
+        final Sensor unmeasuredSensor = makeSensor(new ConstantMeasurement(2.0));
+        final Actuator actuator = makeActuator();
+        final OutputList outputList = new OutputList();
+        actuator.addListener(outputList);
+        controlGraph.actuator(
+                controlGraph.sum(controlGraph.sensor(measuredSensor), controlGraph.sensor(unmeasuredSensor)),
+                actuator);
+
+        measuredSensor.startMeasuring();
+        controlGraph.startControlling();
+        virtualScheduler.advanceBy(5L * UPDATE_PERIOD_MS, TimeUnit.MILLISECONDS);
+        assertThat(outputList.getSignals()).isEmpty();
+
+        unmeasuredSensor.startMeasuring();
+        virtualScheduler.advanceBy(UPDATE_PERIOD_MS, TimeUnit.MILLISECONDS);
+        assertThat(outputList.getSignals()).isNotEmpty();
+        assertThat(actuator.getSignalValue()).isEqualTo(3.0);
+    }
+
+    /**
+     * Tests that evaluating the independent cascades of a large graph in parallel gives the same outputs as
+     * evaluating every block in creation order.
+     */
+    @Test
+    void testParallelMatchesSequential() {
+        final int numCascades = 500;
+        final ControlGraph parallelGraph = makeControlGraph();
+        final ControlGraph sequentialGraph = makeControlGraph();
+        final List<Actuator> parallelActuators = new ArrayList<>();
+        final List<Actuator> sequentialActuators = new ArrayList<>();
+        for (int i = 0; i < numCascades; i++) {
+            final Sensor outerSensor = makeSensor(new RandomMeasurement(2L * i));
+            final Sensor innerSensor = makeSensor(new RandomMeasurement(2L * i + 1L));
+            parallelActuators.add(makeActuator());
+            sequentialActuators.add(makeActuator());
+            addCascade(parallelGraph, outerSensor, innerSensor, parallelActuators.getLast());
+            addCascade(sequentialGraph, outerSensor, innerSensor, sequentialActuators.getLast());
+        }
+        assertThat(parallelGraph.size()).isGreaterThanOrEqualTo(2 * ControlGraph.PARALLELISM_THRESHOLD);
+        assertThat(parallelGraph.getComponentCount()).isEqualTo(numCascades);
+
+        sensors.forEach(Sensor::startMeasuring);
+        for (int tick = 0; tick < 5; tick++) {
+            virtualScheduler.advanceBy(UPDATE_PERIOD_MS, TimeUnit.MILLISECONDS);
+            parallelGraph.evaluate(virtualScheduler.now(), true);
+            sequentialGraph.evaluate(virtualScheduler.now(), false);
+        }
+
+        for (int i = 0; i < numCascades; i++) {
+            assertThat(parallelActuators.get(i).getSignalValue())
+                    .isEqualTo(sequentialActuators.get(i).getSignalValue());
+        }
+    }
+
+    private static void addCascade(
+            final ControlGraph controlGraph,
+            final Sensor outerSensor,
+            final Sensor innerSensor,
+            final Actuator actuator) {
+        final ControlGraph.Block outer = controlGraph.controller(
+                controlGraph.setPoint(0.5),
+                controlGraph.sensor(outerSensor),
+                new PidControl(1.0, 0.5, 0.0, 0.0, -10.0, 10.0));
+        final ControlGraph.Block inner = controlGraph.controller(
+                outer,
+                controlGraph.sensor(innerSensor),
+                new ProportionalControl(2.0));
+        controlGraph.actuator(inner, actuator);
+    }
+
+    @Test
+    void testInvalidGraphs() {
+        final ControlGraph controlGraph = makeControlGraph();
+        final ControlGraph otherGraph = makeControlGraph();
+        final ControlGraph.Block setPoint = controlGraph.setPoint(1.0);
+        final ControlGraph.Block otherSetPoint = otherGraph.setPoint(1.0);
+        final Sensor sensor = makeSensor(new ConstantMeasurement(0.0));
+        final ControlGraph.Block processValue = controlGraph.sensor(sensor);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> controlGraph.gain(otherSetPoint, 2.0));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> controlGraph.limit(setPoint, 1.0, 0.0));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> controlGraph.updateSetPoint(processValue, 2.0));
+
+        final Actuator actuator = makeActuator();
+        controlGraph.actuator(setPoint, actuator);
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> controlGraph.actuator(processValue, actuator));
+        final Actuator loopActuator = makeActuator();
+        new ControlLoop(ids.next(), makeSensor(new ConstantMeasurement(0.0)), loopActuator, 1.0, UPDATE_PERIOD_MS,
+                TimeUnit.MILLISECONDS, new ProportionalControl(1.0), ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> otherGraph.actuator(otherSetPoint, loopActuator));
+
+        controlGraph.startControlling();
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> controlGraph.sensor(sensor));
+    }
+
+    /**
+     * Tests that an actuator written by a graph cannot also be given to a control loop, and that it can once the graph
+     * is released.
+     */
+    @Test
+    void testActuatorClaimedAcrossGraphsAndLoops() {
+        final ControlGraph controlGraph = makeControlGraph();
+        final Actuator actuator = makeActuator();
+        controlGraph.actuator(controlGraph.setPoint(1.0), actuator);
+        final Sensor sensor = makeSensor(new ConstantMeasurement(0.0));
+
+        assertThatExceptionOfType(ControlLoopRegistry.RegistrationDuplicationException.class)
+                .isThrownBy(() -> new ControlLoop(ids.next(), sensor, actuator, 1.0, UPDATE_PERIOD_MS,
+                        TimeUnit.MILLISECONDS, new ProportionalControl(1.0), ExecutionMode.SCHEDULER_THREAD,
+                        virtualScheduler));
+        assertThat(ControlLoop.getControlLoopRegistry().getControlLoopByActuator(actuator.getId())).isNull();
+        final ControlGraph otherGraph = makeControlGraph();
+        final ControlGraph.Block otherSetPoint = otherGraph.setPoint(1.0);
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> otherGraph.actuator(otherSetPoint, actuator));
+
+        controlGraph.release();
+        final ControlLoop controlLoop = new ControlLoop(ids.next(), sensor, actuator, 1.0, UPDATE_PERIOD_MS,
+                TimeUnit.MILLISECONDS, new ProportionalControl(1.0), ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+        assertThat(ControlLoop.getControlLoopRegistry().getControlLoopByActuator(actuator.getId()))
+                .isSameAs(controlLoop);
+    }
+}
@@ -4,11 +4,19 @@ import com.control_ops.control_system.instrument.SignalUnit;
 import com.control_ops.control_system.instrument.actuator.Actuator;
 import com.control_ops.control_system.instrument.sensor.RandomMeasurement;
 import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 class ControlLoopRegistryTest {
@@ -22,6 +30,8 @@ class ControlLoopRegistryTest {
 
     private final ControlLoopRegistry registry = new ControlLoopRegistry();
 
+    private static final Logger logger = LoggerFactory.getLogger(ControlLoopRegistryTest.class);
+
     private static Sensor makeSensor() {
         sensorCount++;
         return new Sensor(
@@ -42,6 +52,11 @@ class ControlLoopRegistryTest {
         return new ControlLoop(controlLoopCount, sensor, actuator, 1.0, 200, TimeUnit.MILLISECONDS, new ProportionalControl(1.0));
     }
 
+    @AfterEach
+    void tearDown() {
+        ControlLoop.getControlLoopRegistry().deregisterAll();
+    }
+
     @BeforeEach
     void setUp() {
         sensorCount++;
@@ -95,4 +110,111 @@ class ControlLoopRegistryTest {
         assertThatExceptionOfType(ControlLoopRegistry.RegistrationDuplicationException.class)
                 .isThrownBy(() -> registry.registerControlLoop(controlLoop1, sensor2, actuator2));
     }
+
+    @Test
+    void testLookup() {
+        registry.registerControlLoop(controlLoop1, sensor1, actuator1);
+        assertThat(registry.getControlLoop(controlLoop1.getId())).isSameAs(controlLoop1);
+        assertThat(registry.getControlLoopBySensor(sensor1.getId())).isSameAs(controlLoop1);
+        assertThat(registry.getControlLoopByActuator(actuator1.getId())).isSameAs(controlLoop1);
+        assertThat(registry.getControlLoop(-1)).isNull();
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    /**
+     * Tests that deregistering a loop stops it and frees its id, sensor and actuator for a new loop.
+     */
+    @Test
+    void testDeregistration() {
+        final ControlLoopRegistry sharedRegistry = ControlLoop.getControlLoopRegistry();
+        controlLoop1.startControlling();
+        assertThat(sharedRegistry.deregisterControlLoop(controlLoop1.getId())).isSameAs(controlLoop1);
+        assertThat(controlLoop1.isControlling()).isFalse();
+        assertThat(sharedRegistry.getControlLoopBySensor(sensor1.getId())).isNull();
+        assertThat(sharedRegistry.deregisterControlLoop(controlLoop1.getId())).isNull();
+
+        final ControlLoop replacement = new ControlLoop(
+                controlLoop1.getId(), sensor1, actuator1, 1.0, 200, TimeUnit.MILLISECONDS, new ProportionalControl(1.0));
+        assertThat(sharedRegistry.getControlLoop(controlLoop1.getId())).isSameAs(replacement);
+    }
+
+    @Test
+    void testStartAndStopAll() {
+        final ControlLoopRegistry sharedRegistry = ControlLoop.getControlLoopRegistry();
+        final ControlLoop controlLoop2 = makeControlLoop(makeSensor(), makeActuator());
+        controlLoop2.startControlling();
+
+        sharedRegistry.startAll();
+        assertThat(controlLoop1.isControlling()).isTrue();
+        assertThat(controlLoop2.isControlling()).isTrue();
+
+        sharedRegistry.stopAll();
+        assertThat(controlLoop1.isControlling()).isFalse();
+        assertThat(controlLoop2.isControlling()).isFalse();
+    }
+
+    /**
+     * Tests that exactly one of many threads racing to register loops on the same sensor succeeds, and that the losers
+     * leave no partial registrations behind.
+     */
+    @Test
+    void testConcurrentDuplicateRegistration() {
+        final int numThreads = 64;
+        final List<ControlLoop> controlLoops = new ArrayList<>();
+        final List<Actuator> actuators = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            actuators.add(makeActuator());
+            controlLoops.add(makeControlLoop(makeSensor(), actuators.getLast()));
+        }
+        final LongAdder successes = new LongAdder();
+        final Sensor sharedSensor = makeSensor();
+        IntStream.range(0, numThreads).parallel().forEach(i -> {
+            try {
+                registry.registerControlLoop(controlLoops.get(i), sharedSensor, actuators.get(i));
+                successes.increment();
+            } catch (final ControlLoopRegistry.RegistrationDuplicationException e) {
+                // Expected for every thread but one
+            }
+        });
+        assertThat(successes.sum()).isEqualTo(1L);
+        assertThat(registry.size()).isEqualTo(1);
+        final ControlLoop winner = registry.getControlLoopBySensor(sharedSensor.getId());
+        for (int i = 0; i < numThreads; i++) {
+            assertThat(registry.getControlLoopByActuator(actuators.get(i).getId()))
+                    .isEqualTo(controlLoops.get(i) == winner ? winner : null);
+        }
+    }
+
+    /**
+     * Creates 100,000 control loops in parallel, as happens when a plant is loaded at startup, and checks that every
+     * one of them can be found by its own, its sensor's and its actuator's id.
+     */
+    @Test
+    void testParallelCreation() {
+        final int numControlLoops = 100_000;
+        final int firstId = 1_000_000;
+        final ControlLoopRegistry sharedRegistry = ControlLoop.getControlLoopRegistry();
+        final int sizeBefore = sharedRegistry.size();
+
+        final long startNanos = System.nanoTime();
+        IntStream.range(firstId, firstId + numControlLoops).parallel().forEach(id -> new ControlLoop(
+                id,
+                new Sensor(id, 1L, TimeUnit.SECONDS, SignalUnit.CELSIUS, new RandomMeasurement()),
+                new Actuator(id, 0.0),
+                1.0,
+                1L,
+                TimeUnit.SECONDS,
+                new ProportionalControl(1.0)));
+        logger.info("Created {} control loops in parallel in {} ms",
+                numControlLoops,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+        assertThat(sharedRegistry.size()).isEqualTo(sizeBefore + numControlLoops);
+        for (int id = firstId; id < firstId + numControlLoops; id++) {
+            final ControlLoop controlLoop = sharedRegistry.getControlLoop(id);
+            assertThat(controlLoop.getId()).isEqualTo(id);
+            assertThat(sharedRegistry.getControlLoopBySensor(id)).isSameAs(controlLoop);
+            assertThat(sharedRegistry.getControlLoopByActuator(id)).isSameAs(controlLoop);
+        }
+    }
 }
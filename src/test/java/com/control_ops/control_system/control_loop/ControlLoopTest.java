@@ -1,21 +1,31 @@
 package com.control_ops.control_system.control_loop;
 
+import com.control_ops.control_system.ExecutionMode;
 import com.control_ops.control_system.PeriodicExecutorTest;
+import com.control_ops.control_system.VirtualScheduler;
+import com.control_ops.control_system.instrument.EpochNanoClock;
 import com.control_ops.control_system.instrument.SignalUnit;
 import com.control_ops.control_system.instrument.actuator.Actuator;
 import com.control_ops.control_system.instrument.actuator.OutputList;
 import com.control_ops.control_system.instrument.sensor.ConstantMeasurement;
+import com.control_ops.control_system.instrument.sensor.ReportingDeadband;
 import com.control_ops.control_system.instrument.sensor.Sensor;
-import org.awaitility.core.ConditionTimeoutException;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -32,12 +42,29 @@ class ControlLoopTest {
     private final OutputList outputList = new OutputList();
     private final ControlBehaviour controlBehaviour = new ProportionalControl(gain);
     private final double setPoint = 2.0;
+    // Loops are driven by a virtual clock so that their timing is exact; only the tests that compare execution modes
+    // or latencies run against the wall clock
+    private final VirtualScheduler virtualScheduler = new VirtualScheduler(EpochNanoClock.now());
 
     static int sensorCount = 0;
     static int actuatorCount = 0;
     static int controlLoopCount = 0;
 
+    private static final Logger logger = LoggerFactory.getLogger(ControlLoopTest.class);
+
     Sensor makeSensor() {
+        sensorCount++;
+        return new Sensor(
+                sensorCount,
+                20L,
+                timeUnit,
+                SignalUnit.CELSIUS,
+                new ConstantMeasurement(0.0),
+                ExecutionMode.SCHEDULER_THREAD,
+                virtualScheduler);
+    }
+
+    Sensor makeWallClockSensor() {
         sensorCount++;
         return new Sensor(
                 sensorCount,
@@ -49,19 +76,25 @@ class ControlLoopTest {
 
     Actuator makeActuator() {
         actuatorCount++;
-        return new Actuator(actuatorCount, 0.0);
+        return new Actuator(actuatorCount, 0.0, virtualScheduler);
     }
 
     ControlLoop makeDefaultControlLoop() {
+        return makeControlLoop(controlLoopUpdatePeriod*2);
+    }
+
+    ControlLoop makeControlLoop(final long updatePeriodMs) {
         controlLoopCount++;
         return new ControlLoop(
                 controlLoopCount,
                 sensor,
                 actuator,
                 setPoint,
-                controlLoopUpdatePeriod *2,
-                timeUnit,
-                controlBehaviour);
+                updatePeriodMs,
+                TimeUnit.MILLISECONDS,
+                controlBehaviour,
+                ExecutionMode.SCHEDULER_THREAD,
+                virtualScheduler);
     }
 
     @BeforeEach
@@ -72,6 +105,19 @@ class ControlLoopTest {
         sensor.startMeasuring();
     }
 
+    @AfterEach
+    void tearDown() {
+        sensor.stopMeasuring();
+        ControlLoop.getControlLoopRegistry().deregisterAll();
+    }
+
+    /**
+     * Advances the virtual clock by the provided number of periods of the default control loop.
+     */
+    private void advanceUpdatePeriods(final long numPeriods) {
+        virtualScheduler.advanceBy(numPeriods*controlLoopUpdatePeriod*2, timeUnit);
+    }
+
     private void waitForActuatorAdjustments(final int numAdjustments, final long periodMs) {
         final long maxWaitDurationMs = Math.max(500, 3*numAdjustments*periodMs);
         final int initialSize = outputList.getSignals().size();
@@ -83,62 +129,145 @@ class ControlLoopTest {
     @Test
     void testStartControlling() {
         final ControlLoop controlLoop = makeDefaultControlLoop();
-        assertThatExceptionOfType(ConditionTimeoutException.class).isThrownBy(
-                () -> waitForActuatorAdjustments(1, controlLoopUpdatePeriod));
+        advanceUpdatePeriods(5);
+        assertThat(outputList.getSignals()).isEmpty();
         controlLoop.startControlling();
-        waitForActuatorAdjustments(1, controlLoopUpdatePeriod);
+        advanceUpdatePeriods(5);
+        assertThat(outputList.getSignals()).hasSize(6);
     }
 
     @Test
     void testStopControlling() {
         final ControlLoop controlLoop = makeDefaultControlLoop();
-        assertThatExceptionOfType(ConditionTimeoutException.class).isThrownBy(
-                () -> waitForActuatorAdjustments(1, controlLoopUpdatePeriod));
         controlLoop.startControlling();
-        waitForActuatorAdjustments(1, controlLoopUpdatePeriod);
+        advanceUpdatePeriods(1);
         controlLoop.stopControlling();
-        assertThatExceptionOfType(ConditionTimeoutException.class).isThrownBy(
-                () -> waitForActuatorAdjustments(1, controlLoopUpdatePeriod));
+        advanceUpdatePeriods(5);
+        assertThat(outputList.getSignals()).hasSize(2);
     }
 
     @Test
     void testMultipleStartsAndStops() {
         final ControlLoop controlLoop = makeDefaultControlLoop();
         int previousSize = 0;
-        controlLoop.startControlling();
-        waitForActuatorAdjustments(1, controlLoopUpdatePeriod);
-        assertThat(outputList.getSignals()).hasSizeGreaterThan(previousSize);
-        controlLoop.stopControlling();
-        previousSize = outputList.getSignals().size();
+        for (int i = 0; i < 6; i++) {
+            controlLoop.startControlling();
+            advanceUpdatePeriods(2);
+            assertThat(outputList.getSignals()).hasSize(previousSize + 3);
+            controlLoop.stopControlling();
+            advanceUpdatePeriods(2);
+            previousSize = outputList.getSignals().size();
+        }
+    }
 
+    @Test
+    void testVirtualThreadExecutionMode() {
+        final Sensor wallClockSensor = makeWallClockSensor();
+        final Actuator wallClockActuator = new Actuator(++actuatorCount, 0.0);
+        wallClockActuator.addListener(outputList);
+        final ControlLoop controlLoop = new ControlLoop(
+                ++controlLoopCount,
+                wallClockSensor,
+                wallClockActuator,
+                setPoint,
+                controlLoopUpdatePeriod,
+                timeUnit,
+                controlBehaviour,
+                ExecutionMode.VIRTUAL_THREAD);
+        wallClockSensor.startMeasuring();
         controlLoop.startControlling();
         waitForActuatorAdjustments(1, controlLoopUpdatePeriod);
-        assertThat(outputList.getSignals()).hasSizeGreaterThan(previousSize);
         controlLoop.stopControlling();
-        previousSize = outputList.getSignals().size();
+        wallClockSensor.stopMeasuring();
+        assertThat(outputList.getSignals().getLast().quantity()).isEqualTo(gain * setPoint);
+    }
 
-        controlLoop.startControlling();
-        waitForActuatorAdjustments(1, controlLoopUpdatePeriod);
-        assertThat(outputList.getSignals()).hasSizeGreaterThan(previousSize);
-        controlLoop.stopControlling();
-        previousSize = outputList.getSignals().size();
+    @Test
+    void testEventDriven() {
+        final List<Long> sampleEpochNanos = new CopyOnWriteArrayList<>();
+        final Actuator eventDrivenActuator = makeActuator();
+        eventDrivenActuator.addListener(signal -> sampleEpochNanos.add(sensor.getCurrentEpochNanos()));
+        final ControlLoop controlLoop = new ControlLoop(
+                ++controlLoopCount,
+                sensor,
+                eventDrivenActuator,
+                setPoint,
+                controlBehaviour);
+        assertThat(controlLoop.isEventDriven()).isTrue();
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(controlLoop::joinBatchGroup);
 
         controlLoop.startControlling();
-        waitForActuatorAdjustments(1, controlLoopUpdatePeriod);
-        assertThat(outputList.getSignals()).hasSizeGreaterThan(previousSize);
+        virtualScheduler.advanceBy(19*20L, timeUnit);
         controlLoop.stopControlling();
-        previousSize = outputList.getSignals().size();
+        assertThat(eventDrivenActuator.getSignalValue()).isEqualTo(gain * setPoint);
+
+        // Exactly one adjustment per measurement: no measurement is acted on twice and none is skipped
+        final List<Long> samples = new ArrayList<>(sampleEpochNanos);
+        assertThat(samples).hasSize(20);
+        for (int i = 1; i < samples.size(); i++) {
+            assertThat(samples.get(i) - samples.get(i - 1)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+    }
 
-        controlLoop.startControlling();
-        waitForActuatorAdjustments(1, controlLoopUpdatePeriod);
-        assertThat(outputList.getSignals()).hasSizeGreaterThan(previousSize);
-        controlLoop.stopControlling();
-        previousSize = outputList.getSignals().size();
+    /**
+     * Compares the time from a measurement to the resulting actuator adjustment for a polled control loop and an
+     * event-driven one attached to sensors with the same sampling period.
+     */
+    @Test
+    void testEventDrivenLatency() {
+        final int numAdjustments = 100;
+        final List<Long> polledLatencies = new CopyOnWriteArrayList<>();
+        final List<Long> eventDrivenLatencies = new CopyOnWriteArrayList<>();
+
+        final Sensor polledSensor = makeWallClockSensor();
+        final Actuator polledActuator = new Actuator(++actuatorCount, 0.0);
+        polledActuator.addListener(
+                signal -> polledLatencies.add(EpochNanoClock.now() - polledSensor.getCurrentEpochNanos()));
+        final ControlLoop polledLoop = new ControlLoop(
+                ++controlLoopCount,
+                polledSensor,
+                polledActuator,
+                setPoint,
+                7L,
+                timeUnit,
+                controlBehaviour);
 
-        controlLoop.startControlling();
-        waitForActuatorAdjustments(1, controlLoopUpdatePeriod);
-        assertThat(outputList.getSignals()).hasSizeGreaterThan(previousSize);
-        controlLoop.stopControlling();
+        final Sensor eventDrivenSensor = makeWallClockSensor();
+        final Actuator eventDrivenActuator = new Actuator(++actuatorCount, 0.0);
+        eventDrivenActuator.addListener(
+                signal -> eventDrivenLatencies.add(EpochNanoClock.now() - eventDrivenSensor.getCurrentEpochNanos()));
+        final ControlLoop eventDrivenLoop = new ControlLoop(
+                ++controlLoopCount,
+                eventDrivenSensor,
+                eventDrivenActuator,
+                setPoint,
+                controlBehaviour);
+
+        polledSensor.startMeasuring();
+        eventDrivenSensor.startMeasuring();
+        polledLoop.startControlling();
+        eventDrivenLoop.startControlling();
+        await().atMost(10, TimeUnit.SECONDS).until(() ->
+                polledLatencies.size() >= numAdjustments && eventDrivenLatencies.size() >= numAdjustments);
+        polledLoop.stopControlling();
+        eventDrivenLoop.stopControlling();
+        eventDrivenSensor.stopMeasuring();
+        polledSensor.stopMeasuring();
+
+        final long[] polled = polledLatencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        final long[] eventDriven = eventDrivenLatencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        logger.info("Sensor-to-actuator latency (us)\tpolled {}\tevent-driven {}",
+                latencyHistogram(polled), latencyHistogram(eventDriven));
+        assertThat(eventDriven[eventDriven.length / 2]).isLessThan(polled[polled.length / 2]);
+    }
+
+    private static String latencyHistogram(final long[] sortedLatencyNanos) {
+        return String.format(
+                "p50: %d p90: %d p99: %d max: %d",
+                TimeUnit.NANOSECONDS.toMicros(sortedLatencyNanos[sortedLatencyNanos.length / 2]),
+                TimeUnit.NANOSECONDS.toMicros(sortedLatencyNanos[(int) (sortedLatencyNanos.length * 0.9)]),
+                TimeUnit.NANOSECONDS.toMicros(sortedLatencyNanos[(int) (sortedLatencyNanos.length * 0.99)]),
+                TimeUnit.NANOSECONDS.toMicros(sortedLatencyNanos[sortedLatencyNanos.length - 1]));
     }
 
     @Test
@@ -152,12 +281,12 @@ class ControlLoopTest {
     void testSwitchControlBehaviour() {
         final ControlLoop controlLoop = makeDefaultControlLoop();
         controlLoop.startControlling();
-        waitForActuatorAdjustments(1, controlLoopUpdatePeriod);
+        advanceUpdatePeriods(0);
 
         final double previousOutput = outputList.getSignals().getLast().quantity();
 
         controlLoop.switchControlBehaviour(new ProportionalControl(2*gain));
-        waitForActuatorAdjustments(1, controlLoopUpdatePeriod);
+        advanceUpdatePeriods(1);
         final double newOutput = outputList.getSignals().getLast().quantity();
 
         // The new control behaviour has double the gain of the previous behaviour, so if the switch was successful the
@@ -165,6 +294,24 @@ class ControlLoopTest {
         assertThat(newOutput).isEqualTo(2*previousOutput);
     }
 
+    /**
+     * Tests that switching to a stateful control behaviour does not cause a step in the actuator output.
+     */
+    @Test
+    void testBumplessSwitchControlBehaviour() {
+        final ControlLoop controlLoop = makeDefaultControlLoop();
+        controlLoop.startControlling();
+        advanceUpdatePeriods(0);
+        final double previousOutput = outputList.getSignals().getLast().quantity();
+
+        controlLoop.switchControlBehaviour(new PidControl(5*gain, gain, 0.0, 0.0, -100.0, 100.0));
+        final int adjustmentsBeforeSwitch = outputList.getSignals().size();
+        advanceUpdatePeriods(1);
+
+        // A PidControl with five times the gain would have produced a step to 10.0 without bumpless transfer
+        assertThat(outputList.getSignals().get(adjustmentsBeforeSwitch).quantity()).isEqualTo(previousOutput);
+    }
+
     @ParameterizedTest
     @CsvSource({
             "100, 50",
@@ -172,18 +319,12 @@ class ControlLoopTest {
             "1000, 5"
     })
     void testUpdateSequence(final long updatePeriodMs, final int numUpdates) {
-        final ControlLoop controlLoop = new ControlLoop(
-                ++controlLoopCount,
-                sensor,
-                actuator,
-                setPoint,
-                updatePeriodMs,
-                TimeUnit.MILLISECONDS,
-                controlBehaviour);
+        final ControlLoop controlLoop = makeControlLoop(updatePeriodMs);
 
         controlLoop.startControlling();
-        waitForActuatorAdjustments(numUpdates, updatePeriodMs);
+        virtualScheduler.advanceBy((numUpdates - 1)*updatePeriodMs, TimeUnit.MILLISECONDS);
         controlLoop.stopControlling();
+        assertThat(outputList.getSignals()).hasSize(numUpdates);
 
         List<ZonedDateTime> updateTimes = new ArrayList<>(outputList.getSignals().size());
         outputList.getSignals().forEach(s -> updateTimes.add(s.dateTime()));
@@ -199,24 +340,64 @@ class ControlLoopTest {
     })
     void testUpdatePeriod(final long updatePeriodMs, final int numUpdates) {
 
-        final ControlLoop controlLoop = new ControlLoop(
-                ++controlLoopCount,
-                sensor,
-                actuator,
-                setPoint,
-                updatePeriodMs,
-                TimeUnit.MILLISECONDS,
-                controlBehaviour);
+        final ControlLoop controlLoop = makeControlLoop(updatePeriodMs);
 
         controlLoop.startControlling();
-        waitForActuatorAdjustments(numUpdates, updatePeriodMs);
+        virtualScheduler.advanceBy((numUpdates - 1)*updatePeriodMs, TimeUnit.MILLISECONDS);
         controlLoop.stopControlling();
+        assertThat(outputList.getSignals()).hasSize(numUpdates);
 
         List<ZonedDateTime> updateTimes = new ArrayList<>(outputList.getSignals().size());
         outputList.getSignals().forEach(s -> updateTimes.add(s.dateTime()));
 
         PeriodicExecutorTest.assertExecutionPeriod(
-                updateTimes, updatePeriodMs, TimeUnit.MILLISECONDS, 0.01);
+                updateTimes, updatePeriodMs, TimeUnit.MILLISECONDS, 0.0);
+    }
+
+    /**
+     * Runs a thousand independent loops on one virtual clock for a simulated minute; every loop must be updated on every
+     * one of its ticks, and because no thread sleeps the scenario finishes in a fraction of the simulated time.
+     */
+    @Test
+    void testManyLoopsOnVirtualClock() {
+        final int numLoops = 1000;
+        final long simulatedMs = TimeUnit.MINUTES.toMillis(1);
+        final List<Actuator> actuators = new ArrayList<>(numLoops);
+        for (int i = 0; i < numLoops; i++) {
+            final Sensor loopSensor = makeSensor();
+            final Actuator loopActuator = makeActuator();
+            actuators.add(loopActuator);
+            // Spread the loops over a range of update periods so that their ticks interleave
+            final ControlLoop controlLoop = new ControlLoop(
+                    ++controlLoopCount,
+                    loopSensor,
+                    loopActuator,
+                    setPoint,
+                    100L*(1 + i % 10),
+                    TimeUnit.MILLISECONDS,
+                    new ProportionalControl(gain),
+                    ExecutionMode.SCHEDULER_THREAD,
+                    virtualScheduler);
+            loopSensor.startMeasuring();
+            controlLoop.startControlling();
+        }
+
+        final long startNanos = System.nanoTime();
+        virtualScheduler.advanceBy(simulatedMs, TimeUnit.MILLISECONDS);
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        logger.info("Simulated {} ms of {} control loops in {} ms ({} executions)",
+                simulatedMs, numLoops, elapsedMs, virtualScheduler.getExecutionCount());
+
+        for (int i = 0; i < numLoops; i++) {
+            assertThat(actuators.get(i).getSignalValue()).isEqualTo(gain * setPoint);
+        }
+        final long expectedLoopTicks = IntStream.range(0, numLoops)
+                .mapToLong(i -> simulatedMs / (100L*(1 + i % 10)) + 1)
+                .sum();
+        // Every loop's sensor samples every 20 ms, as does the sensor started in setUp()
+        final long expectedSensorTicks = (numLoops + 1L) * (simulatedMs / 20L + 1);
+        assertThat(virtualScheduler.getExecutionCount()).isEqualTo(expectedLoopTicks + expectedSensorTicks);
+        assertThat(elapsedMs).isLessThan(simulatedMs / 4);
     }
 
     /**
@@ -256,4 +437,135 @@ class ControlLoopTest {
                         controlBehaviour));
     }
 
+    /**
+     * Tests that a loop's meters are removed when it is deregistered, that a loop registered again under the same id
+     * reports its own latencies, and that a loop rejected as a duplicate leaves the meters of the loop it duplicates.
+     */
+    @Test
+    void testMetersFollowLoopLifecycle() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Metrics.addRegistry(meterRegistry);
+        try {
+            final ControlLoop controlLoop = makeDefaultControlLoop();
+            final String loopTag = controlLoop.toString();
+            controlLoop.startControlling();
+            virtualScheduler.advanceBy(10L * controlLoopUpdatePeriod, timeUnit);
+            final double recordedLatencies = meterRegistry.get("control.loop.latency").tag("loop", loopTag)
+                    .functionTimer().count();
+            assertThat(recordedLatencies).isPositive();
+
+            final Sensor newSensor = makeSensor();
+            final Actuator newActuator = makeActuator();
+            assertThatExceptionOfType(ControlLoopRegistry.RegistrationDuplicationException.class)
+                    .isThrownBy(() -> new ControlLoop(
+                            controlLoop.getId(),
+                            newSensor,
+                            newActuator,
+                            setPoint,
+                            controlLoopUpdatePeriod,
+                            timeUnit,
+                            controlBehaviour,
+                            ExecutionMode.SCHEDULER_THREAD,
+                            virtualScheduler));
+            assertThat(meterRegistry.get("control.loop.latency").tag("loop", loopTag).functionTimer().count())
+                    .isEqualTo(recordedLatencies);
+
+            ControlLoop.getControlLoopRegistry().deregisterControlLoop(controlLoop.getId());
+            assertThat(meterRegistry.find("control.loop.latency").tag("loop", loopTag).meters()).isEmpty();
+            assertThat(meterRegistry.find("control.executor.lateness").tag("executor", loopTag).meters()).isEmpty();
+            // The loop's sensor is released along with it, so the loop registered again is given a new one
+            newSensor.startMeasuring();
+            final ControlLoop reregisteredLoop = new ControlLoop(
+                    controlLoop.getId(),
+                    newSensor,
+                    newActuator,
+                    setPoint,
+                    controlLoopUpdatePeriod,
+                    timeUnit,
+                    controlBehaviour,
+                    ExecutionMode.SCHEDULER_THREAD,
+                    virtualScheduler);
+            assertThat(meterRegistry.get("control.loop.latency").tag("loop", loopTag).functionTimer().count())
+                    .isZero();
+            reregisteredLoop.startControlling();
+            virtualScheduler.advanceBy(controlLoopUpdatePeriod, timeUnit);
+            assertThat(meterRegistry.get("control.loop.latency").tag("loop", loopTag).functionTimer().count())
+                    .isPositive();
+        } finally {
+            Metrics.removeRegistry(meterRegistry);
+        }
+    }
+
+    /**
+     * Tests that loops can act on the same sensor through taps of it, each of which is registered under its own id.
+     */
+    @Test
+    void testLoopsShareSensorThroughTaps() {
+        final List<Actuator> actuators = new ArrayList<>();
+        final List<ControlLoop> controlLoops = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            actuators.add(makeActuator());
+            controlLoops.add(new ControlLoop(
+                    ++controlLoopCount,
+                    sensor.tap(++sensorCount),
+                    actuators.getLast(),
+                    setPoint,
+                    controlLoopUpdatePeriod,
+                    timeUnit,
+                    new ProportionalControl(gain),
+                    ExecutionMode.SCHEDULER_THREAD,
+                    virtualScheduler));
+        }
+        actuators.add(makeActuator());
+        final OutputList eventDrivenOutputs = new OutputList();
+        actuators.getLast().addListener(eventDrivenOutputs);
+        controlLoops.add(new ControlLoop(
+                ++controlLoopCount,
+                sensor.tap(++sensorCount),
+                actuators.getLast(),
+                setPoint,
+                new ProportionalControl(gain)));
+        controlLoops.forEach(ControlLoop::startControlling);
+        virtualScheduler.advanceBy(10L * controlLoopUpdatePeriod, timeUnit);
+
+        assertThat(sensor.getTapCount()).isEqualTo(4);
+        assertThat(actuators).allSatisfy(loopActuator -> assertThat(loopActuator.getSignalValue()).isEqualTo(setPoint));
+        // The sensor samples twice per loop update period, and the event-driven loop acts on every sample
+        assertThat(eventDrivenOutputs.getSignals()).hasSize(21);
+
+        // Deregistering a loop removes its tap, and leaves the shared sensor measuring for the other loops
+        ControlLoop.getControlLoopRegistry().deregisterControlLoop(controlLoops.getLast().getId());
+        assertThat(sensor.getTapCount()).isEqualTo(3);
+        virtualScheduler.advanceBy(controlLoopUpdatePeriod, timeUnit);
+        assertThat(eventDrivenOutputs.getSignals()).hasSize(21);
+    }
+
+    /**
+     * Tests that an event-driven loop keeps acting on every measurement of a sensor with a reporting deadband, so that
+     * its integral action corrects an error smaller than the deadband, while the sensor's listeners only see the
+     * measurements that pass it.
+     */
+    @Test
+    void testEventDrivenLoopOnDeadbandedSensor() {
+        sensor.setReportingDeadband(ReportingDeadband.absolute(10.0, 0L, TimeUnit.SECONDS));
+        final List<Double> reportedQuantities = new ArrayList<>();
+        sensor.addSampleListener((quantity, epochNanos) -> reportedQuantities.add(quantity));
+        final ControlLoop controlLoop = new ControlLoop(
+                ++controlLoopCount,
+                sensor,
+                actuator,
+                setPoint,
+                new PidControl(0.0, 1.0, 0.0, 0.0, -100.0, 100.0));
+        controlLoop.startControlling();
+        virtualScheduler.advanceBy(10L * controlLoopUpdatePeriod, timeUnit);
+        controlLoop.stopControlling();
+
+        // The sensor samples twice per loop update period, and the loop acts on every sample
+        assertThat(outputList.getSignals()).hasSize(21);
+        for (int i = 1; i < outputList.getSignals().size(); i++) {
+            assertThat(outputList.getSignals().get(i).quantity())
+                    .isGreaterThan(outputList.getSignals().get(i - 1).quantity());
+        }
+        assertThat(reportedQuantities).hasSize(1);
+    }
 }
@@ -0,0 +1,164 @@
+package com.control_ops.control_system.control_loop;
+
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.PhaseLoadProfile;
+import com.control_ops.control_system.TestIds;
+import com.control_ops.control_system.VirtualScheduler;
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.ConstantMeasurement;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class LoopGroupTest {
+    private static final long UPDATE_PERIOD_MS = 100L;
+    private static final long UPDATE_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(UPDATE_PERIOD_MS);
+    // A whole number of periods since the epoch, so that runs are reproducible
+    private static final long START_EPOCH_NANOS = 17_000_000L * UPDATE_PERIOD_NANOS;
+    // Just short of ten periods, so that every loop updates exactly ten times whatever its phase
+    private static final long RUN_NANOS = 10L * UPDATE_PERIOD_NANOS - 1L;
+
+    @RegisterExtension
+    final TestIds ids = new TestIds();
+
+    private final VirtualScheduler virtualScheduler = new VirtualScheduler(START_EPOCH_NANOS);
+    private final List<Sensor> sensors = new ArrayList<>();
+    private final List<Actuator> actuators = new ArrayList<>();
+    private static final Logger logger = LoggerFactory.getLogger(LoopGroupTest.class);
+
+    private ControlLoop makeControlLoop() {
+        final int id = ids.next();
+        final Sensor sensor = new Sensor(id, UPDATE_PERIOD_MS, TimeUnit.MILLISECONDS, SignalUnit.CELSIUS,
+                new ConstantMeasurement(1.0), ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+        sensors.add(sensor);
+        final Actuator actuator = new Actuator(id, 0.0, virtualScheduler);
+        actuators.add(actuator);
+        return new ControlLoop(id, sensor, actuator, 2.0, UPDATE_PERIOD_MS, TimeUnit.MILLISECONDS,
+                new ProportionalControl(1.0), ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sensors.forEach(Sensor::stopMeasuring);
+    }
+
+    @Test
+    void testPhaseOfSlot() {
+        final long[] phases = new long[8];
+        for (int slot = 0; slot < phases.length; slot++) {
+            phases[slot] = LoopGroup.phaseOfSlot(slot, 800L);
+        }
+        assertThat(phases).containsExactly(0L, 400L, 200L, 600L, 100L, 500L, 300L, 700L);
+        assertThat(LoopGroup.phaseOfSlot(1, UPDATE_PERIOD_NANOS)).isEqualTo(UPDATE_PERIOD_NANOS / 2L);
+    }
+
+    /**
+     * Starts a thousand loops in the same instant, first on their own and then in a loop group, and compares how their
+     * updates are spread across the update period.
+     */
+    @Test
+    void testStaggeredLoadIsFlatter() {
+        final int numLoops = 1024;
+        final PhaseLoadProfile ungroupedProfile = runLoops(numLoops, false);
+        final LoopGroup loopGroup = LoopGroup.forPeriod(UPDATE_PERIOD_MS, TimeUnit.MILLISECONDS);
+        loopGroup.getPhaseLoadProfile().reset();
+        final PhaseLoadProfile groupedProfile = runLoops(numLoops, true);
+        logger.info("Peak-to-mean update ratio: {} on their own, {} in a loop group ({} including sensors)",
+                ungroupedProfile.getExecutionPeakRatio(),
+                groupedProfile.getExecutionPeakRatio(),
+                loopGroup.getPhaseLoadProfile().getExecutionPeakRatio());
+
+        // Every ungrouped update falls in the same bin
+        assertThat(ungroupedProfile.getExecutionPeakRatio()).isEqualTo(32.0);
+        assertThat(groupedProfile.getExecutionPeakRatio()).isEqualTo(1.0);
+        assertThat(loopGroup.getPhaseLoadProfile().getExecutionPeakRatio()).isLessThan(1.25);
+        assertThat(loopGroup.size()).isEqualTo(numLoops);
+    }
+
+    /**
+     * Runs the provided number of loops, all started in the same instant, for just short of ten periods.
+     * @return When in the period each loop adjusted its actuator
+     */
+    private PhaseLoadProfile runLoops(final int numLoops, final boolean joinLoopGroup) {
+        final PhaseLoadProfile phaseLoadProfile = new PhaseLoadProfile(UPDATE_PERIOD_NANOS, 32);
+        final List<ControlLoop> controlLoops = new ArrayList<>(numLoops);
+        for (int i = 0; i < numLoops; i++) {
+            final ControlLoop controlLoop = makeControlLoop();
+            if (joinLoopGroup) {
+                controlLoop.joinLoopGroup();
+            }
+            actuators.getLast().addSampleListener((quantity, epochNanos) -> phaseLoadProfile.record(epochNanos, 0L));
+            controlLoops.add(controlLoop);
+        }
+        for (int i = 0; i < numLoops; i++) {
+            sensors.get(sensors.size() - numLoops + i).startMeasuring();
+            controlLoops.get(i).startControlling();
+        }
+        virtualScheduler.advanceBy(RUN_NANOS, TimeUnit.NANOSECONDS);
+        ControlLoop.getControlLoopRegistry().deregisterAll();
+        return phaseLoadProfile;
+    }
+
+    /**
+     * Each update of a grouped loop acts on a measurement taken one sensor lead earlier.
+     */
+    @Test
+    void testSensorSamplesJustBeforeLoop() {
+        final ControlLoop controlLoop = makeControlLoop();
+        makeControlLoop().joinLoopGroup();
+        controlLoop.joinLoopGroup();
+        final AtomicLong lastMeasurementEpochNanos = new AtomicLong();
+        final List<Long> measurementAges = new ArrayList<>();
+        sensors.getFirst().addSampleListener((quantity, epochNanos) -> lastMeasurementEpochNanos.set(epochNanos));
+        actuators.getFirst().addSampleListener((quantity, epochNanos) ->
+                measurementAges.add(epochNanos - lastMeasurementEpochNanos.get()));
+        sensors.getFirst().startMeasuring();
+        controlLoop.startControlling();
+        virtualScheduler.advanceBy(RUN_NANOS, TimeUnit.NANOSECONDS);
+
+        assertThat(measurementAges).hasSize(10).containsOnly(LoopGroup.MAX_SENSOR_LEAD_NANOS);
+        assertThat(Math.floorMod(lastMeasurementEpochNanos.get(), UPDATE_PERIOD_NANOS))
+                .isEqualTo(controlLoop.getPhaseNanos() - LoopGroup.MAX_SENSOR_LEAD_NANOS);
+    }
+
+    @Test
+    void testLeaveAndRejoin() {
+        final ControlLoop first = makeControlLoop();
+        final ControlLoop second = makeControlLoop();
+        first.joinLoopGroup();
+        second.joinLoopGroup();
+        final long secondPhase = second.getPhaseNanos();
+        assertThat(secondPhase - first.getPhaseNanos()).isEqualTo(UPDATE_PERIOD_NANOS / 2L);
+
+        second.leaveLoopGroup();
+        assertThat(second.getPhaseNanos()).isEqualTo(-1L);
+        final ControlLoop third = makeControlLoop();
+        third.joinLoopGroup();
+        // The freed slot is reused
+        assertThat(third.getPhaseNanos()).isEqualTo(secondPhase);
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(third::joinBatchGroup);
+    }
+
+    @Test
+    void testEventDrivenLoopCannotJoin() {
+        final int id = ids.next();
+        final Sensor sensor = new Sensor(id, UPDATE_PERIOD_MS, TimeUnit.MILLISECONDS, SignalUnit.CELSIUS,
+                new ConstantMeasurement(1.0), ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+        sensors.add(sensor);
+        final ControlLoop controlLoop = new ControlLoop(id, sensor, new Actuator(id, 0.0), 2.0,
+                new ProportionalControl(1.0));
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(controlLoop::joinLoopGroup);
+    }
+}
@@ -0,0 +1,115 @@
+package com.control_ops.control_system.control_loop;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+
+class PidControlTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @ParameterizedTest
+    @CsvSource({
+            // All gains zero
+            "0.0, 0.0, 0.0, 0.0, 0.0, 100.0",
+            // Negative derivative filter time
+            "1.0, 0.0, 0.0, -1.0, 0.0, 100.0",
+            // Output limits reversed or equal
+            "1.0, 0.0, 0.0, 0.0, 100.0, 0.0",
+            "1.0, 0.0, 0.0, 0.0, 50.0, 50.0"
+    })
+    void testInstantiation(
+            final double proportionalGain,
+            final double integralGain,
+            final double derivativeGain,
+            final double derivativeFilterTime,
+            final double minOutput,
+            final double maxOutput) {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new PidControl(
+                proportionalGain, integralGain, derivativeGain, derivativeFilterTime, minOutput, maxOutput));
+    }
+
+    @Test
+    void testProportionalTerm() {
+        final PidControl pidControl = new PidControl(2.0, 0.0, 0.0, 0.0, -100.0, 100.0);
+        assertThat(pidControl.calculateActuatorOutput(5.0, 3.0, 0L)).isEqualTo(4.0);
+        assertThat(pidControl.calculateActuatorOutput(5.0, 6.0, SECOND)).isEqualTo(-2.0);
+    }
+
+    /**
+     * Tests that the integral term accumulates over the real time between ticks rather than per tick.
+     */
+    @Test
+    void testIntegralUsesElapsedTime() {
+        final PidControl pidControl = new PidControl(0.0, 1.0, 0.0, 0.0, -100.0, 100.0);
+        pidControl.calculateActuatorOutput(2.0, 0.0, 0L);
+        // 0.5 s at an error of 2 integrates to 1.0
+        assertThat(pidControl.calculateActuatorOutput(2.0, 0.0, SECOND / 2)).isCloseTo(1.0, within(1e-9));
+        // A late tick 2 s later integrates four times as much
+        assertThat(pidControl.calculateActuatorOutput(2.0, 0.0, SECOND / 2 + 2 * SECOND)).isCloseTo(5.0, within(1e-9));
+    }
+
+    /**
+     * Tests that the integrator stops at the output limit, so the output leaves saturation as soon as the error
+     * changes sign.
+     */
+    @Test
+    void testAntiWindup() {
+        final PidControl pidControl = new PidControl(1.0, 10.0, 0.0, 0.0, 0.0, 100.0);
+        long tick = 0L;
+        for (int i = 0; i < 1000; i++) {
+            assertThat(pidControl.calculateActuatorOutput(50.0, 0.0, tick)).isBetween(0.0, 100.0);
+            tick += SECOND;
+        }
+        assertThat(pidControl.calculateActuatorOutput(50.0, 0.0, tick)).isEqualTo(100.0);
+
+        // Overshoot: without anti-windup the integrator would hold the output at 100 for a long time
+        tick += SECOND / 100;
+        assertThat(pidControl.calculateActuatorOutput(50.0, 60.0, tick)).isLessThan(100.0);
+    }
+
+    /**
+     * Tests that a step in the measurement produces a derivative kick that the filter spreads over time, and that a
+     * set point step produces no derivative kick at all.
+     */
+    @Test
+    void testDerivativeFilter() {
+        final PidControl unfiltered = new PidControl(0.0, 0.0, 1.0, 0.0, -1000.0, 1000.0);
+        final PidControl filtered = new PidControl(0.0, 0.0, 1.0, 1.0, -1000.0, 1000.0);
+        final long tickPeriod = SECOND / 10;
+        unfiltered.calculateActuatorOutput(0.0, 0.0, 0L);
+        filtered.calculateActuatorOutput(0.0, 0.0, 0L);
+
+        // The measurement jumps by 1 within one 0.1 s tick: a raw derivative of 10 per second
+        final double unfilteredKick = unfiltered.calculateActuatorOutput(0.0, 1.0, tickPeriod);
+        final double filteredKick = filtered.calculateActuatorOutput(0.0, 1.0, tickPeriod);
+        assertThat(unfilteredKick).isCloseTo(-10.0, within(1e-9));
+        assertThat(filteredKick).isCloseTo(-10.0 * 0.1 / 1.1, within(1e-9));
+
+        // Once the measurement settles, the filtered derivative decays rather than dropping straight to zero
+        final double decayedKick = filtered.calculateActuatorOutput(0.0, 1.0, 2 * tickPeriod);
+        assertThat(decayedKick).isBetween(filteredKick, 0.0);
+
+        // A set point step does not affect the derivative term
+        final PidControl derivativeOnly = new PidControl(0.0, 0.0, 1.0, 0.0, -1000.0, 1000.0);
+        derivativeOnly.calculateActuatorOutput(0.0, 1.0, 0L);
+        assertThat(derivativeOnly.calculateActuatorOutput(100.0, 1.0, tickPeriod)).isCloseTo(0.0, within(1e-9));
+    }
+
+    /**
+     * Tests that after initialization the first output equals the actuator's current output.
+     */
+    @Test
+    void testBumplessTransfer() {
+        final PidControl pidControl = new PidControl(2.0, 1.0, 0.5, 0.1, 0.0, 100.0);
+        pidControl.initialize(37.5, 10.0, 4.0, SECOND);
+        assertThat(pidControl.calculateActuatorOutput(10.0, 4.0, SECOND)).isCloseTo(37.5, within(1e-9));
+        // Subsequent outputs move smoothly away from the transferred output
+        assertThat(pidControl.calculateActuatorOutput(10.0, 4.0, SECOND + SECOND / 100)).isCloseTo(37.56, within(1e-9));
+    }
+}
@@ -0,0 +1,206 @@
+package com.control_ops.control_system.historian;
+
+import com.control_ops.control_system.TestIds;
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.ConstantMeasurement;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest(properties = "management.metrics.use-global-registry=false")
+class HistorianTest {
+    @RegisterExtension
+    final TestIds ids = new TestIds();
+
+    @Autowired
+    private Historian historian;
+
+    @Autowired
+    private SignalRecordRepository signalRecordRepository;
+
+    private static final Logger logger = LoggerFactory.getLogger(HistorianTest.class);
+
+    @Test
+    void testRecordSensorAndActuator() {
+        final int id = ids.next();
+        final Sensor sensor = new Sensor(id, 10L, TimeUnit.MILLISECONDS, SignalUnit.CELSIUS,
+                new ConstantMeasurement(21.5));
+        final Actuator actuator = new Actuator(id, 0.0);
+        historian.record(sensor);
+        historian.record(actuator);
+        sensor.startMeasuring();
+        for (int i = 1; i <= 10; i++) {
+            actuator.adjustSignal(i * 10.0);
+        }
+        await().atMost(5, TimeUnit.SECONDS).until(() ->
+                signalRecordRepository.countBySourceAndSourceId(SignalSource.SENSOR, id) >= 3);
+        sensor.stopMeasuring();
+        historian.stopRecording(sensor);
+        historian.stopRecording(actuator);
+        actuator.adjustSignal(0.0);
+
+        await().atMost(5, TimeUnit.SECONDS).until(() ->
+                signalRecordRepository.countBySourceAndSourceId(SignalSource.ACTUATOR, id) == 10);
+        final List<SignalRecord> records = signalRecordRepository
+                .findBySourceAndSourceIdOrderByEpochNanos(SignalSource.ACTUATOR, id);
+        assertThat(records).extracting(SignalRecord::getQuantity)
+                .containsExactly(10.0, 20.0, 30.0, 40.0, 50.0, 60.0, 70.0, 80.0, 90.0, 100.0);
+        assertThat(records.getFirst().toSignal().unit()).isEqualTo(SignalUnit.PERCENTAGE);
+        assertThat(signalRecordRepository.findBySourceAndSourceIdOrderByEpochNanos(SignalSource.SENSOR, id))
+                .allSatisfy(record -> assertThat(record.getQuantity()).isEqualTo(21.5));
+    }
+
+    @Test
+    void testThroughput() {
+        final int id = ids.next();
+        final int sampleCount = 500_000;
+        final Actuator actuator = new Actuator(id, 0.0);
+        historian.record(actuator);
+        final long persistedBefore = historian.getPersistedCount();
+        final long startNanos = System.nanoTime();
+        for (int i = 0; i < sampleCount; i++) {
+            actuator.adjustSignal(i % 100);
+        }
+        final long producedNanos = System.nanoTime() - startNanos;
+        await().atMost(30, TimeUnit.SECONDS).pollInterval(10, TimeUnit.MILLISECONDS).until(() ->
+                historian.getPersistedCount() - persistedBefore >= sampleCount);
+        final long persistedNanos = System.nanoTime() - startNanos;
+        historian.stopRecording(actuator);
+        assertThat(signalRecordRepository.countBySourceAndSourceId(SignalSource.ACTUATOR, id))
+                .isEqualTo(sampleCount);
+        logger.info("Buffered {} samples in {} ms and persisted them in {} ms ({} samples/s)",
+                sampleCount,
+                TimeUnit.NANOSECONDS.toMillis(producedNanos),
+                TimeUnit.NANOSECONDS.toMillis(persistedNanos),
+                sampleCount * TimeUnit.SECONDS.toNanos(1) / persistedNanos);
+    }
+
+    @Test
+    void testNoLossUnderBackPressure() throws Exception {
+        // A writer that fails outright at first, as a database would while it is restarting, and then does not
+        // return until the producers are done, so that every signal they produce must be buffered
+        final List<SignalRecord> persisted = new CopyOnWriteArrayList<>();
+        final AtomicInteger failuresRemaining = new AtomicInteger(3);
+        final CountDownLatch databaseRecovered = new CountDownLatch(1);
+        final Historian slowHistorian = new Historian("slow-historian", records -> {
+            if (failuresRemaining.getAndDecrement() > 0) {
+                throw new IllegalStateException("The database is unavailable");
+            }
+            waitFor(databaseRecovered);
+            persisted.addAll(records);
+        }, 1000, 10L, Historian.DEFAULT_MAX_BUFFERED_SIGNALS);
+
+        final int producerCount = 4;
+        final int samplesPerProducer = 50_000;
+        final List<Actuator> actuators = new ArrayList<>();
+        for (int i = 0; i < producerCount; i++) {
+            final Actuator actuator = new Actuator(ids.next(), 0.0);
+            slowHistorian.record(actuator);
+            actuators.add(actuator);
+        }
+        try (final ExecutorService producers = Executors.newFixedThreadPool(producerCount)) {
+            final List<Future<?>> productions = new ArrayList<>();
+            for (final Actuator actuator : actuators) {
+                productions.add(producers.submit(() -> {
+                    for (int i = 0; i < samplesPerProducer; i++) {
+                        actuator.adjustSignal(i);
+                    }
+                }));
+            }
+            for (final Future<?> production : productions) {
+                // Only bounds a hang; producers that waited for the writer would never finish
+                production.get(30L, TimeUnit.SECONDS);
+            }
+        }
+        // Every signal was produced while the writer could not persist any of them
+        assertThat(persisted).isEmpty();
+        assertThat(slowHistorian.getBufferedCount()).isEqualTo((long) producerCount * samplesPerProducer);
+        assertThat(slowHistorian.getOverflowCount()).isZero();
+
+        databaseRecovered.countDown();
+
+        slowHistorian.close();
+        assertThat(slowHistorian.getBufferedCount()).isZero();
+        assertThat(persisted).hasSize(producerCount * samplesPerProducer);
+        for (final Actuator actuator : actuators) {
+            final List<SignalRecord> actuatorRecords = persisted.stream()
+                    .filter(record -> record.getSourceId() == actuator.getId())
+                    .sorted(Comparator.comparingLong(SignalRecord::getEpochNanos))
+                    .toList();
+            assertThat(actuatorRecords).extracting(SignalRecord::getQuantity)
+                    .containsExactlyElementsOf(IntStream.range(0, samplesPerProducer)
+                            .mapToObj(i -> (double) i)
+                            .toList());
+        }
+    }
+
+    /**
+     * While the database is unavailable, the buffer must stop growing at its maximum and count the signals it drops;
+     * once the database recovers, every signal that was buffered must be persisted.
+     */
+    @Test
+    void testBoundedBuffer() {
+        final int id = ids.next();
+        final List<SignalRecord> persisted = new CopyOnWriteArrayList<>();
+        final AtomicInteger failuresRemaining = new AtomicInteger(Integer.MAX_VALUE);
+        final Historian boundedHistorian = new Historian("bounded-historian", records -> {
+            if (failuresRemaining.get() > 0) {
+                throw new IllegalStateException("The database is unavailable");
+            }
+            persisted.addAll(records);
+        }, 100, 10L, 1000);
+        final Actuator actuator = new Actuator(id, 0.0);
+        boundedHistorian.record(actuator);
+        for (int i = 0; i < 5000; i++) {
+            actuator.adjustSignal(i);
+        }
+
+        // Each of the filling and draining buffers holds at most the maximum
+        assertThat(boundedHistorian.getBufferedCount()).isLessThanOrEqualTo(2000L);
+        assertThat(boundedHistorian.getOverflowCount()).isGreaterThanOrEqualTo(3000L);
+
+        failuresRemaining.set(0);
+        boundedHistorian.close();
+        assertThat(boundedHistorian.getBufferedCount()).isZero();
+        assertThat(persisted).hasSize((int) (5000L - boundedHistorian.getOverflowCount()));
+        assertThat(persisted.getFirst().getQuantity()).isZero();
+    }
+
+    @Test
+    void testInvalidBatchSize() {
+        assertThatThrownBy(() -> new Historian(
+                "invalid-historian", records -> {}, 0, 10L, Historian.DEFAULT_MAX_BUFFERED_SIGNALS))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new Historian("invalid-historian", records -> {}, 100, 10L, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void waitFor(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.control_ops.control_system.historian;
+
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.ConstantMeasurement;
+import com.control_ops.control_system.instrument.sensor.ReportingDeadband;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class SignalJournalTest {
+    @TempDir
+    private Path directory;
+
+    private record JournalRecord(
+            SignalSource source,
+            int sourceId,
+            double quantity,
+            SignalUnit unit,
+            long epochNanos) {
+    }
+
+    private List<JournalRecord> replay() {
+        final List<JournalRecord> records = new ArrayList<>();
+        SignalJournal.replay(directory, (source, sourceId, quantity, unit, epochNanos) ->
+                records.add(new JournalRecord(source, sourceId, quantity, unit, epochNanos)));
+        return records;
+    }
+
+    private long segmentCount() throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testAppendAndReplay() {
+        try (final SignalJournal journal = new SignalJournal(directory, 16, 4)) {
+            journal.append(SignalSource.SENSOR, 7, 21.5, SignalUnit.CELSIUS, 1_000L);
+            journal.append(SignalSource.ACTUATOR, 8, 42.0, SignalUnit.PERCENTAGE, 2_000L);
+            assertThat(journal.getNextSequence()).isEqualTo(2L);
+        }
+        assertThat(replay()).containsExactly(
+                new JournalRecord(SignalSource.SENSOR, 7, 21.5, SignalUnit.CELSIUS, 1_000L),
+                new JournalRecord(SignalSource.ACTUATOR, 8, 42.0, SignalUnit.PERCENTAGE, 2_000L));
+    }
+
+    @Test
+    void testRollingAndRetention() throws IOException {
+        try (final SignalJournal journal = new SignalJournal(directory, 10, 3)) {
+            for (int i = 0; i < 45; i++) {
+                journal.append(SignalSource.SENSOR, 1, i, SignalUnit.CELSIUS, i);
+            }
+        }
+        // Segments starting at 20, 30 and 40 are retained; the first two have been deleted
+        assertThat(segmentCount()).isEqualTo(3L);
+        assertThat(replay()).extracting(JournalRecord::epochNanos)
+                .containsExactlyElementsOf(IntStream.range(20, 45).mapToObj(i -> (long) i).toList());
+    }
+
+    @Test
+    void testReopenResumesAfterLastRecord() {
+        try (final SignalJournal journal = new SignalJournal(directory, 10, 3)) {
+            for (int i = 0; i < 15; i++) {
+                journal.append(SignalSource.SENSOR, 1, i, SignalUnit.CELSIUS, i);
+            }
+        }
+        try (final SignalJournal journal = new SignalJournal(directory, 10, 3)) {
+            assertThat(journal.getNextSequence()).isEqualTo(15L);
+            for (int i = 15; i < 25; i++) {
+                journal.append(SignalSource.SENSOR, 1, i, SignalUnit.CELSIUS, i);
+            }
+        }
+        assertThat(replay()).extracting(JournalRecord::epochNanos)
+                .containsExactlyElementsOf(IntStream.range(0, 25).mapToObj(i -> (long) i).toList());
+    }
+
+    @Test
+    void testReplayWhileAppending() {
+        try (final SignalJournal journal = new SignalJournal(directory, 1024, 4)) {
+            journal.append(SignalSource.SENSOR, 1, 1.0, SignalUnit.CELSIUS, 1L);
+            assertThat(replay()).hasSize(1);
+            journal.append(SignalSource.SENSOR, 1, 2.0, SignalUnit.CELSIUS, 2L);
+            assertThat(replay()).hasSize(2);
+        }
+    }
+
+    @Test
+    void testRecordInstruments() {
+        final Sensor sensor = new Sensor(14_001, 10L, TimeUnit.MILLISECONDS, SignalUnit.FAHRENHEIT,
+                new ConstantMeasurement(70.0));
+        // The constant measurements never leave the deadband, but the journal must still see every one of them
+        sensor.setReportingDeadband(new ReportingDeadband(1.0, 0.0, 0L, TimeUnit.SECONDS));
+        final Actuator actuator = new Actuator(14_001, 0.0);
+        try (final SignalJournal journal = new SignalJournal(directory, 1024, 4)) {
+            journal.record(sensor);
+            journal.record(actuator);
+            sensor.startMeasuring();
+            actuator.adjustSignal(30.0);
+            actuator.adjustSignal(60.0);
+            await().atMost(1, TimeUnit.SECONDS).until(() -> journal.getNextSequence() >= 5L);
+            sensor.stopMeasuring();
+            journal.stopRecording(actuator);
+            actuator.adjustSignal(90.0);
+        }
+        final List<JournalRecord> records = replay();
+        assertThat(records).filteredOn(record -> record.source() == SignalSource.ACTUATOR)
+                .extracting(JournalRecord::quantity)
+                .containsExactly(30.0, 60.0);
+        assertThat(records).filteredOn(record -> record.source() == SignalSource.SENSOR)
+                .hasSizeGreaterThanOrEqualTo(3)
+                .allMatch(record -> record.sourceId() == 14_001
+                        && record.quantity() == 70.0
+                        && record.unit() == SignalUnit.FAHRENHEIT);
+    }
+
+    @Test
+    void testConcurrentAppends() throws InterruptedException {
+        final int threadCount = 4;
+        final int appendsPerThread = 10_000;
+        try (final SignalJournal journal = new SignalJournal(directory, 1000, 100);
+             final ExecutorService executor = Executors.newFixedThreadPool(threadCount)) {
+            for (int thread = 0; thread < threadCount; thread++) {
+                final int sourceId = thread;
+                executor.submit(() -> {
+                    for (int i = 0; i < appendsPerThread; i++) {
+                        journal.append(SignalSource.SENSOR, sourceId, i, SignalUnit.CELSIUS, i);
+                    }
+                });
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+        final List<JournalRecord> records = replay();
+        assertThat(records).hasSize(threadCount * appendsPerThread);
+        for (int thread = 0; thread < threadCount; thread++) {
+            final int sourceId = thread;
+            assertThat(records).filteredOn(record -> record.sourceId() == sourceId)
+                    .extracting(JournalRecord::epochNanos)
+                    .containsExactlyElementsOf(IntStream.range(0, appendsPerThread).mapToObj(i -> (long) i).toList());
+        }
+    }
+
+    /**
+     * Tests that appending to a closed journal, as a sampling thread racing the close can, drops the record instead of
+     * throwing into the thread.
+     */
+    @Test
+    void testAppendAfterClose() {
+        final SignalJournal journal = new SignalJournal(directory, 16, 1);
+        journal.append(SignalSource.SENSOR, 1, 1.0, SignalUnit.CELSIUS, 1L);
+        journal.close();
+        journal.append(SignalSource.SENSOR, 1, 2.0, SignalUnit.CELSIUS, 2L);
+        journal.append(SignalSource.SENSOR, 1, 3.0, SignalUnit.CELSIUS, 3L);
+
+        assertThat(journal.getDroppedAfterCloseCount()).isEqualTo(2L);
+        assertThat(replay()).extracting(JournalRecord::quantity).containsExactly(1.0);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThatThrownBy(() -> new SignalJournal(directory, 0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SignalJournal(directory, Integer.MAX_VALUE, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SignalJournal(directory, 16, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
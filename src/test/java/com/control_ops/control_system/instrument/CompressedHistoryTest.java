@@ -0,0 +1,221 @@
+package com.control_ops.control_system.instrument;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class CompressedHistoryTest {
+    private static final long SAMPLING_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+    private static final long START_EPOCH_NANOS = 1_700_000_000_000_000_000L;
+    private static final Logger logger = LoggerFactory.getLogger(CompressedHistoryTest.class);
+
+    /**
+     * Tests that every sample comes back bit for bit, including special values, sampling jitter and long gaps that
+     * need the wider timestamp encodings.
+     */
+    @Test
+    void testLosslessRoundTrip() {
+        final SplittableRandom random = new SplittableRandom(24L);
+        final CompressedHistory history = new CompressedHistory(1L, TimeUnit.DAYS, 1L << 30);
+        final double[] specialValues = {Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.MIN_VALUE, Double.MAX_VALUE};
+        final int numSamples = 100_000;
+        final long[] epochNanos = new long[numSamples];
+        final double[] quantities = new double[numSamples];
+        long sampleEpochNanos = START_EPOCH_NANOS;
+        for (int i = 0; i < numSamples; i++) {
+            sampleEpochNanos += switch (i % 50) {
+                case 0 -> random.nextLong(1L, TimeUnit.HOURS.toNanos(1L));
+                case 1 -> 0L;
+                default -> SAMPLING_PERIOD_NANOS + random.nextLong(-1_000L, 1_000L);
+            };
+            epochNanos[i] = sampleEpochNanos;
+            quantities[i] = i % 10 == 0
+                    ? specialValues[i / 10 % specialValues.length]
+                    : random.nextDouble(-1e6, 1e6);
+            history.append(quantities[i], epochNanos[i]);
+        }
+
+        final CompressedHistory.Samples samples = history.query(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertThat(samples.size()).isEqualTo(numSamples);
+        assertThat(samples.epochNanos()).containsExactly(epochNanos);
+        for (int i = 0; i < numSamples; i++) {
+            assertThat(Double.doubleToRawLongBits(samples.quantities()[i]))
+                    .isEqualTo(Double.doubleToRawLongBits(quantities[i]));
+        }
+        assertThat(history.getSampleCount()).isEqualTo(numSamples);
+        assertThat(history.getOutOfOrderCount()).isZero();
+    }
+
+    /**
+     * Tests that both ends of a query range are inclusive, and that samples older than the latest are dropped.
+     */
+    @Test
+    void testRangeQuery() {
+        final CompressedHistory history = new CompressedHistory(1L, TimeUnit.HOURS, 1L << 20);
+        assertThat(history.query(Long.MIN_VALUE, Long.MAX_VALUE).size()).isZero();
+        for (int i = 0; i < 10_000; i++) {
+            history.append(i, START_EPOCH_NANOS + i * SAMPLING_PERIOD_NANOS);
+        }
+        history.append(-1.0, START_EPOCH_NANOS);
+
+        final CompressedHistory.Samples samples = history.query(
+                START_EPOCH_NANOS + 2_000 * SAMPLING_PERIOD_NANOS,
+                START_EPOCH_NANOS + 7_000 * SAMPLING_PERIOD_NANOS);
+        assertThat(samples.size()).isEqualTo(5_001);
+        assertThat(samples.quantities()[0]).isEqualTo(2_000.0);
+        assertThat(samples.quantities()[samples.size() - 1]).isEqualTo(7_000.0);
+        for (int i = 0; i < samples.size(); i++) {
+            assertThat(samples.epochNanos()[i]).isEqualTo(START_EPOCH_NANOS + (2_000 + i) * SAMPLING_PERIOD_NANOS);
+        }
+
+        final AtomicLong sum = new AtomicLong();
+        final int numSamples = history.query(
+                START_EPOCH_NANOS + SAMPLING_PERIOD_NANOS / 2,
+                START_EPOCH_NANOS + 3 * SAMPLING_PERIOD_NANOS,
+                (quantity, epochNanos) -> sum.addAndGet((long) quantity));
+        assertThat(numSamples).isEqualTo(3);
+        assertThat(sum).hasValue(6L);
+        assertThat(history.query(START_EPOCH_NANOS - 1L, START_EPOCH_NANOS - 1L).size()).isZero();
+        assertThat(history.getOutOfOrderCount()).isEqualTo(1L);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new CompressedHistory(0L, TimeUnit.HOURS, 1L << 20));
+    }
+
+    /**
+     * Tests that the history stays within its memory limit and reaches back to its retention period without keeping
+     * much more, and that what it keeps is the most recent samples without gaps.
+     */
+    @Test
+    void testBoundedMemory() {
+        final SplittableRandom random = new SplittableRandom(24L);
+        final long maxBytes = 64L * CompressedHistory.CHUNK_BYTES;
+        final CompressedHistory byRetention = new CompressedHistory(1L, TimeUnit.MINUTES, maxBytes);
+        final CompressedHistory byMemory = new CompressedHistory(1L, TimeUnit.DAYS, maxBytes);
+        final int numSamples = 100_000;
+        for (int i = 0; i < numSamples; i++) {
+            final double quantity = random.nextDouble();
+            byRetention.append(quantity, START_EPOCH_NANOS + i * SAMPLING_PERIOD_NANOS);
+            byMemory.append(quantity, START_EPOCH_NANOS + i * SAMPLING_PERIOD_NANOS);
+        }
+        final long latestEpochNanos = START_EPOCH_NANOS + (numSamples - 1) * SAMPLING_PERIOD_NANOS;
+
+        final CompressedHistory.Samples lastMinute = byRetention.query(
+                latestEpochNanos - TimeUnit.MINUTES.toNanos(1L), latestEpochNanos);
+        assertThat(lastMinute.size()).isEqualTo(601);
+        final CompressedHistory.Samples retained = byRetention.query(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertThat(retained.epochNanos()[0]).isGreaterThan(latestEpochNanos - TimeUnit.MINUTES.toNanos(2L));
+        assertThat(byRetention.getMemoryBytes()).isLessThan(maxBytes);
+
+        assertThat(byMemory.getMemoryBytes()).isEqualTo(maxBytes);
+        final CompressedHistory.Samples allRetained = byMemory.query(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertThat(byMemory.getSampleCount()).isEqualTo(allRetained.size()).isLessThan(numSamples);
+        assertThat(allRetained.epochNanos()[allRetained.size() - 1]).isEqualTo(latestEpochNanos);
+        for (int i = 1; i < allRetained.size(); i++) {
+            assertThat(allRetained.epochNanos()[i] - allRetained.epochNanos()[i - 1]).isEqualTo(SAMPLING_PERIOD_NANOS);
+        }
+    }
+
+    /**
+     * Tests the compression of a day of 100 ms samples of a slowly drifting process value read through a 12-bit
+     * converter, which holds the same value for most consecutive samples.
+     */
+    @Test
+    void testCompression() {
+        final SplittableRandom random = new SplittableRandom(42L);
+        final CompressedHistory history = new CompressedHistory(1L, TimeUnit.DAYS, 1L << 30);
+        final int numSamples = 864_000;
+        double trueValue = 50.0;
+        for (int i = 0; i < numSamples; i++) {
+            trueValue += random.nextDouble(-0.005, 0.005);
+            final double quantity = Math.round(trueValue / 100.0 * 4095.0) * 100.0 / 4095.0;
+            history.append(quantity, START_EPOCH_NANOS + i * SAMPLING_PERIOD_NANOS);
+        }
+        logger.info("{} samples compressed to {} bytes per sample, in {} bytes of chunks",
+                history.getSampleCount(),
+                history.getBytesPerSample(),
+                history.getMemoryBytes());
+
+        assertThat(history.getSampleCount()).isEqualTo(numSamples);
+        assertThat(history.getBytesPerSample()).isLessThan(2.0);
+        assertThat(history.getMemoryBytes()).isLessThan(2L * numSamples);
+    }
+
+    /**
+     * A single writer appends (i, i periods) for increasing i while readers query the whole history; every sample a
+     * reader sees must match its timestamp, and the samples of each query must be consecutive.
+     */
+    @Test
+    void testConcurrentQueries() throws InterruptedException {
+        final long maxBytes = 16L * CompressedHistory.CHUNK_BYTES;
+        final CompressedHistory history = new CompressedHistory(1L, TimeUnit.HOURS, maxBytes);
+        final AtomicLong tornReads = new AtomicLong();
+        final AtomicLong numQueries = new AtomicLong();
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+
+        final Thread reader = Thread.ofPlatform().start(() -> {
+            awaitLatch(startLatch);
+            while (writing.get()) {
+                final CompressedHistory.Samples samples = history.query(Long.MIN_VALUE, Long.MAX_VALUE);
+                for (int i = 0; i < samples.size(); i++) {
+                    final long expectedQuantity =
+                            (samples.epochNanos()[i] - START_EPOCH_NANOS) / SAMPLING_PERIOD_NANOS;
+                    if (samples.quantities()[i] != expectedQuantity
+                            || i > 0 && samples.quantities()[i] != samples.quantities()[i - 1] + 1.0) {
+                        tornReads.incrementAndGet();
+                    }
+                }
+                numQueries.incrementAndGet();
+            }
+        });
+        final Thread writer = Thread.ofPlatform().start(() -> {
+            awaitLatch(startLatch);
+            for (int i = 0; i < 2_000_000; i++) {
+                history.append(i, START_EPOCH_NANOS + i * SAMPLING_PERIOD_NANOS);
+            }
+            writing.set(false);
+        });
+
+        startLatch.countDown();
+        writer.join(TimeUnit.SECONDS.toMillis(60));
+        reader.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertThat(tornReads).hasValue(0L);
+        assertThat(numQueries.get()).isPositive();
+        final CompressedHistory.Samples samples = history.query(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertThat(samples.quantities()[samples.size() - 1]).isEqualTo(1_999_999.0);
+    }
+
+    @Test
+    void testBitStream() {
+        final long[] words = new long[4];
+        CompressedHistory.writeBits(words, 0, 0b101L, 3);
+        CompressedHistory.writeBits(words, 3, -1L, 64);
+        CompressedHistory.writeBits(words, 67, 0x1234_5678_9ABCL, 61);
+        CompressedHistory.writeBits(words, 128, 0L, 0);
+        assertThat(words[0] >>> 61).isEqualTo(0b101L);
+        assertThat(CompressedHistory.readBits(words, 0, 3)).isEqualTo(0b101L);
+        assertThat(CompressedHistory.readBits(words, 3, 64)).isEqualTo(-1L);
+        assertThat(CompressedHistory.readBits(words, 67, 61)).isEqualTo(0x1234_5678_9ABCL);
+        assertThat(CompressedHistory.readBits(words, 128, 64)).isZero();
+    }
+
+    private static void awaitLatch(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
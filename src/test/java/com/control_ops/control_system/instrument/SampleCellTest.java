@@ -0,0 +1,162 @@
+package com.control_ops.control_system.instrument;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress tests for SampleCell in the style of JCStress: writers publish quantity/timestamp pairs that satisfy a known
+ * invariant while readers race against them and record every snapshot that breaks it.
+ */
+class SampleCellTest {
+
+    private static final long NUM_PUBLICATIONS = 2_000_000L;
+    private static final int NUM_READERS = 3;
+
+    @Test
+    void testPublish() {
+        final SampleCell sampleCell = new SampleCell();
+        assertThat(sampleCell.hasValue()).isFalse();
+
+        sampleCell.publish(2.5, 42L);
+        assertThat(sampleCell.hasValue()).isTrue();
+        assertThat(sampleCell.quantity()).isEqualTo(2.5);
+        assertThat(sampleCell.epochNanos()).isEqualTo(42L);
+        final double sum = sampleCell.read((quantity, epochNanos) -> quantity + epochNanos);
+        assertThat(sum).isEqualTo(44.5);
+        final double[] delivered = new double[2];
+        sampleCell.readInto((quantity, epochNanos) -> {
+            delivered[0] = quantity;
+            delivered[1] = epochNanos;
+        });
+        assertThat(delivered).containsExactly(2.5, 42.0);
+    }
+
+    /**
+     * A single writer publishes (i, i) for increasing i; every reader must see matching pairs, and never see the
+     * timestamp go backwards.
+     */
+    @Test
+    void testSingleWriterConsistency() throws InterruptedException {
+        final SampleCell sampleCell = new SampleCell();
+        final AtomicLong tornReads = new AtomicLong();
+        final AtomicLong staleReads = new AtomicLong();
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+
+        final List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < NUM_READERS; i++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                awaitLatch(startLatch);
+                long previousEpochNanos = Long.MIN_VALUE;
+                while (writing.get()) {
+                    if (!sampleCell.hasValue()) {
+                        continue;
+                    }
+                    final long[] snapshot = sampleCell.read((quantity, epochNanos) -> new long[]{(long) quantity, epochNanos});
+                    if (snapshot[0] != snapshot[1]) {
+                        tornReads.incrementAndGet();
+                    }
+                    if (snapshot[1] < previousEpochNanos) {
+                        staleReads.incrementAndGet();
+                    }
+                    previousEpochNanos = snapshot[1];
+                }
+            }));
+        }
+        final Thread writer = Thread.ofPlatform().start(() -> {
+            awaitLatch(startLatch);
+            for (long i = 1; i <= NUM_PUBLICATIONS; i++) {
+                sampleCell.publish(i, i);
+            }
+            writing.set(false);
+        });
+
+        startLatch.countDown();
+        writer.join(TimeUnit.SECONDS.toMillis(60));
+        for (final Thread reader : readers) {
+            reader.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        assertThat(tornReads).hasValue(0L);
+        assertThat(staleReads).hasValue(0L);
+        assertThat(sampleCell.quantity()).isEqualTo((double) NUM_PUBLICATIONS);
+        assertThat(sampleCell.epochNanos()).isEqualTo(NUM_PUBLICATIONS);
+    }
+
+    /**
+     * Two writers publish (i, i) and (-i, -i) respectively; writes must be serialized so that no reader ever sees a
+     * quantity from one writer paired with a timestamp from the other.
+     */
+    @Test
+    void testMultipleWriterConsistency() throws InterruptedException {
+        final SampleCell sampleCell = new SampleCell();
+        final AtomicLong tornReads = new AtomicLong();
+        final AtomicLong writersRemaining = new AtomicLong(2);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+
+        final List<Thread> threads = new ArrayList<>();
+        for (final long sign : new long[]{1L, -1L}) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                awaitLatch(startLatch);
+                for (long i = 1; i <= NUM_PUBLICATIONS / 2; i++) {
+                    sampleCell.publish(sign * i, sign * i);
+                }
+                writersRemaining.decrementAndGet();
+            }));
+        }
+        for (int i = 0; i < NUM_READERS; i++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                awaitLatch(startLatch);
+                while (writersRemaining.get() > 0) {
+                    final boolean consistent = sampleCell.read(
+                            (quantity, epochNanos) -> (long) quantity == epochNanos);
+                    if (!consistent) {
+                        tornReads.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        startLatch.countDown();
+        for (final Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(60));
+        }
+
+        assertThat(tornReads).hasValue(0L);
+        final boolean consistent = sampleCell.read((quantity, epochNanos) -> (long) quantity == epochNanos);
+        assertThat(consistent).isTrue();
+    }
+
+    /**
+     * Tests that a reader spinning on the cell eventually observes a value published by another thread.
+     */
+    @Test
+    void testVisibility() throws InterruptedException {
+        final SampleCell sampleCell = new SampleCell();
+        sampleCell.publish(0.0, 0L);
+        final Thread reader = Thread.ofPlatform().start(() -> {
+            while (sampleCell.quantity() == 0.0) {
+                Thread.onSpinWait();
+            }
+        });
+        sampleCell.publish(1.0, 1L);
+        reader.join(TimeUnit.SECONDS.toMillis(5));
+        assertThat(reader.isAlive()).isFalse();
+    }
+
+    private static void awaitLatch(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.control_ops.control_system.instrument;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.awaitility.Awaitility.await;
+
+class SignalMailboxTest {
+
+    private static final int CAPACITY = 4;
+
+    private final List<Double> received = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicBoolean isDelivering = new AtomicBoolean(false);
+    private SignalMailbox<Object> mailbox;
+
+    /**
+     * Creates a mailbox whose listener blocks on the first signal until {@link #release} is counted down, so that
+     * later signals back up in the mailbox.
+     */
+    private SignalMailbox<Object> makeMailbox(final OverflowPolicy overflowPolicy) {
+        mailbox = new SignalMailbox<>(
+                "signal-mailbox-test",
+                new Object(),
+                signal -> {
+                    isDelivering.set(true);
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    received.add(signal.quantity());
+                },
+                SignalUnit.PERCENTAGE,
+                CAPACITY,
+                overflowPolicy);
+        return mailbox;
+    }
+
+    /**
+     * Offers a signal and waits until the listener is stuck delivering it.
+     */
+    private void offerFirstSignal() {
+        mailbox.offer(0.0, EpochNanoClock.now());
+        await().atMost(1, TimeUnit.SECONDS).untilTrue(isDelivering);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        mailbox.close();
+    }
+
+    @Test
+    void testInstantiation() {
+        makeMailbox(OverflowPolicy.DROP_OLDEST);
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new SignalMailbox<>(
+                "invalid", new Object(), signal -> {}, SignalUnit.PERCENTAGE, 0, OverflowPolicy.BLOCK));
+    }
+
+    @Test
+    void testDeliveryOrder() {
+        makeMailbox(OverflowPolicy.BLOCK);
+        release.countDown();
+        for (int i = 0; i < 100; i++) {
+            mailbox.offer(i, EpochNanoClock.now());
+        }
+        await().atMost(1, TimeUnit.SECONDS).until(() -> received.size() == 100);
+        for (int i = 0; i < 100; i++) {
+            assertThat(received.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void testDropOldest() {
+        makeMailbox(OverflowPolicy.DROP_OLDEST);
+        offerFirstSignal();
+        for (int i = 1; i <= CAPACITY + 3; i++) {
+            mailbox.offer(i, EpochNanoClock.now());
+        }
+        assertThat(mailbox.getQueuedCount()).isEqualTo(CAPACITY);
+        assertThat(mailbox.getDroppedCount()).isEqualTo(3L);
+
+        release.countDown();
+        await().atMost(1, TimeUnit.SECONDS).until(() -> received.size() == CAPACITY + 1);
+        assertThat(received).containsExactly(0.0, 4.0, 5.0, 6.0, 7.0);
+    }
+
+    @Test
+    void testConflate() {
+        makeMailbox(OverflowPolicy.CONFLATE);
+        offerFirstSignal();
+        for (int i = 1; i <= CAPACITY + 3; i++) {
+            mailbox.offer(i, EpochNanoClock.now());
+        }
+        assertThat(mailbox.getQueuedCount()).isEqualTo(1);
+        assertThat(mailbox.getDroppedCount()).isEqualTo(CAPACITY + 2L);
+
+        release.countDown();
+        await().atMost(1, TimeUnit.SECONDS).until(() -> received.size() == 2);
+        assertThat(received).containsExactly(0.0, CAPACITY + 3.0);
+    }
+
+    @Test
+    void testBlock() throws InterruptedException {
+        makeMailbox(OverflowPolicy.BLOCK);
+        offerFirstSignal();
+        final int numSignals = CAPACITY + 3;
+        final Thread publisher = Thread.ofPlatform().start(() -> {
+            for (int i = 1; i <= numSignals; i++) {
+                mailbox.offer(i, EpochNanoClock.now());
+            }
+        });
+        // The publisher fills the mailbox and then has to wait for the listener
+        await().atMost(1, TimeUnit.SECONDS).until(() -> mailbox.getQueuedCount() == CAPACITY);
+        await().during(100L, TimeUnit.MILLISECONDS).until(publisher::isAlive);
+
+        release.countDown();
+        publisher.join(1000L);
+        await().atMost(1, TimeUnit.SECONDS).until(() -> received.size() == numSignals + 1);
+        assertThat(mailbox.getDroppedCount()).isZero();
+        for (int i = 0; i <= numSignals; i++) {
+            assertThat(received.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void testListenerException() {
+        mailbox = new SignalMailbox<>(
+                "signal-mailbox-test",
+                new Object(),
+                signal -> {
+                    received.add(signal.quantity());
+                    throw new IllegalStateException("Listener failure");
+                },
+                SignalUnit.PERCENTAGE,
+                CAPACITY,
+                OverflowPolicy.BLOCK);
+        mailbox.offer(1.0, EpochNanoClock.now());
+        mailbox.offer(2.0, EpochNanoClock.now());
+        await().atMost(1, TimeUnit.SECONDS).until(() -> received.size() == 2);
+    }
+}
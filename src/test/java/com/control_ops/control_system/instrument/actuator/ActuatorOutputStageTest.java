@@ -0,0 +1,223 @@
+package com.control_ops.control_system.instrument.actuator;
+
+import com.control_ops.control_system.VirtualScheduler;
+import com.control_ops.control_system.instrument.EpochNanoClock;
+import com.control_ops.control_system.instrument.Signal;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+
+class ActuatorOutputStageTest {
+    private final VirtualScheduler virtualScheduler = new VirtualScheduler(EpochNanoClock.now());
+    private static final Logger logger = LoggerFactory.getLogger(ActuatorOutputStageTest.class);
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Tests that requests are clamped, that repeated and sub-resolution writes are suppressed, and that requests within
+     * one device cycle are merged into the latest.
+     */
+    @Test
+    void testClampingAndCoalescing() {
+        final OutputList outputList = new OutputList();
+        final Actuator actuator = new Actuator(1, 0.0, virtualScheduler);
+        actuator.addListener(outputList);
+        final ActuatorOutputStage outputStage = new ActuatorOutputStage(
+                0.0, 100.0, Double.POSITIVE_INFINITY, 0.5, 100L, TimeUnit.MILLISECONDS);
+        actuator.setOutputStage(outputStage);
+        assertThat(actuator.getOutputStage()).isSameAs(outputStage);
+
+        actuator.adjustSignal(10.0);
+        actuator.adjustSignal(10.2);
+        actuator.adjustSignal(30.0);
+        assertThat(actuator.getSignalValue()).isEqualTo(10.0);
+        virtualScheduler.advanceBy(100L, TimeUnit.MILLISECONDS);
+        assertThat(actuator.getSignalValue()).isEqualTo(30.0);
+        virtualScheduler.advanceBy(100L, TimeUnit.MILLISECONDS);
+
+        actuator.adjustSignal(30.2);
+        actuator.adjustSignal(30.0);
+        actuator.adjustSignal(130.0);
+        actuator.adjustSignal(-5.0);
+        virtualScheduler.advanceBy(1L, TimeUnit.SECONDS);
+
+        assertThat(outputList.getSignals()).extracting(Signal::quantity).containsExactly(10.0, 30.0, 100.0, 0.0);
+        assertThat(outputStage.getRequestCount()).isEqualTo(7L);
+        assertThat(outputStage.getWriteCount()).isEqualTo(4L);
+        assertThat(outputStage.getCoalescingRatio()).isEqualTo(1.75);
+        assertThat(actuator.getInstrumentation().getWriteCount()).isEqualTo(4L);
+
+        actuator.setOutputStage(null);
+        actuator.adjustSignal(-5.0);
+        actuator.adjustSignal(-5.0);
+        assertThat(outputList.getSignals()).hasSize(6);
+    }
+
+    /**
+     * Tests that a step in the request becomes a ramp at the maximum rate, which continues on the device cycle after
+     * the requests stop.
+     */
+    @Test
+    void testSlewRateLimiting() {
+        final OutputList outputList = new OutputList();
+        final Actuator actuator = new Actuator(2, 0.0, virtualScheduler);
+        actuator.addListener(outputList);
+        final ActuatorOutputStage outputStage = new ActuatorOutputStage(
+                0.0, 100.0, 10.0, 0.0, 100L, TimeUnit.MILLISECONDS);
+        actuator.setOutputStage(outputStage);
+
+        actuator.adjustSignal(150.0);
+        assertThat(outputList.getSignals()).isEmpty();
+        virtualScheduler.advanceBy(1L, TimeUnit.SECONDS);
+        assertThat(outputList.getSignals()).extracting(Signal::quantity)
+                .containsExactly(1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0, 10.0);
+
+        virtualScheduler.advanceBy(10L, TimeUnit.SECONDS);
+        assertThat(actuator.getSignalValue()).isEqualTo(100.0);
+        assertThat(outputList.getSignals()).hasSize(100);
+        for (int i = 1; i < outputList.getSignals().size(); i++) {
+            assertThat(outputList.getSignals().get(i).quantity() - outputList.getSignals().get(i - 1).quantity())
+                    .isCloseTo(1.0, within(1e-9));
+        }
+
+        // Reversing a ramp is limited in the same way
+        virtualScheduler.advanceBy(1L, TimeUnit.SECONDS);
+        actuator.adjustSignal(0.0);
+        assertThat(actuator.getSignalValue()).isEqualTo(80.0);
+        actuator.setOutputStage(null);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new ActuatorOutputStage(1.0, 0.0, 1.0, 0.0, 0L, TimeUnit.SECONDS));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new ActuatorOutputStage(0.0, 1.0, 0.0, 0.0, 0L, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Tests that a target the previous stage was holding back is handed to the new stage, or written when the stage is
+     * removed, and that releasing the actuator stops the writes of held-back values.
+     */
+    @Test
+    void testSwapKeepsPendingTarget() {
+        final OutputList outputList = new OutputList();
+        final Actuator actuator = new Actuator(5, 0.0, virtualScheduler);
+        actuator.addListener(outputList);
+        actuator.setOutputStage(new ActuatorOutputStage(0.0, 100.0, Double.POSITIVE_INFINITY, 0.0, 1L, TimeUnit.HOURS));
+        actuator.adjustSignal(10.0);
+        actuator.adjustSignal(20.0);
+        assertThat(actuator.getSignalValue()).isEqualTo(10.0);
+
+        final ActuatorOutputStage clampingStage = ActuatorOutputStage.clamping(0.0, 15.0);
+        actuator.setOutputStage(clampingStage);
+        assertThat(actuator.getSignalValue()).isEqualTo(15.0);
+
+        actuator.setOutputStage(new ActuatorOutputStage(0.0, 100.0, Double.POSITIVE_INFINITY, 0.0, 1L, TimeUnit.HOURS));
+        actuator.adjustSignal(30.0);
+        actuator.adjustSignal(40.0);
+        actuator.setOutputStage(null);
+        assertThat(outputList.getSignals()).extracting(Signal::quantity).containsExactly(10.0, 15.0, 30.0, 40.0);
+
+        final ActuatorOutputStage cycledStage = new ActuatorOutputStage(
+                0.0, 100.0, Double.POSITIVE_INFINITY, 0.0, 100L, TimeUnit.MILLISECONDS);
+        actuator.setOutputStage(cycledStage);
+        actuator.adjustSignal(50.0);
+        actuator.adjustSignal(60.0);
+        actuator.release();
+        virtualScheduler.advanceBy(1L, TimeUnit.SECONDS);
+        assertThat(actuator.getSignalValue()).isEqualTo(50.0);
+    }
+
+    /**
+     * Tests that a NaN request is neither written nor allowed to disable slew limiting of the requests after it.
+     */
+    @Test
+    void testNaNRejected() {
+        final OutputList outputList = new OutputList();
+        final Actuator actuator = new Actuator(4, 50.0, virtualScheduler);
+        actuator.addListener(outputList);
+        final ActuatorOutputStage outputStage = new ActuatorOutputStage(
+                0.0, 100.0, 10.0, 0.0, 0L, TimeUnit.SECONDS);
+        actuator.setOutputStage(outputStage);
+
+        virtualScheduler.advanceBy(1L, TimeUnit.SECONDS);
+        actuator.adjustSignal(Double.NaN);
+        assertThat(outputList.getSignals()).isEmpty();
+        assertThat(actuator.getSignalValue()).isEqualTo(50.0);
+
+        actuator.adjustSignal(100.0);
+        assertThat(actuator.getSignalValue()).isEqualTo(60.0);
+        virtualScheduler.advanceBy(1L, TimeUnit.SECONDS);
+        actuator.adjustSignal(Double.NaN);
+        actuator.adjustSignal(0.0);
+        assertThat(outputList.getSignals()).extracting(Signal::quantity).containsExactly(60.0, 50.0);
+        assertThat(outputStage.getRejectedCount()).isEqualTo(2L);
+        assertThat(outputStage.getRequestCount()).isEqualTo(4L);
+        actuator.setOutputStage(null);
+    }
+
+    /**
+     * A loop writes a noisy output at 1 kHz to a device that takes a new value every 10 ms; the device must see at
+     * most one write per cycle, end on the loop's last request, and shaping must not allocate.
+     */
+    @Test
+    void testWriteThroughput() {
+        final LongAdder deviceWrites = new LongAdder();
+        final Actuator actuator = new Actuator(3, 50.0, virtualScheduler);
+        actuator.addSampleListener((quantity, epochNanos) -> deviceWrites.increment());
+        final ActuatorOutputStage outputStage = new ActuatorOutputStage(
+                0.0, 100.0, 50.0, 0.01, 10L, TimeUnit.MILLISECONDS);
+        actuator.setOutputStage(outputStage);
+        final SplittableRandom random = new SplittableRandom(25L);
+        final int numRequests = 100_000;
+        final double[] requests = new double[numRequests];
+        for (int i = 0; i < numRequests; i++) {
+            requests[i] = 50.0 + 20.0 * Math.sin(2.0 * Math.PI * i / 5_000.0) + random.nextDouble(-0.02, 0.02);
+        }
+        // Only the first write is reported as an event, so that logging does not count against the request path
+        ActuatorInstrumentation.setEventInterval(Duration.ofHours(1));
+        final long writes;
+        final long allocatedDuringRequests;
+        try {
+            // Warms up the request path before its allocations are measured
+            for (int i = 0; i < numRequests; i++) {
+                virtualScheduler.advanceBy(1L, TimeUnit.MILLISECONDS);
+                actuator.adjustSignal(requests[i]);
+            }
+            final long writesBefore = deviceWrites.sum();
+
+            final long allocatedBefore = allocatedBytes();
+            for (int i = 0; i < numRequests; i++) {
+                virtualScheduler.advanceBy(1L, TimeUnit.MILLISECONDS);
+                actuator.adjustSignal(requests[i]);
+            }
+            allocatedDuringRequests = allocatedBytes() - allocatedBefore;
+            virtualScheduler.advanceBy(20L, TimeUnit.MILLISECONDS);
+            writes = deviceWrites.sum() - writesBefore;
+        } finally {
+            ActuatorInstrumentation.setEventInterval(Duration.ofSeconds(1));
+            actuator.setOutputStage(null);
+        }
+        logger.info("{} requests were written {} times (coalescing ratio {})",
+                numRequests,
+                writes,
+                outputStage.getCoalescingRatio());
+
+        // At most one write per device cycle
+        assertThat(writes).isLessThanOrEqualTo(numRequests / 10 + 2);
+        assertThat(outputStage.getCoalescingRatio()).isGreaterThan(9.5);
+        assertThat(actuator.getSignalValue()).isCloseTo(requests[numRequests - 1], within(0.01));
+        // Leaves room for the few bytes that reading the allocation counter itself can allocate
+        assertThat(allocatedDuringRequests).isLessThan(1024L);
+    }
+}
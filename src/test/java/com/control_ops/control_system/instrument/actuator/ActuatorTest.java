@@ -1,8 +1,19 @@
 package com.control_ops.control_system.instrument.actuator;
 
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.control_ops.control_system.instrument.OverflowPolicy;
+import com.control_ops.control_system.instrument.Signal;
 import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
 
 class ActuatorTest {
     @Test
@@ -32,6 +43,69 @@ class ActuatorTest {
         assertThat(outputList.getSignals().getFirst().quantity()).isEqualTo(25.0);
     }
 
+    @Test
+    void testAsyncListener() {
+        final List<Signal> signals = new CopyOnWriteArrayList<>();
+        final ActuatorListener asyncListener = signals::add;
+        final Actuator actuator = new Actuator(4, 0.0);
+        actuator.addListener(asyncListener, 16, OverflowPolicy.BLOCK);
+        actuator.adjustSignal(25.0);
+        actuator.adjustSignal(50.0);
+        await().atMost(1, TimeUnit.SECONDS).until(() -> signals.size() == 2);
+        assertThat(signals.getLast().quantity()).isEqualTo(50.0);
+
+        actuator.removeListener(asyncListener);
+        actuator.adjustSignal(75.0);
+        await().during(100L, TimeUnit.MILLISECONDS).until(() -> signals.size() == 2);
+    }
+
+    /**
+     * Tests that releasing the actuator closes the mailboxes of its asynchronous listeners.
+     */
+    @Test
+    void testReleaseClosesMailboxes() {
+        final List<Signal> signals = new CopyOnWriteArrayList<>();
+        final Actuator actuator = new Actuator(6, 0.0);
+        actuator.addListener(signals::add, 16, OverflowPolicy.BLOCK);
+        actuator.adjustSignal(25.0);
+        await().atMost(1, TimeUnit.SECONDS).until(() -> signals.size() == 1);
+
+        actuator.release();
+        actuator.adjustSignal(50.0);
+        await().during(100L, TimeUnit.MILLISECONDS).until(() -> signals.size() == 1);
+    }
+
+    /**
+     * Tests that every write is counted but only one event is reported per event interval.
+     */
+    @Test
+    void testInstrumentation() {
+        final ch.qos.logback.classic.Logger eventLogger = (ch.qos.logback.classic.Logger)
+                LoggerFactory.getLogger(ActuatorInstrumentation.EVENT_LOGGER_NAME);
+        final ListAppender<ILoggingEvent> events = new ListAppender<>();
+        events.start();
+        eventLogger.addAppender(events);
+        ActuatorInstrumentation.setEventInterval(Duration.ofHours(1));
+        try {
+            final Actuator actuator = new Actuator(5, 0.0);
+            for (int i = 1; i <= 100; i++) {
+                actuator.adjustSignal(i);
+            }
+            assertThat(actuator.getInstrumentation().getWriteCount()).isEqualTo(100L);
+            assertThat(events.list).hasSize(1);
+            assertThat(events.list.getFirst().getKeyValuePairs())
+                    .anySatisfy(pair -> assertThat(pair.key).isEqualTo("actuator"));
+
+            ActuatorInstrumentation.setEnabled(false);
+            actuator.adjustSignal(0.0);
+            assertThat(actuator.getInstrumentation().getWriteCount()).isEqualTo(100L);
+        } finally {
+            ActuatorInstrumentation.setEnabled(true);
+            ActuatorInstrumentation.setEventInterval(Duration.ofSeconds(1));
+            eventLogger.detachAppender(events);
+        }
+    }
+
     @Test
     void testAdjustSignal() {
         final Actuator actuator = new Actuator(3, 0.0);
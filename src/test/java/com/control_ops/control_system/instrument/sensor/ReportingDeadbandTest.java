@@ -0,0 +1,101 @@
+package com.control_ops.control_system.instrument.sensor;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class ReportingDeadbandTest {
+    private static final long SAMPLING_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+    private static final Logger logger = LoggerFactory.getLogger(ReportingDeadbandTest.class);
+
+    /**
+     * Generates a day of 100 ms samples of a slowly drifting process value with measurement noise and occasional
+     * steps, such as a temperature under control.
+     */
+    private static double[] recordedProcessValues() {
+        final SplittableRandom random = new SplittableRandom(42L);
+        final double[] processValues = new double[864_000];
+        double trueValue = 50.0;
+        for (int i = 0; i < processValues.length; i++) {
+            trueValue += random.nextDouble(-0.005, 0.005);
+            if (i % 36_000 == 0) {
+                trueValue += random.nextDouble(-5.0, 5.0);
+            }
+            processValues[i] = trueValue + random.nextDouble(-0.1, 0.1);
+        }
+        return processValues;
+    }
+
+    /**
+     * Tests that holding each reported value until the next never differs from a sample by more than the deadband,
+     * and that the deadband cuts the number of reports by over an order of magnitude.
+     */
+    @Test
+    void testCompressionAndErrorBound() {
+        final double[] processValues = recordedProcessValues();
+        final double deadband = 0.25;
+        final ReportingDeadband reportingDeadband = ReportingDeadband.absolute(deadband, 1L, TimeUnit.MINUTES);
+        double heldValue = Double.NaN;
+        double maxError = 0.0;
+        for (int i = 0; i < processValues.length; i++) {
+            if (reportingDeadband.report(processValues[i], i * SAMPLING_PERIOD_NANOS)) {
+                heldValue = processValues[i];
+            }
+            maxError = Math.max(maxError, Math.abs(processValues[i] - heldValue));
+        }
+        logger.info("{} samples reported {} times (compression ratio {}), with a maximum error of {}",
+                processValues.length,
+                reportingDeadband.getReportedCount(),
+                reportingDeadband.getCompressionRatio(),
+                maxError);
+
+        assertThat(maxError).isLessThanOrEqualTo(deadband);
+        assertThat(reportingDeadband.getReportedCount() + reportingDeadband.getSuppressedCount())
+                .isEqualTo(processValues.length);
+        assertThat(reportingDeadband.getCompressionRatio()).isGreaterThan(10.0);
+    }
+
+    @Test
+    void testPercentDeadband() {
+        final double[] processValues = recordedProcessValues();
+        final ReportingDeadband reportingDeadband = ReportingDeadband.percent(1.0, 0L, TimeUnit.SECONDS);
+        double heldValue = Double.NaN;
+        for (int i = 0; i < processValues.length; i++) {
+            if (reportingDeadband.report(processValues[i], i * SAMPLING_PERIOD_NANOS)) {
+                heldValue = processValues[i];
+            }
+            assertThat(Math.abs(processValues[i] - heldValue)).isLessThanOrEqualTo(0.01 * Math.abs(heldValue));
+        }
+        assertThat(reportingDeadband.getCompressionRatio()).isGreaterThan(10.0);
+    }
+
+    /**
+     * Tests that a zero deadband reports every change but no repeated value, until the heartbeat falls due.
+     */
+    @Test
+    void testChangeOnlyWithHeartbeat() {
+        final ReportingDeadband reportingDeadband = ReportingDeadband.absolute(0.0, 1L, TimeUnit.SECONDS);
+        final long second = TimeUnit.SECONDS.toNanos(1L);
+        assertThat(reportingDeadband.report(1.0, 0L)).isTrue();
+        assertThat(reportingDeadband.report(1.0, second / 2)).isFalse();
+        assertThat(reportingDeadband.report(1.0 + Math.ulp(1.0), second / 2)).isTrue();
+        assertThat(reportingDeadband.report(1.0 + Math.ulp(1.0), second)).isFalse();
+        assertThat(reportingDeadband.report(1.0 + Math.ulp(1.0), 3 * second / 2)).isTrue();
+        assertThat(reportingDeadband.report(Double.NaN, 3 * second / 2)).isTrue();
+        assertThat(reportingDeadband.report(Double.NaN, 3 * second / 2)).isFalse();
+        assertThat(reportingDeadband.report(1.0, 3 * second / 2)).isTrue();
+        assertThat(reportingDeadband.getReportedCount()).isEqualTo(5);
+        assertThat(reportingDeadband.getSuppressedCount()).isEqualTo(3);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> ReportingDeadband.absolute(-1.0, 1L, TimeUnit.SECONDS));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> ReportingDeadband.percent(Double.NaN, 1L, TimeUnit.SECONDS));
+    }
+}
@@ -1,9 +1,16 @@
 package com.control_ops.control_system.instrument.sensor;
 
+import com.control_ops.control_system.ExecutionMode;
 import com.control_ops.control_system.PeriodicExecutorTest;
+import com.control_ops.control_system.VirtualScheduler;
+import com.control_ops.control_system.instrument.CompressedHistory;
+import com.control_ops.control_system.instrument.EpochNanoClock;
+import com.control_ops.control_system.instrument.OverflowPolicy;
+import com.control_ops.control_system.instrument.SampleListener;
 import com.control_ops.control_system.instrument.Signal;
 import com.control_ops.control_system.instrument.SignalUnit;
-import org.awaitility.core.ConditionTimeoutException;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -11,11 +18,13 @@ import org.junit.jupiter.params.provider.CsvSource;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.awaitility.Awaitility.await;
-import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * Tests the Sensor class and SensorListener class that implements the Observer pattern.
@@ -28,8 +37,22 @@ class SensorTest {
     private long samplingPeriod = 30L;
     private final TimeUnit samplingTimeUnit = TimeUnit.MILLISECONDS;
     private static int numSensorsInstantiated = 0;
+    // Sampling behaviour is tested on a virtual clock so that it is fast and exact; only the tests of concurrent
+    // listeners use the real scheduler
+    private final VirtualScheduler virtualScheduler = new VirtualScheduler(EpochNanoClock.now());
 
     private Sensor makeDefaultSensor() {
+        return new Sensor(
+                generateId(),
+                samplingPeriod,
+                samplingTimeUnit,
+                SignalUnit.CELSIUS,
+                new RandomMeasurement(numSensorsInstantiated),
+                ExecutionMode.SCHEDULER_THREAD,
+                virtualScheduler);
+    }
+
+    private Sensor makeWallClockSensor() {
         return new Sensor(generateId(), samplingPeriod, samplingTimeUnit, SignalUnit.CELSIUS, new RandomMeasurement());
     }
 
@@ -39,11 +62,10 @@ class SensorTest {
     }
 
     /**
-     * Causes the calling thread to wait until at least one measurement is received.
+     * Advances the virtual clock by the provided number of sampling periods.
      */
-    private void waitForMeasurements() {
-        final int initialNumMeasurements = signals.size();
-        await().atMost(10*samplingPeriod, samplingTimeUnit).until(() -> signals.size() > initialNumMeasurements);
+    private void advanceSamplingPeriods(final long numPeriods) {
+        virtualScheduler.advanceBy(numPeriods * samplingPeriod, samplingTimeUnit);
     }
 
     /**
@@ -53,14 +75,12 @@ class SensorTest {
     void testStartMeasuring() {
         final Sensor sensor = makeDefaultSensor();
         sensor.addListener(measurementList);
-        assertThrows(
-                ConditionTimeoutException.class,
-                this::waitForMeasurements);
+        advanceSamplingPeriods(10);
         assertThat(signals).isEmpty();
 
         sensor.startMeasuring();
-        this.waitForMeasurements();
-        assertThat(signals).isNotEmpty();
+        advanceSamplingPeriods(10);
+        assertThat(signals).hasSize(11);
     }
 
     /**
@@ -71,9 +91,37 @@ class SensorTest {
         final Sensor sensor = makeDefaultSensor();
         sensor.addListener(measurementList);
         sensor.startMeasuring();
-        this.waitForMeasurements();
+        advanceSamplingPeriods(1);
         sensor.stopMeasuring();
-        assertThrows(ConditionTimeoutException.class, this::waitForMeasurements);
+        advanceSamplingPeriods(10);
+        assertThat(signals).hasSize(2);
+    }
+
+    /**
+     * Tests that releasing a sensor stops its measurements and removes its meters.
+     */
+    @Test
+    void testRelease() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Metrics.addRegistry(meterRegistry);
+        try {
+            final Sensor sensor = makeDefaultSensor();
+            sensor.addListener(measurementList);
+            sensor.startMeasuring();
+            advanceSamplingPeriods(1);
+            assertThat(meterRegistry.find("control.sensor.measurement").tag("sensor", sensor.toString()).meters())
+                    .isNotEmpty();
+
+            sensor.release();
+            advanceSamplingPeriods(10);
+            assertThat(signals).hasSize(2);
+            assertThat(meterRegistry.find("control.sensor.measurement").tag("sensor", sensor.toString()).meters())
+                    .isEmpty();
+            assertThat(meterRegistry.find("control.executor.missed.ticks").tag("executor", sensor.toString())
+                    .meters()).isEmpty();
+        } finally {
+            Metrics.removeRegistry(meterRegistry);
+        }
     }
 
     @Test
@@ -82,40 +130,14 @@ class SensorTest {
         sensor.addListener(measurementList);
 
         int previousSize = 0;
-        sensor.startMeasuring();
-        waitForMeasurements();
-        assertThat(signals).hasSizeGreaterThan(previousSize);
-        sensor.stopMeasuring();
-        previousSize = signals.size();
-
-        sensor.startMeasuring();
-        waitForMeasurements();
-        assertThat(signals).hasSizeGreaterThan(previousSize);
-        sensor.stopMeasuring();
-        previousSize = signals.size();
-
-        sensor.startMeasuring();
-        waitForMeasurements();
-        assertThat(signals).hasSizeGreaterThan(previousSize);
-        sensor.stopMeasuring();
-        previousSize = signals.size();
-
-        sensor.startMeasuring();
-        waitForMeasurements();
-        assertThat(signals).hasSizeGreaterThan(previousSize);
-        sensor.stopMeasuring();
-        previousSize = signals.size();
-
-        sensor.startMeasuring();
-        waitForMeasurements();
-        assertThat(signals).hasSizeGreaterThan(previousSize);
-        sensor.stopMeasuring();
-        previousSize = signals.size();
-
-        sensor.startMeasuring();
-        waitForMeasurements();
-        assertThat(signals).hasSizeGreaterThan(previousSize);
-        sensor.stopMeasuring();
+        for (int i = 0; i < 6; i++) {
+            sensor.startMeasuring();
+            advanceSamplingPeriods(2);
+            assertThat(signals).hasSize(previousSize + 3);
+            sensor.stopMeasuring();
+            advanceSamplingPeriods(2);
+            previousSize = signals.size();
+        }
     }
 
     /**
@@ -126,11 +148,13 @@ class SensorTest {
         final Sensor sensor = makeDefaultSensor();
         sensor.addListener(measurementList);
         sensor.startMeasuring();
-        await().atMost(100*samplingPeriod, samplingTimeUnit).until(() -> !signals.isEmpty());
-        assertThat(signals).hasSizeGreaterThan(1);
+        advanceSamplingPeriods(1);
+        assertThat(signals).hasSize(2);
 
         // The measurement list has already been added as a listener, so adding it again should do nothing
         sensor.addListener(measurementList);
+        advanceSamplingPeriods(1);
+        assertThat(signals).hasSize(3);
     }
 
     /**
@@ -142,13 +166,56 @@ class SensorTest {
         sensor.addListener(measurementList);
         sensor.removeListener(measurementList);
         sensor.startMeasuring();
-        await().during(10*samplingPeriod, samplingTimeUnit);
+        advanceSamplingPeriods(10);
         assertThat(signals).isEmpty();
 
         // The measurement list has already been removed as a listener, so removing it again should do nothing
         sensor.removeListener(measurementList);
     }
 
+    /**
+     * Tests that a listener which takes far longer than the sampling period does not slow down sampling when it is
+     * subscribed asynchronously.
+     */
+    @Test
+    void testSlowAsyncListener() {
+        final Sensor sensor = makeWallClockSensor();
+        final LongAdder samples = new LongAdder();
+        final List<Signal> slowListenerSignals = new CopyOnWriteArrayList<>();
+        final SensorListener slowListener = signal -> {
+            await().pollDelay(10*samplingPeriod, samplingTimeUnit).until(() -> true);
+            slowListenerSignals.add(signal);
+        };
+        sensor.addSampleListener((quantity, epochNanos) -> samples.increment());
+        sensor.addListener(slowListener, 1, OverflowPolicy.CONFLATE);
+        sensor.startMeasuring();
+        await().atMost(50*samplingPeriod, samplingTimeUnit).until(() -> samples.sum() >= 20);
+        sensor.stopMeasuring();
+        sensor.removeListener(slowListener);
+
+        assertThat(slowListenerSignals).isNotEmpty().hasSizeLessThan(samples.intValue());
+    }
+
+    /**
+     * Tests that listeners can be subscribed and unsubscribed while the sensor is sampling.
+     */
+    @Test
+    void testSubscribeWhileMeasuring() {
+        samplingPeriod = 1L;
+        final Sensor sensor = makeWallClockSensor();
+        sensor.addListener(measurementList);
+        sensor.startMeasuring();
+        for (int i = 0; i < 1000; i++) {
+            final SensorListener listener = signal -> {};
+            sensor.addListener(listener);
+            sensor.addListener(new MeasurementList(), 8, OverflowPolicy.DROP_OLDEST);
+            sensor.removeListener(listener);
+        }
+        final int measurementsAfterSubscribing = signals.size();
+        await().atMost(1, TimeUnit.SECONDS).until(() -> signals.size() > measurementsAfterSubscribing);
+        sensor.stopMeasuring();
+    }
+
     /**
      * Tests that the sensor actually takes unique measurements.
      */
@@ -160,8 +227,9 @@ class SensorTest {
         assertThat(sensor.getCurrentSignal()).isNull();
 
         sensor.startMeasuring();
-        await().atMost(10, TimeUnit.SECONDS).until(() -> signals.size() >= minimumMeasurements);
+        advanceSamplingPeriods(minimumMeasurements - 1);
         sensor.stopMeasuring();
+        assertThat(signals).hasSize(minimumMeasurements);
         for (int i = 1; i < signals.size(); i++) {
             assertThat(signals.get(i - 1)).isNotEqualTo(signals.get(i));
             assertThat(signals.get(i).unit()).isEqualTo(SignalUnit.CELSIUS);
@@ -180,7 +248,7 @@ class SensorTest {
         sensor.addListener(measurementList);
 
         sensor.startMeasuring();
-        await().atMost(10, TimeUnit.SECONDS).until(() -> signals.size() >= minimumMeasurements);
+        advanceSamplingPeriods(minimumMeasurements - 1);
         sensor.stopMeasuring();
         List<ZonedDateTime> measurementTimes = new ArrayList<>();
         signals.forEach(s -> measurementTimes.add(s.dateTime()));
@@ -189,37 +257,31 @@ class SensorTest {
     }
 
     /**
-     * Tests that the actual time interval between measurements matches the one set using the sensor's samplingPeriod
-     * field; the fractional error between the two is used to determine whether the test passes.
+     * Tests that the time interval between measurement timestamps matches the one set using the sensor's
+     * samplingPeriod field; the fractional error between the two is used to determine whether the test passes.
      * <br><br>
-     * The error depends on non-deterministic threading behaviour; the error is therefore calculated over a large number
-     * of measurements and compared to a threshold to smooth out the results.
+     * Measurements are taken and timestamped on a virtual clock, so the interval is exact.
      * @param expectedSamplingPeriod The sampling period to be set on the sensor
      * @param minimumMeasurements The minimum number of measurements required to calculate the fractional error
      * @param maxFractionalError The maximum tolerable fractional error between the expected and actual sampling periods
      */
     @ParameterizedTest
     @CsvSource({
-            "50, 150, 0.01",
-            "100, 75, 0.01",
-            "200, 40, 0.01",
-            "500, 15, 0.01"
+            "50, 150, 0.0",
+            "100, 75, 0.0",
+            "200, 40, 0.0",
+            "500, 15, 0.0"
     })
     void testSamplingPeriod(
             final long expectedSamplingPeriod,
             final int minimumMeasurements,
             final double maxFractionalError) {
         this.samplingPeriod = expectedSamplingPeriod;
-        final Sensor sensor = new Sensor(
-                generateId(),
-                samplingPeriod,
-                samplingTimeUnit,
-                SignalUnit.CELSIUS,
-                new RandomMeasurement());
+        final Sensor sensor = makeDefaultSensor();
         sensor.addListener(measurementList);
 
         sensor.startMeasuring();
-        await().atMost(60, TimeUnit.SECONDS).until(() -> signals.size() >= minimumMeasurements);
+        advanceSamplingPeriods(minimumMeasurements - 1);
         sensor.stopMeasuring();
 
         List<ZonedDateTime> measurementTimes = new ArrayList<>();
@@ -227,4 +289,141 @@ class SensorTest {
 
         PeriodicExecutorTest.assertExecutionPeriod(measurementTimes, samplingPeriod, samplingTimeUnit, maxFractionalError);
     }
+
+    /**
+     * Tests that every tap of a sensor publishes each of its measurements, which the device is only asked for once.
+     */
+    @Test
+    void testTapsShareMeasurements() {
+        final int numTaps = 100;
+        final LongAdder deviceReads = new LongAdder();
+        final Sensor sensor = new Sensor(generateId(), samplingPeriod, samplingTimeUnit, SignalUnit.CELSIUS, () -> {
+            deviceReads.increment();
+            return deviceReads.doubleValue();
+        }, ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+        final List<Sensor> taps = new ArrayList<>();
+        final List<MeasurementList> tapMeasurements = new ArrayList<>();
+        for (int i = 0; i < numTaps; i++) {
+            final Sensor tap = sensor.tap(generateId());
+            final MeasurementList measurements = new MeasurementList();
+            tap.addListener(measurements);
+            taps.add(tap);
+            tapMeasurements.add(measurements);
+        }
+        assertThat(sensor.getTapCount()).isEqualTo(numTaps);
+        assertThat(taps.getFirst().isTap()).isTrue();
+        assertThat(taps.getFirst().getSource()).isSameAs(sensor);
+        assertThat(taps.getFirst().hasMeasurement()).isFalse();
+
+        sensor.startMeasuring();
+        advanceSamplingPeriods(9);
+        sensor.stopMeasuring();
+
+        assertThat(deviceReads.intValue()).isEqualTo(10);
+        for (int i = 0; i < numTaps; i++) {
+            assertThat(tapMeasurements.get(i).getMeasurements()).hasSize(10);
+            assertThat(taps.get(i).getCurrentQuantity()).isEqualTo(10.0);
+            assertThat(taps.get(i).getCurrentEpochNanos()).isEqualTo(sensor.getCurrentEpochNanos());
+        }
+        assertThat(taps.getFirst().getSignalUnit()).isEqualTo(SignalUnit.CELSIUS);
+        assertThat(taps.getFirst().getScheduler()).isSameAs(virtualScheduler);
+    }
+
+    /**
+     * Tests that each tap downsamples its source's measurements independently, and that removed taps stop publishing.
+     */
+    @Test
+    void testTapDownsampling() {
+        final LongAdder deviceReads = new LongAdder();
+        final Sensor sensor = new Sensor(generateId(), samplingPeriod, samplingTimeUnit, SignalUnit.CELSIUS, () -> {
+            deviceReads.increment();
+            return deviceReads.doubleValue();
+        }, ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+        final List<Double> decimated = new ArrayList<>();
+        final List<Double> averaged = new ArrayList<>();
+        final List<Long> averagedEpochNanos = new ArrayList<>();
+        final Sensor decimatingTap = sensor.tap(generateId(), 3, Downsampling.DECIMATE);
+        final Sensor averagingTap = sensor.tap(generateId(), 3, Downsampling.AVERAGE);
+        decimatingTap.addSampleListener((quantity, epochNanos) -> decimated.add(quantity));
+        averagingTap.addSampleListener((quantity, epochNanos) -> {
+            averaged.add(quantity);
+            averagedEpochNanos.add(epochNanos);
+        });
+        // Taps of taps downsample what their source publishes
+        final Sensor nestedTap = decimatingTap.tap(generateId(), 2, Downsampling.DECIMATE);
+
+        sensor.startMeasuring();
+        advanceSamplingPeriods(8);
+        assertThat(decimated).containsExactly(1.0, 4.0, 7.0);
+        assertThat(averaged).containsExactly(2.0, 5.0, 8.0);
+        assertThat(averagingTap.getCurrentQuantity()).isEqualTo(8.0);
+        assertThat(averagedEpochNanos.getLast()).isEqualTo(sensor.getCurrentEpochNanos());
+        assertThat(nestedTap.getCurrentQuantity()).isEqualTo(7.0);
+
+        sensor.removeTap(decimatingTap);
+        advanceSamplingPeriods(3);
+        sensor.stopMeasuring();
+        assertThat(decimated).hasSize(3);
+        assertThat(averaged).hasSize(4);
+        assertThat(sensor.getTapCount()).isEqualTo(1);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> sensor.tap(generateId(), 0, Downsampling.DECIMATE));
+    }
+
+    /**
+     * Tests that listeners only see measurements outside the reporting deadband, while readers and taps see every one.
+     */
+    @Test
+    void testReportingDeadband() {
+        final double[] quantities = {1.0, 1.05, 1.2, 1.25, 1.12, 2.0};
+        final LongAdder deviceReads = new LongAdder();
+        final Sensor sensor = new Sensor(generateId(), samplingPeriod, samplingTimeUnit, SignalUnit.CELSIUS, () -> {
+            deviceReads.increment();
+            return quantities[deviceReads.intValue() - 1];
+        }, ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+        final ReportingDeadband reportingDeadband = ReportingDeadband.absolute(0.1, 0L, TimeUnit.SECONDS);
+        sensor.setReportingDeadband(reportingDeadband);
+        sensor.addListener(measurementList);
+        final List<Double> tapQuantities = new ArrayList<>();
+        sensor.tap(generateId()).addSampleListener((quantity, epochNanos) -> tapQuantities.add(quantity));
+        final List<Double> currentQuantities = new ArrayList<>();
+        sensor.addSampleListener((quantity, epochNanos) -> currentQuantities.add(sensor.getCurrentQuantity()));
+
+        sensor.startMeasuring();
+        advanceSamplingPeriods(quantities.length - 1);
+        sensor.stopMeasuring();
+
+        assertThat(signals).extracting(Signal::quantity).containsExactly(1.0, 1.2, 2.0);
+        assertThat(currentQuantities).containsExactly(1.0, 1.2, 2.0);
+        assertThat(tapQuantities).containsExactly(1.0, 1.05, 1.2, 1.25, 1.12, 2.0);
+        assertThat(sensor.getCurrentQuantity()).isEqualTo(2.0);
+        assertThat(sensor.getReportingDeadband()).isSameAs(reportingDeadband);
+        assertThat(reportingDeadband.getCompressionRatio()).isEqualTo(2.0);
+    }
+
+    /**
+     * Tests that a sensor's history keeps the measurements reported to its listeners, and that it is kept only once.
+     */
+    @Test
+    void testKeepHistory() {
+        final Sensor sensor = makeDefaultSensor();
+        sensor.addListener(measurementList);
+        assertThat(sensor.getHistory()).isNull();
+        final CompressedHistory history = sensor.keepHistory(1L, TimeUnit.HOURS, 1L << 20);
+        assertThat(sensor.keepHistory(1L, TimeUnit.MINUTES, 1L << 10)).isSameAs(history);
+        assertThat(sensor.getHistory()).isSameAs(history);
+
+        sensor.startMeasuring();
+        advanceSamplingPeriods(100);
+        sensor.stopMeasuring();
+
+        final CompressedHistory.Samples samples = history.query(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertThat(samples.size()).isEqualTo(101);
+        for (int i = 0; i < samples.size(); i++) {
+            assertThat(samples.quantities()[i]).isEqualTo(signals.get(i).quantity());
+        }
+        assertThat(samples.epochNanos()[100] - samples.epochNanos()[0])
+                .isEqualTo(samplingTimeUnit.toNanos(100 * samplingPeriod));
+    }
 }
@@ -0,0 +1,28 @@
+package com.control_ops.control_system.instrument.sensor;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stands in for a field device (e.g. a Modbus or OPC server) whose reads block the calling thread.
+ */
+public class SlowDeviceMeasurement implements MeasurementBehaviour {
+    private final Duration responseTime;
+    private final LongAdder measurementCount;
+
+    public SlowDeviceMeasurement(final Duration responseTime, final LongAdder measurementCount) {
+        this.responseTime = responseTime;
+        this.measurementCount = measurementCount;
+    }
+
+    @Override
+    public double takeMeasurement() {
+        try {
+            Thread.sleep(responseTime);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        measurementCount.increment();
+        return 1.0;
+    }
+}
@@ -0,0 +1,76 @@
+package com.control_ops.control_system.instrument.sensor;
+
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.instrument.SignalUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Tests sensors whose measurement behaviour blocks on a slow device when sampling on virtual threads.
+ */
+class VirtualThreadSensorTest {
+
+    private static final int NUM_SENSORS = 50_000;
+    private static final Duration DEVICE_RESPONSE_TIME = Duration.ofMillis(200);
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadSensorTest.class);
+
+    private final List<Sensor> sensors = new ArrayList<>(NUM_SENSORS);
+
+    /**
+     * Releases every sensor, even if the test failed, so that none of them keeps sampling, or keeps its meters
+     * registered, while later tests run.
+     */
+    @AfterEach
+    void tearDown() {
+        sensors.forEach(Sensor::release);
+    }
+
+    /**
+     * Drives 50,000 sensors against a device that takes 200 ms to respond. On the scheduler's platform workers this
+     * would take thousands of seconds per sampling round; on virtual threads every sensor is sampled within a few
+     * seconds and the number of platform threads stays flat.
+     */
+    @Test
+    void testFiftyThousandBlockingSensors() {
+        final LongAdder measurementCount = new LongAdder();
+        final SlowDeviceMeasurement slowDevice = new SlowDeviceMeasurement(DEVICE_RESPONSE_TIME, measurementCount);
+        for (int i = 0; i < NUM_SENSORS; i++) {
+            sensors.add(new Sensor(
+                    100_000 + i,
+                    1L,
+                    TimeUnit.SECONDS,
+                    SignalUnit.CELSIUS,
+                    slowDevice,
+                    ExecutionMode.VIRTUAL_THREAD));
+        }
+        final int platformThreadsBefore = Thread.activeCount();
+
+        final long startNanos = System.nanoTime();
+        sensors.forEach(Sensor::startMeasuring);
+        await().atMost(30, TimeUnit.SECONDS).until(
+                () -> sensors.stream().allMatch(sensor -> sensor.getCurrentSignal() != null));
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        final int platformThreadsAfter = Thread.activeCount();
+
+        logger.info(
+                "{} blocking sensors sampled in {} ms ({} measurements)\tPlatform threads before/after: {}/{}",
+                NUM_SENSORS,
+                elapsedMs,
+                measurementCount.sum(),
+                platformThreadsBefore,
+                platformThreadsAfter);
+        // Thread.activeCount() only counts platform threads; blocked virtual threads must not pin new ones
+        assertThat(platformThreadsAfter).isLessThanOrEqualTo(platformThreadsBefore + Runtime.getRuntime().availableProcessors());
+    }
+}
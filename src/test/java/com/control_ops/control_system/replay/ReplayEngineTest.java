@@ -0,0 +1,164 @@
+package com.control_ops.control_system.replay;
+
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.TestIds;
+import com.control_ops.control_system.control_loop.ControlLoop;
+import com.control_ops.control_system.control_loop.PidControl;
+import com.control_ops.control_system.control_loop.ProportionalControl;
+import com.control_ops.control_system.control_loop.ControlBehaviour;
+import com.control_ops.control_system.historian.SignalJournal;
+import com.control_ops.control_system.historian.SignalSource;
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplayEngineTest {
+    // The id under which the recorded sensor's measurements are journaled, which no live sensor is given
+    private static final int SENSOR_ID = 15_000;
+    private static final long START_EPOCH_NANOS = TimeUnit.DAYS.toNanos(20_000L);
+    private static final long SAMPLE_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(1L);
+    private static final int SAMPLES_PER_WEEK = (int) TimeUnit.DAYS.toSeconds(7L);
+
+    @RegisterExtension
+    final TestIds ids = new TestIds();
+
+    @TempDir
+    private Path directory;
+
+    private final List<Sensor> sensors = new ArrayList<>();
+    private static final Logger logger = LoggerFactory.getLogger(ReplayEngineTest.class);
+
+    @AfterEach
+    void tearDown() {
+        sensors.forEach(Sensor::stopMeasuring);
+    }
+
+    /**
+     * Records a week of a temperature that drifts through a daily cycle, sampled once a second.
+     */
+    private RecordedHistory recordWeek() {
+        final Path journalDirectory = directory.resolve("journal");
+        try (final SignalJournal journal = new SignalJournal(journalDirectory, 1 << 18, 16)) {
+            for (int i = 0; i < SAMPLES_PER_WEEK; i++) {
+                final double temperature = 20.0 + 5.0 * Math.sin(2.0 * Math.PI * i / TimeUnit.DAYS.toSeconds(1L));
+                journal.append(
+                        SignalSource.SENSOR,
+                        SENSOR_ID,
+                        temperature,
+                        SignalUnit.CELSIUS,
+                        START_EPOCH_NANOS + i * SAMPLE_PERIOD_NANOS);
+            }
+        }
+        return RecordedHistory.fromJournal(journalDirectory);
+    }
+
+    /**
+     * Replays the history through a fresh sensor, actuator and polled control loop, returning every actuator output.
+     */
+    private List<Double> replay(final RecordedHistory history, final ControlBehaviour controlBehaviour) {
+        final ReplayEngine replayEngine = new ReplayEngine(history);
+        final int loopId = ids.next();
+        final Sensor sensor = new Sensor(loopId, 1L, TimeUnit.SECONDS, SignalUnit.CELSIUS,
+                replayEngine.measurementOf(SENSOR_ID), ExecutionMode.SCHEDULER_THREAD, replayEngine.getScheduler());
+        sensors.add(sensor);
+        final Actuator actuator = new Actuator(loopId, 50.0);
+        final List<Double> outputs = new ArrayList<>();
+        actuator.addSampleListener((quantity, epochNanos) -> outputs.add(quantity));
+        final ControlLoop controlLoop = new ControlLoop(loopId, sensor, actuator, 22.0, 1L, TimeUnit.SECONDS,
+                controlBehaviour, ExecutionMode.SCHEDULER_THREAD, replayEngine.getScheduler());
+        sensor.startMeasuring();
+        controlLoop.startControlling();
+
+        final ReplayReport replayReport = replayEngine.run();
+
+        controlLoop.stopControlling();
+        assertThat(replayReport.simulatedNanos()).isEqualTo((SAMPLES_PER_WEEK - 1) * SAMPLE_PERIOD_NANOS);
+        // One measurement and one control loop tick per recorded second
+        assertThat(replayReport.ticks()).isEqualTo(2L * SAMPLES_PER_WEEK);
+        return outputs;
+    }
+
+    @Test
+    void testRetuneOverAWeekOfHistory() {
+        final RecordedHistory history = recordWeek();
+        final long startNanos = System.nanoTime();
+        double previousTravel = Double.MAX_VALUE;
+        for (final double gain : new double[]{8.0, 4.0, 2.0, 1.0}) {
+            final List<Double> outputs = replay(history, new ProportionalControl(gain));
+            assertThat(outputs).hasSize(SAMPLES_PER_WEEK);
+            double travel = 0.0;
+            for (int i = 1; i < outputs.size(); i++) {
+                travel += Math.abs(outputs.get(i) - outputs.get(i - 1));
+            }
+            logger.info("Gain {} moved the actuator {} % over the week", gain, Math.round(travel));
+            // Lower gains move the actuator less in response to the same disturbance
+            assertThat(travel).isLessThan(previousTravel);
+            previousTravel = travel;
+        }
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        logger.info("Replayed four weeks of loop behaviour in {} ms", elapsedMillis);
+        assertThat(elapsedMillis).isLessThan(TimeUnit.SECONDS.toMillis(60L));
+    }
+
+    @Test
+    void testDeterministic() {
+        final RecordedHistory history = recordWeek();
+        final List<Double> firstRun = replay(history, new PidControl(2.0, 0.01, 0.5, 5.0, 0.0, 100.0));
+        final List<Double> secondRun = replay(history, new PidControl(2.0, 0.01, 0.5, 5.0, 0.0, 100.0));
+        assertThat(firstRun).hasSize(SAMPLES_PER_WEEK).isEqualTo(secondRun);
+    }
+
+    @Test
+    void testCsvHistory() throws IOException {
+        final Path csvFile = directory.resolve("history.csv");
+        Files.writeString(csvFile, String.join("\n",
+                RecordedHistory.CSV_HEADER,
+                "SENSOR,1,3000000000,30.0,CELSIUS",
+                "SENSOR,1,1000000000,10.0,CELSIUS",
+                "SENSOR,1,2000000000,20.0,CELSIUS",
+                "ACTUATOR,1,2500000000,55.0,PERCENTAGE"));
+        final RecordedHistory history = RecordedHistory.fromCsv(csvFile);
+        assertThat(history.getStartEpochNanos()).isEqualTo(1_000_000_000L);
+        assertThat(history.getEndEpochNanos()).isEqualTo(3_000_000_000L);
+        assertThat(history.getSeries(SignalSource.ACTUATOR, 1).getQuantity(0)).isEqualTo(55.0);
+
+        final ReplayEngine replayEngine = new ReplayEngine(history);
+        final ReplayMeasurement replayMeasurement = replayEngine.measurementOf(1);
+        final List<Double> measurements = new ArrayList<>();
+        replayEngine.getScheduler().scheduleAtFixedRate(
+                () -> measurements.add(replayMeasurement.takeMeasurement()),
+                0L,
+                500L,
+                TimeUnit.MILLISECONDS,
+                ExecutionMode.SCHEDULER_THREAD,
+                (latenessNanos, executionNanos, missedTicks) -> {});
+        replayEngine.run();
+        // Each recorded quantity is held until the next one, as the instrument's output was
+        assertThat(measurements).containsExactly(10.0, 10.0, 20.0, 20.0, 30.0);
+    }
+
+    @Test
+    void testMalformedCsv() throws IOException {
+        final Path csvFile = directory.resolve("malformed.csv");
+        Files.writeString(csvFile, RecordedHistory.CSV_HEADER + "\nSENSOR,1,not-a-time,30.0,CELSIUS");
+        assertThatThrownBy(() -> RecordedHistory.fromCsv(csvFile)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ReplayEngine(recordWeek()).measurementOf(SENSOR_ID + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,199 @@
+package com.control_ops.control_system.simulation;
+
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.TestIds;
+import com.control_ops.control_system.VirtualScheduler;
+import com.control_ops.control_system.control_loop.ControlLoop;
+import com.control_ops.control_system.control_loop.PidControl;
+import com.control_ops.control_system.instrument.EpochNanoClock;
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+
+class PlantSimulatorTest {
+    private static final long STEP_MS = 100L;
+
+    @RegisterExtension
+    final TestIds ids = new TestIds();
+
+    private final VirtualScheduler virtualScheduler = new VirtualScheduler(EpochNanoClock.now());
+    private final PlantSimulator plantSimulator =
+            new PlantSimulator("test plant", STEP_MS, TimeUnit.MILLISECONDS, virtualScheduler);
+    private final List<Sensor> sensors = new ArrayList<>();
+
+    private static final Logger logger = LoggerFactory.getLogger(PlantSimulatorTest.class);
+
+    @AfterEach
+    void tearDown() {
+        plantSimulator.release();
+        sensors.forEach(Sensor::stopMeasuring);
+    }
+
+    private void advanceSteps(final long numSteps) {
+        virtualScheduler.advanceBy(numSteps * STEP_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A step of the actuator output moves a first-order process along its exponential response, which only begins
+     * once the dead time has elapsed.
+     */
+    @Test
+    void testFirstOrderPlusDeadTimeStepResponse() {
+        final Actuator actuator = new Actuator(ids.next(), 50.0, virtualScheduler);
+        final ProcessMeasurement processMeasurement = plantSimulator.attach(
+                actuator,
+                ProcessModel.firstOrderPlusDeadTime(2.0, 5.0, 1.0, 20.0));
+        plantSimulator.start();
+        advanceSteps(10L);
+        assertThat(processMeasurement.takeMeasurement()).isEqualTo(20.0);
+
+        actuator.adjustSignal(60.0);
+        // Ten steps of dead time after the first step that sees the new output
+        advanceSteps(10L);
+        assertThat(processMeasurement.takeMeasurement()).isEqualTo(20.0);
+        for (int elapsedSteps = 1; elapsedSteps <= 100; elapsedSteps++) {
+            advanceSteps(1L);
+            final double expected = 20.0 + 2.0 * 10.0 * (1.0 - Math.exp(-elapsedSteps * 0.1 / 5.0));
+            assertThat(processMeasurement.takeMeasurement()).isCloseTo(expected, within(1e-9));
+        }
+    }
+
+    /**
+     * An integrating process ramps at a constant rate while the actuator output is away from rest, and holds its
+     * value once it returns.
+     */
+    @Test
+    void testIntegratingRamp() {
+        final Actuator actuator = new Actuator(ids.next(), 50.0, virtualScheduler);
+        final ProcessMeasurement processMeasurement = plantSimulator.attach(
+                actuator,
+                ProcessModel.integrating(0.5, 0.0, 1.0));
+        plantSimulator.start();
+        advanceSteps(1L);
+        actuator.adjustSignal(54.0);
+        // Four seconds at two units per second
+        advanceSteps(40L);
+        assertThat(processMeasurement.takeMeasurement()).isCloseTo(9.0, within(1e-9));
+        actuator.adjustSignal(50.0);
+        advanceSteps(40L);
+        assertThat(processMeasurement.takeMeasurement()).isCloseTo(9.0, within(1e-9));
+    }
+
+    /**
+     * Processes attached beyond the initial capacity keep their own coefficients and delay lines.
+     */
+    @Test
+    void testManyProcesses() {
+        final int numProcesses = 200;
+        final List<Actuator> actuators = new ArrayList<>(numProcesses);
+        final List<ProcessMeasurement> processMeasurements = new ArrayList<>(numProcesses);
+        for (int i = 0; i < numProcesses; i++) {
+            final Actuator actuator = new Actuator(ids.next(), 0.0, virtualScheduler);
+            actuators.add(actuator);
+            processMeasurements.add(plantSimulator.attach(
+                    actuator,
+                    ProcessModel.firstOrderPlusDeadTime(1.0 + i, 1.0, 0.1 * (i % 5), 0.0)));
+        }
+        assertThat(plantSimulator.size()).isEqualTo(numProcesses);
+        plantSimulator.start();
+        actuators.forEach(actuator -> actuator.adjustSignal(1.0));
+        advanceSteps(200L);
+
+        assertThat(plantSimulator.getStepCount()).isEqualTo(201L);
+        for (int i = 0; i < numProcesses; i++) {
+            assertThat(processMeasurements.get(i).takeMeasurement()).isCloseTo(1.0 + i, within(1e-3 * (1.0 + i)));
+        }
+    }
+
+    /**
+     * Closes ten thousand PI loops around first-order-plus-dead-time processes on one virtual clock, and checks that
+     * every one of them settles at its set point after a set point change.
+     */
+    @Test
+    void testClosedLoopsSettle() {
+        final int numLoops = 10_000;
+        final double setPoint = 30.0;
+        final List<SettlingMonitor> settlingMonitors = new ArrayList<>(numLoops);
+        plantSimulator.start();
+        for (int i = 0; i < numLoops; i++) {
+            final int id = ids.next();
+            final Actuator actuator = new Actuator(id, 50.0, virtualScheduler);
+            final ProcessMeasurement processMeasurement = plantSimulator.attach(
+                    actuator,
+                    ProcessModel.firstOrderPlusDeadTime(2.0, 2.0, 0.5, 20.0));
+            final Sensor sensor = new Sensor(id, STEP_MS, TimeUnit.MILLISECONDS, SignalUnit.CELSIUS,
+                    processMeasurement, ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+            sensors.add(sensor);
+            final SettlingMonitor settlingMonitor = new SettlingMonitor(setPoint, 0.2);
+            sensor.addSampleListener(settlingMonitor);
+            settlingMonitors.add(settlingMonitor);
+            // Internal model control tuning with a closed-loop time constant equal to the process time constant
+            final ControlLoop controlLoop = new ControlLoop(id, sensor, actuator, setPoint, STEP_MS,
+                    TimeUnit.MILLISECONDS, new PidControl(0.4, 0.2, 0.0, 0.0, 0.0, 100.0),
+                    ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+            sensor.startMeasuring();
+            controlLoop.startControlling();
+        }
+        assertThat(plantSimulator.size()).isEqualTo(numLoops);
+
+        final long simulatedSeconds = 20L;
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        final long startCpuNanos = threadMXBean.getCurrentThreadCpuTime();
+        virtualScheduler.advanceBy(simulatedSeconds, TimeUnit.SECONDS);
+        final long cpuNanos = threadMXBean.getCurrentThreadCpuTime() - startCpuNanos;
+        final long loopSteps = numLoops * TimeUnit.SECONDS.toMillis(simulatedSeconds) / STEP_MS;
+        logger.info("Simulated {} s of {} closed loops in {} ms of CPU ({} ns per loop per step)",
+                simulatedSeconds, numLoops, TimeUnit.NANOSECONDS.toMillis(cpuNanos), cpuNanos / loopSteps);
+
+        long slowestSettlingNanos = 0L;
+        double largestOvershoot = 0.0;
+        for (final SettlingMonitor settlingMonitor : settlingMonitors) {
+            assertThat(settlingMonitor.isSettled()).isTrue();
+            slowestSettlingNanos = Math.max(slowestSettlingNanos, settlingMonitor.getSettlingNanos());
+            largestOvershoot = Math.max(largestOvershoot, settlingMonitor.getOvershoot());
+        }
+        logger.info("The slowest loop settled in {} ms with an overshoot of {}",
+                TimeUnit.NANOSECONDS.toMillis(slowestSettlingNanos), largestOvershoot);
+        assertThat(slowestSettlingNanos).isLessThan(TimeUnit.SECONDS.toNanos(simulatedSeconds));
+    }
+
+    @Test
+    void testReleaseStopsStepping() {
+        final Actuator actuator = new Actuator(ids.next(), 0.0, virtualScheduler);
+        plantSimulator.attach(actuator, ProcessModel.integrating(1.0, 0.0, 0.0));
+        plantSimulator.start();
+        advanceSteps(5L);
+        final long stepCount = plantSimulator.getStepCount();
+        plantSimulator.release();
+        advanceSteps(5L);
+        assertThat(plantSimulator.isRunning()).isFalse();
+        assertThat(plantSimulator.getStepCount()).isEqualTo(stepCount);
+    }
+
+    @Test
+    void testInvalidModels() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> ProcessModel.firstOrderPlusDeadTime(0.0, 1.0, 0.0, 0.0));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> ProcessModel.firstOrderPlusDeadTime(1.0, 0.0, 0.0, 0.0));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> ProcessModel.integrating(1.0, -1.0, 0.0));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new PlantSimulator("invalid", 0L, TimeUnit.MILLISECONDS, virtualScheduler));
+    }
+}
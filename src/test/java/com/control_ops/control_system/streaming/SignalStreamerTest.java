@@ -0,0 +1,287 @@
+package com.control_ops.control_system.streaming;
+
+import com.control_ops.control_system.ExecutionMode;
+import com.control_ops.control_system.TestIds;
+import com.control_ops.control_system.VirtualScheduler;
+import com.control_ops.control_system.control_loop.ControlLoop;
+import com.control_ops.control_system.control_loop.ProportionalControl;
+import com.control_ops.control_system.historian.SignalSource;
+import com.control_ops.control_system.instrument.EpochNanoClock;
+import com.control_ops.control_system.instrument.SignalUnit;
+import com.control_ops.control_system.instrument.actuator.Actuator;
+import com.control_ops.control_system.instrument.sensor.ConstantMeasurement;
+import com.control_ops.control_system.instrument.sensor.Sensor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class SignalStreamerTest {
+    // Stands in for the broker: keeps every published frame and confirms it on another thread
+    private final List<byte[]> receivedFrames = new CopyOnWriteArrayList<>();
+    private final List<String> routingKeys = new CopyOnWriteArrayList<>();
+    private final ExecutorService confirmExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicInteger nacksRemaining = new AtomicInteger(0);
+    private final SignalStreamer.FramePublisher broker = (routingKey, frame) ->
+            CompletableFuture.supplyAsync(() -> {
+                if (nacksRemaining.getAndDecrement() > 0) {
+                    return false;
+                }
+                routingKeys.add(routingKey);
+                receivedFrames.add(frame);
+                return true;
+            }, confirmExecutor);
+
+    @RegisterExtension
+    final TestIds ids = new TestIds();
+
+    private final List<AutoCloseable> closeables = new ArrayList<>();
+    private static final Logger logger = LoggerFactory.getLogger(SignalStreamerTest.class);
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (final AutoCloseable closeable : closeables) {
+            closeable.close();
+        }
+        confirmExecutor.shutdown();
+    }
+
+    private SignalStreamer makeStreamer(final int samplesPerFrame) {
+        return makeStreamer(samplesPerFrame, SignalStreamer.DEFAULT_MAX_QUEUED_FRAMES);
+    }
+
+    private SignalStreamer makeStreamer(final int samplesPerFrame, final int maxQueuedFrames) {
+        final SignalStreamer signalStreamer = new SignalStreamer(
+                "signal streamer " + ids.next(), broker, samplesPerFrame, 10L, maxQueuedFrames);
+        closeables.add(signalStreamer);
+        return signalStreamer;
+    }
+
+    private List<Double> decodeQuantities(final SignalSource source, final int sourceId) {
+        final List<Double> quantities = new ArrayList<>();
+        for (final byte[] frame : receivedFrames) {
+            SignalFrame.decode(frame, (frameSource, frameSourceId, quantity, unit, epochNanos) -> {
+                if (frameSource == source && frameSourceId == sourceId) {
+                    quantities.add(quantity);
+                }
+            });
+        }
+        return quantities;
+    }
+
+    @Test
+    void testStreamSensorAndActuator() {
+        final int id = ids.next();
+        final SignalStreamer signalStreamer = makeStreamer(16);
+        final VirtualScheduler virtualScheduler = new VirtualScheduler(EpochNanoClock.now());
+        final Sensor sensor = new Sensor(id, 10L, TimeUnit.MILLISECONDS, SignalUnit.CELSIUS,
+                new ConstantMeasurement(21.5), ExecutionMode.SCHEDULER_THREAD, virtualScheduler);
+        final Actuator actuator = new Actuator(id, 0.0);
+        signalStreamer.stream(sensor);
+        signalStreamer.stream(actuator);
+        sensor.startMeasuring();
+        virtualScheduler.advanceBy(1L, TimeUnit.SECONDS);
+        sensor.stopMeasuring();
+        for (int i = 1; i <= 10; i++) {
+            actuator.adjustSignal(i * 10.0);
+        }
+        signalStreamer.stopStreaming(actuator);
+        actuator.adjustSignal(0.0);
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> signalStreamer.getConfirmedCount() == 111L);
+        assertThat(signalStreamer.getUnconfirmedCount()).isZero();
+        assertThat(decodeQuantities(SignalSource.SENSOR, id)).hasSize(101).containsOnly(21.5);
+        assertThat(decodeQuantities(SignalSource.ACTUATOR, id))
+                .containsExactly(10.0, 20.0, 30.0, 40.0, 50.0, 60.0, 70.0, 80.0, 90.0, 100.0);
+        assertThat(routingKeys).contains("sensor", "actuator").doesNotContain("set_point");
+    }
+
+    @Test
+    void testRepublishUnconfirmedFrames() {
+        final int id = ids.next();
+        nacksRemaining.set(3);
+        final SignalStreamer signalStreamer = makeStreamer(100);
+        final Actuator actuator = new Actuator(id, 0.0);
+        signalStreamer.stream(actuator);
+        for (int i = 0; i < 1000; i++) {
+            actuator.adjustSignal(i);
+        }
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> signalStreamer.getConfirmedCount() == 1000L);
+        assertThat(signalStreamer.getNackedFrameCount()).isEqualTo(3L);
+        // The flush may also have sealed partly filled frames, so count the frames that reached the broker
+        assertThat(signalStreamer.getPublishedFrameCount()).isEqualTo(receivedFrames.size() + 3L);
+        assertThat(decodeQuantities(SignalSource.ACTUATOR, id)).hasSize(1000).doesNotHaveDuplicates();
+    }
+
+    /**
+     * A frame that could not be sent must be published again before the frames that were sealed after it.
+     */
+    @Test
+    void testRetryKeepsOrder() {
+        final int id = ids.next();
+        final AtomicInteger failuresRemaining = new AtomicInteger(1);
+        final SignalStreamer.FramePublisher failingBroker = (routingKey, frame) -> {
+            if (failuresRemaining.getAndDecrement() > 0) {
+                throw new IllegalStateException("The broker is unreachable");
+            }
+            receivedFrames.add(frame);
+            return CompletableFuture.completedFuture(true);
+        };
+        final SignalStreamer signalStreamer = new SignalStreamer("signal streamer " + ids.next(), failingBroker, 10,
+                10L, SignalStreamer.DEFAULT_MAX_QUEUED_FRAMES);
+        closeables.add(signalStreamer);
+        final Actuator actuator = new Actuator(id, 0.0);
+        signalStreamer.stream(actuator);
+        final List<Double> adjustments = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            actuator.adjustSignal(i);
+            adjustments.add((double) i);
+        }
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> signalStreamer.getConfirmedCount() == 100L);
+        assertThat(decodeQuantities(SignalSource.ACTUATOR, id)).containsExactlyElementsOf(adjustments);
+    }
+
+    /**
+     * While the broker rejects every frame, the streamer must back off rather than publish on every flush, and keep at
+     * most its maximum number of frames by dropping the oldest; once the broker recovers, every frame that was not
+     * dropped must be confirmed.
+     */
+    @Test
+    void testBoundedRetries() throws InterruptedException {
+        final int id = ids.next();
+        nacksRemaining.set(Integer.MAX_VALUE);
+        final SignalStreamer signalStreamer = makeStreamer(10, 4);
+        final Actuator actuator = new Actuator(id, 0.0);
+        signalStreamer.stream(actuator);
+        for (int i = 0; i < 200; i++) {
+            actuator.adjustSignal(i);
+        }
+        Thread.sleep(500L);
+
+        // At most a few flushes' worth of frames were published, where 50 flushes would each have retried them all
+        assertThat(signalStreamer.getPublishedFrameCount()).isLessThan(40L);
+        assertThat(signalStreamer.getDroppedFrameCount()).isGreaterThanOrEqualTo(12L);
+        assertThat(signalStreamer.getDroppedSignalCount()).isEqualTo(10L * signalStreamer.getDroppedFrameCount());
+        assertThat(signalStreamer.getUnconfirmedCount()).isLessThanOrEqualTo(4L * 10L + 10L);
+
+        nacksRemaining.set(0);
+        await().atMost(15, TimeUnit.SECONDS).until(() -> signalStreamer.getUnconfirmedCount() == 0L);
+        assertThat(signalStreamer.getConfirmedCount() + signalStreamer.getDroppedSignalCount()).isEqualTo(200L);
+        // The newest signals were kept
+        assertThat(decodeQuantities(SignalSource.ACTUATOR, id)).contains(199.0);
+    }
+
+    @Test
+    void testThroughput() {
+        final int id = ids.next();
+        final int sampleCount = 1_000_000;
+        final SignalStreamer signalStreamer = makeStreamer(SignalStreamer.DEFAULT_SAMPLES_PER_FRAME);
+        final Actuator actuator = new Actuator(id, 0.0);
+        signalStreamer.stream(actuator);
+        final long startNanos = System.nanoTime();
+        for (int i = 0; i < sampleCount; i++) {
+            actuator.adjustSignal(i % 100);
+        }
+        final long producedNanos = System.nanoTime() - startNanos;
+        await().atMost(30, TimeUnit.SECONDS).pollInterval(10, TimeUnit.MILLISECONDS).until(() ->
+                signalStreamer.getConfirmedCount() == sampleCount);
+        final long confirmedNanos = System.nanoTime() - startNanos;
+
+        final long frameCount = signalStreamer.getPublishedFrameCount();
+        final double bytesPerSample = signalStreamer.getPublishedByteCount() / (double) sampleCount;
+        logger.info("Streamed {} samples in {} ms as {} messages ({} messages/s, {} samples/s, {} bytes/sample)",
+                sampleCount,
+                TimeUnit.NANOSECONDS.toMillis(confirmedNanos),
+                frameCount,
+                frameCount * TimeUnit.SECONDS.toNanos(1) / confirmedNanos,
+                sampleCount * TimeUnit.SECONDS.toNanos(1) / confirmedNanos,
+                bytesPerSample);
+        logger.info("Appending the samples took {} ns per sample", producedNanos / sampleCount);
+        // Full frames amortize the header to a fraction of a byte per sample
+        assertThat(bytesPerSample).isLessThan(SignalFrame.SAMPLE_SIZE + 1.0);
+        assertThat(frameCount).isLessThan(sampleCount / 100L);
+    }
+
+    @Test
+    void testApplyRemoteSetPoints() {
+        final int id = ids.next();
+        final Sensor sensor = new Sensor(id, 1L, TimeUnit.SECONDS, SignalUnit.CELSIUS,
+                new ConstantMeasurement(0.0));
+        final ControlLoop controlLoop = new ControlLoop(id, sensor, new Actuator(id, 0.0), 10.0, 1L,
+                TimeUnit.SECONDS, new ProportionalControl(1.0));
+        final SignalFrame frame = new SignalFrame(SignalSource.SET_POINT, 4);
+        frame.append(id, 20.0, SignalUnit.CELSIUS, EpochNanoClock.now());
+        frame.append(ids.next(), 50.0, SignalUnit.CELSIUS, EpochNanoClock.now());
+        frame.append(id, 25.0, SignalUnit.CELSIUS, EpochNanoClock.now());
+        final SetPointListener setPointListener = new SetPointListener();
+
+        setPointListener.onMessage(new Message(frame.toBytes(), new MessageProperties()));
+        assertThat(controlLoop.getSetPoint()).isEqualTo(25.0);
+
+        // Signal frames and corrupt bodies are discarded
+        final SignalFrame sensorFrame = new SignalFrame(SignalSource.SENSOR, 1);
+        sensorFrame.append(id, 99.0, SignalUnit.CELSIUS, EpochNanoClock.now());
+        setPointListener.onMessage(new Message(sensorFrame.toBytes(), new MessageProperties()));
+        setPointListener.onMessage(new Message(new byte[]{1, 2, 3}, new MessageProperties()));
+        assertThat(controlLoop.getSetPoint()).isEqualTo(25.0);
+
+        // Set points that are not finite never reach the loop
+        final SignalFrame nonFiniteFrame = new SignalFrame(SignalSource.SET_POINT, 3);
+        nonFiniteFrame.append(id, Double.NaN, SignalUnit.CELSIUS, EpochNanoClock.now());
+        nonFiniteFrame.append(id, 30.0, SignalUnit.CELSIUS, EpochNanoClock.now());
+        nonFiniteFrame.append(id, Double.POSITIVE_INFINITY, SignalUnit.CELSIUS, EpochNanoClock.now());
+        setPointListener.onMessage(new Message(nonFiniteFrame.toBytes(), new MessageProperties()));
+        assertThat(controlLoop.getSetPoint()).isEqualTo(30.0);
+        assertThat(setPointListener.getRejectedSetPointCount()).isEqualTo(2L);
+    }
+
+    @Test
+    void testFrameRoundTrip() {
+        final SignalFrame frame = new SignalFrame(SignalSource.SENSOR, 2);
+        assertThat(frame.append(7, 1.5, SignalUnit.FAHRENHEIT, 123L)).isFalse();
+        assertThat(frame.append(8, -2.5, SignalUnit.M3_PER_HOUR, 456L)).isTrue();
+        final byte[] body = frame.toBytes();
+        assertThat(body).hasSize(SignalFrame.HEADER_SIZE + 2 * SignalFrame.SAMPLE_SIZE);
+        assertThatThrownBy(() -> frame.append(9, 0.0, SignalUnit.CELSIUS, 0L))
+                .isInstanceOf(IllegalStateException.class);
+
+        final List<String> decoded = new ArrayList<>();
+        final int count = SignalFrame.decode(body, (source, sourceId, quantity, unit, epochNanos) ->
+                decoded.add(source + " " + sourceId + " " + quantity + " " + unit + " " + epochNanos));
+        assertThat(count).isEqualTo(2);
+        assertThat(decoded).containsExactly("SENSOR 7 1.5 FAHRENHEIT 123", "SENSOR 8 -2.5 M3_PER_HOUR 456");
+
+        frame.clear();
+        assertThat(frame.toBytes()).hasSize(SignalFrame.HEADER_SIZE);
+        assertThatThrownBy(() -> SignalFrame.decode(new byte[SignalFrame.HEADER_SIZE], (a, b, c, d, e) -> {}))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // Counts that do not fit the body are rejected before any signal is read, however large or negative
+        for (final int corruptCount : new int[]{-1, Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+            final byte[] corruptBody = frame.toBytes();
+            ByteBuffer.wrap(corruptBody).order(ByteOrder.LITTLE_ENDIAN).putInt(4, corruptCount);
+            assertThatThrownBy(() -> SignalFrame.decode(corruptBody, (a, b, c, d, e) -> {}))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}